@@ -6,8 +6,16 @@ plugins {
     id("jacoco")
 }
 
+// Vector API (SIMD-ядра) пока в инкубаторе: модуль подключаем руками и на компиляции, и в рантайме.
+// Без него SimdBackend молча откатывается на скалярные лупы.
+val vectorModuleArgs = listOf("--add-modules", "jdk.incubator.vector")
+// FFM (MemorySegment/Arena под OffHeapField) в 21-й тоже preview. Помечаются только классы, что
+// реально его трогают, так что без флага падает лишь офф-хип путь.
+val previewArgs = listOf("--enable-preview")
+
 application {
     mainClass.set("pdelab.runtime.Main")
+    applicationDefaultJvmArgs = vectorModuleArgs + previewArgs
 }
 
 group = "pdelab"
@@ -57,6 +65,8 @@ tasks.test {
     
     // Поднимаем лимиты памяти JVM для тестов
     jvmArgs("-Xmx1G", "-XX:+UseG1GC")
+    jvmArgs(vectorModuleArgs)
+    jvmArgs(previewArgs)
 }
 
 val verificationTest by tasks.registering(Test::class) {
@@ -66,6 +76,13 @@ val verificationTest by tasks.registering(Test::class) {
         includeTags("slow")
     }
     jvmArgs("-Xmx2G", "-XX:+UseG1GC")
+    jvmArgs(vectorModuleArgs)
+    jvmArgs(previewArgs)
+}
+
+jmh {
+    jvmArgsAppend.addAll(vectorModuleArgs)
+    jvmArgsAppend.addAll(previewArgs)
 }
 
 tasks.jacocoTestReport {
@@ -95,7 +112,10 @@ tasks.check {
 
 // Форсим стандартную компиляцию выплевывать высокооптимизированный байткод (high-performance ops)
 tasks.withType<JavaCompile> {
-    options.compilerArgs.addAll(listOf("-Xlint:all", "-Xlint:-processing"))
+    options.compilerArgs.addAll(listOf("-Xlint:all", "-Xlint:-processing", "-Xlint:-preview"))
+    options.compilerArgs.addAll(vectorModuleArgs)
+    options.compilerArgs.addAll(previewArgs)
+    options.release.set(21) // --enable-preview без явного релиза javac не принимает
 }
 
 // Собираем Fat jar-ник для запуска прямо на кластерах через shadowJar (шоб все зависимости были внутри)
@@ -0,0 +1,71 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.BlockedLayout;
+import pdelab.core.Grid2D;
+import pdelab.core.Stencil;
+
+/**
+ * Row-major против blocked-Morton раскладки интериор-векторов на операторном пути
+ * (то, что гоняет Крылов). block = 0 - обычный row-major, иначе сторона блока.
+ * Промахи кэша смотреть через JMH-профайлер: -prof perfnorm (L1-dcache-load-misses,
+ * LLC-load-misses на операцию), нужен perf в системе.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BlockedLayoutBenchmark {
+
+    @Param({ "2048", "4096" })
+    int N;
+
+    @Param({ "0", "16", "64", "256" })
+    int block;
+
+    private Grid2D grid;
+    private BlockedLayout layout;
+    private double[] x;
+    private double[] y;
+    private double[] kXFull;
+    private double[] kYFull;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        grid = new Grid2D(N, N, 1.0, 1.0);
+        layout = block > 0 ? grid.blocked(block) : null;
+        int n = grid.numInterior();
+        x = new double[n];
+        y = new double[n];
+        kXFull = new double[grid.size()];
+        kYFull = new double[grid.size()];
+
+        java.util.Random rnd = new java.util.Random(42);
+        for (int i = 0; i < n; i++)
+            x[i] = rnd.nextDouble();
+        for (int i = 0; i < kXFull.length; i++) {
+            kXFull[i] = 0.5 + rnd.nextDouble();
+            kYFull[i] = 0.5 + rnd.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public void benchLaplacian() {
+        if (layout != null) {
+            Stencil.applyLaplacianInterior(layout, x, y);
+        } else {
+            Stencil.applyLaplacianInterior(grid, x, null, y);
+        }
+    }
+
+    @Benchmark
+    public double benchImplicitApply() {
+        if (layout != null) {
+            return Stencil.applyImplicitInterior(layout, 0.01, x, kXFull, kYFull, y);
+        }
+        return Stencil.applyImplicitInterior(grid, 0.01, x, kXFull, kYFull, y);
+    }
+}
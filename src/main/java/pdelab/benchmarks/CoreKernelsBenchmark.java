@@ -3,8 +3,14 @@ package pdelab.benchmarks;
 import org.openjdk.jmh.annotations.*;
 import java.util.concurrent.TimeUnit;
 import pdelab.core.Grid2D;
+import pdelab.core.KernelFactory;
+import pdelab.core.ParallelVectorOps;
+import pdelab.core.SimdBackend;
 import pdelab.core.Stencil;
+import pdelab.core.StencilKernel;
 import pdelab.core.VectorOps;
+import pdelab.solver.DiaMatrixOperator;
+import pdelab.solver.ImplicitMatrix;
 
 @State(Scope.Thread)
 @BenchmarkMode(Mode.Throughput)
@@ -17,27 +23,56 @@ public class CoreKernelsBenchmark {
     @Param({ "256", "512" })
     int N;
 
+    // SIMD требует --add-modules jdk.incubator.vector (build.gradle.kts уже прокидывает его в jmh)
+    @Param({ "SCALAR", "SIMD" })
+    String backend;
+
     private Grid2D grid;
     private double[] uFull;
     private double[] uInt;
     private double[] LuInt;
     private double[] vInt;
+    private double[] kXFull;
+    private double[] kYFull;
+    private double[] bXFull;
+    private double[] bYFull;
+    private ImplicitMatrix implicitA;
+    private DiaMatrixOperator diaA;
+    private StencilKernel specializedA;
+    private StencilKernel specializedDivKGrad;
 
     @Setup(Level.Trial)
     public void setup() {
+        boolean simd = SimdBackend.setEnabled("SIMD".equals(backend));
+        if ("SIMD".equals(backend) && !simd) {
+            throw new IllegalStateException("SIMD бэкенд недоступен: нужен --add-modules jdk.incubator.vector");
+        }
         grid = new Grid2D(N, N, 1.0, 1.0);
         uFull = new double[grid.size()];
         uInt = new double[grid.numInterior()];
         LuInt = new double[grid.numInterior()];
         vInt = new double[grid.numInterior()];
+        kXFull = new double[grid.size()];
+        kYFull = new double[grid.size()];
+        bXFull = new double[grid.size()];
+        bYFull = new double[grid.size()];
 
         java.util.Random rnd = new java.util.Random(42);
-        for (int i = 0; i < uFull.length; i++)
+        for (int i = 0; i < uFull.length; i++) {
             uFull[i] = rnd.nextDouble();
+            kXFull[i] = 0.5 + rnd.nextDouble();
+            kYFull[i] = 0.5 + rnd.nextDouble();
+            bXFull[i] = rnd.nextDouble() - 0.5;
+            bYFull[i] = rnd.nextDouble() - 0.5;
+        }
         for (int i = 0; i < uInt.length; i++) {
             uInt[i] = rnd.nextDouble();
             vInt[i] = rnd.nextDouble();
         }
+        implicitA = new ImplicitMatrix(grid, 0.01);
+        diaA = implicitA.coefficients();
+        specializedA = KernelFactory.implicit(grid, 0.01, null, null);
+        specializedDivKGrad = KernelFactory.implicit(grid, 0.01, kXFull, kYFull);
     }
 
     @Benchmark
@@ -45,6 +80,59 @@ public class CoreKernelsBenchmark {
         Stencil.applyLaplacianInterior(grid, uInt, uFull, LuInt);
     }
 
+    // Операторный путь (uFull == null): так стенсил дергают ImplicitMatrix и Крылов
+    @Benchmark
+    public void benchStencilOperator() {
+        Stencil.applyLaplacianInterior(grid, uInt, null, LuInt);
+    }
+
+    @Benchmark
+    public void benchDivKGrad() {
+        Stencil.applyDivKGradInterior(grid, uInt, uFull, kXFull, kYFull, LuInt);
+    }
+
+    @Benchmark
+    public void benchConvectionUpwind() {
+        Stencil.applyConvectionUpwindInterior(grid, uInt, uFull, bXFull, bYFull, LuInt);
+    }
+
+    @Benchmark
+    public void benchImplicitApply() {
+        implicitA.multiply(uInt, LuInt);
+    }
+
+    // Спец-ядра из KernelFactory (hidden class, factor и 1/h^2 - константы) против общего пути
+    @Benchmark
+    public double benchImplicitSpecialized() {
+        return specializedA.applyImplicit(uInt, LuInt);
+    }
+
+    @Benchmark
+    public double benchImplicitDivKGradGeneric() {
+        return Stencil.applyImplicitInterior(grid, 0.01, uInt, kXFull, kYFull, LuInt);
+    }
+
+    @Benchmark
+    public double benchImplicitDivKGradSpecialized() {
+        return specializedDivKGrad.applyImplicit(uInt, LuInt);
+    }
+
+    // Тот же A из собранных диагоналей: 5 потоков коэффициентов против пересчета весов на лету
+    @Benchmark
+    public void benchDiaApply() {
+        diaA.multiply(uInt, LuInt);
+    }
+
+    @Benchmark
+    public double benchParallelDot() {
+        return ParallelVectorOps.dot(uInt, vInt);
+    }
+
+    @Benchmark
+    public void benchParallelAxpy() {
+        ParallelVectorOps.axpy(0.5, uInt, vInt);
+    }
+
     @Benchmark
     public double benchDotProduct() {
         return VectorOps.dot(uInt, vInt);
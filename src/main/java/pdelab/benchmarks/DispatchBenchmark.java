@@ -0,0 +1,153 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.ParallelExecutor;
+
+/**
+ * Цена диспатча ParallelExecutor: SHARED - один общий луп по чанкам на все опы (колл-сайт
+ * compute мегаморфный), MONO - hidden-трамплин на класс опа (сайт мономорфный, compute
+ * инлайнится в луп). Перед замерами профиль забивается пачкой разных опов, как в боевом прогоне
+ * (стенсилы, axpy, dot, MG...). tiny* - крошечные ядра на мэйн-треде (грубые уровни MG, малые
+ * сетки; там прямой колл в обоих режимах - контроль, что диспатч не подорожал), chunked* - луп по
+ * чанкам на воркерах (для замера нужно больше одного ядра, на одном все идет мэйн-тредом).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({ "SHARED", "MONO" })
+    String dispatch;
+
+    private double[] x;
+    private double[] y;
+
+    private static final class ScaleOp implements ParallelExecutor.ArrayOp {
+        double[] y;
+
+        @Override
+        public void compute(int start, int end) {
+            for (int i = start; i < end; i++)
+                y[i] = -y[i]; // Без затухания в денормалы
+        }
+    }
+
+    private static final class ShiftOp implements ParallelExecutor.ArrayOp {
+        double[] y;
+
+        @Override
+        public void compute(int start, int end) {
+            for (int i = start; i < end; i++)
+                y[i] += 1e-9;
+        }
+    }
+
+    private static final class CopyOp implements ParallelExecutor.ArrayOp {
+        double[] x, y;
+
+        @Override
+        public void compute(int start, int end) {
+            System.arraycopy(x, start, y, start, end - start);
+        }
+    }
+
+    private static final class SumOp implements ParallelExecutor.ReduceOp {
+        double[] x;
+
+        @Override
+        public double compute(int start, int end) {
+            double s = 0.0;
+            for (int i = start; i < end; i++)
+                s += x[i];
+            return s;
+        }
+    }
+
+    private static final class MaxOp implements ParallelExecutor.ReduceOp {
+        double[] x;
+
+        @Override
+        public double compute(int start, int end) {
+            double m = 0.0;
+            for (int i = start; i < end; i++)
+                m = Math.max(m, Math.abs(x[i]));
+            return m;
+        }
+    }
+
+    private static final class DotOp implements ParallelExecutor.ReduceOp {
+        double[] x, y;
+
+        @Override
+        public double compute(int start, int end) {
+            double s = 0.0;
+            for (int i = start; i < end; i++)
+                s += x[i] * y[i];
+            return s;
+        }
+    }
+
+    private final ScaleOp scale = new ScaleOp();
+    private final ShiftOp shift = new ShiftOp();
+    private final CopyOp copy = new CopyOp();
+    private final SumOp sum = new SumOp();
+    private final MaxOp max = new MaxOp();
+    private final DotOp dot = new DotOp();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ParallelExecutor.init(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        ParallelExecutor.setMonomorphicDispatch("MONO".equals(dispatch));
+        x = new double[1 << 16];
+        y = new double[1 << 16];
+        java.util.Arrays.fill(x, 1.0);
+        scale.y = y;
+        shift.y = y;
+        copy.x = x;
+        copy.y = y;
+        sum.x = x;
+        max.x = x;
+        dot.x = x;
+        dot.y = y;
+        // Забиваем профиль общего лупа разными классами опов
+        for (int rep = 0; rep < 20_000; rep++) {
+            ParallelExecutor.executeContiguous(64, scale);
+            ParallelExecutor.executeContiguous(64, shift);
+            ParallelExecutor.executeContiguous(64, copy);
+            ParallelExecutor.reduceContiguous(64, sum);
+            ParallelExecutor.reduceContiguous(64, max);
+            ParallelExecutor.reduceContiguous(64, dot);
+            if (rep % 100 == 0) {
+                ParallelExecutor.executeContiguous(x.length, scale);
+                ParallelExecutor.executeContiguous(x.length, copy);
+                ParallelExecutor.reduceContiguous(x.length, sum);
+                ParallelExecutor.reduceContiguous(x.length, max);
+            }
+        }
+    }
+
+    @Benchmark
+    public void tinyArrayOp() {
+        ParallelExecutor.executeContiguous(16, scale);
+    }
+
+    @Benchmark
+    public double tinyReduceOp() {
+        return ParallelExecutor.reduceContiguous(16, dot);
+    }
+
+    // 64K точек: по воркерам, луп по чанкам - общий или трамплин
+    @Benchmark
+    public double chunkedReduce() {
+        return ParallelExecutor.reduceContiguous(x.length, dot);
+    }
+
+    @Benchmark
+    public void chunkedArrayOp() {
+        ParallelExecutor.executeContiguous(x.length, scale);
+    }
+}
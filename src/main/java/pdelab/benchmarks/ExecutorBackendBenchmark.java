@@ -0,0 +1,67 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.ParallelExecutor;
+import pdelab.core.ParallelVectorOps;
+import pdelab.core.PhaseProfiler;
+
+/**
+ * Барьерный пул против ForkJoin (свой пул и commonPool) на одних и тех же ядрах BLAS-1. small -
+ * 64K точек, где фаза короткая и видна цена синхронизации (барьер против сплита тасок и
+ * work-stealing), large - 4M, где все упирается в память. Пул минимум на 2 потока, иначе фасад
+ * все делает мэйн-тредом и бэкенд не участвует. phaseProfile=true - цена PhaseProfiler на фазу
+ * (выключенный обязан быть в шуме от прежних цифр).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorBackendBenchmark {
+
+    @Param({ "BARRIER", "FORKJOIN", "FORKJOIN_COMMON" })
+    String backend;
+
+    @Param({ "65536", "4194304" })
+    int n;
+
+    @Param({ "false", "true" })
+    boolean phaseProfile;
+
+    private double[] x;
+    private double[] y;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        PhaseProfiler.setEnabled(phaseProfile);
+        PhaseProfiler.reset();
+        ParallelExecutor.init(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                ParallelExecutor.Backend.valueOf(backend));
+        x = new double[n];
+        y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.sin(i * 0.01);
+            y[i] = 1.0;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PhaseProfiler.setEnabled(false);
+        PhaseProfiler.reset();
+        ParallelExecutor.init(Runtime.getRuntime().availableProcessors(), ParallelExecutor.Backend.BARRIER);
+    }
+
+    @Benchmark
+    public double dot() {
+        return ParallelVectorOps.dot(x, y);
+    }
+
+    @Benchmark
+    public double[] axpby() {
+        ParallelVectorOps.axpby(1e-3, x, 0.999, y);
+        return y;
+    }
+}
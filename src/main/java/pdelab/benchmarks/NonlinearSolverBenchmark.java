@@ -0,0 +1,129 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.Grid2D;
+import pdelab.core.Stencil;
+import pdelab.solver.AndersonSolver;
+import pdelab.solver.ImplicitMatrix;
+import pdelab.solver.MGPreconditioner;
+import pdelab.solver.NewtonKrylov;
+
+/**
+ * JFNK против Anderson-Picard на таске из JFNKTest: -Laplacian(u) - exp(u) - f = 0,
+ * u = sin(pi x) sin(pi y). Каждый вызов стартует с нулевого guess.
+ * Пары для сравнения: benchJfnk и benchAnderson - дефолты (GMRES без прекондея против Jacobi-PCG
+ * внутри Anderson'а, неравные условия), benchJfnkMultigrid и benchAndersonMultigrid - оба внутренних
+ * солвера на одном MG по I - L. N = 2^k + 1, иначе MG не строит иерархию.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NonlinearSolverBenchmark {
+
+    @Param({ "33", "65" })
+    int N;
+
+    private double[] u;
+    private double[] expU;
+    private NewtonKrylov.NonLinearFunction residual;
+    private NewtonKrylov.NonLinearFunction residualWithJv;
+    private NewtonKrylov jfnk;
+    private AndersonSolver anderson;
+    private NewtonKrylov jfnkMultigrid;
+    private AndersonSolver andersonMultigrid;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Grid2D grid = new Grid2D(N, N, 1.0, 1.0);
+        int nInt = grid.numInterior();
+
+        double[] uTrue = new double[grid.size()];
+        for (int j = 0; j < grid.Ny(); j++) {
+            for (int i = 0; i < grid.Nx(); i++) {
+                uTrue[grid.idx(i, j)] = Math.sin(Math.PI * grid.x()[i]) * Math.sin(Math.PI * grid.y()[j]);
+            }
+        }
+        double[] uTrueInt = new double[nInt];
+        grid.extractInterior(uTrue, uTrueInt);
+
+        double[] f = new double[nInt];
+        Stencil.applyLaplacianInterior(grid, uTrueInt, uTrue, f);
+        for (int i = 0; i < nInt; i++) {
+            f[i] = -f[i] - Math.exp(uTrueInt[i]);
+        }
+
+        residual = (uIn, F_out) -> {
+            Stencil.applyLaplacianInterior(grid, uIn, null, F_out);
+            for (int i = 0; i < nInt; i++) {
+                F_out[i] = -F_out[i] - Math.exp(uIn[i]) - f[i];
+            }
+        };
+
+        expU = new double[nInt];
+        residualWithJv = new NewtonKrylov.AnalyticJacobian() {
+            @Override
+            public void evaluate(double[] uIn, double[] F_out) {
+                residual.evaluate(uIn, F_out);
+            }
+
+            @Override
+            public void linearize(double[] uLin) {
+                for (int i = 0; i < nInt; i++) {
+                    expU[i] = Math.exp(uLin[i]);
+                }
+            }
+
+            @Override
+            public void jacobianVector(double[] uLin, double[] v, double[] out) {
+                Stencil.applyLaplacianInterior(grid, v, null, out);
+                for (int i = 0; i < nInt; i++) {
+                    out[i] = -out[i] - expU[i] * v[i];
+                }
+            }
+        };
+
+        jfnk = new NewtonKrylov(grid, 20, 1e-8, 1000, 1e-9, NewtonKrylov.KrylovMethod.GMRES);
+        jfnk.setForcingTerm(NewtonKrylov.ForcingTerm.EISENSTAT_WALKER_1);
+        anderson = new AndersonSolver(grid, 5, 50, 1e-8);
+        jfnkMultigrid = new NewtonKrylov(grid, 20, 1e-8, 1000, 1e-9, NewtonKrylov.KrylovMethod.GMRES,
+                new MGPreconditioner(grid, 1.0, null));
+        jfnkMultigrid.setForcingTerm(NewtonKrylov.ForcingTerm.EISENSTAT_WALKER_1);
+        andersonMultigrid = new AndersonSolver(grid, 5, 50, 1e-8, new ImplicitMatrix(grid, 1.0),
+                new MGPreconditioner(grid, 1.0, null));
+        u = new double[nInt];
+    }
+
+    @Benchmark
+    public int benchJfnkFiniteDifference() {
+        java.util.Arrays.fill(u, 0.0);
+        return jfnk.solve(residual, u);
+    }
+
+    @Benchmark
+    public int benchJfnkAnalyticJv() {
+        java.util.Arrays.fill(u, 0.0);
+        return jfnk.solve(residualWithJv, u);
+    }
+
+    @Benchmark
+    public int benchAnderson() {
+        java.util.Arrays.fill(u, 0.0);
+        return anderson.solve(residual, u);
+    }
+
+    @Benchmark
+    public int benchJfnkMultigrid() {
+        java.util.Arrays.fill(u, 0.0);
+        return jfnkMultigrid.solve(residual, u);
+    }
+
+    @Benchmark
+    public int benchAndersonMultigrid() {
+        java.util.Arrays.fill(u, 0.0);
+        return andersonMultigrid.solve(residual, u);
+    }
+}
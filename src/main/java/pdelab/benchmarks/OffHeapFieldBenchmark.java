@@ -0,0 +1,100 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.Grid2D;
+import pdelab.core.OffHeapField;
+import pdelab.core.PaddedField;
+import pdelab.core.Stencil;
+
+/**
+ * Паддед-стенсилы по хиповому PaddedField против OffHeapField (обычные страницы и THP).
+ * Хип фиксированный и маленький: офф-хип поля в -Xmx не считаются, а хиповому варианту на 8192^2
+ * его бы не хватило - ровно то, ради чего офф-хип. TLB-промахи: -prof perfnorm (dTLB-load-misses).
+ * OFFHEAP_FIRST_TOUCH - страницы размещают воркеры (OffHeapField.firstTouch); эффект виден только
+ * на многосокетной машине с -Dpdelab.affinity=scatter|compact, на одной ноде совпадает с OFFHEAP.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", "--enable-preview" })
+public class OffHeapFieldBenchmark {
+
+    @Param({ "2048", "4096" })
+    int N;
+
+    @Param({ "HEAP", "OFFHEAP", "OFFHEAP_THP", "OFFHEAP_FIRST_TOUCH" })
+    String storage;
+
+    private PaddedField heapU;
+    private double[] heapKX;
+    private double[] heapKY;
+    private double[] heapOut;
+
+    private OffHeapField u;
+    private OffHeapField kX;
+    private OffHeapField kY;
+    private OffHeapField out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Grid2D grid = new Grid2D(N, N, 1.0, 1.0);
+        double[] uData = new double[grid.size()];
+        double[] kXData = new double[grid.size()];
+        double[] kYData = new double[grid.size()];
+        java.util.Random rnd = new java.util.Random(42);
+        for (int i = 0; i < uData.length; i++) {
+            uData[i] = rnd.nextDouble();
+            kXData[i] = 0.5 + rnd.nextDouble();
+            kYData[i] = 0.5 + rnd.nextDouble();
+        }
+
+        if ("HEAP".equals(storage)) {
+            heapU = new PaddedField(grid, uData);
+            heapKX = kXData;
+            heapKY = kYData;
+            heapOut = new double[grid.numInterior()];
+            return;
+        }
+        OffHeapField.Pages pages = "OFFHEAP_THP".equals(storage) ? OffHeapField.Pages.TRANSPARENT_HUGE
+                : OffHeapField.Pages.SMALL;
+        boolean firstTouch = "OFFHEAP_FIRST_TOUCH".equals(storage);
+        u = firstTouch ? OffHeapField.firstTouch(grid, pages) : new OffHeapField(grid, pages);
+        kX = firstTouch ? OffHeapField.firstTouch(grid, pages) : new OffHeapField(grid, pages);
+        kY = firstTouch ? OffHeapField.firstTouch(grid, pages) : new OffHeapField(grid, pages);
+        out = firstTouch ? OffHeapField.firstTouch(grid, pages) : new OffHeapField(grid, pages);
+        u.copyFrom(uData);
+        kX.copyFrom(kXData);
+        kY.copyFrom(kYData);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (u != null) {
+            u.close();
+            kX.close();
+            kY.close();
+            out.close();
+        }
+    }
+
+    @Benchmark
+    public void benchLaplacian() {
+        if (u != null) {
+            Stencil.applyLaplacianInterior(u, out);
+        } else {
+            Stencil.applyLaplacianInterior(heapU, heapOut);
+        }
+    }
+
+    @Benchmark
+    public void benchDivKGrad() {
+        if (u != null) {
+            Stencil.applyDivKGradInterior(u, kX, kY, out);
+        } else {
+            Stencil.applyDivKGradInterior(heapU, heapKX, heapKY, heapOut);
+        }
+    }
+}
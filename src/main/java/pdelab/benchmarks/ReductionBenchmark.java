@@ -0,0 +1,62 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.ParallelExecutor;
+import pdelab.core.ParallelVectorOps;
+
+/**
+ * Цена воспроизводимых редукций: FAST (партиалы воркеров) против TREE / COMPENSATED (блоки
+ * фиксированного размера + свертка). dot - одиночная редукция как в PCG, multiDot - fused
+ * пачка из GMRES. Разница - запись суммы блока в слот и свертка N / 8192 слотов на мэйн-треде.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReductionBenchmark {
+
+    @Param({ "FAST", "TREE", "COMPENSATED" })
+    String reduction;
+
+    @Param({ "65536", "1048576" })
+    int n;
+
+    private double[] x;
+    private double[] y;
+    private double[][] basis;
+    private final double[] out = new double[5];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        ParallelExecutor.setReduction(ParallelExecutor.Reduction.valueOf(reduction));
+        x = new double[n];
+        y = new double[n];
+        basis = new double[4][n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.sin(i * 0.01);
+            y[i] = Math.cos(i * 0.003);
+            for (int k = 0; k < 4; k++)
+                basis[k][i] = (i % (k + 3)) - 1.0;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ParallelExecutor.setReduction(ParallelExecutor.Reduction.FAST);
+    }
+
+    @Benchmark
+    public double dot() {
+        return ParallelVectorOps.dot(x, y);
+    }
+
+    @Benchmark
+    public double[] multiDot() {
+        ParallelVectorOps.multiDot(basis, 4, y, out);
+        return out;
+    }
+}
@@ -0,0 +1,113 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.ParallelExecutor;
+
+/**
+ * STATIC против GUIDED раздачи чанков. uniform - ровная работа на индекс (контроль: guided не
+ * должен проиграть на CAS-ах), skewed - цена индекса растет к концу массива (как строки с
+ * плотной kappa или неровные тайлы), так что у static последний воркер пашет дольше всех.
+ * Дисбаланс фаз за итерацию (imbalance(...)) отдается JMH как вторичные метрики @AuxCounters:
+ * imbalanceMean / imbalanceWorst (max/mean busy) и barrierIdlePercent рядом со временем.
+ * Чтоб было что балансировать, пул поднимается минимум на 2 потока.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulingBenchmark {
+
+    @Param({ "STATIC", "GUIDED" })
+    String schedule;
+
+    private static final int N = 1 << 17;
+
+    private double[] x;
+    private ParallelExecutor.Schedule mode;
+
+    private static final class UniformOp implements ParallelExecutor.ReduceOp {
+        double[] x;
+
+        @Override
+        public double compute(int start, int end) {
+            double s = 0.0;
+            for (int i = start; i < end; i++)
+                s += Math.sqrt(x[i]);
+            return s;
+        }
+    }
+
+    private static final class SkewedOp implements ParallelExecutor.ReduceOp {
+        double[] x;
+
+        @Override
+        public double compute(int start, int end) {
+            double s = 0.0;
+            for (int i = start; i < end; i++) {
+                int reps = 1 + (i >>> 14); // От 1 до 8 проходов по точке
+                double v = x[i];
+                for (int r = 0; r < reps; r++)
+                    v = Math.sqrt(v + 1.0);
+                s += v;
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Вторичные метрики JMH: дисбаланс фаз за итерацию. Сбрасывается в начале итерации, заполняется
+     * на ее TearDown (JMH читает поля после него).
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Imbalance {
+        public double imbalanceMean;
+        public double imbalanceWorst;
+        public double barrierIdlePercent;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ParallelExecutor.resetImbalance();
+            imbalanceMean = 0.0;
+            imbalanceWorst = 0.0;
+            barrierIdlePercent = 0.0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void capture(SchedulingBenchmark bench) {
+            ParallelExecutor.Imbalance im = ParallelExecutor.imbalance(bench.mode);
+            imbalanceMean = im.meanRatio();
+            imbalanceWorst = im.worstRatio();
+            barrierIdlePercent = 100.0 * im.idleFraction();
+        }
+    }
+
+    private final UniformOp uniform = new UniformOp();
+    private final SkewedOp skewed = new SkewedOp();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ParallelExecutor.init(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        ParallelExecutor.setImbalanceTracking(true);
+        mode = ParallelExecutor.Schedule.valueOf(schedule);
+        x = new double[N];
+        for (int i = 0; i < N; i++)
+            x[i] = 1.0 + (i % 97);
+        uniform.x = x;
+        skewed.x = x;
+    }
+
+    // counters в сигнатуре - только чтобы JMH подцепил стейт с вторичными метриками
+    @Benchmark
+    public double uniform(Imbalance counters) {
+        return ParallelExecutor.reduceContiguous(N, uniform, mode);
+    }
+
+    @Benchmark
+    public double skewed(Imbalance counters) {
+        return ParallelExecutor.reduceContiguous(N, skewed, mode);
+    }
+}
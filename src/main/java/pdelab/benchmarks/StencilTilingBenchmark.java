@@ -0,0 +1,94 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.Grid2D;
+import pdelab.core.Stencil;
+import pdelab.core.Tiling;
+
+/**
+ * Тайлинг против построчного стриминга на сетках крупнее L2. OFF - полоса во всю ширину (как было),
+ * TILED - L1-полосы по 512 колонок, AUTO - то, что выбрал автотюн на этой сетке.
+ * При стриминге в упор в память: div(k grad) тянет 5 массивов по 8 байт на точку, так что
+ * ops/ms * N^2 * 40 байт - эффективная полоса для сравнения с roofline машины.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StencilTilingBenchmark {
+
+    @Param({ "1024", "4096" })
+    int N;
+
+    @Param({ "OFF", "TILED", "AUTO" })
+    String tiling;
+
+    private Grid2D grid;
+    private double[] uFull;
+    private double[] uInt;
+    private double[] LuInt;
+    private double[] rhs;
+    private double[] diag;
+    private double[] kXFull;
+    private double[] kYFull;
+    private double[] bXFull;
+    private double[] bYFull;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        grid = new Grid2D(N, N, 1.0, 1.0);
+        int n = grid.numInterior();
+        uFull = new double[grid.size()];
+        uInt = new double[n];
+        LuInt = new double[n];
+        rhs = new double[n];
+        diag = new double[n];
+        kXFull = new double[grid.size()];
+        kYFull = new double[grid.size()];
+        bXFull = new double[grid.size()];
+        bYFull = new double[grid.size()];
+
+        java.util.Random rnd = new java.util.Random(42);
+        for (int i = 0; i < uFull.length; i++) {
+            uFull[i] = rnd.nextDouble();
+            kXFull[i] = 0.5 + rnd.nextDouble();
+            kYFull[i] = 0.5 + rnd.nextDouble();
+            bXFull[i] = rnd.nextDouble() - 0.5;
+            bYFull[i] = rnd.nextDouble() - 0.5;
+        }
+        for (int i = 0; i < n; i++) {
+            uInt[i] = rnd.nextDouble();
+            rhs[i] = rnd.nextDouble();
+            diag[i] = 1.0 + rnd.nextDouble();
+        }
+
+        switch (tiling) {
+            case "OFF" -> Tiling.set(Integer.MAX_VALUE, Tiling.tileY());
+            case "TILED" -> Tiling.set(512, Tiling.tileY());
+            default -> Tiling.autotune(grid);
+        }
+    }
+
+    @Benchmark
+    public void benchLaplacian() {
+        Stencil.applyLaplacianInterior(grid, uInt, uFull, LuInt);
+    }
+
+    @Benchmark
+    public void benchDivKGrad() {
+        Stencil.applyDivKGradInterior(grid, uInt, uFull, kXFull, kYFull, LuInt);
+    }
+
+    @Benchmark
+    public void benchConvectionUpwind() {
+        Stencil.applyConvectionUpwindInterior(grid, uInt, uFull, bXFull, bYFull, LuInt);
+    }
+
+    @Benchmark
+    public void benchJacobiSweep() {
+        Stencil.jacobiSweepInterior(grid, 0.01, kXFull, kYFull, uInt, rhs, diag, 0.8, LuInt);
+    }
+}
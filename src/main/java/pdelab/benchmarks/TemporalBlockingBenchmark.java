@@ -0,0 +1,77 @@
+package pdelab.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+import pdelab.core.Grid2D;
+import pdelab.core.Stencil;
+
+/**
+ * Сглаживатель MG: sweeps одиночных свипов Якоби (каждый гоняет весь уровень через память)
+ * против wavefront-прохода, который делает все sweeps за одно чтение z/rhs/diag/kX/kY.
+ * Одна операция = sweeps свипов, так что ops/ms сравниваются напрямую.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TemporalBlockingBenchmark {
+
+    @Param({ "1024", "4096" })
+    int N;
+
+    @Param({ "2", "4" })
+    int sweeps;
+
+    private Grid2D grid;
+    private double[] z;
+    private double[] rhs;
+    private double[] diag;
+    private double[] bufA;
+    private double[] bufB;
+    private double[] kXFull;
+    private double[] kYFull;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        grid = new Grid2D(N, N, 1.0, 1.0);
+        int n = grid.numInterior();
+        z = new double[n];
+        rhs = new double[n];
+        diag = new double[n];
+        bufA = new double[n];
+        bufB = new double[n];
+        kXFull = new double[grid.size()];
+        kYFull = new double[grid.size()];
+
+        java.util.Random rnd = new java.util.Random(42);
+        for (int i = 0; i < n; i++) {
+            z[i] = rnd.nextDouble();
+            rhs[i] = rnd.nextDouble();
+            diag[i] = 1.0 + rnd.nextDouble();
+        }
+        for (int i = 0; i < kXFull.length; i++) {
+            kXFull[i] = 0.5 + rnd.nextDouble();
+            kYFull[i] = 0.5 + rnd.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public double[] benchRepeatedSweeps() {
+        double[] src = z;
+        double[] dst = bufA;
+        for (int s = 0; s < sweeps; s++) {
+            Stencil.jacobiSweepInterior(grid, 0.01, kXFull, kYFull, src, rhs, diag, 0.8, dst);
+            src = dst;
+            dst = dst == bufA ? bufB : bufA;
+        }
+        return src;
+    }
+
+    @Benchmark
+    public double[] benchWavefront() {
+        Stencil.jacobiSweepsInterior(grid, 0.01, kXFull, kYFull, z, rhs, diag, 0.8, sweeps, bufA);
+        return bufA;
+    }
+}
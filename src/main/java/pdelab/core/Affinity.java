@@ -0,0 +1,182 @@
+package pdelab.core;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Пиннинг воркеров ParallelExecutor к ядрам (Linux). Без него планировщик таскает воркеров между
+ * сокетами, и first-touch (OffHeapField.firstTouch) теряет смысл: страница легла на ноду, где
+ * воркер был в момент касания, а считает он ее уже с другой.
+ * Топология - из /sys/devices/system/node/node*&#47;cpulist (нет NUMA - одна нода из
+ * /sys/devices/system/cpu/online), пиннинг - sched_setaffinity через FFM на самом воркере.
+ * FFM в Java 21 - preview, поэтому даункол живет в AffinityNative и грузится только при
+ * включенном пиннинге: план и топология preview не трогают, с off хватает обычной JVM.
+ * Режимы -Dpdelab.affinity:
+ * - off (дефолт) - как раньше, планировщик решает сам;
+ * - compact - воркеры забивают ноду за нодой (меньше межсокетного трафика на барьерах);
+ * - scatter - воркеры по кругу по нодам (вся пропускная способность памяти с первых потоков).
+ * Не Linux / нет sched_setaffinity / ядро не из cpuset процесса - варнинг, воркер едет без пина.
+ */
+public final class Affinity {
+    private static final Logger log = LoggerFactory.getLogger(Affinity.class);
+
+    public static final String PROPERTY = "pdelab.affinity";
+    private static final Path NODE_DIR = Path.of("/sys/devices/system/node");
+    private static final Path CPU_ONLINE = Path.of("/sys/devices/system/cpu/online");
+    static final int MASK_LONGS = 16; // 1024 ядра, как CPU_SETSIZE в glibc
+
+    public enum Mode {
+        OFF, COMPACT, SCATTER
+    }
+
+    private Affinity() {
+    }
+
+    public static Mode mode() {
+        String mode = System.getProperty(PROPERTY, "off").trim().toLowerCase();
+        return switch (mode) {
+            case "off", "false" -> Mode.OFF;
+            case "compact", "on", "true" -> Mode.COMPACT;
+            case "scatter", "spread" -> Mode.SCATTER;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем off | compact | scatter). Воркеры без пиннинга.", PROPERTY, mode);
+                yield Mode.OFF;
+            }
+        };
+    }
+
+    /**
+     * Ядра по NUMA-нодам: nodes[n] - ядра ноды n по возрастанию. Без /sys - одна нода на все
+     * availableProcessors.
+     */
+    public static int[][] nodes() {
+        List<int[]> found = new ArrayList<>();
+        if (Files.isDirectory(NODE_DIR)) {
+            List<Path> dirs = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(NODE_DIR, "node[0-9]*")) {
+                stream.forEach(dirs::add);
+            } catch (IOException e) {
+                log.debug("Не прочитали {}: {}", NODE_DIR, e.toString());
+            }
+            dirs.sort((a, b) -> Integer.compare(nodeId(a), nodeId(b)));
+            for (Path dir : dirs) {
+                int[] cpus = readCpuList(dir.resolve("cpulist"));
+                if (cpus != null && cpus.length > 0) {
+                    found.add(cpus);
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            int[] online = readCpuList(CPU_ONLINE);
+            if (online == null || online.length == 0) {
+                online = new int[Runtime.getRuntime().availableProcessors()];
+                for (int i = 0; i < online.length; i++) {
+                    online[i] = i;
+                }
+            }
+            found.add(online);
+        }
+        return found.toArray(new int[0][]);
+    }
+
+    private static int nodeId(Path dir) {
+        return Integer.parseInt(dir.getFileName().toString().substring(4));
+    }
+
+    private static int[] readCpuList(Path file) {
+        try {
+            return Files.isReadable(file) ? parseCpuList(Files.readString(file)) : null;
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("Не разобрали {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Формат ядра Linux: "0-3,8,10-11" -> [0, 1, 2, 3, 8, 10, 11]. Пустая строка - пустой список.
+     */
+    static int[] parseCpuList(String list) {
+        String s = list.trim();
+        if (s.isEmpty()) {
+            return new int[0];
+        }
+        List<Integer> cpus = new ArrayList<>();
+        for (String part : s.split(",")) {
+            String[] range = part.trim().split("-");
+            try {
+                int from = Integer.parseInt(range[0]);
+                int to = range.length == 2 ? Integer.parseInt(range[1]) : from;
+                if (range.length > 2 || from < 0 || to < from) {
+                    throw new IllegalArgumentException("Кривой кусок cpulist: " + part);
+                }
+                for (int c = from; c <= to; c++) {
+                    cpus.add(c);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Кривой кусок cpulist: " + part, e);
+            }
+        }
+        return cpus.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Ядро под каждого воркера. Воркеров больше, чем ядер - идем по второму кругу.
+     */
+    static int[] plan(Mode mode, int threads, int[][] nodes) {
+        if (mode == Mode.OFF) {
+            return null;
+        }
+        int[] cpuOf = new int[threads];
+        if (mode == Mode.COMPACT) {
+            int total = 0;
+            for (int[] node : nodes) {
+                total += node.length;
+            }
+            int[] flat = new int[total];
+            int k = 0;
+            for (int[] node : nodes) {
+                for (int cpu : node) {
+                    flat[k++] = cpu;
+                }
+            }
+            for (int w = 0; w < threads; w++) {
+                cpuOf[w] = flat[w % total];
+            }
+        } else {
+            int n = nodes.length;
+            for (int w = 0; w < threads; w++) {
+                int[] node = nodes[w % n];
+                cpuOf[w] = node[(w / n) % node.length];
+            }
+        }
+        return cpuOf;
+    }
+
+    /**
+     * План пиннинга под текущий режим и топологию хоста (null - пиннинг выключен).
+     */
+    public static int[] plan(int threads) {
+        Mode mode = mode();
+        int[] cpuOf = plan(mode, threads, nodes());
+        if (cpuOf != null) {
+            log.info("Пиннинг воркеров ({}): {}", mode, java.util.Arrays.toString(cpuOf));
+        }
+        return cpuOf;
+    }
+
+    /**
+     * Прибивает вызывающий поток к ядру cpu. false - не вышло (не Linux, ядро вне cpuset и т.п.).
+     */
+    public static boolean pinCurrentThread(int cpu) {
+        if (cpu < 0 || cpu >= MASK_LONGS * Long.SIZE) {
+            throw new IllegalArgumentException("Ядро вне маски: " + cpu);
+        }
+        return AffinityNative.pin(cpu);
+    }
+}
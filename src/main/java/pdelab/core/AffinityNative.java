@@ -0,0 +1,59 @@
+package pdelab.core;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Даункол sched_setaffinity для Affinity. Единственное место пиннинга, где есть FFM (в Java 21 -
+ * preview): класс грузится с первым pinCurrentThread, а его зовут только воркеры с планом, то
+ * есть при -Dpdelab.affinity != off. Без --enable-preview пиннинг тогда падает здесь же, а не
+ * каждый ParallelExecutor.init.
+ */
+final class AffinityNative {
+    private static final Logger log = LoggerFactory.getLogger(AffinityNative.class);
+
+    // Линкер - restricted-метод, трогаем один раз на первом пине
+    private static final MethodHandle SCHED_SET_AFFINITY = lookup();
+
+    private AffinityNative() {
+    }
+
+    private static MethodHandle lookup() {
+        try {
+            Linker linker = Linker.nativeLinker();
+            return linker.defaultLookup().find("sched_setaffinity")
+                    .map(addr -> linker.downcallHandle(addr, FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                            ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS)))
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            log.warn("sched_setaffinity недоступен ({}), воркеры без пиннинга.", e.toString());
+            return null;
+        }
+    }
+
+    static boolean pin(int cpu) {
+        if (SCHED_SET_AFFINITY == null) {
+            return false;
+        }
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment mask = arena.allocate(Affinity.MASK_LONGS * Long.BYTES, Long.BYTES);
+            mask.setAtIndex(ValueLayout.JAVA_LONG, cpu / Long.SIZE, 1L << (cpu % Long.SIZE));
+            int rc = (int) SCHED_SET_AFFINITY.invokeExact(0, mask.byteSize(), mask); // pid 0 - текущий поток
+            if (rc != 0) {
+                log.warn("sched_setaffinity({}) вернул {} для {}: едем без пина.", cpu, rc,
+                        Thread.currentThread().getName());
+                return false;
+            }
+            return true;
+        } catch (Throwable t) {
+            log.warn("sched_setaffinity({}) упал: {}", cpu, t.toString());
+            return false;
+        }
+    }
+}
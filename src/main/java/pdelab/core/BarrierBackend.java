@@ -0,0 +1,327 @@
+package pdelab.core;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Родной движок ParallelExecutor: фиксированный пул долгоживущих потоков, синхронизация через
+ * CyclicBarrier (дирижер + воркеры), никаких аллокаций в фазе. Раздача STATIC / GUIDED
+ * (ChunkCounter), пиннинг по Affinity. busy-время воркеров меряется, только когда его кто-то
+ * ждет (статистика дисбаланса фасада или PhaseProfiler), иначе фаза без nanoTime.
+ */
+final class BarrierBackend implements ExecutorBackend {
+    // Thred-local куски сумм. Набили паддингом до 64 байт шоб не ловить false-sharing.
+    private static final int CACHE_LINE_PADDING = 8;
+    private static final int GUIDED_PARTS_PER_THREAD = 2; // Чанк guided = остаток / (2 * threads)
+
+    private final int threads;
+    private final WorkerThread[] workers;
+    private final int[] affinityPlan; // Ядро под воркера или null
+    private final CyclicBarrier barrier;
+    private final ChunkCounter counter = new ChunkCounter();
+
+    private volatile ParallelExecutor.ArrayOp currentArrayOp;
+    private volatile ParallelExecutor.ReduceOp currentReduceOp;
+    private volatile ParallelExecutor.MultiReduceOp currentMultiOp;
+    private volatile ParallelExecutor.ChunkLoop currentLoop;
+    private volatile int currentMultiWidth;
+    private volatile int globalLength;
+    private volatile int currentMinChunk;
+    private volatile boolean currentGuided;
+    private volatile boolean currentTimed;
+    private volatile boolean currentBlockwise;
+    private volatile int currentBlockSize;
+    private volatile int currentDataLength;
+    private volatile double[] currentBlockOut;
+    private volatile boolean terminateWorkers = false;
+
+    private final double[] partialSums;
+    private final long[] busyNanos; // Тот же паддинг, слот на воркера
+
+    // Под multi-reduce (пачка скаляров за один проход): у каждого воркера свой слот шириной multiStride.
+    private double[] multiPartials = new double[0];
+    private int multiStride;
+
+    BarrierBackend(int threads) {
+        this.threads = threads;
+        this.barrier = new CyclicBarrier(threads + 1); // +1 поток под мэйн-тред (дирижер).
+        this.workers = new WorkerThread[threads];
+        this.partialSums = new double[threads * CACHE_LINE_PADDING];
+        this.busyNanos = new long[threads * CACHE_LINE_PADDING];
+        this.affinityPlan = Affinity.plan(threads);
+
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new WorkerThread(i);
+            workers[i].start();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "BARRIER";
+    }
+
+    @Override
+    public int threads() {
+        return threads;
+    }
+
+    @Override
+    public void shutdown() {
+        terminateWorkers = true;
+        barrier.reset(); // Trigger BrokenBarrierException in waiting workers
+        for (WorkerThread w : workers) {
+            w.interrupt();
+            try {
+                w.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void execute(int length, int minChunk, ParallelExecutor.ArrayOp op, ParallelExecutor.Schedule schedule) {
+        currentLoop = ParallelExecutor.loopFor(op);
+        currentArrayOp = op;
+        currentReduceOp = null;
+        currentMultiOp = null;
+        currentBlockwise = false;
+        currentMinChunk = minChunk;
+        globalLength = length;
+        runPhase(schedule);
+    }
+
+    @Override
+    public double reduce(int length, int minChunk, ParallelExecutor.ReduceOp op,
+            ParallelExecutor.Schedule schedule) {
+        currentLoop = ParallelExecutor.loopFor(op);
+        currentReduceOp = op;
+        currentArrayOp = null;
+        currentMultiOp = null;
+        currentBlockwise = false;
+        currentMinChunk = minChunk;
+        globalLength = length;
+        runPhase(schedule);
+
+        double total = 0.0;
+        for (int i = 0; i < threads; i++) {
+            total += partialSums[i * CACHE_LINE_PADDING];
+        }
+        return total;
+    }
+
+    /**
+     * Буфер под партиалы растет только когда прилетает более широкий запрос (в хот-лупе аллокаций нет).
+     */
+    @Override
+    public void reduceMulti(int length, int minChunk, int width, ParallelExecutor.MultiReduceOp op, double[] out,
+            ParallelExecutor.Schedule schedule) {
+        int stride = ((width + CACHE_LINE_PADDING - 1) / CACHE_LINE_PADDING + 1) * CACHE_LINE_PADDING;
+        if (multiPartials.length < threads * stride) {
+            multiPartials = new double[threads * stride];
+        }
+        multiStride = stride;
+        currentLoop = ParallelExecutor.loopFor(op);
+        currentMultiWidth = width;
+        currentMultiOp = op;
+        currentArrayOp = null;
+        currentReduceOp = null;
+        currentBlockwise = false;
+        currentMinChunk = minChunk;
+        globalLength = length;
+        runPhase(schedule);
+
+        for (int i = 0; i < threads; i++) {
+            int base = i * stride;
+            for (int k = 0; k < width; k++) {
+                out[k] += multiPartials[base + k];
+            }
+        }
+    }
+
+    @Override
+    public void reduceBlocks(int blocks, int blockSize, int length, ParallelExecutor.ReduceOp op, double[] out,
+            ParallelExecutor.Schedule schedule) {
+        currentLoop = ParallelExecutor.loopFor(op);
+        currentReduceOp = op;
+        currentArrayOp = null;
+        currentMultiOp = null;
+        runBlockPhase(blocks, blockSize, length, out, schedule);
+    }
+
+    @Override
+    public void reduceMultiBlocks(int blocks, int blockSize, int length, int width,
+            ParallelExecutor.MultiReduceOp op, double[] out, ParallelExecutor.Schedule schedule) {
+        currentLoop = ParallelExecutor.loopFor(op);
+        currentMultiWidth = width;
+        currentMultiOp = op;
+        currentArrayOp = null;
+        currentReduceOp = null;
+        runBlockPhase(blocks, blockSize, length, out, schedule);
+    }
+
+    /**
+     * Раздача блоков воркерам: блок уже не меньше порога работы, так что минимальный чанк - 1 блок.
+     */
+    private void runBlockPhase(int blocks, int blockSize, int length, double[] out,
+            ParallelExecutor.Schedule schedule) {
+        currentBlockwise = true;
+        currentBlockSize = blockSize;
+        currentDataLength = length;
+        currentBlockOut = out;
+        currentMinChunk = 1;
+        globalLength = blocks;
+        try {
+            runPhase(schedule);
+        } finally {
+            currentBlockwise = false;
+            currentBlockOut = null;
+        }
+    }
+
+    /**
+     * Одна фаза: режим выставляется до первого барьера (барьер публикует его воркерам).
+     */
+    private void runPhase(ParallelExecutor.Schedule schedule) {
+        boolean guided = schedule == ParallelExecutor.Schedule.GUIDED;
+        if (guided) {
+            counter.reset();
+        }
+        currentGuided = guided;
+        boolean imbalance = ParallelExecutor.isImbalanceTracking();
+        boolean timed = imbalance || PhaseProfiler.isEnabled();
+        currentTimed = timed;
+        Object profiled = PhaseProfiler.isActive() ? currentOp() : null;
+        ExecutorPhaseEvent event = profiled != null ? PhaseProfiler.beginEvent() : null;
+        long t0 = profiled != null ? System.nanoTime() : 0L;
+
+        try {
+            barrier.await(); // Пинок воркерам: алга!
+            barrier.await(); // Ждем пока воркеры дожуют таски
+        } catch (InterruptedException | BrokenBarrierException e) {
+            throw new RuntimeException("Parallel execute interrupted", e);
+        } finally {
+            currentMultiOp = null;
+        }
+        if (imbalance) {
+            ParallelExecutor.recordPhase(guided, busyNanos, CACHE_LINE_PADDING, threads);
+        }
+        if (profiled != null) {
+            int chunks = chunks(guided);
+            PhaseProfiler.record(profiled, System.nanoTime() - t0, timed ? busyNanos : null, CACHE_LINE_PADDING,
+                    threads, chunks);
+            PhaseProfiler.commitEvent(event, profiled, name(), guided, threads, chunks);
+        }
+    }
+
+    private Object currentOp() {
+        if (currentArrayOp != null) {
+            return currentArrayOp;
+        }
+        return currentReduceOp != null ? currentReduceOp : currentMultiOp;
+    }
+
+    // Раскладка фазы та же, что у воркеров: STATIC - ceil(length / chunk), GUIDED - по ChunkCounter
+    private int chunks(boolean guided) {
+        int length = globalLength;
+        int minChunk = currentMinChunk;
+        if (guided) {
+            return ChunkCounter.chunks(length, minChunk, threads * GUIDED_PARTS_PER_THREAD);
+        }
+        int chunk = ParallelExecutor.chunkSize(length, minChunk, threads);
+        return (length + chunk - 1) / chunk;
+    }
+
+    private class WorkerThread extends Thread {
+        private final int id;
+
+        WorkerThread(int id) {
+            super("PDE-Worker-" + id);
+            this.id = id;
+            this.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            if (affinityPlan != null) {
+                Affinity.pinCurrentThread(affinityPlan[id]);
+            }
+            while (!terminateWorkers) {
+                try {
+                    barrier.await(); // Воркер скучает, ждет таску...
+                    if (terminateWorkers)
+                        break;
+
+                    boolean timed = currentTimed;
+                    long t0 = timed ? System.nanoTime() : 0L;
+                    int length = globalLength;
+                    int minChunk = currentMinChunk;
+                    int chunkSize = ParallelExecutor.chunkSize(length, minChunk, threads);
+
+                    // Паттерн динамического чанкинга (рвём цикл без лишних объектов, zero-allocation).
+                    // Сам луп по чанкам - в трамплине опа, тут только раздача.
+                    int from = id * chunkSize;
+                    int step = threads * chunkSize;
+                    boolean guided = currentGuided;
+                    int parts = threads * GUIDED_PARTS_PER_THREAD;
+
+                    ParallelExecutor.ChunkLoop loop = currentLoop;
+                    ParallelExecutor.ArrayOp opArray = currentArrayOp;
+                    ParallelExecutor.ReduceOp opReduce = currentReduceOp;
+                    ParallelExecutor.MultiReduceOp opMulti = currentMultiOp;
+                    if (opArray != null) {
+                        if (guided) {
+                            loop.arrayGuided(opArray, counter, length, minChunk, parts);
+                        } else {
+                            loop.array(opArray, from, length, chunkSize, step);
+                        }
+                    } else if (currentBlockwise) {
+                        int blockSize = currentBlockSize;
+                        int dataLength = currentDataLength;
+                        double[] out = currentBlockOut;
+                        if (opReduce != null) {
+                            if (guided) {
+                                loop.blocksGuided(opReduce, counter, length, parts, blockSize, dataLength, out);
+                            } else {
+                                loop.blocks(opReduce, from, length, chunkSize, step, blockSize, dataLength, out);
+                            }
+                        } else if (opMulti != null) {
+                            int width = currentMultiWidth;
+                            if (guided) {
+                                loop.multiBlocksGuided(opMulti, counter, length, parts, blockSize, dataLength, width,
+                                        out);
+                            } else {
+                                loop.multiBlocks(opMulti, from, length, chunkSize, step, blockSize, dataLength, width,
+                                        out);
+                            }
+                        }
+                    } else if (opReduce != null) {
+                        partialSums[id * CACHE_LINE_PADDING] = guided
+                                ? loop.reduceGuided(opReduce, counter, length, minChunk, parts)
+                                : loop.reduce(opReduce, from, length, chunkSize, step);
+                    } else if (opMulti != null) {
+                        int multiBase = id * multiStride;
+                        int width = currentMultiWidth;
+                        for (int k = 0; k < width; k++) {
+                            multiPartials[multiBase + k] = 0.0;
+                        }
+                        if (guided) {
+                            loop.multiGuided(opMulti, counter, length, minChunk, parts, multiPartials, multiBase);
+                        } else {
+                            loop.multi(opMulti, from, length, chunkSize, step, multiPartials, multiBase);
+                        }
+                    }
+                    if (timed) {
+                        busyNanos[id * CACHE_LINE_PADDING] = System.nanoTime() - t0;
+                    }
+
+                    barrier.await(); // Signal completion
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    if (terminateWorkers)
+                        break;
+                }
+            }
+        }
+    }
+}
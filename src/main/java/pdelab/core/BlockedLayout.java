@@ -0,0 +1,203 @@
+package pdelab.core;
+
+/**
+ * Blocked-Morton раскладка интериор-вектора. Нутро режется на блоки block x block (block - степень
+ * двойки), сами блоки лежат в памяти по Z-кривой (Morton), внутри блока - построчно. Сосед по
+ * игреку внутри блока в block элементах, а не в Nx, и чанк воркера (пачка подряд идущих блоков по
+ * Z-кривой) - компактный 2D-патч вместо длинной тонкой полосы.
+ * Крайние блоки обрезаны по сетке и хранятся плотно, так что длина вектора ровно numInterior и
+ * BLAS-1 / Крылов работают как есть - меняется только порядок элементов.
+ * Индексы i, j здесь - 0-based координаты нутра (как у стенсилов); 1-based обертка в Grid2D.
+ */
+public final class BlockedLayout {
+    private final Grid2D grid;
+    private final int block;
+    private final int shift;
+    private final int mask;
+    private final int tilesX;
+    private final int tilesY;
+    private final int[] rankOf; // tileY * tilesX + tileX -> номер блока на Z-кривой
+    private final int[] tileOf; // номер блока -> tileY * tilesX + tileX
+    private final int[] start; // номер блока -> смещение его первого элемента
+
+    public BlockedLayout(Grid2D grid, int block) {
+        if (block < 1 || Integer.bitCount(block) != 1) {
+            throw new IllegalArgumentException("Блок раскладки обязан быть степенью двойки, а прилетело " + block);
+        }
+        this.grid = grid;
+        this.block = block;
+        this.shift = Integer.numberOfTrailingZeros(block);
+        this.mask = block - 1;
+        int inX = grid.inX();
+        int inY = grid.inY();
+        this.tilesX = inX == 0 ? 0 : (inX + mask) >> shift;
+        this.tilesY = inY == 0 ? 0 : (inY + mask) >> shift;
+
+        int count = tilesX * tilesY;
+        long[] keys = new long[count];
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                int tile = ty * tilesX + tx;
+                keys[tile] = (interleave(tx) | (interleave(ty) << 1)) << 32 | tile;
+            }
+        }
+        java.util.Arrays.sort(keys); // Прямоугольник не степень двойки - дыры в кодах просто схлопываем
+
+        this.rankOf = new int[count];
+        this.tileOf = new int[count];
+        this.start = new int[count + 1];
+        for (int r = 0; r < count; r++) {
+            int tile = (int) keys[r];
+            tileOf[r] = tile;
+            rankOf[tile] = r;
+            start[r + 1] = start[r] + width(tile % tilesX) * height(tile / tilesX);
+        }
+    }
+
+    // Биты v раздвигаем через один: 0b1011 -> 0b1000101
+    private static long interleave(int v) {
+        long x = v & 0xFFFFL;
+        x = (x | (x << 8)) & 0x00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0FL;
+        x = (x | (x << 2)) & 0x33333333L;
+        x = (x | (x << 1)) & 0x55555555L;
+        return x;
+    }
+
+    public Grid2D grid() {
+        return grid;
+    }
+
+    public int block() {
+        return block;
+    }
+
+    /**
+     * Число блоков (единица раздачи по воркерам).
+     */
+    public int blocks() {
+        return tilesX * tilesY;
+    }
+
+    /**
+     * Индекс узла (i, j) нутра в blocked-векторе.
+     */
+    public int index(int i, int j) {
+        int tx = i >> shift;
+        int r = rankOf[(j >> shift) * tilesX + tx];
+        return start[r] + (j & mask) * width(tx) + (i & mask);
+    }
+
+    // --- Геометрия блока по номеру на Z-кривой (для стенсилов) ---
+
+    int tileX(int r) {
+        return tileOf[r] % tilesX;
+    }
+
+    int tileY(int r) {
+        return tileOf[r] / tilesX;
+    }
+
+    int tilesX() {
+        return tilesX;
+    }
+
+    int tilesY() {
+        return tilesY;
+    }
+
+    int start(int r) {
+        return start[r];
+    }
+
+    /**
+     * Смещение блока (tx, ty) в векторе.
+     */
+    int startOf(int tx, int ty) {
+        return start[rankOf[ty * tilesX + tx]];
+    }
+
+    int width(int tx) {
+        return Math.min(block, grid.inX() - (tx << shift));
+    }
+
+    int height(int ty) {
+        return Math.min(block, grid.inY() - (ty << shift));
+    }
+
+    private static class PermuteOp implements ParallelExecutor.ArrayOp {
+        BlockedLayout layout;
+        double[] src, dst;
+        int srcStride, srcBase; // Row-major источник/приемник: элемент (i, j) в base + j * stride + i
+        boolean toBlocked;
+
+        public void set(BlockedLayout layout, double[] src, int srcBase, int srcStride, double[] dst,
+                boolean toBlocked) {
+            this.layout = layout;
+            this.src = src;
+            this.srcBase = srcBase;
+            this.srcStride = srcStride;
+            this.dst = dst;
+            this.toBlocked = toBlocked;
+        }
+
+        @Override
+        public void compute(int startR, int endR) {
+            for (int r = startR; r < endR; r++) {
+                int tx = layout.tileX(r);
+                int ty = layout.tileY(r);
+                int w = layout.width(tx);
+                int h = layout.height(ty);
+                int blk = layout.start(r);
+                int rm = srcBase + (ty << layout.shift) * srcStride + (tx << layout.shift);
+                for (int jj = 0; jj < h; jj++) {
+                    if (toBlocked) {
+                        System.arraycopy(src, rm + jj * srcStride, dst, blk + jj * w, w);
+                    } else {
+                        System.arraycopy(src, blk + jj * w, dst, rm + jj * srcStride, w);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final PermuteOp permuteOp = new PermuteOp();
+
+    private void permute(double[] rowMajor, int base, int stride, double[] blocked, boolean toBlocked) {
+        if (blocked.length != grid.numInterior()) {
+            throw new IllegalArgumentException("Blocked-вектор не совпал с сеткой: ждали " + grid.numInterior()
+                    + ", прилетело " + blocked.length);
+        }
+        permuteOp.set(this, toBlocked ? rowMajor : blocked, base, stride, toBlocked ? blocked : rowMajor,
+                toBlocked);
+        ParallelExecutor.executeBlocks(blocks(), block * block, permuteOp);
+    }
+
+    /**
+     * blocked = row-major интериор-вектор в этой раскладке.
+     */
+    public void toBlocked(double[] rowMajorInt, double[] blocked) {
+        permute(rowMajorInt, 0, grid.inX(), blocked, true);
+    }
+
+    /**
+     * Обратно: row-major интериор-вектор из blocked.
+     */
+    public void toRowMajor(double[] blocked, double[] rowMajorInt) {
+        permute(rowMajorInt, 0, grid.inX(), blocked, false);
+    }
+
+    /**
+     * blocked = нутро фулл-массива (extractInterior прямо в blocked-порядок).
+     */
+    public void extract(double[] full, double[] blocked) {
+        permute(full, grid.idx(1, 1), grid.Nx(), blocked, true);
+    }
+
+    /**
+     * Нутро фулл-массива = blocked. Границы не трогаем.
+     */
+    public void inject(double[] blocked, double[] full) {
+        permute(full, grid.idx(1, 1), grid.Nx(), blocked, false);
+    }
+}
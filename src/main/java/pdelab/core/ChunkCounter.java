@@ -0,0 +1,55 @@
+package pdelab.core;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Общий счетчик чанков для guided-раздачи: воркеры CAS-ом отхватывают следующий кусок, размер
+ * куска = остаток / parts, но не меньше minChunk. Чанки убывают к концу фазы, так что тормозной
+ * (вытесненный, SMT-сосед) воркер просто возьмет меньше, а хвост доедят остальные.
+ * Счетчик живет в середине int-массива с отступом в 128 байт с каждой стороны: на одной линии
+ * с ним ничего не лежит (соседние поля, заголовок массива), фолс-шаринга нет.
+ */
+final class ChunkCounter {
+    private static final int PAD = 32; // 32 int = 128 байт, с запасом под adjacent-line prefetch
+    private final AtomicIntegerArray cells = new AtomicIntegerArray(2 * PAD + 1);
+
+    /**
+     * Сброс перед фазой. Зовет только дирижер до барьера, барьер и публикует значение воркерам.
+     */
+    void reset() {
+        cells.set(PAD, 0);
+    }
+
+    /**
+     * Начало следующего чанка или length, если раздавать больше нечего. Конец чанка -
+     * {@link #end(int, int, int, int)} от того же start.
+     */
+    int claim(int length, int minChunk, int parts) {
+        while (true) {
+            int start = cells.get(PAD);
+            if (start >= length) {
+                return length;
+            }
+            if (cells.compareAndSet(PAD, start, end(start, length, minChunk, parts))) {
+                return start;
+            }
+        }
+    }
+
+    static int end(int start, int length, int minChunk, int parts) {
+        int size = Math.max(minChunk, (length - start) / parts);
+        return (int) Math.min((long) start + size, length);
+    }
+
+    /**
+     * Сколько чанков раздаст фаза: последовательность end(...) от 0 не зависит от того, кто какой
+     * чанк отхватил (для профайлера, на лету не считаем).
+     */
+    static int chunks(int length, int minChunk, int parts) {
+        int n = 0;
+        for (int start = 0; start < length; start = end(start, length, minChunk, parts)) {
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,118 @@
+package pdelab.core;
+
+/**
+ * Шаблон чанк-лупа воркера. ParallelExecutor клонирует его в hidden class на каждый класс опа
+ * (см. HiddenClasses), так что колл-сайт op.compute в клоне видит ровно один тип: профиль
+ * мономорфный, C2 инлайнит compute прямо в луп по чанкам под дешевой проверкой класса.
+ * Обычный (не клонированный) экземпляр - общий луп на всех, как было до трамплинов.
+ */
+final class ChunkLoopTemplate implements ParallelExecutor.ChunkLoop {
+
+    ChunkLoopTemplate() {
+    }
+
+    @Override
+    public void array(ParallelExecutor.ArrayOp op, int from, int length, int chunk, int step) {
+        for (int start = from; start < length; start += step) {
+            op.compute(start, Math.min(start + chunk, length));
+        }
+    }
+
+    @Override
+    public double reduce(ParallelExecutor.ReduceOp op, int from, int length, int chunk, int step) {
+        double sum = 0.0;
+        for (int start = from; start < length; start += step) {
+            sum += op.compute(start, Math.min(start + chunk, length));
+        }
+        return sum;
+    }
+
+    @Override
+    public void multi(ParallelExecutor.MultiReduceOp op, int from, int length, int chunk, int step, double[] acc,
+            int accOffset) {
+        for (int start = from; start < length; start += step) {
+            op.compute(start, Math.min(start + chunk, length), acc, accOffset);
+        }
+    }
+
+    @Override
+    public void arrayGuided(ParallelExecutor.ArrayOp op, ChunkCounter counter, int length, int minChunk, int parts) {
+        for (int start = counter.claim(length, minChunk, parts); start < length; start = counter.claim(length,
+                minChunk, parts)) {
+            op.compute(start, ChunkCounter.end(start, length, minChunk, parts));
+        }
+    }
+
+    @Override
+    public double reduceGuided(ParallelExecutor.ReduceOp op, ChunkCounter counter, int length, int minChunk,
+            int parts) {
+        double sum = 0.0;
+        for (int start = counter.claim(length, minChunk, parts); start < length; start = counter.claim(length,
+                minChunk, parts)) {
+            sum += op.compute(start, ChunkCounter.end(start, length, minChunk, parts));
+        }
+        return sum;
+    }
+
+    @Override
+    public void multiGuided(ParallelExecutor.MultiReduceOp op, ChunkCounter counter, int length, int minChunk,
+            int parts, double[] acc, int accOffset) {
+        for (int start = counter.claim(length, minChunk, parts); start < length; start = counter.claim(length,
+                minChunk, parts)) {
+            op.compute(start, ChunkCounter.end(start, length, minChunk, parts), acc, accOffset);
+        }
+    }
+
+    @Override
+    public void blocks(ParallelExecutor.ReduceOp op, int from, int blocks, int chunk, int step, int blockSize,
+            int length, double[] out) {
+        for (int start = from; start < blocks; start += step) {
+            blockRange(op, start, Math.min(start + chunk, blocks), blockSize, length, out);
+        }
+    }
+
+    @Override
+    public void blocksGuided(ParallelExecutor.ReduceOp op, ChunkCounter counter, int blocks, int parts,
+            int blockSize, int length, double[] out) {
+        for (int start = counter.claim(blocks, 1, parts); start < blocks; start = counter.claim(blocks, 1, parts)) {
+            blockRange(op, start, ChunkCounter.end(start, blocks, 1, parts), blockSize, length, out);
+        }
+    }
+
+    @Override
+    public void multiBlocks(ParallelExecutor.MultiReduceOp op, int from, int blocks, int chunk, int step,
+            int blockSize, int length, int width, double[] out) {
+        for (int start = from; start < blocks; start += step) {
+            multiBlockRange(op, start, Math.min(start + chunk, blocks), blockSize, length, width, out);
+        }
+    }
+
+    @Override
+    public void multiBlocksGuided(ParallelExecutor.MultiReduceOp op, ChunkCounter counter, int blocks, int parts,
+            int blockSize, int length, int width, double[] out) {
+        for (int start = counter.claim(blocks, 1, parts); start < blocks; start = counter.claim(blocks, 1, parts)) {
+            multiBlockRange(op, start, ChunkCounter.end(start, blocks, 1, parts), blockSize, length, width, out);
+        }
+    }
+
+    // Блок b - ровно [b * blockSize, (b + 1) * blockSize) при любом числе потоков
+    private void blockRange(ParallelExecutor.ReduceOp op, int fromBlock, int toBlock, int blockSize, int length,
+            double[] out) {
+        for (int b = fromBlock; b < toBlock; b++) {
+            int start = b * blockSize;
+            out[b] = op.compute(start, Math.min(start + blockSize, length));
+        }
+    }
+
+    private void multiBlockRange(ParallelExecutor.MultiReduceOp op, int fromBlock, int toBlock, int blockSize,
+            int length, int width, double[] out) {
+        for (int b = fromBlock; b < toBlock; b++) {
+            int base = b * width;
+            for (int k = 0; k < width; k++) {
+                out[base + k] = 0.0;
+            }
+            int start = b * blockSize;
+            op.compute(start, Math.min(start + blockSize, length), out, base);
+        }
+    }
+}
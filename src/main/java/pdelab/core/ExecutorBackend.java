@@ -0,0 +1,43 @@
+package pdelab.core;
+
+/**
+ * SPI движка под ParallelExecutor: кто и на каких потоках крутит чанки. Ядра про бэкенд не знают -
+ * они ходят через статический фасад ParallelExecutor, а тот после своих проверок (мелочь на
+ * мэйн-треде, один поток, режим редукции) отдает сюда только реально параллельную работу:
+ * length всегда больше minChunk, threads() > 1.
+ * Реализации: BarrierBackend (свой пул потоков + CyclicBarrier, дефолт) и ForkJoinBackend
+ * (рекурсивный сплит в ForkJoinPool - свой или чужой, например общий пул сервиса).
+ * Лупы по чанкам бэкенд берет из ParallelExecutor.loopFor(op), чтоб трамплины работали везде.
+ * Зовется с одного потока-дирижера за раз (как и сам фасад).
+ */
+public interface ExecutorBackend {
+
+    /** Имя для логов и metrics.json. */
+    String name();
+
+    /** Сколько потоков реально крутят работу. */
+    int threads();
+
+    void execute(int length, int minChunk, ParallelExecutor.ArrayOp op, ParallelExecutor.Schedule schedule);
+
+    /** Быстрая (FAST) редукция: порядок сложения - на усмотрение бэкенда. */
+    double reduce(int length, int minChunk, ParallelExecutor.ReduceOp op, ParallelExecutor.Schedule schedule);
+
+    /** Добавляет width сумм в out[0 .. width) (фасад out уже занулил). */
+    void reduceMulti(int length, int minChunk, int width, ParallelExecutor.MultiReduceOp op, double[] out,
+            ParallelExecutor.Schedule schedule);
+
+    /**
+     * Воспроизводимая редукция: out[b] = op.compute(b * blockSize, min((b + 1) * blockSize, length))
+     * для всех b < blocks. Свертку слотов делает фасад.
+     */
+    void reduceBlocks(int blocks, int blockSize, int length, ParallelExecutor.ReduceOp op, double[] out,
+            ParallelExecutor.Schedule schedule);
+
+    /** То же для multi: блок b пишет свои width сумм в out[b * width .. (b + 1) * width). */
+    void reduceMultiBlocks(int blocks, int blockSize, int length, int width, ParallelExecutor.MultiReduceOp op,
+            double[] out, ParallelExecutor.Schedule schedule);
+
+    /** Гасит свои потоки (чужие пулы не трогает). */
+    void shutdown();
+}
@@ -0,0 +1,41 @@
+package pdelab.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR-событие на параллельную фазу ParallelExecutor (от пинка воркерам до сбора). Фаз тысячи на
+ * шаг, так что стек не пишем и по умолчанию событие выключено: дефолтные профили
+ * (-XX:StartFlightRecording) его не пишут, нужен явный enable(NAME) - так делают run --profile
+ * jfr|live. Пока ни одна запись его не включила, фаза без аллокаций (см. PhaseProfiler.beginEvent).
+ */
+@Name(ExecutorPhaseEvent.NAME)
+@Label("Executor Phase")
+@Category({ "PDE-LAB", "Executor" })
+@Description("Одна фаза ParallelExecutor через воркеров бэкенда")
+@StackTrace(false)
+@Enabled(false)
+public final class ExecutorPhaseEvent extends jdk.jfr.Event {
+    public static final String NAME = "pdelab.ExecutorPhase";
+
+    @Label("Kernel")
+    @Description("Класс опа: Stencil.LaplacianInterior, ParallelVectorOps.Dot, ...")
+    String kernel;
+
+    @Label("Backend")
+    String backend;
+
+    @Label("Schedule")
+    String schedule;
+
+    @Label("Threads")
+    int threads;
+
+    @Label("Chunks")
+    @Description("Розданные чанки (у ForkJoin - листья сплита)")
+    long chunks;
+}
@@ -0,0 +1,54 @@
+package pdelab.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TVD-лимитеры для MUSCL-реконструкции конвекции. Все три - голые min/max/abs без веток по r,
+ * так что в хот-лупе лимитер - пара инструкций. У каждой константы свое тело phi: в граневом ядре
+ * это вызов по типу лимитера без switch на каждую грань, а на прогоне тип один - C2 его инлайнит.
+ * Дефолт по -Dpdelab.limiter=minmod|vanleer|superbee.
+ */
+public enum FluxLimiter {
+    MINMOD {
+        @Override
+        public double phi(double r) {
+            return Math.max(0.0, Math.min(1.0, r));
+        }
+    },
+    VAN_LEER {
+        @Override
+        public double phi(double r) {
+            double a = Math.abs(r);
+            return (r + a) / (1.0 + a);
+        }
+    },
+    SUPERBEE {
+        @Override
+        public double phi(double r) {
+            return Math.max(0.0, Math.max(Math.min(2.0 * r, 1.0), Math.min(r, 2.0)));
+        }
+    };
+
+    private static final Logger log = LoggerFactory.getLogger(FluxLimiter.class);
+
+    public static final String PROPERTY = "pdelab.limiter";
+
+    /**
+     * phi(r) - доля антидиффузионного наклона, которую оставляем (0 - апвинд 1-го порядка).
+     */
+    public abstract double phi(double r);
+
+    public static FluxLimiter fromProperty() {
+        String mode = System.getProperty(PROPERTY, "minmod").trim().toLowerCase();
+        return switch (mode) {
+            case "minmod" -> MINMOD;
+            case "vanleer", "van_leer" -> VAN_LEER;
+            case "superbee" -> SUPERBEE;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем minmod | vanleer | superbee). Сидим на minmod.", PROPERTY, mode);
+                yield MINMOD;
+            }
+        };
+    }
+}
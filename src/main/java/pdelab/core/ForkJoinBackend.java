@@ -0,0 +1,303 @@
+package pdelab.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бэкенд на ForkJoinPool: диапазон рекурсивно режется пополам до листа размером со STATIC-чанк
+ * барьерного пула (~4 листа на поток), листы крутятся через трамплин опа, остальное разруливает
+ * work-stealing. Пул свой (воркеры PDE-FJ-*, пиннинг по Affinity как у барьерного) или чужой -
+ * например ForkJoinPool.commonPool() сервиса, внутри которого крутится солвер; чужой пул мы не
+ * гасим, а вызов с его же воркера просто джойнится в нем.
+ * Что отличается от BarrierBackend:
+ * - Schedule игнорируется: work-stealing и так динамический;
+ * - на фазу аллоцируются таски (дерево сплита, O(threads) объектов) - для сравнения оверхеда и
+ *   чужих пулов, а не как замена барьеру в хот-лупе;
+ * - статистика дисбаланса не копится (busy-время на поток тут не определено), PhaseProfiler видит
+ *   только длительность фазы и число листьев;
+ * - FAST-суммы складываются по дереву сплита: детерминированно при фиксированном числе потоков,
+ *   воспроизводимо между разными - только TREE / COMPENSATED, как и у барьера.
+ */
+public final class ForkJoinBackend implements ExecutorBackend {
+    private final ForkJoinPool pool;
+    private final boolean owned;
+    private final int threads;
+
+    /**
+     * Свой пул на parallelism потоков.
+     */
+    public ForkJoinBackend(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Потоков в пуле должно быть >= 1, прилетело " + parallelism);
+        }
+        int[] plan = Affinity.plan(parallelism);
+        this.pool = new ForkJoinPool(parallelism, p -> new PinnedWorker(p, plan), null, false);
+        this.owned = true;
+        this.threads = parallelism;
+    }
+
+    /**
+     * Чужой пул (например ForkJoinPool.commonPool()): работаем на его потоках, shutdown его не трогает.
+     */
+    public ForkJoinBackend(ForkJoinPool pool) {
+        this.pool = pool;
+        this.owned = false;
+        this.threads = pool.getParallelism();
+    }
+
+    private static final class PinnedWorker extends ForkJoinWorkerThread {
+        private final int[] plan;
+
+        PinnedWorker(ForkJoinPool pool, int[] plan) {
+            super(pool);
+            this.plan = plan;
+            setDaemon(true);
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            setName("PDE-FJ-" + getPoolIndex()); // Индекс выдается при регистрации, до onStart
+            if (plan != null) {
+                Affinity.pinCurrentThread(plan[getPoolIndex() % plan.length]);
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return owned ? "FORKJOIN" : "FORKJOIN_COMMON";
+    }
+
+    @Override
+    public int threads() {
+        return threads;
+    }
+
+    @Override
+    public void shutdown() {
+        if (!owned) {
+            return;
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int grain(int length, int minChunk) {
+        return ParallelExecutor.chunkSize(length, minChunk, threads);
+    }
+
+    @Override
+    public void execute(int length, int minChunk, ParallelExecutor.ArrayOp op, ParallelExecutor.Schedule schedule) {
+        ExecutorPhaseEvent event = PhaseProfiler.beginEvent();
+        long t0 = PhaseProfiler.isActive() ? System.nanoTime() : 0L;
+        int grain = grain(length, minChunk);
+        pool.invoke(new ArrayTask(ParallelExecutor.loopFor(op), op, 0, length, grain));
+        profile(op, event, t0, length, grain);
+    }
+
+    @Override
+    public double reduce(int length, int minChunk, ParallelExecutor.ReduceOp op,
+            ParallelExecutor.Schedule schedule) {
+        ExecutorPhaseEvent event = PhaseProfiler.beginEvent();
+        long t0 = PhaseProfiler.isActive() ? System.nanoTime() : 0L;
+        int grain = grain(length, minChunk);
+        ReduceTask root = new ReduceTask(ParallelExecutor.loopFor(op), op, 0, length, grain);
+        pool.invoke(root);
+        profile(op, event, t0, length, grain);
+        return root.sum;
+    }
+
+    @Override
+    public void reduceMulti(int length, int minChunk, int width, ParallelExecutor.MultiReduceOp op, double[] out,
+            ParallelExecutor.Schedule schedule) {
+        ExecutorPhaseEvent event = PhaseProfiler.beginEvent();
+        long t0 = PhaseProfiler.isActive() ? System.nanoTime() : 0L;
+        int grain = grain(length, minChunk);
+        MultiTask root = new MultiTask(ParallelExecutor.loopFor(op), op, 0, length, grain, width);
+        pool.invoke(root);
+        profile(op, event, t0, length, grain);
+        for (int k = 0; k < width; k++) {
+            out[k] += root.acc[k];
+        }
+    }
+
+    @Override
+    public void reduceBlocks(int blocks, int blockSize, int length, ParallelExecutor.ReduceOp op, double[] out,
+            ParallelExecutor.Schedule schedule) {
+        ExecutorPhaseEvent event = PhaseProfiler.beginEvent();
+        long t0 = PhaseProfiler.isActive() ? System.nanoTime() : 0L;
+        int grain = grain(blocks, 1);
+        pool.invoke(new BlocksTask(ParallelExecutor.loopFor(op), op, null, 0, blocks, grain, blockSize, length, 0,
+                out));
+        profile(op, event, t0, blocks, grain);
+    }
+
+    @Override
+    public void reduceMultiBlocks(int blocks, int blockSize, int length, int width,
+            ParallelExecutor.MultiReduceOp op, double[] out, ParallelExecutor.Schedule schedule) {
+        ExecutorPhaseEvent event = PhaseProfiler.beginEvent();
+        long t0 = PhaseProfiler.isActive() ? System.nanoTime() : 0L;
+        int grain = grain(blocks, 1);
+        pool.invoke(new BlocksTask(ParallelExecutor.loopFor(op), null, op, 0, blocks, grain, blockSize, length,
+                width, out));
+        profile(op, event, t0, blocks, grain);
+    }
+
+    // t0 == 0 - профайлер и события были выключены на старте фазы. Busy по потокам тут нет, только
+    // фаза и листья
+    private void profile(Object op, ExecutorPhaseEvent event, long t0, int length, int grain) {
+        if (t0 != 0L) {
+            long chunks = leaves(length, grain);
+            PhaseProfiler.record(op, System.nanoTime() - t0, null, 0, threads, chunks);
+            PhaseProfiler.commitEvent(event, op, name(), false, threads, chunks);
+        }
+    }
+
+    // Листья дерева сплита: половинки floor / ceil, как у mid = (lo + hi) >>> 1
+    private static long leaves(int length, int grain) {
+        if (length <= grain) {
+            return 1;
+        }
+        int half = length >>> 1;
+        return leaves(half, grain) + leaves(length - half, grain);
+    }
+
+    // Лист [lo, hi) - один проход трамплина: from = lo, length = hi, chunk = step = hi - lo.
+    // Таски живут одну фазу и никогда не сериализуются, отсюда serial-сапрессы.
+
+    @SuppressWarnings("serial")
+    private static final class ArrayTask extends RecursiveAction {
+        private final ParallelExecutor.ChunkLoop loop;
+        private final ParallelExecutor.ArrayOp op;
+        private final int lo, hi, grain;
+
+        ArrayTask(ParallelExecutor.ChunkLoop loop, ParallelExecutor.ArrayOp op, int lo, int hi, int grain) {
+            this.loop = loop;
+            this.op = op;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                loop.array(op, lo, hi, hi - lo, hi - lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ArrayTask(loop, op, lo, mid, grain), new ArrayTask(loop, op, mid, hi, grain));
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ReduceTask extends RecursiveAction {
+        private final ParallelExecutor.ChunkLoop loop;
+        private final ParallelExecutor.ReduceOp op;
+        private final int lo, hi, grain;
+        double sum;
+
+        ReduceTask(ParallelExecutor.ChunkLoop loop, ParallelExecutor.ReduceOp op, int lo, int hi, int grain) {
+            this.loop = loop;
+            this.op = op;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                sum = loop.reduce(op, lo, hi, hi - lo, hi - lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            ReduceTask left = new ReduceTask(loop, op, lo, mid, grain);
+            ReduceTask right = new ReduceTask(loop, op, mid, hi, grain);
+            invokeAll(left, right);
+            sum = left.sum + right.sum;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class MultiTask extends RecursiveAction {
+        private final ParallelExecutor.ChunkLoop loop;
+        private final ParallelExecutor.MultiReduceOp op;
+        private final int lo, hi, grain, width;
+        double[] acc;
+
+        MultiTask(ParallelExecutor.ChunkLoop loop, ParallelExecutor.MultiReduceOp op, int lo, int hi, int grain,
+                int width) {
+            this.loop = loop;
+            this.op = op;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+            this.width = width;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                acc = new double[width];
+                loop.multi(op, lo, hi, hi - lo, hi - lo, acc, 0);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            MultiTask left = new MultiTask(loop, op, lo, mid, grain, width);
+            MultiTask right = new MultiTask(loop, op, mid, hi, grain, width);
+            invokeAll(left, right);
+            acc = left.acc;
+            for (int k = 0; k < width; k++) {
+                acc[k] += right.acc[k];
+            }
+        }
+    }
+
+    // Диапазон [lo, hi) - в блоках; слоты пишутся по номеру блока, так что форма сплита на биты не влияет
+    @SuppressWarnings("serial")
+    private static final class BlocksTask extends RecursiveAction {
+        private final ParallelExecutor.ChunkLoop loop;
+        private final ParallelExecutor.ReduceOp op;
+        private final ParallelExecutor.MultiReduceOp multiOp;
+        private final int lo, hi, grain, blockSize, length, width;
+        private final double[] out;
+
+        BlocksTask(ParallelExecutor.ChunkLoop loop, ParallelExecutor.ReduceOp op,
+                ParallelExecutor.MultiReduceOp multiOp, int lo, int hi, int grain, int blockSize, int length,
+                int width, double[] out) {
+            this.loop = loop;
+            this.op = op;
+            this.multiOp = multiOp;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+            this.blockSize = blockSize;
+            this.length = length;
+            this.width = width;
+            this.out = out;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                if (op != null) {
+                    loop.blocks(op, lo, hi, hi - lo, hi - lo, blockSize, length, out);
+                } else {
+                    loop.multiBlocks(multiOp, lo, hi, hi - lo, hi - lo, blockSize, length, width, out);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new BlocksTask(loop, op, multiOp, lo, mid, grain, blockSize, length, width, out),
+                    new BlocksTask(loop, op, multiOp, mid, hi, grain, blockSize, length, width, out));
+        }
+    }
+}
@@ -74,6 +74,20 @@ public record Grid2D(
         return (j - 1) * inX() + (i - 1);
     }
 
+    /**
+     * То же, что idxInterior, но в blocked-Morton раскладке (i в [1, Nx-2], j в [1, Ny-2]).
+     */
+    public int idxInterior(int i, int j, BlockedLayout layout) {
+        return layout.index(i - 1, j - 1);
+    }
+
+    /**
+     * Blocked-Morton раскладка нутра с блоком block x block (степень двойки).
+     */
+    public BlockedLayout blocked(int block) {
+        return new BlockedLayout(this, block);
+    }
+
     /**
      * Полный сайз ФУЛЛ грида (со всеми краями).
      */
@@ -107,4 +121,18 @@ public record Grid2D(
             }
         }
     }
+
+    /**
+     * extractInterior прямо в blocked-раскладку (блок за блоком, строки блока - arraycopy).
+     */
+    public void extractInterior(double[] full, double[] interior, BlockedLayout layout) {
+        layout.extract(full, interior);
+    }
+
+    /**
+     * injectInterior из blocked-раскладки. Границы в full не трогаем.
+     */
+    public void injectInterior(double[] interior, double[] full, BlockedLayout layout) {
+        layout.inject(interior, full);
+    }
 }
@@ -0,0 +1,96 @@
+package pdelab.core;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Предпосчитанные метрики сетки: все обратные шаги, которые стенсилы и прекондеи раньше
+ * делили заново в каждой точке. Зависит только от координат, так что считаем один раз на Grid2D
+ * и кэшируем (слабые ссылки - умерла сетка, умерли и метрики).
+ * Индексация по внутренним узлам: x-массивы длины inX, y-массивы длины inY.
+ */
+public final class GridMetrics {
+
+    // Grid2D - рекорд, и массивы x/y в нем сравниваются по ссылке, так что равные ключи = те же координаты
+    private static final Map<Grid2D, GridMetrics> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Метрики вдоль одной оси. Для узла c с соседями L, R (и LL, RR через один):
+     */
+    public static final class Axis {
+        public final double[] invAvg; // 1 / d_avg, d_avg = (R - L) / 2
+        public final double[] invLeft; // 1 / (C - L)
+        public final double[] invRight; // 1 / (R - C)
+        public final double[] lapLeft; // 1 / (d_avg * (C - L)) - вес западного соседа в Лапласиане
+        public final double[] lapRight; // 1 / (d_avg * (R - C))
+        public final double[] invLeft2; // 1 / (L - LL), 0 у первого узла (там шаблон 1-го порядка)
+        public final double[] invRight2; // 1 / (RR - R), 0 у последнего узла
+        public final double[] ratioRightLeft; // (R - C) / (C - L)
+        public final double[] ratioLeftRight; // (C - L) / (R - C)
+        public final double[] ratioLeftLeft2; // (C - L) / (L - LL)
+        public final double[] ratioRightRight2; // (R - C) / (RR - R)
+
+        Axis(double[] coords) {
+            int n = coords.length - 2;
+            invAvg = new double[n];
+            invLeft = new double[n];
+            invRight = new double[n];
+            lapLeft = new double[n];
+            lapRight = new double[n];
+            invLeft2 = new double[n];
+            invRight2 = new double[n];
+            ratioRightLeft = new double[n];
+            ratioLeftRight = new double[n];
+            ratioLeftLeft2 = new double[n];
+            ratioRightRight2 = new double[n];
+
+            int last = coords.length - 1;
+            for (int i = 0; i < n; i++) {
+                int g = i + 1;
+                double c = coords[g];
+                double l = coords[g - 1];
+                double r = coords[g + 1];
+                double ll = coords[Math.max(0, g - 2)];
+                double rr = coords[Math.min(last, g + 2)];
+
+                double dAvg = 0.5 * (r - l);
+                invAvg[i] = 1.0 / dAvg;
+                invLeft[i] = 1.0 / (c - l);
+                invRight[i] = 1.0 / (r - c);
+                lapLeft[i] = 1.0 / (dAvg * (c - l));
+                lapRight[i] = 1.0 / (dAvg * (r - c));
+                invLeft2[i] = (l > ll) ? 1.0 / (l - ll) : 0.0;
+                invRight2[i] = (rr > r) ? 1.0 / (rr - r) : 0.0;
+                ratioRightLeft[i] = (r - c) / (c - l);
+                ratioLeftRight[i] = (c - l) / (r - c);
+                ratioLeftLeft2[i] = (l > ll) ? (c - l) / (l - ll) : 0.0;
+                ratioRightRight2[i] = (rr > r) ? (r - c) / (rr - r) : 0.0;
+            }
+        }
+    }
+
+    private final Axis x;
+    private final Axis y;
+
+    private GridMetrics(Grid2D grid) {
+        this.x = new Axis(grid.x());
+        this.y = new Axis(grid.y());
+    }
+
+    /**
+     * Метрики сетки из кэша (считаются при первом запросе). Хот-лупам лучше держать ссылку у себя
+     * и перезапрашивать только на смене сетки.
+     */
+    public static GridMetrics of(Grid2D grid) {
+        return CACHE.computeIfAbsent(grid, GridMetrics::new);
+    }
+
+    public Axis x() {
+        return x;
+    }
+
+    public Axis y() {
+        return y;
+    }
+}
@@ -0,0 +1,63 @@
+package pdelab.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Клонирование шаблонных классов пакета в hidden classes (Lookup.defineHiddenClass). У каждого
+ * клона свой байткод, а значит свои профили колл-сайтов у JIT и свои static final константы из
+ * class data. Так собираются спец-ядра (KernelFactory) и трамплины воркеров (ParallelExecutor).
+ * Клоны не STRONG: выгружаются, как только на них никто не ссылается.
+ */
+final class HiddenClasses {
+    private static final ConcurrentHashMap<String, byte[]> TEMPLATES = new ConcurrentHashMap<>();
+
+    private HiddenClasses() {
+    }
+
+    private static byte[] bytes(String template) {
+        return TEMPLATES.computeIfAbsent(template, name -> {
+            try (InputStream in = HiddenClasses.class.getResourceAsStream(name + ".class")) {
+                if (in == null) {
+                    throw new IllegalStateException("Байткод шаблона " + name + " не найден в classpath");
+                }
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException("Не прочитали байткод шаблона " + name, e);
+            }
+        });
+    }
+
+    /**
+     * Новый клон шаблона (простое имя класса в pdelab.core, конструктор без аргументов) и его
+     * экземпляр. classData == null - клон без class data.
+     */
+    static <T> T newInstance(String template, Object classData, Class<T> type) {
+        try {
+            return type.cast(constructor(template, classData, MethodType.methodType(void.class)).invoke());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Не клонировали шаблон " + template, t);
+        }
+    }
+
+    /**
+     * Новый клон шаблона и хэндл его конструктора сигнатуры ctor: один класс - сколько угодно
+     * экземпляров (параметры экземпляра - через аргументы конструктора).
+     */
+    static MethodHandle constructor(String template, Object classData, MethodType ctor) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandles.Lookup hidden = classData == null ? lookup.defineHiddenClass(bytes(template), true)
+                    : lookup.defineHiddenClassWithClassData(bytes(template), classData, true);
+            return hidden.findConstructor(hidden.lookupClass(), ctor);
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("Не клонировали шаблон " + template, e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package pdelab.core;
+
+/**
+ * Гистограмма длительностей в наносекундах с log2-корзинами: корзина b держит значения из
+ * [2^(b-1), 2^b), 64 корзины покрывают весь long. Запись - пара инкрементов без аллокаций,
+ * перцентиль - верхняя граница корзины (точность в пределах x2, для "где горит" хватает).
+ * Не потокобезопасна: пишет один поток (дирижер фаз, степпер).
+ */
+public final class Histogram {
+    private final long[] buckets = new long[64];
+    private long count;
+    private long sum;
+    private long max;
+
+    public void record(long nanos) {
+        long v = Math.max(0L, nanos);
+        buckets[Math.min(63, 64 - Long.numberOfLeadingZeros(v))]++;
+        count++;
+        sum += v;
+        max = Math.max(max, v);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long sumNanos() {
+        return sum;
+    }
+
+    public long maxNanos() {
+        return max;
+    }
+
+    public double meanNanos() {
+        return count > 0 ? (double) sum / count : 0.0;
+    }
+
+    /**
+     * q в [0, 1]: верхняя граница корзины, где лежит q-я доля замеров (не больше максимума).
+     */
+    public long percentile(double q) {
+        if (q < 0.0 || q > 1.0) {
+            throw new IllegalArgumentException("Перцентиль ждем в [0, 1], прилетело " + q);
+        }
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int b = 0; b < buckets.length; b++) {
+            seen += buckets[b];
+            if (seen >= rank) {
+                return b == 0 ? 0L : Math.min(max, b >= 63 ? Long.MAX_VALUE : (1L << b) - 1);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Копия корзин (индекс - log2 верхней границы).
+     */
+    public long[] buckets() {
+        return buckets.clone();
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(buckets, 0L);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+}
@@ -0,0 +1,173 @@
+package pdelab.core;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Шаблон специализированного ядра A = I - factor * L. Напрямую не грузится: KernelFactory
+ * клонирует его байткод в hidden class, а конфигурацию кладет в class data. Форма оператора -
+ * static final, так что C2 сворачивает ее в константы (размеры, режим сетки и kappa), ветки по
+ * режиму выкидывает целиком, а у каждого клона свой профиль - петля мономорфная. factor и веса,
+ * домноженные на него, - final поля экземпляра: смена factor - новый экземпляр, а не новый класс.
+ * Лямбд и вложенных классов тут быть не должно: в клоне они ссылаются на исходный шаблон.
+ * Четыре режима:
+ * - uniform + постоянная kappa (в т.ч. чистый Лапласиан): y = D c - CX (l + r) - CY (d + u);
+ * - растянутая + постоянная kappa: веса WX/WY уже домножены на factor * k;
+ * - uniform + переменная kappa: c - FX (...) - FY (...) по интерфейсным kX/kY;
+ * - растянутая + переменная kappa: ровно divKGradPoint из Stencil (метрики из GridMetrics).
+ */
+final class ImplicitKernelTemplate implements StencilKernel, ParallelExecutor.ReduceOp {
+    private static final Object[] DATA = classData();
+
+    private static final int IN_X = (Integer) DATA[KernelFactory.IN_X];
+    private static final int IN_Y = (Integer) DATA[KernelFactory.IN_Y];
+    private static final int NX = (Integer) DATA[KernelFactory.NX];
+    private static final boolean UNIFORM = (Boolean) DATA[KernelFactory.UNIFORM];
+    private static final boolean VARIABLE = (Boolean) DATA[KernelFactory.VARIABLE];
+    private static final double KAPPA = (Double) DATA[KernelFactory.KAPPA];
+    private static final double IHX2 = (Double) DATA[KernelFactory.IHX2];
+    private static final double IHY2 = (Double) DATA[KernelFactory.IHY2];
+    private static final double[] KX = (double[]) DATA[KernelFactory.KX];
+    private static final double[] KY = (double[]) DATA[KernelFactory.KY];
+    private static final double[] X_LAP_LEFT = (double[]) DATA[KernelFactory.X_LAP_LEFT];
+    private static final double[] X_LAP_RIGHT = (double[]) DATA[KernelFactory.X_LAP_RIGHT];
+    private static final double[] Y_LAP_LEFT = (double[]) DATA[KernelFactory.Y_LAP_LEFT];
+    private static final double[] Y_LAP_RIGHT = (double[]) DATA[KernelFactory.Y_LAP_RIGHT];
+    private static final double[] X_INV_LEFT = (double[]) DATA[KernelFactory.X_INV_LEFT];
+    private static final double[] X_INV_RIGHT = (double[]) DATA[KernelFactory.X_INV_RIGHT];
+    private static final double[] X_INV_AVG = (double[]) DATA[KernelFactory.X_INV_AVG];
+    private static final double[] Y_INV_LEFT = (double[]) DATA[KernelFactory.Y_INV_LEFT];
+    private static final double[] Y_INV_RIGHT = (double[]) DATA[KernelFactory.Y_INV_RIGHT];
+    private static final double[] Y_INV_AVG = (double[]) DATA[KernelFactory.Y_INV_AVG];
+    private static final double[] ZERO_ROW = new double[IN_X];
+    private static final String DESCRIPTION = (String) DATA[KernelFactory.DESCRIPTION];
+
+    private final double factor;
+    private final double diag;
+    private final double cx;
+    private final double cy;
+    private final double[] wxl; // Веса растянутой сетки при постоянной kappa, домножены на factor * k
+    private final double[] wxr;
+    private final double[] wyl;
+    private final double[] wyr;
+
+    private double[] x;
+    private double[] y;
+    private boolean withDot;
+
+    ImplicitKernelTemplate(double factor) {
+        this.factor = factor;
+        this.cx = factor * KAPPA * IHX2;
+        this.cy = factor * KAPPA * IHY2;
+        this.diag = 1.0 + 2.0 * cx + 2.0 * cy;
+        boolean weights = !VARIABLE && !UNIFORM;
+        this.wxl = weights ? scaled(X_LAP_LEFT, factor * KAPPA) : null;
+        this.wxr = weights ? scaled(X_LAP_RIGHT, factor * KAPPA) : null;
+        this.wyl = weights ? scaled(Y_LAP_LEFT, factor * KAPPA) : null;
+        this.wyr = weights ? scaled(Y_LAP_RIGHT, factor * KAPPA) : null;
+    }
+
+    private static double[] scaled(double[] a, double s) {
+        double[] out = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            out[i] = s * a[i];
+        }
+        return out;
+    }
+
+    private static Object[] classData() {
+        Object[] data;
+        try {
+            data = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, Object[].class);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Не достали class data шаблона ядра", e);
+        }
+        if (data == null) {
+            throw new IllegalStateException("Шаблон ядра грузится только через KernelFactory (hidden class)");
+        }
+        return data;
+    }
+
+    @Override
+    public double applyImplicit(double[] x, double[] y) {
+        bind(x, y, true);
+        return ParallelExecutor.reduceBlocks(IN_Y, IN_X, this);
+    }
+
+    /**
+     * Без dot-прохода по строкам. Отдельный ArrayOp тут не завести: лямбда или вложенный класс в
+     * клоне ссылаются на исходный шаблон и не верифицируются, так что раздача та же, суммы - нули.
+     */
+    @Override
+    public void apply(double[] x, double[] y) {
+        bind(x, y, false);
+        ParallelExecutor.reduceBlocks(IN_Y, IN_X, this);
+    }
+
+    private void bind(double[] x, double[] y, boolean withDot) {
+        if (x.length != IN_X * IN_Y || y.length != IN_X * IN_Y) {
+            throw new IllegalArgumentException("Вектора не совпали с нутром ядра: ждали " + IN_X * IN_Y
+                    + ", прилетело " + x.length + " и " + y.length);
+        }
+        this.x = x;
+        this.y = y;
+        this.withDot = withDot;
+    }
+
+    @Override
+    public String describe() {
+        return DESCRIPTION + ", factor=" + factor;
+    }
+
+    @Override
+    public double compute(int startJ, int endJ) {
+        double[] x = this.x;
+        double[] y = this.y;
+        boolean withDot = this.withDot;
+        double dot = 0.0;
+        for (int j = startJ; j < endJ; j++) {
+            int off = j * IN_X;
+            int g0 = (j + 1) * NX + 1; // Глобальный индекс узла (1, j + 1)
+            double[] dn = j == 0 ? ZERO_ROW : x;
+            int dnOff = j == 0 ? 0 : off - IN_X;
+            double[] up = j == IN_Y - 1 ? ZERO_ROW : x;
+            int upOff = j == IN_Y - 1 ? 0 : off + IN_X;
+
+            if (IN_X == 1) {
+                y[off] = point(0, j, g0, x[off], 0.0, 0.0, dn[dnOff], up[upOff]);
+            } else {
+                y[off] = point(0, j, g0, x[off], 0.0, x[off + 1], dn[dnOff], up[upOff]);
+                for (int i = 1; i < IN_X - 1; i++) {
+                    int k = off + i;
+                    y[k] = point(i, j, g0 + i, x[k], x[k - 1], x[k + 1], dn[dnOff + i], up[upOff + i]);
+                }
+                int last = IN_X - 1;
+                y[off + last] = point(last, j, g0 + last, x[off + last], x[off + last - 1], 0.0, dn[dnOff + last],
+                        up[upOff + last]);
+            }
+            // Скалярное произведение отдельным проходом по строке (она в L1): так основная петля
+            // без редукции и C2 ее векторизует
+            if (withDot) {
+                for (int k = off; k < off + IN_X; k++) {
+                    dot += x[k] * y[k];
+                }
+            }
+        }
+        return dot;
+    }
+
+    private double point(int i, int j, int g, double c, double l, double r, double d, double u) {
+        if (VARIABLE) {
+            if (UNIFORM) {
+                return c - cx * (KX[g] * (r - c) - KX[g - 1] * (c - l)) - cy * (KY[g] * (u - c) - KY[g - NX] * (c - d));
+            }
+            double lap = (KX[g] * (r - c) * X_INV_RIGHT[i] - KX[g - 1] * (c - l) * X_INV_LEFT[i]) * X_INV_AVG[i]
+                    + (KY[g] * (u - c) * Y_INV_RIGHT[j] - KY[g - NX] * (c - d) * Y_INV_LEFT[j]) * Y_INV_AVG[j];
+            return c - factor * lap;
+        }
+        if (UNIFORM) {
+            return diag * c - cx * (l + r) - cy * (d + u);
+        }
+        return c * (1.0 + wxl[i] + wxr[i] + wyl[j] + wyr[j]) - wxl[i] * l - wxr[i] * r - wyl[j] * d - wyr[j] * u;
+    }
+}
@@ -0,0 +1,199 @@
+package pdelab.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Фабрика специализированных ядер неявного оператора. Общие опы Stencil на каждой точке разруливают
+ * null-kappa, растянутую сетку и factor через поля и рантайм-ветки. Тут под конкретную конфигурацию
+ * (uniform / растянутая сетка, постоянная / переменная kappa) клонируется шаблон
+ * ImplicitKernelTemplate в hidden class (Lookup.defineHiddenClassWithClassData): форма оператора
+ * лежит в его static final полях, C2 сворачивает их в константы и видит маленькую мономорфную
+ * петлю. Постоянная kappa (все интерфейсные значения равны) распознается и зашивается в веса.
+ * factor в класс не зашит: это final поле экземпляра (веса домножаются в конструкторе, в петле -
+ * одна загрузка до цикла). Смена dt (--adaptive, updateFactor) - новый экземпляр того же класса,
+ * без нового hidden class и без перекомпиляции.
+ * Классы кэшируются по (сетка, kX, kY) в маленьком LRU, рядом - последний экземпляр под его factor;
+ * hidden class без STRONG, так что выброшенные из кэша выгружаются вместе с лоадером.
+ * Конвекции тут нет: в неявном операторе ее нет, она явная (IMEX) и идет через граневое ядро.
+ * Включается через -Dpdelab.kernels=specialized (дефолт generic: тайловый/SIMD путь Stencil,
+ * с которым ImplicitMatrix совпадает бит в бит).
+ */
+public final class KernelFactory {
+    private static final Logger log = LoggerFactory.getLogger(KernelFactory.class);
+
+    public static final String PROPERTY = "pdelab.kernels";
+    private static final int CACHE_SIZE = 16;
+    private static final double UNIFORM_TOL = 1e-9; // i * h копит ulp-шум на длинных сетках
+
+    // Раскладка class data для шаблона
+    static final int IN_X = 0, IN_Y = 1, NX = 2, UNIFORM = 3, VARIABLE = 4, KAPPA = 5, IHX2 = 6, IHY2 = 7, KX = 8,
+            KY = 9, X_LAP_LEFT = 10, X_LAP_RIGHT = 11, Y_LAP_LEFT = 12, Y_LAP_RIGHT = 13, X_INV_LEFT = 14,
+            X_INV_RIGHT = 15, X_INV_AVG = 16, Y_INV_LEFT = 17, Y_INV_RIGHT = 18, Y_INV_AVG = 19, DESCRIPTION = 20,
+            DATA_SIZE = 21;
+
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, double.class);
+
+    private record Key(Grid2D grid, double[] kXFull, double[] kYFull) {
+    }
+
+    /**
+     * Hidden class под конфигурацию и последний выданный экземпляр (повторный запрос того же factor).
+     */
+    private static final class Shape {
+        final MethodHandle constructor;
+        StencilKernel last;
+        double lastFactor;
+
+        Shape(MethodHandle constructor) {
+            this.constructor = constructor;
+        }
+    }
+
+    private static final Map<Key, Shape> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Shape> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private static volatile boolean enabled = decide();
+
+    private KernelFactory() {
+    }
+
+    private static boolean decide() {
+        String mode = System.getProperty(PROPERTY, "generic").trim().toLowerCase();
+        return switch (mode) {
+            case "specialized", "on", "true" -> true;
+            case "generic", "off", "false" -> false;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем generic | specialized). Сидим на generic.", PROPERTY, mode);
+                yield false;
+            }
+        };
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Переключает ImplicitMatrix на специализированные ядра на лету (бенчи, тесты).
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Ядро y = x - factor * L x под конфигурацию (kXFull/kYFull - интерфейсные kappa из
+     * Stencil.precomputeDiffusivityArrays, null - Лапласиан). Повторный запрос с теми же
+     * сеткой, factor и массивами kappa (по ссылке) отдает то же ядро, другой factor - новый
+     * экземпляр того же hidden class.
+     */
+    public static StencilKernel implicit(Grid2D grid, double factor, double[] kXFull, double[] kYFull) {
+        if ((kXFull == null) != (kYFull == null)) {
+            throw new IllegalArgumentException("kXFull и kYFull задаются только парой");
+        }
+        if (kXFull != null && (kXFull.length != grid.size() || kYFull.length != grid.size())) {
+            throw new IllegalArgumentException("Массивы kappa не совпали с сеткой: ждали " + grid.size());
+        }
+        Key key = new Key(grid, kXFull, kYFull);
+        synchronized (cache) {
+            Shape shape = cache.get(key);
+            if (shape == null) {
+                shape = new Shape(build(grid, kXFull, kYFull));
+                cache.put(key, shape);
+            }
+            if (shape.last == null || Double.compare(shape.lastFactor, factor) != 0) {
+                shape.last = instantiate(shape.constructor, factor);
+                shape.lastFactor = factor;
+            }
+            return shape.last;
+        }
+    }
+
+    private static StencilKernel instantiate(MethodHandle constructor, double factor) {
+        try {
+            return (StencilKernel) constructor.invoke(factor);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Не собрали экземпляр спец-ядра", t);
+        }
+    }
+
+    private static MethodHandle build(Grid2D grid, double[] kXFull, double[] kYFull) {
+        GridMetrics metrics = GridMetrics.of(grid);
+        boolean uniform = isUniform(grid.x(), grid.hx()) && isUniform(grid.y(), grid.hy());
+        double k = kXFull == null ? 1.0 : constantKappa(grid, kXFull, kYFull);
+        boolean variable = Double.isNaN(k);
+
+        Object[] data = new Object[DATA_SIZE];
+        data[IN_X] = grid.inX();
+        data[IN_Y] = grid.inY();
+        data[NX] = grid.Nx();
+        data[UNIFORM] = uniform;
+        data[VARIABLE] = variable;
+        data[KAPPA] = variable ? 1.0 : k;
+        data[IHX2] = grid.ihx2();
+        data[IHY2] = grid.ihy2();
+        data[KX] = kXFull;
+        data[KY] = kYFull;
+        data[X_LAP_LEFT] = metrics.x().lapLeft;
+        data[X_LAP_RIGHT] = metrics.x().lapRight;
+        data[Y_LAP_LEFT] = metrics.y().lapLeft;
+        data[Y_LAP_RIGHT] = metrics.y().lapRight;
+        data[X_INV_LEFT] = metrics.x().invLeft;
+        data[X_INV_RIGHT] = metrics.x().invRight;
+        data[X_INV_AVG] = metrics.x().invAvg;
+        data[Y_INV_LEFT] = metrics.y().invLeft;
+        data[Y_INV_RIGHT] = metrics.y().invRight;
+        data[Y_INV_AVG] = metrics.y().invAvg;
+        String description = (uniform ? "uniform" : "graded") + ", "
+                + (variable ? "variable kappa" : kXFull == null ? "laplacian" : "const kappa=" + k) + ", "
+                + grid.inX() + "x" + grid.inY();
+        data[DESCRIPTION] = description;
+
+        MethodHandle constructor = HiddenClasses.constructor("ImplicitKernelTemplate", data, CONSTRUCTOR);
+        log.debug("Собрали спец-ядро: {}", description);
+        return constructor;
+    }
+
+    private static boolean isUniform(double[] coords, double h) {
+        for (int i = 1; i < coords.length; i++) {
+            if (Math.abs(coords[i] - coords[i - 1] - h) > UNIFORM_TOL * h) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Общее значение интерфейсных kappa по всем граням, которые трогает стенсил нутра, или NaN,
+     * если они разные.
+     */
+    private static double constantKappa(Grid2D grid, double[] kXFull, double[] kYFull) {
+        double k = kXFull[grid.idx(0, 1)];
+        for (int j = 1; j <= grid.inY(); j++) {
+            for (int i = 0; i <= grid.inX(); i++) {
+                int g = grid.idx(i, j);
+                if (kXFull[g] != k) {
+                    return Double.NaN;
+                }
+            }
+        }
+        for (int j = 0; j <= grid.inY(); j++) {
+            for (int i = 1; i <= grid.inX(); i++) {
+                if (kYFull[grid.idx(i, j)] != k) {
+                    return Double.NaN;
+                }
+            }
+        }
+        return k;
+    }
+}
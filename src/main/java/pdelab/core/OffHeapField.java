@@ -0,0 +1,300 @@
+package pdelab.core;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Поле вне хипа на FFM (MemorySegment + Arena). На 8192^2 с kappa и скоростями это десятки
+ * фулл-массивов по полгига - в хипе они раздувают G1 (регионы, сканы, сайзинг), а выровнять
+ * double[] по кэш-линии или посадить на huge pages нельзя. Тут сегмент выровнен по 64 байта,
+ * а страницы можно попросить крупные:
+ * - Pages.TRANSPARENT_HUGE: выравнивание по 2 МБ + madvise(MADV_HUGEPAGE) (THP в режиме madvise);
+ * - mapHugetlbfs: файловый маппинг на hugetlbfs (/dev/hugepages) - явные huge pages.
+ * Дефолт по -Dpdelab.hugepages=off|thp.
+ * NUMA: Arena.allocate зануляет сегмент вызывающим потоком, и все страницы ложатся на ноду
+ * мэйн-треда. firstTouch берет память анонимным mmap (страницы еще не выданы) и зануляет ее
+ * воркерами ParallelExecutor той же раздачей по строкам, что у стенсилов - страница ложится на
+ * ноду воркера, который ее потом и считает (воркеры при этом стоит прибить: -Dpdelab.affinity).
+ * Раскладка как у PaddedField: фулл сетка, гало = граница. Стенсилы и BLAS-1 принимают его через
+ * перегрузки в Stencil / ParallelVectorOps. Это самостоятельный API (свои ядра, бенчи): TimeStepper
+ * и Крылов в него не ходят, их вектора - хиповые double[].
+ * FFM в Java 21 - preview: нужен --enable-preview (Gradle прокидывает его в run/test/jmh).
+ * Сегмент shared - его читают воркеры ParallelExecutor. Закрывать через close().
+ */
+public final class OffHeapField implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(OffHeapField.class);
+
+    public static final String HUGE_PAGES_PROPERTY = "pdelab.hugepages";
+    public static final long ALIGNMENT = 64;
+    public static final long HUGE_PAGE = 2L << 20;
+    private static final int MADV_HUGEPAGE = 14;
+
+    public enum Pages {
+        SMALL, TRANSPARENT_HUGE
+    }
+
+    private final Grid2D grid;
+    private final int length;
+    private final Arena arena;
+    private final MemorySegment segment;
+
+    /**
+     * Фулл-поле под сетку, страницы по -Dpdelab.hugepages.
+     */
+    public OffHeapField(Grid2D grid) {
+        this(grid, grid.size(), defaultPages());
+    }
+
+    public OffHeapField(Grid2D grid, Pages pages) {
+        this(grid, grid.size(), pages);
+    }
+
+    private OffHeapField(Grid2D grid, int length, Pages pages) {
+        this.grid = grid;
+        this.length = length;
+        this.arena = Arena.ofShared();
+        long bytes = (long) length * Double.BYTES;
+        if (pages == Pages.TRANSPARENT_HUGE) {
+            MemorySegment raw = arena.allocate(roundUp(bytes, HUGE_PAGE), HUGE_PAGE);
+            adviseHuge(raw);
+            this.segment = raw.asSlice(0, bytes);
+        } else {
+            this.segment = arena.allocate(bytes, ALIGNMENT);
+        }
+    }
+
+    private OffHeapField(Grid2D grid, Arena arena, MemorySegment segment) {
+        this.grid = grid;
+        this.length = grid.size();
+        this.arena = arena;
+        this.segment = segment;
+    }
+
+    /**
+     * Фулл-поле на файловом маппинге в hugetlbfs (dir - точка монтирования, обычно /dev/hugepages).
+     * Файл удаляется сразу после маппинга, память живет до close().
+     */
+    public static OffHeapField mapHugetlbfs(Grid2D grid, Path dir) throws IOException {
+        long bytes = (long) grid.size() * Double.BYTES;
+        Path file = Files.createTempFile(dir, "pdelab-field-", ".bin");
+        Arena arena = Arena.ofShared();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            MemorySegment mapped = ch.map(FileChannel.MapMode.READ_WRITE, 0, roundUp(bytes, HUGE_PAGE), arena);
+            return new OffHeapField(grid, arena, mapped.asSlice(0, bytes));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Фулл-поле с first-touch размещением страниц (см. доку класса), страницы по -Dpdelab.hugepages.
+     */
+    public static OffHeapField firstTouch(Grid2D grid) {
+        return firstTouch(grid, defaultPages());
+    }
+
+    public static OffHeapField firstTouch(Grid2D grid, Pages pages) {
+        MethodHandle mmap = Mmap.MMAP;
+        if (mmap == null) {
+            log.warn("mmap недоступен - first-touch не выйдет, берем обычную арену.");
+            return new OffHeapField(grid, pages);
+        }
+        long bytes = (long) grid.size() * Double.BYTES;
+        long mapped = roundUp(bytes, pages == Pages.TRANSPARENT_HUGE ? HUGE_PAGE : ALIGNMENT);
+        Arena arena = Arena.ofShared();
+        try {
+            MemorySegment addr = (MemorySegment) mmap.invokeExact(MemorySegment.NULL, mapped,
+                    PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0L);
+            if (addr.address() == -1L) {
+                throw new IllegalStateException("mmap на " + mapped + " байт вернул MAP_FAILED");
+            }
+            MemorySegment raw = addr.reinterpret(mapped, arena, seg -> Mmap.unmap(seg, mapped));
+            if (pages == Pages.TRANSPARENT_HUGE) {
+                adviseHuge(raw); // До касания, иначе страницы уже мелкие
+            }
+            OffHeapField field = new OffHeapField(grid, arena, raw.asSlice(0, bytes));
+            field.touchByWorkers();
+            return field;
+        } catch (RuntimeException | Error e) {
+            arena.close();
+            throw e;
+        } catch (Throwable t) {
+            arena.close();
+            throw new IllegalStateException("mmap упал", t);
+        }
+    }
+
+    /**
+     * Зануляет поле строками через executeBlocks (STATIC): воркер трогает ровно те строки,
+     * которые ему потом раздадут стенсилы (с точностью до строки гало).
+     */
+    private void touchByWorkers() {
+        int nx = grid.Nx();
+        ParallelExecutor.executeBlocks(grid.Ny(), nx, (start, end) -> segment
+                .asSlice((long) start * nx * Double.BYTES, (long) (end - start) * nx * Double.BYTES)
+                .fill((byte) 0), ParallelExecutor.Schedule.STATIC);
+    }
+
+    private static Pages defaultPages() {
+        String mode = System.getProperty(HUGE_PAGES_PROPERTY, "off").trim().toLowerCase();
+        return switch (mode) {
+            case "thp", "madvise", "on" -> Pages.TRANSPARENT_HUGE;
+            case "off", "false" -> Pages.SMALL;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем off | thp). Сидим на обычных страницах.", HUGE_PAGES_PROPERTY, mode);
+                yield Pages.SMALL;
+            }
+        };
+    }
+
+    private static long roundUp(long bytes, long unit) {
+        return Math.max(unit, (bytes + unit - 1) / unit * unit);
+    }
+
+    // Линкер трогаем только если реально просят THP (restricted-метод, на старте варнинги не нужны)
+    private static final class Madvise {
+        static final MethodHandle HANDLE = lookup();
+
+        private static MethodHandle lookup() {
+            try {
+                Linker linker = Linker.nativeLinker();
+                return linker.defaultLookup().find("madvise")
+                        .map(addr -> linker.downcallHandle(addr, FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                                ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT)))
+                        .orElse(null);
+            } catch (RuntimeException e) {
+                log.warn("madvise недоступен ({}), THP-хинт пропускаем.", e.toString());
+                return null;
+            }
+        }
+    }
+
+    private static final int PROT_READ = 0x1, PROT_WRITE = 0x2, MAP_PRIVATE = 0x02, MAP_ANONYMOUS = 0x20;
+
+    private static final class Mmap {
+        static final MethodHandle MMAP;
+        static final MethodHandle MUNMAP;
+
+        static {
+            MethodHandle mmap = null;
+            MethodHandle munmap = null;
+            try {
+                Linker linker = Linker.nativeLinker();
+                mmap = linker.defaultLookup().find("mmap")
+                        .map(addr -> linker.downcallHandle(addr, FunctionDescriptor.of(ValueLayout.ADDRESS,
+                                ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT,
+                                ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG)))
+                        .orElse(null);
+                munmap = linker.defaultLookup().find("munmap")
+                        .map(addr -> linker.downcallHandle(addr, FunctionDescriptor.of(ValueLayout.JAVA_INT,
+                                ValueLayout.ADDRESS, ValueLayout.JAVA_LONG)))
+                        .orElse(null);
+            } catch (RuntimeException e) {
+                log.warn("mmap/munmap недоступны ({}), first-touch отключен.", e.toString());
+            }
+            MMAP = munmap == null ? null : mmap;
+            MUNMAP = munmap;
+        }
+
+        // Клинап арены на close(): прилетает сегмент нулевой длины по тому же адресу, длину несем сами
+        static void unmap(MemorySegment seg, long bytes) {
+            try {
+                int rc = (int) MUNMAP.invokeExact(seg, bytes);
+                if (rc != 0) {
+                    log.warn("munmap вернул {}", rc);
+                }
+            } catch (Throwable t) {
+                log.warn("munmap упал: {}", t.toString());
+            }
+        }
+    }
+
+    private static void adviseHuge(MemorySegment raw) {
+        MethodHandle madvise = Madvise.HANDLE;
+        if (madvise == null) {
+            return;
+        }
+        try {
+            int rc = (int) madvise.invokeExact(raw, raw.byteSize(), MADV_HUGEPAGE);
+            if (rc != 0) {
+                log.warn("madvise(MADV_HUGEPAGE) вернул {} - ядро без THP? Едем на обычных страницах.", rc);
+            }
+        } catch (Throwable t) {
+            log.warn("madvise(MADV_HUGEPAGE) упал: {}", t.toString());
+        }
+    }
+
+    public Grid2D grid() {
+        return grid;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    MemorySegment segment() {
+        return segment;
+    }
+
+    public double get(int i) {
+        return segment.getAtIndex(ValueLayout.JAVA_DOUBLE, i);
+    }
+
+    public void set(int i, double v) {
+        segment.setAtIndex(ValueLayout.JAVA_DOUBLE, i, v);
+    }
+
+    /**
+     * Поле = src (src размером с поле).
+     */
+    public void copyFrom(double[] src) {
+        checkLength(src);
+        MemorySegment.copy(src, 0, segment, ValueLayout.JAVA_DOUBLE, 0, length);
+    }
+
+    /**
+     * dst = поле.
+     */
+    public void copyTo(double[] dst) {
+        checkLength(dst);
+        MemorySegment.copy(segment, ValueLayout.JAVA_DOUBLE, 0, dst, 0, length);
+    }
+
+    public void fill(double v) {
+        if (Double.doubleToRawLongBits(v) == 0L) {
+            segment.fill((byte) 0);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            segment.setAtIndex(ValueLayout.JAVA_DOUBLE, i, v);
+        }
+    }
+
+    private void checkLength(double[] a) {
+        if (a.length != length) {
+            throw new IllegalArgumentException(
+                    "Массив не совпал с офф-хип полем: ждали " + length + ", прилетело " + a.length);
+        }
+    }
+
+    /**
+     * Отдает память (и маппинг) обратно. После close() поле трогать нельзя.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -0,0 +1,215 @@
+package pdelab.core;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Ядра по OffHeapField. Отдельный класс, а не ветка в Stencil/VectorKernels: весь доступ к
+ * MemorySegment (preview в Java 21) живет тут, так что остальной код грузится и без
+ * --enable-preview, пока офф-хип не дернули.
+ * Поле паддед (гало = граница), так что у строки нутра все соседи лежат в том же сегменте и
+ * пилинга по краям нет: строка целиком идет вектором, хвост - скаляром. Арифметика один в один
+ * как у Stencil/VectorKernels, так что результат совпадает с хиповым PaddedField бит в бит.
+ */
+final class OffHeapKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final ValueLayout.OfDouble D = ValueLayout.JAVA_DOUBLE;
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    private OffHeapKernels() {
+    }
+
+    private static DoubleVector load(MemorySegment s, long idx) {
+        return DoubleVector.fromMemorySegment(SPECIES, s, idx * Double.BYTES, ORDER);
+    }
+
+    private static void checkSameGrid(OffHeapField a, OffHeapField b) {
+        if (a.grid() != b.grid()) {
+            throw new IllegalArgumentException("Офф-хип поля с разных сеток");
+        }
+    }
+
+    /**
+     * Строки нутра: out(нутро) = L u или div(k grad u). Гало out не трогаем.
+     */
+    private static class StencilOp implements ParallelExecutor.ArrayOp {
+        Grid2D grid;
+        GridMetrics metrics;
+        MemorySegment u, kX, kY, out;
+
+        public void set(OffHeapField u, OffHeapField kX, OffHeapField kY, OffHeapField out) {
+            checkSameGrid(u, out);
+            if (kX != null) {
+                checkSameGrid(u, kX);
+                checkSameGrid(u, kY);
+            }
+            if (u.grid() != this.grid) {
+                this.metrics = GridMetrics.of(u.grid());
+            }
+            this.grid = u.grid();
+            this.u = u.segment();
+            this.kX = kX == null ? null : kX.segment();
+            this.kY = kY == null ? null : kY.segment();
+            this.out = out.segment();
+        }
+
+        @Override
+        public void compute(int startJ, int endJ) {
+            boolean simd = SimdBackend.isEnabled();
+            for (int j = startJ; j < endJ; j++) {
+                int c0 = grid.idx(1, j + 1);
+                if (kX == null) {
+                    laplacianRow(j, c0, simd);
+                } else {
+                    divKGradRow(j, c0, simd);
+                }
+            }
+        }
+
+        private void laplacianRow(int j, int c0, boolean simd) {
+            int inX = grid.inX();
+            int nx = grid.Nx();
+            double[] cL = metrics.x().lapLeft;
+            double[] cR = metrics.x().lapRight;
+            double cyL = metrics.y().lapLeft[j];
+            double cyR = metrics.y().lapRight[j];
+            int i = 0;
+            if (simd) {
+                int upper = SPECIES.loopBound(inX);
+                for (; i < upper; i += SPECIES.length()) {
+                    long c = c0 + i;
+                    DoubleVector center = load(u, c);
+                    DoubleVector d2x = load(u, c + 1).sub(center).mul(DoubleVector.fromArray(SPECIES, cR, i))
+                            .sub(center.sub(load(u, c - 1)).mul(DoubleVector.fromArray(SPECIES, cL, i)));
+                    DoubleVector d2y = load(u, c + nx).sub(center).mul(cyR).sub(center.sub(load(u, c - nx)).mul(cyL));
+                    d2x.add(d2y).intoMemorySegment(out, c * Double.BYTES, ORDER);
+                }
+            }
+            for (; i < inX; i++) {
+                long c = c0 + i;
+                double center = u.getAtIndex(D, c);
+                double d2x = (u.getAtIndex(D, c + 1) - center) * cR[i] - (center - u.getAtIndex(D, c - 1)) * cL[i];
+                double d2y = (u.getAtIndex(D, c + nx) - center) * cyR - (center - u.getAtIndex(D, c - nx)) * cyL;
+                out.setAtIndex(D, c, d2x + d2y);
+            }
+        }
+
+        private void divKGradRow(int j, int c0, boolean simd) {
+            int inX = grid.inX();
+            int nx = grid.Nx();
+            GridMetrics.Axis mx = metrics.x();
+            double invDyAvg = metrics.y().invAvg[j];
+            double invDyL = metrics.y().invLeft[j];
+            double invDyR = metrics.y().invRight[j];
+            int i = 0;
+            if (simd) {
+                int upper = SPECIES.loopBound(inX);
+                for (; i < upper; i += SPECIES.length()) {
+                    long c = c0 + i;
+                    DoubleVector center = load(u, c);
+                    DoubleVector d2x = load(kX, c).mul(load(u, c + 1).sub(center))
+                            .mul(DoubleVector.fromArray(SPECIES, mx.invRight, i))
+                            .sub(load(kX, c - 1).mul(center.sub(load(u, c - 1)))
+                                    .mul(DoubleVector.fromArray(SPECIES, mx.invLeft, i)))
+                            .mul(DoubleVector.fromArray(SPECIES, mx.invAvg, i));
+                    DoubleVector d2y = load(kY, c).mul(load(u, c + nx).sub(center)).mul(invDyR)
+                            .sub(load(kY, c - nx).mul(center.sub(load(u, c - nx))).mul(invDyL)).mul(invDyAvg);
+                    d2x.add(d2y).intoMemorySegment(out, c * Double.BYTES, ORDER);
+                }
+            }
+            for (; i < inX; i++) {
+                long c = c0 + i;
+                double center = u.getAtIndex(D, c);
+                double d2x = (kX.getAtIndex(D, c) * (u.getAtIndex(D, c + 1) - center) * mx.invRight[i]
+                        - kX.getAtIndex(D, c - 1) * (center - u.getAtIndex(D, c - 1)) * mx.invLeft[i]) * mx.invAvg[i];
+                double d2y = (kY.getAtIndex(D, c) * (u.getAtIndex(D, c + nx) - center) * invDyR
+                        - kY.getAtIndex(D, c - nx) * (center - u.getAtIndex(D, c - nx)) * invDyL) * invDyAvg;
+                out.setAtIndex(D, c, d2x + d2y);
+            }
+        }
+    }
+
+    private static final StencilOp stencilOp = new StencilOp();
+
+    static void applyLaplacian(OffHeapField u, OffHeapField out) {
+        stencilOp.set(u, null, null, out);
+        ParallelExecutor.executeBlocks(u.grid().inY(), u.grid().inX(), stencilOp);
+    }
+
+    static void applyDivKGrad(OffHeapField u, OffHeapField kX, OffHeapField kY, OffHeapField out) {
+        stencilOp.set(u, kX, kY, out);
+        ParallelExecutor.executeBlocks(u.grid().inY(), u.grid().inX(), stencilOp);
+    }
+
+    private static class DotOp implements ParallelExecutor.ReduceOp {
+        MemorySegment x, y;
+
+        public void set(OffHeapField x, OffHeapField y) {
+            checkSameGrid(x, y);
+            this.x = x.segment();
+            this.y = y.segment();
+        }
+
+        @Override
+        public double compute(int start, int end) {
+            int i = start;
+            double sum = 0.0;
+            if (SimdBackend.isEnabled()) {
+                int upper = start + SPECIES.loopBound(end - start);
+                DoubleVector acc = DoubleVector.zero(SPECIES);
+                for (; i < upper; i += SPECIES.length()) {
+                    acc = load(x, i).fma(load(y, i), acc);
+                }
+                sum = acc.reduceLanes(VectorOperators.ADD);
+            }
+            for (; i < end; i++) {
+                sum += x.getAtIndex(D, i) * y.getAtIndex(D, i);
+            }
+            return sum;
+        }
+    }
+
+    private static final DotOp dotOp = new DotOp();
+
+    static double dot(OffHeapField x, OffHeapField y) {
+        dotOp.set(x, y);
+        return ParallelExecutor.reduceContiguous(x.length(), dotOp);
+    }
+
+    private static class AxpyOp implements ParallelExecutor.ArrayOp {
+        double a;
+        MemorySegment x, y;
+
+        public void set(double a, OffHeapField x, OffHeapField y) {
+            checkSameGrid(x, y);
+            this.a = a;
+            this.x = x.segment();
+            this.y = y.segment();
+        }
+
+        @Override
+        public void compute(int start, int end) {
+            int i = start;
+            if (SimdBackend.isEnabled()) {
+                int upper = start + SPECIES.loopBound(end - start);
+                for (; i < upper; i += SPECIES.length()) {
+                    load(y, i).add(load(x, i).mul(a)).intoMemorySegment(y, (long) i * Double.BYTES, ORDER);
+                }
+            }
+            for (; i < end; i++) {
+                y.setAtIndex(D, i, y.getAtIndex(D, i) + a * x.getAtIndex(D, i));
+            }
+        }
+    }
+
+    private static final AxpyOp axpyOp = new AxpyOp();
+
+    static void axpy(double a, OffHeapField x, OffHeapField y) {
+        axpyOp.set(a, x, y);
+        ParallelExecutor.executeContiguous(x.length(), axpyOp);
+    }
+}
@@ -0,0 +1,135 @@
+package pdelab.core;
+
+/**
+ * Поле на фулл сетке с гало в один узел (гало = граничное кольцо). Нутро не выкусывается в
+ * отдельный массив, а видно через strided-индексацию: узел (i, j) нутра живет в
+ * data[rowOffset(j) + i], строки идут с шагом stride() = Nx.
+ * Стенсилы (Stencil.apply*Interior(PaddedField, ...)) читают соседей прямо отсюда: гало - это и
+ * есть граница, никаких extract/inject и отдельного uFull.
+ * Плотный интериор-вектор нужен только Крылову - для него есть построчные gather/scatter.
+ */
+public final class PaddedField {
+    private final Grid2D grid;
+    private final double[] data;
+
+    public PaddedField(Grid2D grid) {
+        this(grid, new double[grid.size()]);
+    }
+
+    /**
+     * Оборачивает готовый фулл-массив (без копирования).
+     */
+    public PaddedField(Grid2D grid, double[] data) {
+        if (data.length != grid.size()) {
+            throw new IllegalArgumentException(
+                    "Паддед-поле обязано быть размером с фулл сетку: " + grid.size() + ", а прилетело " + data.length);
+        }
+        this.grid = grid;
+        this.data = data;
+    }
+
+    public Grid2D grid() {
+        return grid;
+    }
+
+    /**
+     * Живой фулл-массив (гало + нутро).
+     */
+    public double[] data() {
+        return data;
+    }
+
+    public int stride() {
+        return grid.Nx();
+    }
+
+    /**
+     * Индекс узла (0, j) нутра в data.
+     */
+    public int rowOffset(int j) {
+        return (j + 1) * grid.Nx() + 1;
+    }
+
+    private enum Mode {
+        GATHER, SCATTER, AXPY, XPAY
+    }
+
+    /**
+     * Построчный проход по нутру: внутри строки обе стороны плотные, так что каждая строка - это
+     * arraycopy или простой луп без пересчета индексов.
+     */
+    private static class InteriorOp implements ParallelExecutor.ArrayOp {
+        Mode mode;
+        double a;
+        double[] field, interior;
+        int nx, inX;
+
+        public void set(Mode mode, double a, PaddedField f, double[] interior) {
+            if (interior.length != f.grid.numInterior()) {
+                throw new IllegalArgumentException("Интериор-вектор не совпал с сеткой: ждали "
+                        + f.grid.numInterior() + ", прилетело " + interior.length);
+            }
+            this.mode = mode;
+            this.a = a;
+            this.field = f.data;
+            this.interior = interior;
+            this.nx = f.grid.Nx();
+            this.inX = f.grid.inX();
+        }
+
+        @Override
+        public void compute(int startJ, int endJ) {
+            for (int j = startJ; j < endJ; j++) {
+                int fOff = (j + 1) * nx + 1;
+                int iOff = j * inX;
+                switch (mode) {
+                    case GATHER -> System.arraycopy(field, fOff, interior, iOff, inX);
+                    case SCATTER -> System.arraycopy(interior, iOff, field, fOff, inX);
+                    case AXPY -> {
+                        for (int i = 0; i < inX; i++)
+                            interior[iOff + i] += a * field[fOff + i];
+                    }
+                    case XPAY -> {
+                        for (int i = 0; i < inX; i++)
+                            interior[iOff + i] = field[fOff + i] + a * interior[iOff + i];
+                    }
+                }
+            }
+        }
+    }
+
+    private static final InteriorOp interiorOp = new InteriorOp();
+
+    private void run(Mode mode, double a, double[] interior) {
+        interiorOp.set(mode, a, this, interior);
+        ParallelExecutor.executeContiguous(grid.inY(), interiorOp);
+    }
+
+    /**
+     * interior = нутро поля.
+     */
+    public void gatherInterior(double[] interior) {
+        run(Mode.GATHER, 0.0, interior);
+    }
+
+    /**
+     * Нутро поля = interior. Гало не трогаем.
+     */
+    public void scatterInterior(double[] interior) {
+        run(Mode.SCATTER, 0.0, interior);
+    }
+
+    /**
+     * y += a * нутро поля.
+     */
+    public void axpyInterior(double a, double[] y) {
+        run(Mode.AXPY, a, y);
+    }
+
+    /**
+     * y = нутро поля + a * y.
+     */
+    public void xpayInterior(double a, double[] y) {
+        run(Mode.XPAY, a, y);
+    }
+}
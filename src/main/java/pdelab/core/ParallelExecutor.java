@@ -1,69 +1,361 @@
 package pdelab.core;
 
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ForkJoinPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Parallel execution engine strictly avoiding object allocations during tight
  * mathematical loops.
- * Uses a fixed pool of long-lived threads synchronized via a master
- * CyclicBarrier.
+ * Статический фасад для всех ядер; сами потоки - за SPI ExecutorBackend. Дефолт BARRIER - fixed
+ * pool of long-lived threads synchronized via a master CyclicBarrier (BarrierBackend); FORKJOIN -
+ * рекурсивный сплит в своем ForkJoinPool, FORKJOIN_COMMON - в общем пуле JVM (сервисы, у
+ * которых пул уже есть). Выбор: поле executor в Config, -Dpdelab.backend или init(..., Backend);
+ * произвольная реализация - init(ExecutorBackend).
+ * Диспатч: все опы раньше шли через одни и те же колл-сайты compute(...) в воркере, и при трех+
+ * классах опов сайт становился мегаморфным (итейбл-колл на чанк, compute не инлайнится). Теперь
+ * луп по чанкам - трамплин, клонированный из ChunkLoopTemplate в hidden class на каждый класс опа
+ * (кэш в ClassValue), так что у каждого ядра свой мономорфный луп. Вызов без воркеров (мелочь
+ * на мэйн-треде) идет напрямую: там один compute на весь диапазон, инлайнить его некуда, а лукап
+ * трамплина стоил бы дороже самого колла. -Dpdelab.dispatch=mono|shared (shared - общий луп).
+ * Раздача чанков: STATIC - воркер id берет чанки id, id + threads, ... (раскладка и порядок сумм
+ * фиксированы, редукции детерминированы бит в бит); GUIDED - общий падженный атомик-счетчик и
+ * убывающие чанки (ChunkCounter), так что один вытесненный/медленный воркер не держит барьер.
+ * Глобально -Dpdelab.schedule=static|guided (дефолт static), точечно - перегрузки с Schedule.
+ * С setImbalanceTracking(true) (run включает сам) на каждой фазе (пара барьеров) меряется
+ * busy-время воркеров: max/mean и доля простоя на барьере копятся отдельно по режимам, см.
+ * imbalance(Schedule). Выключено (дефолт) - воркеры nanoTime не зовут.
+ * Редукции: FAST складывает партиалы воркеров по номеру потока, а набор чанков воркера зависит
+ * от числа потоков - на 8 и 64 потоках dot плывет в последних битах, а за ним итерации PCG и
+ * errorL2. TREE режет диапазон на блоки фиксированного размера (не зависит от threads), пишет
+ * сумму каждого блока в свой слот и сворачивает слоты попарным деревом фиксированной формы;
+ * COMPENSATED сворачивает их Ноймайером по порядку блоков. Оба дают одни и те же биты при любом
+ * числе потоков и любом Schedule. -Dpdelab.reduction=fast|tree|compensated (дефолт fast).
+ * Пиннинг: -Dpdelab.affinity=compact|scatter прибивает воркера к ядру на старте его потока (см.
+ * Affinity), так что STATIC-чанк воркера всегда считается с одной NUMA-ноды - на этом держится
+ * first-touch в OffHeapField.firstTouch.
  */
 public class ParallelExecutor {
+    private static final Logger log = LoggerFactory.getLogger(ParallelExecutor.class);
 
+    public static final String DISPATCH_PROPERTY = "pdelab.dispatch";
+    public static final String SCHEDULE_PROPERTY = "pdelab.schedule";
+    public static final String REDUCTION_PROPERTY = "pdelab.reduction";
+    public static final String BACKEND_PROPERTY = "pdelab.backend";
+
+    /**
+     * Встроенные движки, см. ExecutorBackend.
+     */
+    public enum Backend {
+        /** Свой пул + CyclicBarrier: ноль аллокаций на фазу, Schedule, пиннинг, статистика дисбаланса. */
+        BARRIER,
+        /** Свой ForkJoinPool, рекурсивный сплит + work-stealing. */
+        FORKJOIN,
+        /** ForkJoinPool.commonPool(): число потоков задает JVM, а не Config. */
+        FORKJOIN_COMMON
+    }
+
+    /**
+     * Как чанки раздаются воркерам.
+     */
+    public enum Schedule {
+        /** Round-robin по id воркера: детерминированно, редукции воспроизводимы бит в бит. */
+        STATIC,
+        /** Общий атомик-счетчик, чанки убывают к концу фазы: лечит дисбаланс, порядок сумм плавает. */
+        GUIDED
+    }
+
+    /**
+     * Как сворачиваются суммы редукций.
+     */
+    public enum Reduction {
+        /** Партиалы воркеров по номеру потока: быстро, но биты зависят от числа потоков. */
+        FAST,
+        /** Блоки фиксированного размера + попарное дерево: воспроизводимо при любом threads. */
+        TREE,
+        /** Те же блоки, свертка Ноймайером (компенсированно): воспроизводимо и точнее на сокращениях. */
+        COMPENSATED
+    }
+
+    /**
+     * Дисбаланс по фазам одного режима: meanRatio / worstRatio - max/mean busy-времени воркеров
+     * (1.0 - идеал), idleFraction - доля воркер-времени, просиженная на барьере в ожидании самого
+     * медленного.
+     */
+    public record Imbalance(long phases, double meanRatio, double worstRatio, double idleFraction) {
+    }
+
+    private static ExecutorBackend backend;
     private static int threads = Runtime.getRuntime().availableProcessors();
-    private static WorkerThread[] workers;
-    private static CyclicBarrier barrier;
 
-    private static volatile ArrayOp currentArrayOp;
-    private static volatile ReduceOp currentReduceOp;
-    private static volatile int globalLength;
-    private static volatile boolean terminateWorkers = false;
+    // Статистика дисбаланса по режимам (индекс - Schedule.ordinal()), пишет только дирижер.
+    private static final long[] phases = new long[2];
+    private static final double[] ratioSum = new double[2];
+    private static final double[] ratioWorst = new double[2];
+    private static final long[] idleTotal = new long[2];
+    private static final long[] spanTotal = new long[2];
 
-    // Thred-local куски сумм. Набили паддингом до 64 байт шоб не ловить false-sharing.
-    // sharing.
-    private static final int CACHE_LINE_PADDING = 8;
-    private static double[] partialSums;
+    // Суммы блоков воспроизводимых редукций (под multi - width слотов на блок). Только растет.
+    private static double[] blockPartials = new double[0];
 
     private static final int MIN_CHUNK_SIZE = 8192; // Prevent thread-thrashing on small arrays
 
-    private static int getOptimalChunkSize(int totalLength) {
+    /**
+     * Луп по чанкам одного опа: from - первый чанк воркера, step - шаг до его следующего чанка.
+     * Лист ForkJoin - один проход: from = lo, length = hi, chunk = step = hi - lo.
+     */
+    interface ChunkLoop {
+        void array(ArrayOp op, int from, int length, int chunk, int step);
+
+        double reduce(ReduceOp op, int from, int length, int chunk, int step);
+
+        void multi(MultiReduceOp op, int from, int length, int chunk, int step, double[] acc, int accOffset);
+
+        void arrayGuided(ArrayOp op, ChunkCounter counter, int length, int minChunk, int parts);
+
+        double reduceGuided(ReduceOp op, ChunkCounter counter, int length, int minChunk, int parts);
+
+        void multiGuided(MultiReduceOp op, ChunkCounter counter, int length, int minChunk, int parts, double[] acc,
+                int accOffset);
+
+        // Блочные редукции: length - в блоках, blockSize и dataLength - в индексах опа
+        void blocks(ReduceOp op, int from, int blocks, int chunk, int step, int blockSize, int dataLength,
+                double[] out);
+
+        void blocksGuided(ReduceOp op, ChunkCounter counter, int blocks, int parts, int blockSize, int dataLength,
+                double[] out);
+
+        void multiBlocks(MultiReduceOp op, int from, int blocks, int chunk, int step, int blockSize, int dataLength,
+                int width, double[] out);
+
+        void multiBlocksGuided(MultiReduceOp op, ChunkCounter counter, int blocks, int parts, int blockSize,
+                int dataLength, int width, double[] out);
+    }
+
+    private static final ChunkLoop SHARED_LOOP = new ChunkLoopTemplate();
+    private static final ClassValue<ChunkLoop> LOOPS = new ClassValue<>() {
+        @Override
+        protected ChunkLoop computeValue(Class<?> opClass) {
+            return HiddenClasses.newInstance("ChunkLoopTemplate", null, ChunkLoop.class);
+        }
+    };
+    private static volatile boolean monomorphic = decideDispatch();
+    private static volatile Schedule schedule = decideSchedule();
+    private static volatile Reduction reduction = decideReduction();
+    private static volatile boolean imbalanceTracking;
+
+    private static boolean decideDispatch() {
+        String mode = System.getProperty(DISPATCH_PROPERTY, "mono").trim().toLowerCase();
+        return switch (mode) {
+            case "mono", "on", "true" -> true;
+            case "shared", "off", "false" -> false;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем mono | shared). Сидим на mono.", DISPATCH_PROPERTY, mode);
+                yield true;
+            }
+        };
+    }
+
+    public static boolean isMonomorphicDispatch() {
+        return monomorphic;
+    }
+
+    /**
+     * Переключает диспатч на лету (бенчи, тесты): true - трамплин на класс опа, false - общий луп.
+     */
+    public static void setMonomorphicDispatch(boolean on) {
+        monomorphic = on;
+    }
+
+    private static Schedule decideSchedule() {
+        String mode = System.getProperty(SCHEDULE_PROPERTY, "static").trim().toLowerCase();
+        return switch (mode) {
+            case "static" -> Schedule.STATIC;
+            case "guided", "dynamic" -> Schedule.GUIDED;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем static | guided). Сидим на static.", SCHEDULE_PROPERTY, mode);
+                yield Schedule.STATIC;
+            }
+        };
+    }
+
+    private static Reduction decideReduction() {
+        String mode = System.getProperty(REDUCTION_PROPERTY, "fast").trim().toLowerCase();
+        return switch (mode) {
+            case "fast" -> Reduction.FAST;
+            case "tree", "reproducible" -> Reduction.TREE;
+            case "compensated", "neumaier", "kahan" -> Reduction.COMPENSATED;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем fast | tree | compensated). Сидим на fast.", REDUCTION_PROPERTY,
+                        mode);
+                yield Reduction.FAST;
+            }
+        };
+    }
+
+    public static Reduction getReduction() {
+        return reduction;
+    }
+
+    /**
+     * Режим свертки редукций на лету (регрессии, бенчи, тесты).
+     */
+    public static void setReduction(Reduction r) {
+        if (r == null) {
+            throw new IllegalArgumentException("Reduction не может быть null");
+        }
+        reduction = r;
+    }
+
+    public static Schedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Глобальный режим раздачи для вызовов без явного Schedule (бенчи, тесты, прогон).
+     */
+    public static void setSchedule(Schedule s) {
+        if (s == null) {
+            throw new IllegalArgumentException("Schedule не может быть null");
+        }
+        schedule = s;
+    }
+
+    public static boolean isImbalanceTracking() {
+        return imbalanceTracking;
+    }
+
+    /**
+     * Копить ли imbalance(Schedule). Цена - пара nanoTime на воркера за фазу, поэтому по умолчанию
+     * выключено; run включает, бенчи и тесты дисбаланса - сами.
+     */
+    public static void setImbalanceTracking(boolean on) {
+        imbalanceTracking = on;
+    }
+
+    /**
+     * Накопленный дисбаланс по фазам, прошедшим через воркеров в режиме s (при выключенном
+     * трекинге фазы не копятся).
+     */
+    public static Imbalance imbalance(Schedule s) {
+        int k = s.ordinal();
+        long n = phases[k];
+        if (n == 0) {
+            return new Imbalance(0, 1.0, 1.0, 0.0);
+        }
+        double idle = spanTotal[k] > 0 ? (double) idleTotal[k] / spanTotal[k] : 0.0;
+        return new Imbalance(n, ratioSum[k] / n, ratioWorst[k], idle);
+    }
+
+    public static void resetImbalance() {
+        for (int k = 0; k < phases.length; k++) {
+            phases[k] = 0;
+            ratioSum[k] = 0.0;
+            ratioWorst[k] = 0.0;
+            idleTotal[k] = 0;
+            spanTotal[k] = 0;
+        }
+    }
+
+    /**
+     * Фаза бэкенда отработала: busy[i * stride] - busy-время i-го из n потоков.
+     */
+    static void recordPhase(boolean guided, long[] busy, int stride, int n) {
+        long max = 0;
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            long b = busy[i * stride];
+            max = Math.max(max, b);
+            sum += b;
+        }
+        int k = guided ? Schedule.GUIDED.ordinal() : Schedule.STATIC.ordinal();
+        double ratio = sum > 0 ? (double) max * n / sum : 1.0;
+        phases[k]++;
+        ratioSum[k] += ratio;
+        ratioWorst[k] = Math.max(ratioWorst[k], ratio);
+        idleTotal[k] += max * n - sum;
+        spanTotal[k] += max * n;
+    }
+
+    static ChunkLoop loopFor(Object op) {
+        return monomorphic ? LOOPS.get(op.getClass()) : SHARED_LOOP;
+    }
+
+    /**
+     * STATIC-чанк (и лист ForkJoin): ~4 чанка на поток, но не меньше minChunk.
+     */
+    static int chunkSize(int totalLength, int minChunk, int threads) {
         int targetChunks = threads * 4;
         int chunk = Math.max(1, (int) Math.ceil((double) totalLength / targetChunks));
-        return Math.max(chunk, MIN_CHUNK_SIZE);
+        return Math.max(chunk, minChunk);
     }
 
-    public static synchronized void init(int numThreads) {
-        if (workers != null) {
-            terminateWorkers = true;
-            if (barrier != null) {
-                barrier.reset(); // Trigger BrokenBarrierException in waiting workers
-            }
-            for (WorkerThread w : workers) {
-                if (w != null) {
-                    w.interrupt();
-                    try {
-                        w.join(100);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
+    /**
+     * Минимальный чанк в блоках, чтоб в нем набралось хотя бы MIN_CHUNK_SIZE точек работы.
+     */
+    private static int minChunkForBlocks(int blockWork) {
+        return Math.max(1, MIN_CHUNK_SIZE / Math.max(1, blockWork));
+    }
+
+    private static Backend defaultBackend() {
+        String mode = System.getProperty(BACKEND_PROPERTY, "barrier").trim().toLowerCase();
+        return switch (mode) {
+            case "barrier" -> Backend.BARRIER;
+            case "forkjoin", "fj" -> Backend.FORKJOIN;
+            case "forkjoin_common", "common" -> Backend.FORKJOIN_COMMON;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем barrier | forkjoin | forkjoin_common). Сидим на barrier.",
+                        BACKEND_PROPERTY, mode);
+                yield Backend.BARRIER;
             }
+        };
+    }
+
+    /**
+     * Поднимает бэкенд по -Dpdelab.backend (дефолт BARRIER) на numThreads потоках.
+     */
+    public static synchronized void init(int numThreads) {
+        init(numThreads, defaultBackend());
+    }
+
+    public static synchronized void init(int numThreads, Backend kind) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Потоков должно быть >= 1, прилетело " + numThreads);
         }
-        terminateWorkers = false;
-        threads = numThreads;
-        barrier = new CyclicBarrier(threads + 1); // +1 поток под мэйн-тред (дирижер).
-        workers = new WorkerThread[threads];
-        partialSums = new double[threads * CACHE_LINE_PADDING];
+        init(switch (kind) {
+            case BARRIER -> new BarrierBackend(numThreads);
+            case FORKJOIN -> new ForkJoinBackend(numThreads);
+            case FORKJOIN_COMMON -> new ForkJoinBackend(ForkJoinPool.commonPool());
+        });
+    }
 
-        for (int i = 0; i < threads; i++) {
-            workers[i] = new WorkerThread(i);
-            workers[i].start();
+    /**
+     * Подменяет движок (старый гасится). Для своих реализаций и чужих пулов:
+     * init(new ForkJoinBackend(servicePool)).
+     */
+    public static synchronized void init(ExecutorBackend next) {
+        if (backend != null) {
+            backend.shutdown();
         }
+        backend = next;
+        threads = next.threads();
+    }
+
+    /**
+     * Сколько потоков у текущего движка (у FORKJOIN_COMMON - parallelism общего пула).
+     */
+    public static synchronized int threadCount() {
+        ensureInit();
+        return threads;
+    }
+
+    public static synchronized String backendName() {
+        ensureInit();
+        return backend.name();
     }
 
     private static void ensureInit() {
-        if (workers == null || terminateWorkers) {
+        if (backend == null) {
             init(Runtime.getRuntime().availableProcessors());
         }
     }
@@ -78,98 +370,211 @@ public class ParallelExecutor {
         double compute(int start, int end);
     }
 
+    /**
+     * Редукция сразу нескольких скаляров за один проход по памяти (fused multi-dot).
+     * Накапливает ровно width значений в acc[accOffset .. accOffset + width).
+     */
+    @FunctionalInterface
+    public interface MultiReduceOp {
+        void compute(int start, int end, double[] acc, int accOffset);
+    }
+
     public static void executeContiguous(int length, ArrayOp op) {
+        execute(length, MIN_CHUNK_SIZE, op, schedule);
+    }
+
+    public static void executeContiguous(int length, ArrayOp op, Schedule s) {
+        execute(length, MIN_CHUNK_SIZE, op, s);
+    }
+
+    /**
+     * Раздача крупных блоков (тайлы стенсилов): индекс - номер блока, blockWork - сколько точек в
+     * блоке. Порог "не параллелить мелочь" считается в точках, а не в блоках, так что тайловая
+     * сетка честно расползается по воркерам, а крошечная остается на мэйн-треде.
+     */
+    public static void executeBlocks(int blocks, int blockWork, ArrayOp op) {
+        execute(blocks, minChunkForBlocks(blockWork), op, schedule);
+    }
+
+    public static void executeBlocks(int blocks, int blockWork, ArrayOp op, Schedule s) {
+        execute(blocks, minChunkForBlocks(blockWork), op, s);
+    }
+
+    private static void execute(int length, int minChunk, ArrayOp op, Schedule s) {
         ensureInit();
-        if (length <= MIN_CHUNK_SIZE || threads == 1) {
+        if (length <= minChunk || threads == 1) {
+            computeInline(op, length);
+            return;
+        }
+        backend.execute(length, minChunk, op, s);
+    }
+
+    // Мелочь на вызывающем потоке; под профайлером - с замером, иначе голый compute
+    private static void computeInline(ArrayOp op, int length) {
+        if (!PhaseProfiler.isEnabled()) {
             op.compute(0, length);
             return;
         }
+        long t0 = System.nanoTime();
+        op.compute(0, length);
+        PhaseProfiler.recordInline(op, System.nanoTime() - t0);
+    }
 
-        currentArrayOp = op;
-        currentReduceOp = null;
-        globalLength = length;
+    private static double reduceInline(ReduceOp op, int length) {
+        if (!PhaseProfiler.isEnabled()) {
+            return op.compute(0, length);
+        }
+        long t0 = System.nanoTime();
+        double sum = op.compute(0, length);
+        PhaseProfiler.recordInline(op, System.nanoTime() - t0);
+        return sum;
+    }
 
-        try {
-            barrier.await(); // Пинок воркерам: алга!
-            barrier.await(); // Ждем пока воркеры дожуют таски
-        } catch (InterruptedException | BrokenBarrierException e) {
-            throw new RuntimeException("Parallel execute interrupted", e);
+    private static void reduceMultiInline(MultiReduceOp op, int length, double[] out) {
+        if (!PhaseProfiler.isEnabled()) {
+            op.compute(0, length, out, 0);
+            return;
         }
+        long t0 = System.nanoTime();
+        op.compute(0, length, out, 0);
+        PhaseProfiler.recordInline(op, System.nanoTime() - t0);
     }
 
     public static double reduceContiguous(int length, ReduceOp op) {
+        return reduce(length, MIN_CHUNK_SIZE, op, schedule);
+    }
+
+    /**
+     * Редукция с явным режимом. GUIDED отдает сумму с плавающим порядком сложения (чанки
+     * достаются воркерам как повезет), так что бит в бит - только STATIC.
+     */
+    public static double reduceContiguous(int length, ReduceOp op, Schedule s) {
+        return reduce(length, MIN_CHUNK_SIZE, op, s);
+    }
+
+    /**
+     * Редукция по блокам, см. executeBlocks.
+     */
+    public static double reduceBlocks(int blocks, int blockWork, ReduceOp op) {
+        return reduce(blocks, minChunkForBlocks(blockWork), op, schedule);
+    }
+
+    public static double reduceBlocks(int blocks, int blockWork, ReduceOp op, Schedule s) {
+        return reduce(blocks, minChunkForBlocks(blockWork), op, s);
+    }
+
+    private static double reduce(int length, int minChunk, ReduceOp op, Schedule s) {
         ensureInit();
-        if (length <= MIN_CHUNK_SIZE || threads == 1) {
-            return op.compute(0, length);
+        if (length <= minChunk) {
+            return reduceInline(op, length); // Один блок - одинаково во всех режимах
         }
+        Reduction mode = reduction;
+        if (mode != Reduction.FAST) {
+            return reduceBlockwise(length, minChunk, op, s, mode);
+        }
+        if (threads == 1) {
+            return reduceInline(op, length);
+        }
+        return backend.reduce(length, minChunk, op, s);
+    }
 
-        currentReduceOp = op;
-        currentArrayOp = null;
-        globalLength = length;
-
-        try {
-            barrier.await(); // Пинок воркерам: алга!
-            barrier.await(); // Ждем пока воркеры дожуют таски
-        } catch (InterruptedException | BrokenBarrierException e) {
-            throw new RuntimeException("Parallel execute interrupted", e);
+    /**
+     * Воспроизводимая редукция: блоки по blockSize индексов (тот же порог, что отделяет мелочь, так
+     * что от threads он не зависит), сумма блока - в blockPartials[b], затем свертка.
+     */
+    private static double reduceBlockwise(int length, int blockSize, ReduceOp op, Schedule s, Reduction mode) {
+        int blocks = (int) (((long) length + blockSize - 1) / blockSize);
+        ensureBlockPartials(blocks);
+        if (threads == 1) {
+            boolean timed = PhaseProfiler.isEnabled();
+            long t0 = timed ? System.nanoTime() : 0L;
+            loopFor(op).blocks(op, 0, blocks, blocks, blocks, blockSize, length, blockPartials);
+            if (timed) {
+                PhaseProfiler.recordInline(op, System.nanoTime() - t0);
+            }
+        } else {
+            backend.reduceBlocks(blocks, blockSize, length, op, blockPartials, s);
         }
+        return combine(blockPartials, 0, blocks, 1, mode);
+    }
 
-        double total = 0.0;
-        for (int i = 0; i < threads; i++) {
-            total += partialSums[i * CACHE_LINE_PADDING];
+    private static void ensureBlockPartials(int size) {
+        if (blockPartials.length < size) {
+            blockPartials = new double[size];
         }
-        return total;
     }
 
-    private static class WorkerThread extends Thread {
-        private final int id;
+    /**
+     * Свертка n слотов a[offset + b * stride]. TREE - попарно (1+2, 3+4, ... потом пары пар): форма
+     * дерева зависит только от n, ошибка растет как log n. COMPENSATED - Ноймайер по порядку
+     * блоков: хвост округлений копится отдельно, сокращения больших партиалов не съедают мелочь.
+     * Портит буфер (дерево складывает на месте).
+     */
+    static double combine(double[] a, int offset, int n, int stride, Reduction mode) {
+        if (mode == Reduction.COMPENSATED) {
+            double sum = 0.0;
+            double comp = 0.0;
+            for (int b = 0; b < n; b++) {
+                double v = a[offset + b * stride];
+                double t = sum + v;
+                if (Math.abs(sum) >= Math.abs(v)) {
+                    comp += (sum - t) + v;
+                } else {
+                    comp += (v - t) + sum;
+                }
+                sum = t;
+            }
+            return sum + comp;
+        }
+        for (int span = 1; span < n; span <<= 1) {
+            for (int i = 0; i + span < n; i += span << 1) {
+                a[offset + i * stride] += a[offset + (i + span) * stride];
+            }
+        }
+        return a[offset];
+    }
 
-        public WorkerThread(int id) {
-            super("PDE-Worker-" + id);
-            this.id = id;
-            this.setDaemon(true);
+    /**
+     * Считает width сумм за один барьерный цикл и пишет их в out[0 .. width).
+     */
+    public static void reduceMulti(int length, int width, MultiReduceOp op, double[] out) {
+        ensureInit();
+        for (int k = 0; k < width; k++) {
+            out[k] = 0.0;
+        }
+        if (length <= MIN_CHUNK_SIZE) {
+            reduceMultiInline(op, length, out);
+            return;
+        }
+        Reduction mode = reduction;
+        if (mode != Reduction.FAST) {
+            reduceMultiBlockwise(length, width, op, out, mode);
+            return;
+        }
+        if (threads == 1) {
+            reduceMultiInline(op, length, out);
+            return;
         }
 
-        @Override
-        public void run() {
-            while (!terminateWorkers) {
-                try {
-                    barrier.await(); // Воркер скучает, ждет таску...
-                    if (terminateWorkers)
-                        break;
-
-                    int length = globalLength;
-                    int chunkSize = getOptimalChunkSize(length);
-
-                    // Паттерн динамического чанкинга (рвём цикл без лишних объектов, zero-allocation).
-                    int currentIndex = id * chunkSize;
-                    double localSum = 0.0;
-
-                    ArrayOp opArray = currentArrayOp;
-                    ReduceOp opReduce = currentReduceOp;
-
-                    while (currentIndex < length) {
-                        int end = Math.min(currentIndex + chunkSize, length);
-
-                        if (opArray != null) {
-                            opArray.compute(currentIndex, end);
-                        } else if (opReduce != null) {
-                            localSum += opReduce.compute(currentIndex, end);
-                        }
-
-                        currentIndex += threads * chunkSize;
-                    }
-
-                    if (opReduce != null) {
-                        partialSums[id * CACHE_LINE_PADDING] = localSum;
-                    }
-
-                    barrier.await(); // Signal completion
-                } catch (InterruptedException | BrokenBarrierException e) {
-                    if (terminateWorkers)
-                        break;
-                }
+        backend.reduceMulti(length, MIN_CHUNK_SIZE, width, op, out, schedule);
+    }
+
+    private static void reduceMultiBlockwise(int length, int width, MultiReduceOp op, double[] out,
+            Reduction mode) {
+        int blocks = (length + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE;
+        ensureBlockPartials(blocks * width);
+        if (threads == 1) {
+            boolean timed = PhaseProfiler.isEnabled();
+            long t0 = timed ? System.nanoTime() : 0L;
+            loopFor(op).multiBlocks(op, 0, blocks, blocks, blocks, MIN_CHUNK_SIZE, length, width, blockPartials);
+            if (timed) {
+                PhaseProfiler.recordInline(op, System.nanoTime() - t0);
             }
+        } else {
+            backend.reduceMultiBlocks(blocks, MIN_CHUNK_SIZE, length, width, op, blockPartials, schedule);
+        }
+        for (int k = 0; k < width; k++) {
+            out[k] = combine(blockPartials, k, blocks, width, mode);
         }
     }
 }
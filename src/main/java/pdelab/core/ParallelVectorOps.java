@@ -2,6 +2,7 @@ package pdelab.core;
 
 /**
  * Параллельные навороты для VectorOps (выжимаем ядра).
+ * axpy/axpby/addScaled/dot внутри чанка уходят в VectorKernels, если SimdBackend включен.
  */
 public class ParallelVectorOps {
 
@@ -38,6 +39,10 @@ public class ParallelVectorOps {
 
         @Override
         public void compute(int start, int end) {
+            if (SimdBackend.isEnabled()) {
+                VectorKernels.axpy(a, x, y, start, end);
+                return;
+            }
             for (int i = start; i < end; i++)
                 y[i] += a * x[i];
         }
@@ -63,6 +68,10 @@ public class ParallelVectorOps {
 
         @Override
         public void compute(int start, int end) {
+            if (SimdBackend.isEnabled()) {
+                VectorKernels.axpby(a, x, b, y, start, end);
+                return;
+            }
             for (int i = start; i < end; i++)
                 y[i] = a * x[i] + b * y[i];
         }
@@ -88,6 +97,10 @@ public class ParallelVectorOps {
 
         @Override
         public void compute(int start, int end) {
+            if (SimdBackend.isEnabled()) {
+                VectorKernels.addScaled(x, a, y, res, start, end);
+                return;
+            }
             for (int i = start; i < end; i++)
                 res[i] = x[i] + a * y[i];
         }
@@ -110,6 +123,9 @@ public class ParallelVectorOps {
 
         @Override
         public double compute(int start, int end) {
+            if (SimdBackend.isEnabled()) {
+                return VectorKernels.dot(x, y, start, end);
+            }
             double sum = 0.0;
             for (int i = start; i < end; i++)
                 sum += x[i] * y[i];
@@ -124,7 +140,121 @@ public class ParallelVectorOps {
         return ParallelExecutor.reduceContiguous(x.length, dotOp);
     }
 
+    /**
+     * dot по офф-хип полям (весь сегмент, включая гало).
+     */
+    public static double dot(OffHeapField x, OffHeapField y) {
+        return OffHeapKernels.dot(x, y);
+    }
+
+    /**
+     * y += a * x по офф-хип полям.
+     */
+    public static void axpy(double a, OffHeapField x, OffHeapField y) {
+        OffHeapKernels.axpy(a, x, y);
+    }
+
     public static double normL2(double[] x) {
         return Math.sqrt(dot(x, x));
     }
+
+    private static class ScaleOp implements ParallelExecutor.ArrayOp {
+        double a;
+        double[] x, res;
+
+        public void set(double a, double[] x, double[] res) {
+            this.a = a;
+            this.x = x;
+            this.res = res;
+        }
+
+        @Override
+        public void compute(int start, int end) {
+            for (int i = start; i < end; i++)
+                res[i] = a * x[i];
+        }
+    }
+
+    private static final ScaleOp scaleOp = new ScaleOp();
+
+    /**
+     * res = a * x (старое содержимое res не читаем, так что мусор/NaN в нем не протекает).
+     */
+    public static void scale(double a, double[] x, double[] res) {
+        scaleOp.set(a, x, res);
+        ParallelExecutor.executeContiguous(x.length, scaleOp);
+    }
+
+    private static class MultiDotOp implements ParallelExecutor.MultiReduceOp {
+        double[][] vs;
+        int count;
+        double[] w;
+
+        public void set(double[][] vs, int count, double[] w) {
+            this.vs = vs;
+            this.count = count;
+            this.w = w;
+        }
+
+        @Override
+        public void compute(int start, int end, double[] acc, int accOffset) {
+            for (int k = 0; k < count; k++) {
+                double[] v = vs[k];
+                double sum = 0.0;
+                for (int i = start; i < end; i++)
+                    sum += v[i] * w[i];
+                acc[accOffset + k] += sum;
+            }
+            double ww = 0.0;
+            for (int i = start; i < end; i++)
+                ww += w[i] * w[i];
+            acc[accOffset + count] += ww;
+        }
+    }
+
+    private static final MultiDotOp multiDotOp = new MultiDotOp();
+
+    /**
+     * Fused multi-dot: out[k] = vs[k] . w для k < count и out[count] = w . w.
+     * Все скаляры собираются за ОДИН барьер, чанк w остается горячим в L1/L2 пока по нему
+     * проходятся все базисные векторы (классический Gram-Schmidt в GMRES на этом и живет).
+     */
+    public static void multiDot(double[][] vs, int count, double[] w, double[] out) {
+        multiDotOp.set(vs, count, w);
+        ParallelExecutor.reduceMulti(w.length, count + 1, multiDotOp, out);
+    }
+
+    private static class MultiAxpyOp implements ParallelExecutor.ArrayOp {
+        double[] coeffs;
+        double[][] vs;
+        int count;
+        double[] y;
+
+        public void set(double[] coeffs, double[][] vs, int count, double[] y) {
+            this.coeffs = coeffs;
+            this.vs = vs;
+            this.count = count;
+            this.y = y;
+        }
+
+        @Override
+        public void compute(int start, int end) {
+            for (int k = 0; k < count; k++) {
+                double a = coeffs[k];
+                double[] v = vs[k];
+                for (int i = start; i < end; i++)
+                    y[i] += a * v[i];
+            }
+        }
+    }
+
+    private static final MultiAxpyOp multiAxpyOp = new MultiAxpyOp();
+
+    /**
+     * y = y + sum_k coeffs[k] * vs[k] за один диспатч (вместо count отдельных axpy с барьерами).
+     */
+    public static void multiAxpy(double[] coeffs, double[][] vs, int count, double[] y) {
+        multiAxpyOp.set(coeffs, vs, count, y);
+        ParallelExecutor.executeContiguous(y.length, multiAxpyOp);
+    }
 }
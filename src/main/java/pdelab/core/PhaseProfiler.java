@@ -0,0 +1,240 @@
+package pdelab.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Профайлер фаз ParallelExecutor по ядрам: на что уходит время прогона - на счет, на дисбаланс или
+ * на синхронизацию. Ядро = класс опа (Stencil.LaplacianInterior, ParallelVectorOps.Dot, ...), по
+ * каждому копятся фазы, чанки, busy-время и ожидание на барьере по воркерам плюс гистограмма
+ * длительности фазы.
+ * Ожидание воркера не меряется, а выводится: derivedWait = длительность фазы у дирижера - busy
+ * воркера. Сюда входит и простой на медленного соседа, и цена самого барьера (разбудить/собрать
+ * потоки), и разъезд часов дирижера и воркера. Куча ожидания при ровном busy - sync-bound (фазы
+ * слишком мелкие), при кривом busy - дисбаланс (см. guided), мало ожидания и низкий throughput -
+ * упираемся в память.
+ * Мелочь, которую ParallelExecutor считает прямо на вызывающем потоке (диапазон меньше порога,
+ * один поток), копится отдельно: inlinePhases/inlineNanos, без чанков и воркеров.
+ * Пишет дирижер раз на фазу, сами лупы по чанкам не трогаются; чанки не считаются на лету, а
+ * выводятся из раскладки фазы. Выключен (дефолт) - одна проверка флага на фазу, воркеры busy не
+ * меряют (если не включен ParallelExecutor.setImbalanceTracking).
+ * -Dpdelab.phaseprofile=on|off или run --profile phases. Busy/ожидание по воркерам есть только
+ * у BARRIER: у ForkJoin потоков-хозяев чанков нет, там копятся фазы, чанки и длительность.
+ * Тот же хук отдает фазы в JFR (ExecutorPhaseEvent), пока событие включено хоть в одной записи
+ * (run --profile jfr|live или своя запись/стрим с enable(ExecutorPhaseEvent.NAME)); своего флага
+ * нет - закрылась запись, JFR сам пересчитал настройки, чужие записи не задеты. Счетчики и события
+ * включаются независимо.
+ */
+public final class PhaseProfiler {
+    private static final Logger log = LoggerFactory.getLogger(PhaseProfiler.class);
+
+    public static final String PROPERTY = "pdelab.phaseprofile";
+
+    private static volatile boolean enabled = decideEnabled();
+    // Только для isEnabled(): JFR держит включенность на классе события, а не на инстансе
+    private static final ExecutorPhaseEvent JFR_PROBE = new ExecutorPhaseEvent();
+
+    private static final ClassValue<String> KERNEL_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> opClass) {
+            return kernelName(opClass);
+        }
+    };
+
+    // Класс опа -> счетчики; пишет дирижер, читает снапшот (под тем же локом)
+    private static final Map<Class<?>, Kernel> kernels = new LinkedHashMap<>();
+
+    /**
+     * Итог по одному ядру. Времена - в наносекундах, worker* - по id воркера (пусто у ForkJoin).
+     * derivedWait* - span - busy, см. доку класса. inline* - вызовы на мэйн-треде, в phases и
+     * гистограмму не входят.
+     */
+    public record KernelProfile(String kernel, long phases, long chunks, long spanNanos, long busyNanos,
+            long derivedWaitNanos, double derivedWaitFraction, double meanRatio, long p50Nanos, long p90Nanos,
+            long p99Nanos, long maxNanos, long[] workerBusyNanos, long[] workerDerivedWaitNanos, long inlinePhases,
+            long inlineNanos) {
+    }
+
+    static final class Kernel {
+        final String name;
+        final Histogram span = new Histogram();
+        long chunks;
+        long busy;
+        long wait;
+        long workerSpan; // span * threads по фазам с busy, знаменатель derivedWaitFraction
+        long busyPhases;
+        double ratioSum;
+        long[] workerBusy = new long[0];
+        long[] workerWait = new long[0];
+        long inlinePhases;
+        long inlineNanos;
+
+        Kernel(String name) {
+            this.name = name;
+        }
+    }
+
+    private PhaseProfiler() {
+    }
+
+    private static boolean decideEnabled() {
+        String mode = System.getProperty(PROPERTY, "off").trim().toLowerCase();
+        return switch (mode) {
+            case "on", "true" -> true;
+            case "off", "false" -> false;
+            default -> {
+                log.warn("Кривой -D{}={} (ждем on | off). Профайлер выключен.", PROPERTY, mode);
+                yield false;
+            }
+        };
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Включен ли ExecutorPhaseEvent хоть в одной активной записи JFR.
+     */
+    public static boolean isJfrEvents() {
+        return JFR_PROBE.isEnabled();
+    }
+
+    /**
+     * Нужен ли бэкенду замер фазы: счетчики или JFR. Выключено все - одна проверка на фазу.
+     */
+    static boolean isActive() {
+        return enabled || JFR_PROBE.isEnabled();
+    }
+
+    /**
+     * Событие фазы, запущенное до пинка воркерам, или null (события выключены).
+     */
+    static ExecutorPhaseEvent beginEvent() {
+        if (!JFR_PROBE.isEnabled()) {
+            return null;
+        }
+        ExecutorPhaseEvent event = new ExecutorPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commitEvent(ExecutorPhaseEvent event, Object op, String backend, boolean guided, int threads,
+            long chunks) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.kernel = KERNEL_NAMES.get(op.getClass());
+            event.backend = backend;
+            event.schedule = guided ? "GUIDED" : "STATIC";
+            event.threads = threads;
+            event.chunks = chunks;
+            event.commit();
+        }
+    }
+
+    public static synchronized void reset() {
+        kernels.clear();
+    }
+
+    /**
+     * Имя ядра по классу опа: Enclosing.Name без суффикса Op, лямбды - Enclosing.lambda.
+     */
+    static String kernelName(Class<?> opClass) {
+        String name = opClass.getName();
+        int lambda = name.indexOf("$$Lambda");
+        if (lambda >= 0) {
+            String outer = name.substring(name.lastIndexOf('.', lambda) + 1, lambda);
+            return stripOp(outer).replace('$', '.') + ".lambda";
+        }
+        String simple = stripOp(opClass.getSimpleName());
+        Class<?> outer = opClass.getEnclosingClass();
+        return outer != null ? outer.getSimpleName() + "." + simple : simple;
+    }
+
+    private static String stripOp(String name) {
+        return name.endsWith("Op") && name.length() > 2 ? name.substring(0, name.length() - 2) : name;
+    }
+
+    /**
+     * Фаза отработала: span - у дирижера от пинка до сбора, busy[i * stride] - busy i-го из n
+     * воркеров (null - бэкенд busy не меряет).
+     */
+    static synchronized void record(Object op, long span, long[] busy, int stride, int n, long chunks) {
+        if (!enabled) {
+            return;
+        }
+        Kernel k = kernel(op);
+        k.span.record(span);
+        k.chunks += chunks;
+        if (busy == null) {
+            return;
+        }
+        if (k.workerBusy.length < n) {
+            k.workerBusy = java.util.Arrays.copyOf(k.workerBusy, n);
+            k.workerWait = java.util.Arrays.copyOf(k.workerWait, n);
+        }
+        long max = 0;
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            long b = busy[i * stride];
+            long w = Math.max(0L, span - b);
+            k.workerBusy[i] += b;
+            k.workerWait[i] += w;
+            k.wait += w;
+            max = Math.max(max, b);
+            sum += b;
+        }
+        k.busy += sum;
+        k.workerSpan += span * n;
+        k.busyPhases++;
+        k.ratioSum += sum > 0 ? (double) max * n / sum : 1.0;
+    }
+
+    /**
+     * Вызов op целиком на вызывающем потоке (мимо воркеров) занял nanos.
+     */
+    static synchronized void recordInline(Object op, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        Kernel k = kernel(op);
+        k.inlinePhases++;
+        k.inlineNanos += nanos;
+    }
+
+    private static Kernel kernel(Object op) {
+        Kernel k = kernels.get(op.getClass());
+        if (k == null) {
+            k = new Kernel(KERNEL_NAMES.get(op.getClass()));
+            kernels.put(op.getClass(), k);
+        }
+        return k;
+    }
+
+    /**
+     * Снапшот по всем ядрам, что отработали с последнего reset (в порядке первой фазы).
+     */
+    public static synchronized List<KernelProfile> snapshot() {
+        List<KernelProfile> out = new ArrayList<>(kernels.size());
+        for (Kernel k : kernels.values()) {
+            Histogram h = k.span;
+            out.add(new KernelProfile(k.name, h.count(), k.chunks, h.sumNanos(), k.busy, k.wait,
+                    k.workerSpan > 0 ? (double) k.wait / k.workerSpan : 0.0,
+                    k.busyPhases > 0 ? k.ratioSum / k.busyPhases : 1.0,
+                    h.percentile(0.50), h.percentile(0.90), h.percentile(0.99), h.maxNanos(),
+                    k.workerBusy.clone(), k.workerWait.clone(), k.inlinePhases, k.inlineNanos));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,78 @@
+package pdelab.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Рубильник SIMD-бэкенда (jdk.incubator.vector). Сам класс Vector API не трогает: если модуль не
+ * подключен (нет --add-modules jdk.incubator.vector), VectorKernels даже не грузится и все крутится
+ * на скалярных лупах.
+ * Авто-режим включает SIMD только при ширине вектора >= 4 double (AVX2/AVX-512): на 2 лейнах C2
+ * автовекторизация и так справляется. Форс: -Dpdelab.simd=on|off.
+ */
+public final class SimdBackend {
+    private static final Logger log = LoggerFactory.getLogger(SimdBackend.class);
+
+    public static final String PROPERTY = "pdelab.simd";
+    private static final String MODULE = "jdk.incubator.vector";
+    private static final int MIN_AUTO_LANES = 4;
+
+    private static final int LANES = probeLanes();
+    // volatile: флип из тестов/бенчей (setEnabled) читают воркеры на каждом чанке
+    private static volatile boolean enabled = decide();
+
+    private SimdBackend() {
+    }
+
+    private static int probeLanes() {
+        if (ModuleLayer.boot().findModule(MODULE).isEmpty()) {
+            return 0;
+        }
+        try {
+            return VectorKernels.laneCount();
+        } catch (LinkageError e) {
+            log.warn("Vector API модуль есть, но не линкуется ({}). Сидим на скалярах.", e.toString());
+            return 0;
+        }
+    }
+
+    private static boolean decide() {
+        String mode = System.getProperty(PROPERTY, "auto").trim().toLowerCase();
+        boolean on = switch (mode) {
+            case "on", "true" -> LANES > 0;
+            case "off", "false" -> false;
+            default -> LANES >= MIN_AUTO_LANES;
+        };
+        if (on) {
+            log.info("SIMD бэкенд включен: {} лейнов double.", LANES);
+        } else {
+            log.debug("SIMD бэкенд выключен (режим {}, лейнов {}).", mode, LANES);
+        }
+        return on;
+    }
+
+    /**
+     * Vector API реально подключен и слинковался.
+     */
+    public static boolean isAvailable() {
+        return LANES > 0;
+    }
+
+    public static int laneCount() {
+        return LANES;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Переключает бэкенд на лету (бенчи, тесты). Включить без модуля нельзя.
+     *
+     * @return Фактическое состояние после переключения.
+     */
+    public static synchronized boolean setEnabled(boolean on) {
+        enabled = on && LANES > 0;
+        return enabled;
+    }
+}
@@ -12,62 +12,242 @@ public class Stencil {
      * LuInt.
      * Оба (uInt и LuInt) строго размера numInterior(), шаг вправо - расстрел.
      * Краевые значения лениво подсасываются из uFull.
+     * Граница отпилена (peeling): соседи по y берутся из "строки-источника" (внутренняя строка,
+     * граничная строка uFull или нулевая строка), крайние колонки считаются отдельно,
+     * так что внутренний цикл по i - чистый multiply-add без единого тернарника.
+     * Веса шаблона берутся из GridMetrics: ни одного деления на точку.
      */
     private static class LaplacianInteriorOp implements ParallelExecutor.ArrayOp {
         Grid2D grid;
+        GridMetrics metrics;
         double[] uInt, uFull, LuInt;
+        boolean implicit;
+        double a;
+        double[] smoothRhs, smoothDiag; // != null - режим Якоби-сглаживателя поверх оператора
+        double omega;
+        RowSources rows = new RowSources();
+        final Tiling.Layout tiles = new Tiling.Layout();
+        final ParallelExecutor.ReduceOp fused = this::tilesDot;
 
         public void set(Grid2D grid, double[] uInt, double[] uFull, double[] LuInt) {
+            if (grid != this.grid) {
+                this.metrics = GridMetrics.of(grid);
+            }
+            tiles.set(grid);
             this.grid = grid;
             this.uInt = uInt;
             this.uFull = uFull;
             this.LuInt = LuInt;
+            this.implicit = false;
+            this.smoothRhs = null;
+            rows.set(grid, uInt, uFull);
+        }
+
+        public void setPadded(PaddedField u, double[] LuInt) {
+            set(u.grid(), u.data(), u.data(), LuInt);
+            rows.set(u.grid(), u.data(), u.data(), true);
+        }
+
+        /**
+         * Режим оператора: LuInt = uInt - factor * L uInt при нулевом Дирихле.
+         */
+        public void setImplicit(Grid2D grid, double factor, double[] x, double[] y) {
+            set(grid, x, null, y);
+            this.implicit = true;
+            this.a = -factor;
+        }
+
+        public void setSmooth(Grid2D grid, double factor, double[] z, double[] rhs, double[] diag, double omega,
+                double[] out) {
+            setImplicit(grid, factor, z, out);
+            this.smoothRhs = rhs;
+            this.smoothDiag = diag;
+            this.omega = omega;
         }
 
         @Override
-        public void compute(int startJ, int endJ) {
+        public void compute(int startT, int endT) {
+            tilesDot(startT, endT);
+        }
+
+        /**
+         * Тайлы [startT, endT). В режиме оператора заодно копит x · y (иначе возвращает 0).
+         */
+        double tilesDot(int startT, int endT) {
+            double dot = 0.0;
+            for (int t = startT; t < endT; t++) {
+                dot += tile(tiles.j0(t), tiles.j1(t), tiles.i0(t), tiles.i1(t));
+            }
+            return dot;
+        }
+
+        /**
+         * Строки [startJ, endJ) в колонках [i0, i1). Крайние колонки отпилены только у тех тайлов,
+         * что в них упираются.
+         */
+        private double tile(int startJ, int endJ, int i0, int i1) {
             int inX = grid.inX();
-            int inY = grid.inY();
-            int nx = grid.Nx();
-            double ihx2 = grid.ihx2();
-            double ihy2 = grid.ihy2();
+            double[] cL = metrics.x().lapLeft;
+            double[] cR = metrics.x().lapRight;
+            GridMetrics.Axis my = metrics.y();
+            boolean simd = SimdBackend.isEnabled();
+            // Колонка 0 и колонка inX - 1 смотрят на границу, остальные - чистое нутро
+            int iLo = Math.min(1, inX);
+            int iHi = Math.max(iLo, inX - 1);
+            int leftEnd = Math.min(i1, iLo);
+            int midStart = Math.max(i0, iLo);
+            int midEnd = Math.max(midStart, Math.min(i1, iHi));
+            int rightStart = Math.max(i0, iHi);
+            double dot = 0.0;
             for (int j = startJ; j < endJ; j++) {
                 int globalJ = j + 1;
                 int intOffset = j * inX;
+                int srcOffset = rows.offset(j);
 
-                double yC = grid.y()[globalJ];
-                double yL = grid.y()[globalJ - 1];
-                double yR = grid.y()[globalJ + 1];
-                double dy_avg = 0.5 * (yR - yL);
-                double inv_dyC_dyL = 1.0 / (dy_avg * (yC - yL));
-                double inv_dyR_dyC = 1.0 / (dy_avg * (yR - yC));
-                double inv_dyC = 1.0 / dy_avg;
+                double inv_dyC_dyL = my.lapLeft[j];
+                double inv_dyR_dyC = my.lapRight[j];
 
-                for (int i = 0; i < inX; i++) {
-                    int globalI = i + 1;
-                    int intIdx = intOffset + i;
+                double[] dn = rows.array(j - 1);
+                int dnOff = rows.offset(j - 1);
+                double[] upRow = rows.array(j + 1);
+                int upOff = rows.offset(j + 1);
+                double leftB = rows.leftBoundary(globalJ);
+                double rightB = rows.rightBoundary(globalJ);
+
+                for (int i = i0; i < leftEnd; i++) {
+                    double center = uInt[srcOffset + i];
+                    dot += emit(intOffset + i, center, laplacianPoint(cL, cR, i, center,
+                            rows.rowValue(srcOffset, i - 1, leftB, rightB),
+                            rows.rowValue(srcOffset, i + 1, leftB, rightB),
+                            dn[dnOff + i], upRow[upOff + i], inv_dyC_dyL, inv_dyR_dyC));
+                }
+                if (simd) {
+                    dot += VectorKernels.laplacianRow(uInt, srcOffset, dn, dnOff, upRow, upOff, cL, cR, inv_dyC_dyL,
+                            inv_dyR_dyC, implicit, a, LuInt, intOffset, midStart, midEnd);
+                } else if (implicit) {
+                    // Фьюз: y = x + a * Lx пишется сразу, Lx нигде не материализуется
+                    for (int i = midStart; i < midEnd; i++) {
+                        int intIdx = intOffset + i;
+                        int srcIdx = srcOffset + i;
+                        double center = uInt[srcIdx];
+                        double v = center + a * laplacianPoint(cL, cR, i, center, uInt[srcIdx - 1],
+                                uInt[srcIdx + 1], dn[dnOff + i], upRow[upOff + i], inv_dyC_dyL, inv_dyR_dyC);
+                        LuInt[intIdx] = v;
+                        dot += center * v;
+                    }
+                } else {
+                    for (int i = midStart; i < midEnd; i++) {
+                        int intIdx = intOffset + i;
+                        int srcIdx = srcOffset + i;
+                        LuInt[intIdx] = laplacianPoint(cL, cR, i, uInt[srcIdx], uInt[srcIdx - 1], uInt[srcIdx + 1],
+                                dn[dnOff + i], upRow[upOff + i], inv_dyC_dyL, inv_dyR_dyC);
+                    }
+                }
+                for (int i = rightStart; i < i1; i++) {
+                    double center = uInt[srcOffset + i];
+                    dot += emit(intOffset + i, center, laplacianPoint(cL, cR, i, center,
+                            rows.rowValue(srcOffset, i - 1, leftB, rightB),
+                            rows.rowValue(srcOffset, i + 1, leftB, rightB),
+                            dn[dnOff + i], upRow[upOff + i], inv_dyC_dyL, inv_dyR_dyC));
+                }
+                if (smoothRhs != null) {
+                    // Строка тайла еще в L1: тут же доводим A z до шага Якоби
+                    jacobiFinish(uInt, smoothRhs, smoothDiag, omega, LuInt, intOffset + i0, intOffset + i1);
+                }
+            }
+            return dot;
+        }
+
+        private double emit(int intIdx, double center, double lap) {
+            if (!implicit) {
+                LuInt[intIdx] = lap;
+                return 0.0;
+            }
+            double v = center + a * lap;
+            LuInt[intIdx] = v;
+            return center * v;
+        }
+    }
+
+    private static double laplacianPoint(double[] cL, double[] cR, int i, double center, double left, double right,
+            double down, double up, double inv_dyC_dyL, double inv_dyR_dyC) {
+        double d2udx2 = (right - center) * cR[i] - (center - left) * cL[i];
+        double d2udy2 = (up - center) * inv_dyR_dyC - (center - down) * inv_dyC_dyL;
+        return d2udx2 + d2udy2;
+    }
+
+    /**
+     * Откуда брать соседей за краем внутренней области. Строка jj в [0, inY) - нутро uInt,
+     * jj = -1 / inY - граничные строки uFull (или нули, если uFull == null), дальше - нули.
+     * Вся ветвистость живет тут и дергается раз на строку, а не раз на точку.
+     * padded: uInt == uFull - это PaddedField, нутро читается прямо из него со страйдом Nx.
+     */
+    private static final class RowSources {
+        private Grid2D grid;
+        private double[] uInt;
+        private double[] uFull;
+        private boolean padded;
+        private double[] zeroRow = new double[0];
+
+        void set(Grid2D grid, double[] uInt, double[] uFull) {
+            set(grid, uInt, uFull, false);
+        }
+
+        void set(Grid2D grid, double[] uInt, double[] uFull, boolean padded) {
+            this.grid = grid;
+            this.uInt = uInt;
+            this.uFull = uFull;
+            this.padded = padded;
+            if (zeroRow.length < grid.inX()) {
+                zeroRow = new double[grid.inX()]; // Grow-only, только на смене сетки
+            }
+        }
+
+        double[] array(int jj) {
+            if (jj >= 0 && jj < grid.inY()) {
+                return uInt;
+            }
+            if ((jj == -1 || jj == grid.inY()) && uFull != null) {
+                return uFull;
+            }
+            return zeroRow;
+        }
 
-                    double xC = grid.x()[globalI];
-                    double xL = grid.x()[globalI - 1];
-                    double xR = grid.x()[globalI + 1];
-                    double dx_avg = 0.5 * (xR - xL);
-                    double inv_dxC_dxL = 1.0 / (dx_avg * (xC - xL));
-                    double inv_dxR_dxC = 1.0 / (dx_avg * (xR - xC));
-
-                    double center = uInt[intIdx];
-                    double left = (i == 0) ? (uFull != null ? uFull[grid.idx(0, globalJ)] : 0.0) : uInt[intIdx - 1];
-                    double right = (i == inX - 1) ? (uFull != null ? uFull[grid.idx(nx - 1, globalJ)] : 0.0)
-                            : uInt[intIdx + 1];
-                    double down = (j == 0) ? (uFull != null ? uFull[grid.idx(globalI, 0)] : 0.0) : uInt[intIdx - inX];
-                    double up = (j == inY - 1) ? (uFull != null ? uFull[grid.idx(globalI, grid.Ny() - 1)] : 0.0)
-                            : uInt[intIdx + inX];
-
-                    double d2udx2 = (right - center) * inv_dxR_dxC - (center - left) * inv_dxC_dxL;
-                    double d2udy2 = (up - center) * inv_dyR_dyC - (center - down) * inv_dyC_dyL;
-
-                    LuInt[intIdx] = d2udx2 + d2udy2;
+        int offset(int jj) {
+            if (jj >= 0 && jj < grid.inY()) {
+                return padded ? grid.idx(1, jj + 1) : jj * grid.inX();
+            }
+            if (uFull != null) {
+                if (jj == -1) {
+                    return grid.idx(1, 0);
+                }
+                if (jj == grid.inY()) {
+                    return grid.idx(1, grid.Ny() - 1);
                 }
             }
+            return 0;
+        }
+
+        double leftBoundary(int globalJ) {
+            return uFull != null ? uFull[grid.idx(0, globalJ)] : 0.0;
+        }
+
+        double rightBoundary(int globalJ) {
+            return uFull != null ? uFull[grid.idx(grid.Nx() - 1, globalJ)] : 0.0;
+        }
+
+        /**
+         * Значение в колонке ii текущей строки: нутро, левая/правая граница или 0 за ними.
+         */
+        double rowValue(int rowOffset, int ii, double leftB, double rightB) {
+            int inX = grid.inX();
+            if (ii < 0) {
+                return ii == -1 ? leftB : 0.0;
+            }
+            if (ii >= inX) {
+                return ii == inX ? rightB : 0.0;
+            }
+            return uInt[rowOffset + ii];
         }
     }
 
@@ -75,7 +255,18 @@ public class Stencil {
 
     public static void applyLaplacianInterior(Grid2D grid, double[] uInt, double[] uFull, double[] LuInt) {
         laplacianInteriorOp.set(grid, uInt, uFull, LuInt);
-        ParallelExecutor.executeContiguous(grid.inY(), laplacianInteriorOp);
+        ParallelExecutor.executeBlocks(laplacianInteriorOp.tiles.count(), laplacianInteriorOp.tiles.work(),
+                laplacianInteriorOp);
+    }
+
+    /**
+     * Лапласиан прямо по паддед-полю: нутро и гало читаются из одного массива, без extract/inject.
+     * LuInt - как обычно, плотный вектор по внутренним узлам.
+     */
+    public static void applyLaplacianInterior(PaddedField u, double[] LuInt) {
+        laplacianInteriorOp.setPadded(u, LuInt);
+        ParallelExecutor.executeBlocks(laplacianInteriorOp.tiles.count(), laplacianInteriorOp.tiles.work(),
+                laplacianInteriorOp);
     }
 
     public static void precomputeDiffusivityArrays(Grid2D grid, double[] kFull, double[] kXFull, double[] kYFull,
@@ -105,76 +296,171 @@ public class Stencil {
     /**
      * Прогоняем пространственный оператор \nabla \cdot (\kappa \nabla u) (Variable Diffusivity).
      * Uses arithmetic averaging for \kappa at half-points.
+     * Граница отпилена так же, как в Лапласиане: внутренний цикл без тернарников.
      */
     private static class DivKGradInteriorOp implements ParallelExecutor.ArrayOp {
         Grid2D grid;
+        GridMetrics metrics;
         double[] uInt, uFull, kXFull, kYFull, LuInt;
+        boolean implicit;
+        double a;
+        double[] smoothRhs, smoothDiag; // != null - режим Якоби-сглаживателя поверх оператора
+        double omega;
+        RowSources rows = new RowSources();
+        final Tiling.Layout tiles = new Tiling.Layout();
+        final ParallelExecutor.ReduceOp fused = this::tilesDot;
 
         public void set(Grid2D grid, double[] uInt, double[] uFull, double[] kXFull, double[] kYFull, double[] LuInt) {
+            if (grid != this.grid) {
+                this.metrics = GridMetrics.of(grid);
+            }
+            tiles.set(grid);
             this.grid = grid;
             this.uInt = uInt;
             this.uFull = uFull;
             this.kXFull = kXFull;
             this.kYFull = kYFull;
             this.LuInt = LuInt;
+            this.implicit = false;
+            this.smoothRhs = null;
+            rows.set(grid, uInt, uFull);
+        }
+
+        public void setPadded(PaddedField u, double[] kXFull, double[] kYFull, double[] LuInt) {
+            set(u.grid(), u.data(), u.data(), kXFull, kYFull, LuInt);
+            rows.set(u.grid(), u.data(), u.data(), true);
+        }
+
+        public void setImplicit(Grid2D grid, double factor, double[] x, double[] kXFull, double[] kYFull,
+                double[] y) {
+            set(grid, x, null, kXFull, kYFull, y);
+            this.implicit = true;
+            this.a = -factor;
+        }
+
+        public void setSmooth(Grid2D grid, double factor, double[] z, double[] kXFull, double[] kYFull,
+                double[] rhs, double[] diag, double omega, double[] out) {
+            setImplicit(grid, factor, z, kXFull, kYFull, out);
+            this.smoothRhs = rhs;
+            this.smoothDiag = diag;
+            this.omega = omega;
         }
 
         @Override
-        public void compute(int startJ, int endJ) {
+        public void compute(int startT, int endT) {
+            tilesDot(startT, endT);
+        }
+
+        /**
+         * Тайлы [startT, endT). В режиме оператора заодно копит x · y (иначе возвращает 0).
+         */
+        double tilesDot(int startT, int endT) {
+            double dot = 0.0;
+            for (int t = startT; t < endT; t++) {
+                dot += tile(tiles.j0(t), tiles.j1(t), tiles.i0(t), tiles.i1(t));
+            }
+            return dot;
+        }
+
+        private double tile(int startJ, int endJ, int i0, int i1) {
             int inX = grid.inX();
-            int inY = grid.inY();
             int nx = grid.Nx();
+            GridMetrics.Axis x = metrics.x();
+            GridMetrics.Axis my = metrics.y();
+            boolean simd = SimdBackend.isEnabled();
+            int iLo = Math.min(1, inX);
+            int iHi = Math.max(iLo, inX - 1);
+            int leftEnd = Math.min(i1, iLo);
+            int midStart = Math.max(i0, iLo);
+            int midEnd = Math.max(midStart, Math.min(i1, iHi));
+            int rightStart = Math.max(i0, iHi);
+            double dot = 0.0;
             for (int j = startJ; j < endJ; j++) {
                 int globalJ = j + 1;
                 int intOffset = j * inX;
+                int srcOffset = rows.offset(j);
+                int globalOffset = grid.idx(1, globalJ); // globalIdx = globalOffset + i
 
-                double yC = grid.y()[globalJ];
-                double yL = grid.y()[globalJ - 1];
-                double yR = grid.y()[globalJ + 1];
-                double dy_avg = 0.5 * (yR - yL);
-                double inv_dy_avg = 1.0 / dy_avg;
-                double inv_dyC_yL = 1.0 / (yC - yL);
-                double inv_dyR_yC = 1.0 / (yR - yC);
+                double inv_dy_avg = my.invAvg[j];
+                double inv_dyC_yL = my.invLeft[j];
+                double inv_dyR_yC = my.invRight[j];
 
-                for (int i = 0; i < inX; i++) {
-                    int globalI = i + 1;
-                    int intIdx = intOffset + i;
-                    int globalIdx = grid.idx(globalI, globalJ);
-
-                    double xC = grid.x()[globalI];
-                    double xL = grid.x()[globalI - 1];
-                    double xR = grid.x()[globalI + 1];
-                    double dx_avg = 0.5 * (xR - xL);
-                    double inv_dx_avg = 1.0 / dx_avg;
-                    double inv_dxC_xL = 1.0 / (xC - xL);
-                    double inv_dxR_xC = 1.0 / (xR - xC);
-
-                    double center = uInt[intIdx];
-                    double left = (i == 0) ? (uFull != null ? uFull[grid.idx(0, globalJ)] : 0.0) : uInt[intIdx - 1];
-                    double right = (i == inX - 1) ? (uFull != null ? uFull[grid.idx(nx - 1, globalJ)] : 0.0)
-                            : uInt[intIdx + 1];
-                    double down = (j == 0) ? (uFull != null ? uFull[grid.idx(globalI, 0)] : 0.0) : uInt[intIdx - inX];
-                    double up = (j == inY - 1) ? (uFull != null ? uFull[grid.idx(globalI, grid.Ny() - 1)] : 0.0)
-                            : uInt[intIdx + inX];
-
-                    // K values are pre-multiplied by inverse distances inside
-                    // precomputeDiffusivityArrays,
-                    // НО они умножались с оглядкой на UNIFORM. Надо срочно расцепить зависимость
-                    // precomputeDiffusivityArrays
-                    // или пересчитать прям тут. Надо бы зафиксить precomputeDiffusivityArrays!
-                    // For now, assume kXFull[globalIdx] simply holds the actual interfacial kappa:
-                    // K_{i+1/2, j}
-
-                    double d2udx2 = (kXFull[globalIdx] * (right - center) * inv_dxR_xC
-                            - kXFull[globalIdx - 1] * (center - left) * inv_dxC_xL) * inv_dx_avg;
-
-                    double d2udy2 = (kYFull[globalIdx] * (up - center) * inv_dyR_yC
-                            - kYFull[globalIdx - nx] * (center - down) * inv_dyC_yL) * inv_dy_avg;
-
-                    LuInt[intIdx] = d2udx2 + d2udy2;
+                double[] dn = rows.array(j - 1);
+                int dnOff = rows.offset(j - 1);
+                double[] upRow = rows.array(j + 1);
+                int upOff = rows.offset(j + 1);
+                double leftB = rows.leftBoundary(globalJ);
+                double rightB = rows.rightBoundary(globalJ);
+
+                // kXFull/kYFull - чистые интерфейсные kappa (K_{i+1/2, j}, K_{i, j+1/2}), метрики
+                // растянутой сетки берутся из GridMetrics. Крайние колонки отпилены только у тех
+                // тайлов, что в них упираются (leftEnd/rightStart), остальные идут чистой серединой
+                for (int i = i0; i < leftEnd; i++) {
+                    double center = uInt[srcOffset + i];
+                    dot += emit(intOffset + i, center, divKGradPoint(x, kXFull, kYFull, nx, i, globalOffset + i,
+                            center, rows.rowValue(srcOffset, i - 1, leftB, rightB),
+                            rows.rowValue(srcOffset, i + 1, leftB, rightB), dn[dnOff + i], upRow[upOff + i],
+                            inv_dy_avg, inv_dyC_yL, inv_dyR_yC));
+                }
+                if (simd) {
+                    dot += VectorKernels.divKGradRow(uInt, srcOffset, dn, dnOff, upRow, upOff, kXFull, kYFull,
+                            globalOffset, nx, x.invLeft, x.invRight, x.invAvg, inv_dyC_yL, inv_dyR_yC, inv_dy_avg,
+                            implicit, a, LuInt, intOffset, midStart, midEnd);
+                } else if (implicit) {
+                    for (int i = midStart; i < midEnd; i++) {
+                        int intIdx = intOffset + i;
+                        int srcIdx = srcOffset + i;
+                        double center = uInt[srcIdx];
+                        double v = center + a * divKGradPoint(x, kXFull, kYFull, nx, i, globalOffset + i, center,
+                                uInt[srcIdx - 1], uInt[srcIdx + 1], dn[dnOff + i], upRow[upOff + i], inv_dy_avg,
+                                inv_dyC_yL, inv_dyR_yC);
+                        LuInt[intIdx] = v;
+                        dot += center * v;
+                    }
+                } else {
+                    for (int i = midStart; i < midEnd; i++) {
+                        int intIdx = intOffset + i;
+                        int srcIdx = srcOffset + i;
+                        LuInt[intIdx] = divKGradPoint(x, kXFull, kYFull, nx, i, globalOffset + i, uInt[srcIdx],
+                                uInt[srcIdx - 1], uInt[srcIdx + 1], dn[dnOff + i], upRow[upOff + i], inv_dy_avg,
+                                inv_dyC_yL, inv_dyR_yC);
+                    }
+                }
+                for (int i = rightStart; i < i1; i++) {
+                    double center = uInt[srcOffset + i];
+                    dot += emit(intOffset + i, center, divKGradPoint(x, kXFull, kYFull, nx, i, globalOffset + i,
+                            center, rows.rowValue(srcOffset, i - 1, leftB, rightB),
+                            rows.rowValue(srcOffset, i + 1, leftB, rightB), dn[dnOff + i], upRow[upOff + i],
+                            inv_dy_avg, inv_dyC_yL, inv_dyR_yC));
+                }
+                if (smoothRhs != null) {
+                    jacobiFinish(uInt, smoothRhs, smoothDiag, omega, LuInt, intOffset + i0, intOffset + i1);
                 }
             }
+            return dot;
         }
+
+        private double emit(int intIdx, double center, double lap) {
+            if (!implicit) {
+                LuInt[intIdx] = lap;
+                return 0.0;
+            }
+            double v = center + a * lap;
+            LuInt[intIdx] = v;
+            return center * v;
+        }
+    }
+
+    private static double divKGradPoint(GridMetrics.Axis x, double[] kXFull, double[] kYFull, int nx, int i,
+            int globalIdx, double center, double left, double right, double down, double up, double inv_dy_avg,
+            double inv_dyC_yL, double inv_dyR_yC) {
+        double d2udx2 = (kXFull[globalIdx] * (right - center) * x.invRight[i]
+                - kXFull[globalIdx - 1] * (center - left) * x.invLeft[i]) * x.invAvg[i];
+
+        double d2udy2 = (kYFull[globalIdx] * (up - center) * inv_dyR_yC
+                - kYFull[globalIdx - nx] * (center - down) * inv_dyC_yL) * inv_dy_avg;
+
+        return d2udx2 + d2udy2;
     }
 
     private static final DivKGradInteriorOp divKGradInteriorOp = new DivKGradInteriorOp();
@@ -182,170 +468,914 @@ public class Stencil {
     public static void applyDivKGradInterior(Grid2D grid, double[] uInt, double[] uFull, double[] kXFull,
             double[] kYFull, double[] LuInt) {
         divKGradInteriorOp.set(grid, uInt, uFull, kXFull, kYFull, LuInt);
-        ParallelExecutor.executeContiguous(grid.inY(), divKGradInteriorOp);
+        ParallelExecutor.executeBlocks(divKGradInteriorOp.tiles.count(), divKGradInteriorOp.tiles.work(),
+                divKGradInteriorOp);
+    }
+
+    public static void applyDivKGradInterior(PaddedField u, double[] kXFull, double[] kYFull, double[] LuInt) {
+        divKGradInteriorOp.setPadded(u, kXFull, kYFull, LuInt);
+        ParallelExecutor.executeBlocks(divKGradInteriorOp.tiles.count(), divKGradInteriorOp.tiles.work(),
+                divKGradInteriorOp);
+    }
+
+    /**
+     * Фьюзнутый оператор неявной схемы: y = x - factor * L x (L - Лапласиан или div(k grad), если kXFull
+     * не null) при нулевом Дирихле, за один проход по памяти. Промежуточный Lx не материализуется.
+     *
+     * @return x · y - на SPD операторе это ровно pAp для PCG, отдельный dot не нужен.
+     */
+    public static double applyImplicitInterior(Grid2D grid, double factor, double[] x, double[] kXFull,
+            double[] kYFull, double[] y) {
+        if (kXFull != null) {
+            divKGradInteriorOp.setImplicit(grid, factor, x, kXFull, kYFull, y);
+            return ParallelExecutor.reduceBlocks(divKGradInteriorOp.tiles.count(), divKGradInteriorOp.tiles.work(),
+                    divKGradInteriorOp.fused);
+        }
+        laplacianInteriorOp.setImplicit(grid, factor, x, y);
+        return ParallelExecutor.reduceBlocks(laplacianInteriorOp.tiles.count(), laplacianInteriorOp.tiles.work(),
+                laplacianInteriorOp.fused);
+    }
+
+    /**
+     * rhsInt += factor * L_bnd(u_bnd): вклад гало uFull (граница на новом слое) в правую часть неявной
+     * схемы, т.е. L по нулевому нутру с этим гало. Ненулевой он только в приграничной полосе (первые и
+     * последние строка/колонка нутра), так что идем по ней одной, O(периметра), последовательно.
+     * Точки считаются теми же laplacianPoint/divKGradPoint с нулевым центром, что и полный стенсил по
+     * нулевому нутру, так что rhs совпадает бит в бит. kXFull == null - Лапласиан.
+     */
+    public static void addBoundaryLift(Grid2D grid, double[] uFull, double[] kXFull, double[] kYFull,
+            double factor, double[] rhsInt) {
+        int inX = grid.inX();
+        int inY = grid.inY();
+        if (rhsInt.length != inX * inY) {
+            throw new IllegalArgumentException("RHS не совпал с нутром: ждали " + inX * inY + ", прилетело "
+                    + rhsInt.length);
+        }
+        GridMetrics metrics = GridMetrics.of(grid);
+        for (int j = 0; j < inY; j++) {
+            boolean edgeRow = j == 0 || j == inY - 1;
+            int step = edgeRow ? 1 : Math.max(1, inX - 1); // Середина - только колонки 0 и inX - 1
+            for (int i = 0; i < inX; i += step) {
+                rhsInt[j * inX + i] += factor * boundaryPoint(grid, metrics, uFull, kXFull, kYFull, i, j);
+            }
+        }
+    }
+
+    private static double boundaryPoint(Grid2D grid, GridMetrics metrics, double[] uFull, double[] kXFull,
+            double[] kYFull, int i, int j) {
+        int nx = grid.Nx();
+        int g = grid.idx(i + 1, j + 1);
+        double left = i == 0 ? uFull[g - 1] : 0.0;
+        double right = i == grid.inX() - 1 ? uFull[g + 1] : 0.0;
+        double down = j == 0 ? uFull[g - nx] : 0.0;
+        double up = j == grid.inY() - 1 ? uFull[g + nx] : 0.0;
+        GridMetrics.Axis my = metrics.y();
+        if (kXFull != null) {
+            return divKGradPoint(metrics.x(), kXFull, kYFull, nx, i, g, 0.0, left, right, down, up, my.invAvg[j],
+                    my.invLeft[j], my.invRight[j]);
+        }
+        return laplacianPoint(metrics.x().lapLeft, metrics.x().lapRight, i, 0.0, left, right, down, up,
+                my.lapLeft[j], my.lapRight[j]);
+    }
+
+    /**
+     * Тот же y = x - factor * L x, но без x · y наружу: обычный array-проход без частичных сумм и
+     * редукции (GMRES, невязка MG, сглаживатели - им pAp не нужен).
+     */
+    public static void applyImplicitInteriorNoDot(Grid2D grid, double factor, double[] x, double[] kXFull,
+            double[] kYFull, double[] y) {
+        if (kXFull != null) {
+            divKGradInteriorOp.setImplicit(grid, factor, x, kXFull, kYFull, y);
+            ParallelExecutor.executeBlocks(divKGradInteriorOp.tiles.count(), divKGradInteriorOp.tiles.work(),
+                    divKGradInteriorOp);
+            return;
+        }
+        laplacianInteriorOp.setImplicit(grid, factor, x, y);
+        ParallelExecutor.executeBlocks(laplacianInteriorOp.tiles.count(), laplacianInteriorOp.tiles.work(),
+                laplacianInteriorOp);
+    }
+
+    /**
+     * Шаг взвешенного Якоби для того же A = I - factor * L одним тайловым проходом:
+     * out = z + omega * (rhs - A z) / diag. A z считается строкой тайла и тут же, пока строка в L1,
+     * превращается в шаг сглаживателя. z и out - разные массивы (Якоби читает только старый z).
+     */
+    public static void jacobiSweepInterior(Grid2D grid, double factor, double[] kXFull, double[] kYFull,
+            double[] z, double[] rhs, double[] diag, double omega, double[] out) {
+        if (z == out) {
+            throw new IllegalArgumentException("Якоби не умеет in-place: z и out обязаны быть разными массивами");
+        }
+        if (kXFull != null) {
+            divKGradInteriorOp.setSmooth(grid, factor, z, kXFull, kYFull, rhs, diag, omega, out);
+            ParallelExecutor.executeBlocks(divKGradInteriorOp.tiles.count(), divKGradInteriorOp.tiles.work(),
+                    divKGradInteriorOp);
+            return;
+        }
+        laplacianInteriorOp.setSmooth(grid, factor, z, rhs, diag, omega, out);
+        ParallelExecutor.executeBlocks(laplacianInteriorOp.tiles.count(), laplacianInteriorOp.tiles.work(),
+                laplacianInteriorOp);
+    }
+
+    private static void jacobiFinish(double[] z, double[] rhs, double[] diag, double omega, double[] out, int from,
+            int to) {
+        for (int c = from; c < to; c++) {
+            out[c] = z[c] + omega * (rhs[c] - out[c]) / diag[c];
+        }
+    }
+
+    /**
+     * Temporal blocking (wavefront) для пачки свипов Якоби: k свипов за один проход по памяти.
+     * Нутро режется на блоки строк; внутри блока уровни s = 1..k идут волной со сдвигом на строку
+     * (уровень s считает строку r, когда уровень s - 1 уже выдал r + 1). Промежуточные уровни живут
+     * в кольцах по 3 строки - это и есть рабочий сет, он сидит в кэше, а z/rhs/diag читаются из
+     * памяти один раз на k свипов. Блоки независимы: каждый досчитывает трапецию-гало на k - s строк
+     * уровня s с каждой стороны (немного избыточной арифметики), поэтому расползаются по воркерам.
+     * Арифметика на точку та же, что у jacobiSweepInterior, так что результат совпадает бит в бит.
+     */
+    private static class WavefrontJacobiOp implements ParallelExecutor.ArrayOp {
+        Grid2D grid;
+        GridMetrics metrics;
+        double[] kXFull, kYFull, z, rhs, diag, out;
+        double a, omega;
+        int sweeps, blockRows, blocks;
+        double[] rings = new double[0]; // На блок: (sweeps - 1) уровней x 3 строки
+        double[] zeroRow = new double[0];
+
+        public void set(Grid2D grid, double factor, double[] kXFull, double[] kYFull, double[] z, double[] rhs,
+                double[] diag, double omega, int sweeps, double[] out) {
+            if (grid != this.grid) {
+                this.metrics = GridMetrics.of(grid);
+            }
+            this.grid = grid;
+            this.a = -factor;
+            this.kXFull = kXFull;
+            this.kYFull = kYFull;
+            this.z = z;
+            this.rhs = rhs;
+            this.diag = diag;
+            this.omega = omega;
+            this.sweeps = sweeps;
+            this.out = out;
+
+            int inX = grid.inX();
+            int inY = grid.inY();
+            // Блок сильно выше глубины волны, иначе избыточные трапеции съедят весь профит
+            blockRows = Math.max(1, Math.min(inY, Math.max(Tiling.tileY(), 4 * sweeps)));
+            blocks = inY == 0 ? 0 : (inY + blockRows - 1) / blockRows;
+            int need = blocks * (sweeps - 1) * 3 * inX;
+            if (rings.length < need) {
+                rings = new double[need]; // Grow-only
+            }
+            if (zeroRow.length < inX) {
+                zeroRow = new double[inX];
+            }
+        }
+
+        @Override
+        public void compute(int startB, int endB) {
+            for (int b = startB; b < endB; b++) {
+                block(b);
+            }
+        }
+
+        private void block(int b) {
+            int inX = grid.inX();
+            int inY = grid.inY();
+            int k = sweeps;
+            int j0 = b * blockRows;
+            int j1 = Math.min(inY, j0 + blockRows);
+            int ringBase = b * (k - 1) * 3 * inX;
+
+            for (int w = Math.max(0, j0 - (k - 1)); w < j1 + k - 1; w++) {
+                for (int s = 1; s <= k; s++) {
+                    int r = w - (s - 1);
+                    // Уровень s нужен на строках [j0 - (k - s), j1 + (k - s)), обрезанных по сетке
+                    if (r < Math.max(0, j0 - (k - s)) || r >= Math.min(inY, j1 + (k - s))) {
+                        continue;
+                    }
+                    double[] dst = s == k ? out : rings;
+                    int dOff = s == k ? r * inX : ringBase + ((s - 1) * 3 + r % 3) * inX;
+                    jacobiRow(r, rowArray(s - 1, r), rowOffset(s - 1, r, ringBase), rowArray(s - 1, r - 1),
+                            rowOffset(s - 1, r - 1, ringBase), rowArray(s - 1, r + 1),
+                            rowOffset(s - 1, r + 1, ringBase), dst, dOff);
+                }
+            }
+        }
+
+        private double[] rowArray(int level, int r) {
+            if (r < 0 || r >= grid.inY()) {
+                return zeroRow;
+            }
+            return level == 0 ? z : rings;
+        }
+
+        private int rowOffset(int level, int r, int ringBase) {
+            if (r < 0 || r >= grid.inY()) {
+                return 0;
+            }
+            int inX = grid.inX();
+            return level == 0 ? r * inX : ringBase + ((level - 1) * 3 + r % 3) * inX;
+        }
+
+        /**
+         * Строка r одного шага Якоби: dst = src + omega * (rhs - (src - factor * L src)) / diag при
+         * нулевом Дирихле (за краем строки и за крайними строками - нули).
+         */
+        private void jacobiRow(int r, double[] src, int sOff, double[] dn, int dnOff, double[] up, int upOff,
+                double[] dst, int dOff) {
+            int inX = grid.inX();
+            int iLo = Math.min(1, inX);
+            int iHi = Math.max(iLo, inX - 1);
+            boolean simd = SimdBackend.isEnabled();
+            GridMetrics.Axis mx = metrics.x();
+            GridMetrics.Axis my = metrics.y();
+
+            if (kXFull == null) {
+                double[] cL = mx.lapLeft;
+                double[] cR = mx.lapRight;
+                double cyL = my.lapLeft[r];
+                double cyR = my.lapRight[r];
+                for (int i = 0; i < inX; i = (i + 1 == iLo) ? iHi : i + 1) {
+                    double center = src[sOff + i];
+                    double left = i > 0 ? src[sOff + i - 1] : 0.0;
+                    double right = i + 1 < inX ? src[sOff + i + 1] : 0.0;
+                    dst[dOff + i] = center
+                            + a * laplacianPoint(cL, cR, i, center, left, right, dn[dnOff + i], up[upOff + i], cyL, cyR);
+                }
+                if (simd) {
+                    VectorKernels.laplacianRow(src, sOff, dn, dnOff, up, upOff, cL, cR, cyL, cyR, true, a, dst, dOff,
+                            iLo, iHi);
+                } else {
+                    for (int i = iLo; i < iHi; i++) {
+                        double center = src[sOff + i];
+                        dst[dOff + i] = center + a * laplacianPoint(cL, cR, i, center, src[sOff + i - 1],
+                                src[sOff + i + 1], dn[dnOff + i], up[upOff + i], cyL, cyR);
+                    }
+                }
+            } else {
+                int nx = grid.Nx();
+                int gOff = grid.idx(1, r + 1);
+                double invAvg = my.invAvg[r];
+                double invL = my.invLeft[r];
+                double invR = my.invRight[r];
+                for (int i = 0; i < inX; i = (i + 1 == iLo) ? iHi : i + 1) {
+                    double center = src[sOff + i];
+                    double left = i > 0 ? src[sOff + i - 1] : 0.0;
+                    double right = i + 1 < inX ? src[sOff + i + 1] : 0.0;
+                    dst[dOff + i] = center + a * divKGradPoint(mx, kXFull, kYFull, nx, i, gOff + i, center, left, right,
+                            dn[dnOff + i], up[upOff + i], invAvg, invL, invR);
+                }
+                if (simd) {
+                    VectorKernels.divKGradRow(src, sOff, dn, dnOff, up, upOff, kXFull, kYFull, gOff, nx, mx.invLeft,
+                            mx.invRight, mx.invAvg, invL, invR, invAvg, true, a, dst, dOff, iLo, iHi);
+                } else {
+                    for (int i = iLo; i < iHi; i++) {
+                        double center = src[sOff + i];
+                        dst[dOff + i] = center + a * divKGradPoint(mx, kXFull, kYFull, nx, i, gOff + i, center,
+                                src[sOff + i - 1], src[sOff + i + 1], dn[dnOff + i], up[upOff + i], invAvg, invL,
+                                invR);
+                    }
+                }
+            }
+
+            int rOff = r * inX;
+            for (int i = 0; i < inX; i++) {
+                dst[dOff + i] = src[sOff + i] + omega * (rhs[rOff + i] - dst[dOff + i]) / diag[rOff + i];
+            }
+        }
+    }
+
+    private static final WavefrontJacobiOp wavefrontJacobiOp = new WavefrontJacobiOp();
+
+    /**
+     * sweeps шагов взвешенного Якоби (см. jacobiSweepInterior) за один wavefront-проход по памяти.
+     * Бит в бит то же, что sweeps раз подряд дернуть jacobiSweepInterior. z и out - разные массивы.
+     */
+    public static void jacobiSweepsInterior(Grid2D grid, double factor, double[] kXFull, double[] kYFull,
+            double[] z, double[] rhs, double[] diag, double omega, int sweeps, double[] out) {
+        if (sweeps < 1) {
+            throw new IllegalArgumentException("Свипов должно быть хотя бы 1, а прилетело " + sweeps);
+        }
+        if (z == out) {
+            throw new IllegalArgumentException("Якоби не умеет in-place: z и out обязаны быть разными массивами");
+        }
+        wavefrontJacobiOp.set(grid, factor, kXFull, kYFull, z, rhs, diag, omega, sweeps, out);
+        ParallelExecutor.executeBlocks(wavefrontJacobiOp.blocks, wavefrontJacobiOp.blockRows * grid.inX() * sweeps,
+                wavefrontJacobiOp);
     }
 
     /**
      * Прогоняем пространственную Конвекцию (b * \nabla u) по 1-му порядку
      * Upwind.
      * Юзаем векторные поля bXFull и bYFull, стянутые по центрам ячеек.
+     * Шаблон 2-широкий, поэтому отпиливаем по две колонки с каждого края; по y соседи
+     * (включая down2/up2) тянутся из строк-источников, а переключение на 1-й порядок у
+     * первой/последней строки - инвариант строки, а не ветка на точку.
      */
     private static class ConvectionUpwindInteriorOp implements ParallelExecutor.ArrayOp {
         Grid2D grid;
+        GridMetrics metrics;
         double[] uInt, uFull, bXFull, bYFull, LuInt;
+        RowSources rows = new RowSources();
+        final Tiling.Layout tiles = new Tiling.Layout();
 
         public void set(Grid2D grid, double[] uInt, double[] uFull, double[] bXFull, double[] bYFull, double[] LuInt) {
+            if (grid != this.grid) {
+                this.metrics = GridMetrics.of(grid);
+            }
+            tiles.set(grid);
             this.grid = grid;
             this.uInt = uInt;
             this.uFull = uFull;
             this.bXFull = bXFull;
             this.bYFull = bYFull;
             this.LuInt = LuInt;
+            rows.set(grid, uInt, uFull);
         }
 
-        private double minmod(double r) {
-            return Math.max(0.0, Math.min(1.0, r));
+        @Override
+        public void compute(int startT, int endT) {
+            for (int t = startT; t < endT; t++) {
+                tile(tiles.j0(t), tiles.j1(t), tiles.i0(t), tiles.i1(t));
+            }
         }
 
-        @Override
-        public void compute(int startJ, int endJ) {
+        private void tile(int startJ, int endJ, int i0, int i1) {
             int inX = grid.inX();
             int inY = grid.inY();
-            int nx = grid.Nx();
+            GridMetrics.Axis mx = metrics.x();
+            GridMetrics.Axis my = metrics.y();
+            int iLo = Math.min(2, inX);
+            int iHi = Math.max(iLo, inX - 2);
+            int leftEnd = Math.min(i1, iLo);
+            int midStart = Math.max(i0, iLo);
+            int midEnd = Math.max(midStart, Math.min(i1, iHi));
+            int rightStart = Math.max(i0, iHi);
 
             for (int j = startJ; j < endJ; j++) {
                 int globalJ = j + 1;
                 int intOffset = j * inX;
+                int srcOffset = rows.offset(j);
+                int globalOffset = grid.idx(1, globalJ);
 
-                double yC = grid.y()[globalJ];
-                double yL = grid.y()[globalJ - 1];
-                double yR = grid.y()[globalJ + 1];
-                double yLL = grid.y()[Math.max(0, globalJ - 2)];
-                double yRR = grid.y()[Math.min(grid.Ny() - 1, globalJ + 2)];
+                boolean firstRow = j == 0;
+                boolean lastRow = j == inY - 1;
 
-                double dy_CR = yR - yC;
-                double dy_LC = yC - yL;
-                double dy_LL_L = yL - yLL;
-                double dy_R_RR = yRR - yR;
+                double[] dn = rows.array(j - 1);
+                int dnOff = rows.offset(j - 1);
+                double[] dn2 = rows.array(j - 2);
+                int dn2Off = rows.offset(j - 2);
+                double[] upRow = rows.array(j + 1);
+                int upOff = rows.offset(j + 1);
+                double[] up2Row = rows.array(j + 2);
+                int up2Off = rows.offset(j + 2);
+                double leftB = rows.leftBoundary(globalJ);
+                double rightB = rows.rightBoundary(globalJ);
 
-                double inv_dy_avg = 1.0 / (0.5 * (yR - yL));
-
-                for (int i = 0; i < inX; i++) {
-                    int globalI = i + 1;
+                for (int i = i0; i < leftEnd; i++) {
+                    edgePoint(mx, my, i, j, intOffset, srcOffset, globalOffset, leftB, rightB, dn[dnOff + i],
+                            dn2[dn2Off + i], upRow[upOff + i], up2Row[up2Off + i], firstRow, lastRow);
+                }
+                for (int i = midStart; i < midEnd; i++) {
                     int intIdx = intOffset + i;
-                    int globalIdx = grid.idx(globalI, globalJ);
-
-                    double xC = grid.x()[globalI];
-                    double xL = grid.x()[globalI - 1];
-                    double xR = grid.x()[globalI + 1];
-                    double xLL = grid.x()[Math.max(0, globalI - 2)];
-                    double xRR = grid.x()[Math.min(grid.Nx() - 1, globalI + 2)];
-
-                    double dx_CR = xR - xC;
-                    double dx_LC = xC - xL;
-                    double dx_LL_L = xL - xLL;
-                    double dx_R_RR = xRR - xR;
-
-                    double inv_dx_avg = 1.0 / (0.5 * (xR - xL));
-
-                    double center = uInt[intIdx];
-
-                    double left = (i == 0) ? (uFull != null ? uFull[grid.idx(0, globalJ)] : 0.0) : uInt[intIdx - 1];
-                    double right = (i == inX - 1) ? (uFull != null ? uFull[grid.idx(nx - 1, globalJ)] : 0.0)
-                            : uInt[intIdx + 1];
-                    double down = (j == 0) ? (uFull != null ? uFull[grid.idx(globalI, 0)] : 0.0) : uInt[intIdx - inX];
-                    double up = (j == inY - 1) ? (uFull != null ? uFull[grid.idx(globalI, grid.Ny() - 1)] : 0.0)
-                            : uInt[intIdx + inX];
-
-                    double left2 = (i == 1) ? (uFull != null ? uFull[grid.idx(0, globalJ)] : 0.0)
-                            : (i > 1) ? uInt[intIdx - 2] : 0.0;
-                    double right2 = (i == inX - 2) ? (uFull != null ? uFull[grid.idx(nx - 1, globalJ)] : 0.0)
-                            : (i < inX - 2) ? uInt[intIdx + 2] : 0.0;
-                    double down2 = (j == 1) ? (uFull != null ? uFull[grid.idx(globalI, 0)] : 0.0)
-                            : (j > 1) ? uInt[intIdx - 2 * inX] : 0.0;
-                    double up2 = (j == inY - 2) ? (uFull != null ? uFull[grid.idx(globalI, grid.Ny() - 1)] : 0.0)
-                            : (j < inY - 2) ? uInt[intIdx + 2 * inX] : 0.0;
+                    int srcIdx = srcOffset + i;
+                    int globalIdx = globalOffset + i;
+                    double center = uInt[srcIdx];
+                    double bx = bXFull[globalIdx];
+                    double by = bYFull[globalIdx];
+                    double dudx = upwindDerivative(mx, i, center, uInt[srcIdx - 1], uInt[srcIdx - 2],
+                            uInt[srcIdx + 1], uInt[srcIdx + 2], bx, false, false);
+                    double dudy = upwindDerivative(my, j, center, dn[dnOff + i], dn2[dn2Off + i], upRow[upOff + i],
+                            up2Row[up2Off + i], by, firstRow, lastRow);
+                    LuInt[intIdx] += bx * dudx + by * dudy;
+                }
+                for (int i = rightStart; i < i1; i++) {
+                    edgePoint(mx, my, i, j, intOffset, srcOffset, globalOffset, leftB, rightB, dn[dnOff + i],
+                            dn2[dn2Off + i], upRow[upOff + i], up2Row[up2Off + i], firstRow, lastRow);
+                }
+            }
+        }
+
+        /**
+         * Точка в одной из двух крайних колонок: соседи по x честно резолвятся через границу.
+         */
+        private void edgePoint(GridMetrics.Axis mx, GridMetrics.Axis my, int i, int j, int intOffset,
+                int srcOffset, int globalOffset, double leftB, double rightB, double down, double down2, double up,
+                double up2, boolean firstRow, boolean lastRow) {
+            int intIdx = intOffset + i;
+            int srcIdx = srcOffset + i;
+            int globalIdx = globalOffset + i;
+            double center = uInt[srcIdx];
+            double bx = bXFull[globalIdx];
+            double by = bYFull[globalIdx];
+            double dudx = upwindDerivative(mx, i, center, rows.rowValue(srcOffset, i - 1, leftB, rightB),
+                    rows.rowValue(srcOffset, i - 2, leftB, rightB), rows.rowValue(srcOffset, i + 1, leftB, rightB),
+                    rows.rowValue(srcOffset, i + 2, leftB, rightB), bx, i == 0, i == grid.inX() - 1);
+            double dudy = upwindDerivative(my, j, center, down, down2, up, up2, by, firstRow, lastRow);
+            LuInt[intIdx] += bx * dudx + by * dudy;
+        }
+    }
+
+    private static double minmod(double r) {
+        return Math.max(0.0, Math.min(1.0, r));
+    }
+
+    /**
+     * MUSCL-minmod производная вдоль одной оси в узле k. first/last - у стенки апвинд падает до 1-го порядка.
+     * Все шаги и их отношения - из GridMetrics, делений тут остались только лимитерные r.
+     */
+    private static double upwindDerivative(GridMetrics.Axis m, int k, double center, double left, double left2,
+            double right, double right2, double b, boolean first, boolean last) {
+        if (b > 0) {
+            if (first) {
+                return (center - left) * m.invLeft[k];
+            }
+            double grad_fw = (right - center) * m.invRight[k];
+            double grad_bw = (center - left) * m.invLeft[k];
+            double grad_bbw = (left - left2) * m.invLeft2[k];
+
+            double r_i = (grad_bw == 0) ? 0.0 : grad_fw / grad_bw;
+            double r_im1 = (grad_bbw == 0) ? 0.0 : grad_bw / grad_bbw;
+
+            double fluxRight = center + 0.5 * minmod(r_i) * (center - left) * m.ratioRightLeft[k];
+            double fluxLeft = left + 0.5 * minmod(r_im1) * (left - left2) * m.ratioLeftLeft2[k];
+            return (fluxRight - fluxLeft) * m.invAvg[k];
+        }
+        if (last) {
+            return (right - center) * m.invRight[k];
+        }
+        double grad_fw = (right - center) * m.invRight[k];
+        double grad_ffw = (right2 - right) * m.invRight2[k];
+        double grad_bw = (center - left) * m.invLeft[k];
+
+        double r_i = (grad_fw == 0) ? 0.0 : grad_bw / grad_fw;
+        double r_ip1 = (grad_ffw == 0) ? 0.0 : grad_fw / grad_ffw;
+
+        double fluxLeft = center - 0.5 * minmod(r_i) * (right - center) * m.ratioLeftRight[k];
+        double fluxRight = right - 0.5 * minmod(r_ip1) * (right2 - right) * m.ratioRightRight2[k];
+        return (fluxRight - fluxLeft) * m.invAvg[k];
+    }
+
+    private static final ConvectionUpwindInteriorOp convectionUpwindInteriorOp = new ConvectionUpwindInteriorOp();
+
+    /**
+     * Старое поточечное ядро (каждый узел сам реконструирует обе свои грани, только minmod).
+     * Оставлено как эталон для тестов и JMH против граневого.
+     */
+    public static void applyConvectionUpwindInteriorPointwise(Grid2D grid, double[] uInt, double[] uFull,
+            double[] bXFull, double[] bYFull, double[] LuInt) {
+        convectionUpwindInteriorOp.set(grid, uInt, uFull, bXFull, bYFull, LuInt);
+        ParallelExecutor.executeBlocks(convectionUpwindInteriorOp.tiles.count(),
+                convectionUpwindInteriorOp.tiles.work(), convectionUpwindInteriorOp);
+    }
 
+    /**
+     * MUSCL по граням (FaceConvectionOp): каждая грань реконструируется один раз, а не дважды.
+     * С минмодом совпадает со старым поточечным ядром бит в бит.
+     * Уважаем дефолтный лимитер (-Dpdelab.limiter / setConvectionLimiter).
+     */
+    public static void applyConvectionUpwindInterior(Grid2D grid, double[] uInt, double[] uFull, double[] bXFull,
+            double[] bYFull, double[] LuInt) {
+        applyConvectionMusclInterior(grid, uInt, uFull, bXFull, bYFull, LuInt, convectionLimiter);
+    }
+
+    public static void applyConvectionUpwindInterior(PaddedField u, double[] bXFull, double[] bYFull,
+            double[] LuInt) {
+        applyConvectionMusclInterior(u, bXFull, bYFull, LuInt, convectionLimiter);
+    }
+
+    public static void applyConvectionMusclInterior(Grid2D grid, double[] uInt, double[] uFull, double[] bXFull,
+            double[] bYFull, double[] LuInt, FluxLimiter limiter) {
+        faceConvectionOp.set(grid, uInt, uFull, bXFull, bYFull, LuInt, limiter);
+        ParallelExecutor.executeBlocks(faceConvectionOp.tiles.count(), faceConvectionOp.tiles.work(),
+                faceConvectionOp);
+    }
+
+    public static void applyConvectionMusclInterior(PaddedField u, double[] bXFull, double[] bYFull,
+            double[] LuInt, FluxLimiter limiter) {
+        faceConvectionOp.setPadded(u, bXFull, bYFull, LuInt, limiter);
+        ParallelExecutor.executeBlocks(faceConvectionOp.tiles.count(), faceConvectionOp.tiles.work(),
+                faceConvectionOp);
+    }
+
+    public static FluxLimiter getConvectionLimiter() {
+        return convectionLimiter;
+    }
+
+    /**
+     * Ручной выбор дефолтного лимитера (тесты, бенчи); по умолчанию из -Dpdelab.limiter.
+     */
+    public static void setConvectionLimiter(FluxLimiter limiter) {
+        if (limiter == null) {
+            throw new IllegalArgumentException("Лимитер не может быть null");
+        }
+        convectionLimiter = limiter;
+    }
+
+    private static volatile FluxLimiter convectionLimiter = FluxLimiter.fromProperty();
+
+    /**
+     * Реконструкция на грани k+1/2 с левой (апвинд при b > 0) стороны из узла k. Ровно те же
+     * выражения, что fluxRight/fluxLeft в upwindDerivative - метрики соседних узлов на общей грани
+     * совпадают бит в бит (invRight[k - 1] == invLeft[k] и т.д.).
+     */
+    private static double faceLeftBiased(FluxLimiter lim, GridMetrics.Axis m, int k, double left, double center,
+            double right) {
+        double gradFw = (right - center) * m.invRight[k];
+        double gradBw = (center - left) * m.invLeft[k];
+        double r = (gradBw == 0) ? 0.0 : gradFw / gradBw;
+        return center + 0.5 * lim.phi(r) * (center - left) * m.ratioRightLeft[k];
+    }
+
+    /**
+     * Реконструкция на грани k-1/2 с правой (апвинд при b <= 0) стороны из узла k.
+     */
+    private static double faceRightBiased(FluxLimiter lim, GridMetrics.Axis m, int k, double left, double center,
+            double right) {
+        double gradFw = (right - center) * m.invRight[k];
+        double gradBw = (center - left) * m.invLeft[k];
+        double r = (gradFw == 0) ? 0.0 : gradBw / gradFw;
+        return center - 0.5 * lim.phi(r) * (right - center) * m.ratioLeftRight[k];
+    }
+
+    /**
+     * Конвекция MUSCL по граням. Поточечное ядро реконструирует в каждом узле обе его грани, так
+     * что каждая внутренняя грань (со всеми лимитерными r и делениями) считается дважды. Тут
+     * реконструкция грани переезжает к соседу: по x строка идет окном из пяти значений слева
+     * направо (на точку грузим одно новое), а значение правой грани едет к следующему узлу в
+     * регистре; по y значение верхней грани ждет строку выше в буфере строки тайла. Сторону
+     * реконструкции, как и раньше, выбирает знак b в узле, поэтому грань между узлами с одним
+     * знаком считается ровно раз, а на смене знака досчитывается нужная сторона. NaN в переносе -
+     * "не считали". Буферы - по тайлу (grow-only), тайлы независимы и расходятся по воркерам.
+     */
+    private static class FaceConvectionOp implements ParallelExecutor.ArrayOp {
+        Grid2D grid;
+        GridMetrics metrics;
+        FluxLimiter limiter;
+        double[] uInt, bXFull, bYFull, LuInt;
+        RowSources rows = new RowSources();
+        final Tiling.Layout tiles = new Tiling.Layout();
+        double[] faceY = new double[0]; // На тайл: 2 x tx (левая и правая реконструкция нижней грани)
+
+        public void set(Grid2D grid, double[] uInt, double[] uFull, double[] bXFull, double[] bYFull,
+                double[] LuInt, FluxLimiter limiter) {
+            if (limiter == null) {
+                throw new IllegalArgumentException("Лимитер не может быть null");
+            }
+            if (grid != this.grid) {
+                this.metrics = GridMetrics.of(grid);
+            }
+            tiles.set(grid);
+            this.grid = grid;
+            this.limiter = limiter;
+            this.uInt = uInt;
+            this.bXFull = bXFull;
+            this.bYFull = bYFull;
+            this.LuInt = LuInt;
+            rows.set(grid, uInt, uFull);
+            int need = tiles.count() * 2 * tiles.tx;
+            if (faceY.length < need) {
+                faceY = new double[need]; // Grow-only
+            }
+        }
+
+        public void setPadded(PaddedField u, double[] bXFull, double[] bYFull, double[] LuInt,
+                FluxLimiter limiter) {
+            set(u.grid(), u.data(), u.data(), bXFull, bYFull, LuInt, limiter);
+            rows.set(u.grid(), u.data(), u.data(), true);
+        }
+
+        @Override
+        public void compute(int startT, int endT) {
+            for (int t = startT; t < endT; t++) {
+                tile(t);
+            }
+        }
+
+        private void tile(int t) {
+            int inX = grid.inX();
+            int inY = grid.inY();
+            int i0 = tiles.i0(t);
+            int i1 = tiles.i1(t);
+            int w = i1 - i0;
+            int base = t * 2 * tiles.tx;
+            FluxLimiter lim = limiter;
+            GridMetrics.Axis mx = metrics.x();
+            GridMetrics.Axis my = metrics.y();
+            double[] carry = faceY;
+            java.util.Arrays.fill(carry, base, base + 2 * w, Double.NaN);
+
+            for (int j = tiles.j0(t); j < tiles.j1(t); j++) {
+                int globalJ = j + 1;
+                int intOffset = j * inX;
+                int srcOffset = rows.offset(j);
+                int globalOffset = grid.idx(1, globalJ);
+                boolean firstRow = j == 0;
+                boolean lastRow = j == inY - 1;
+
+                double[] dnRow = rows.array(j - 1);
+                int dnOff = rows.offset(j - 1);
+                double[] dn2Row = rows.array(j - 2);
+                int dn2Off = rows.offset(j - 2);
+                double[] upRow = rows.array(j + 1);
+                int upOff = rows.offset(j + 1);
+                double[] up2Row = rows.array(j + 2);
+                int up2Off = rows.offset(j + 2);
+                double leftB = rows.leftBoundary(globalJ);
+                double rightB = rows.rightBoundary(globalJ);
+
+                // Окно по x: l2, l, c, r, r2 вокруг узла i
+                double l2 = rows.rowValue(srcOffset, i0 - 2, leftB, rightB);
+                double l = rows.rowValue(srcOffset, i0 - 1, leftB, rightB);
+                double c = uInt[srcOffset + i0];
+                double r = rows.rowValue(srcOffset, i0 + 1, leftB, rightB);
+                double carryL = Double.NaN;
+                double carryR = Double.NaN;
+
+                for (int i = i0; i < i1; i++) {
+                    double r2 = i + 2 < inX ? uInt[srcOffset + i + 2] : rows.rowValue(srcOffset, i + 2, leftB, rightB);
+                    int globalIdx = globalOffset + i;
                     double bx = bXFull[globalIdx];
                     double by = bYFull[globalIdx];
 
-                    double dudx = 0.0;
+                    double dudx;
+                    double nextL = Double.NaN;
+                    double nextR = Double.NaN;
                     if (bx > 0) {
-                        if (i == 0)
-                            dudx = (center - left) / dx_LC;
-                        else {
-                            double grad_fw = (right - center) / dx_CR;
-                            double grad_bw = (center - left) / dx_LC;
-                            double grad_bbw = (left - left2) / dx_LL_L;
-
-                            double r_i = (grad_bw == 0) ? 0.0 : grad_fw / grad_bw;
-                            double r_im1 = (grad_bbw == 0) ? 0.0 : grad_bw / grad_bbw;
-
-                            double fluxRight = center + 0.5 * minmod(r_i) * (center - left) * (dx_CR / dx_LC);
-                            double fluxLeft = left + 0.5 * minmod(r_im1) * (left - left2) * (dx_LC / dx_LL_L);
-                            dudx = (fluxRight - fluxLeft) * inv_dx_avg;
+                        if (i == 0) {
+                            dudx = (c - l) * mx.invLeft[i];
+                        } else {
+                            double fl = carryL == carryL ? carryL : faceLeftBiased(lim, mx, i - 1, l2, l, c);
+                            nextL = faceLeftBiased(lim, mx, i, l, c, r);
+                            dudx = (nextL - fl) * mx.invAvg[i];
                         }
+                    } else if (i == inX - 1) {
+                        dudx = (r - c) * mx.invRight[i];
                     } else {
-                        if (i == inX - 1)
-                            dudx = (right - center) / dx_CR;
-                        else {
-                            double grad_fw = (right - center) / dx_CR;
-                            double grad_ffw = (right2 - right) / dx_R_RR;
-                            double grad_bw = (center - left) / dx_LC;
-
-                            double r_i = (grad_fw == 0) ? 0.0 : grad_bw / grad_fw;
-                            double r_ip1 = (grad_ffw == 0) ? 0.0 : grad_fw / grad_ffw;
-
-                            double fluxLeft = center - 0.5 * minmod(r_i) * (right - center) * (dx_LC / dx_CR);
-                            double fluxRight = right - 0.5 * minmod(r_ip1) * (right2 - right) * (dx_CR / dx_R_RR);
-                            dudx = (fluxRight - fluxLeft) * inv_dx_avg;
-                        }
+                        double fl = carryR == carryR ? carryR : faceRightBiased(lim, mx, i, l, c, r);
+                        nextR = faceRightBiased(lim, mx, i + 1, c, r, r2);
+                        dudx = (nextR - fl) * mx.invAvg[i];
                     }
+                    carryL = nextL;
+                    carryR = nextR;
 
-                    double dudy = 0.0;
+                    int cy = base + i - i0;
+                    double dn = dnRow[dnOff + i];
+                    double up = upRow[upOff + i];
+                    double dudy;
+                    nextL = Double.NaN;
+                    nextR = Double.NaN;
                     if (by > 0) {
-                        if (j == 0)
-                            dudy = (center - down) / dy_LC;
-                        else {
-                            double grad_fw = (up - center) / dy_CR;
-                            double grad_bw = (center - down) / dy_LC;
-                            double grad_bbw = (down - down2) / dy_LL_L;
-
-                            double r_j = (grad_bw == 0) ? 0.0 : grad_fw / grad_bw;
-                            double r_jm1 = (grad_bbw == 0) ? 0.0 : grad_bw / grad_bbw;
-
-                            double fluxUp = center + 0.5 * minmod(r_j) * (center - down) * (dy_CR / dy_LC);
-                            double fluxDown = down + 0.5 * minmod(r_jm1) * (down - down2) * (dy_LC / dy_LL_L);
-                            dudy = (fluxUp - fluxDown) * inv_dy_avg;
+                        if (firstRow) {
+                            dudy = (c - dn) * my.invLeft[j];
+                        } else {
+                            double fl = carry[cy];
+                            if (fl != fl) {
+                                fl = faceLeftBiased(lim, my, j - 1, dn2Row[dn2Off + i], dn, c);
+                            }
+                            nextL = faceLeftBiased(lim, my, j, dn, c, up);
+                            dudy = (nextL - fl) * my.invAvg[j];
                         }
+                    } else if (lastRow) {
+                        dudy = (up - c) * my.invRight[j];
                     } else {
-                        if (j == inY - 1)
-                            dudy = (up - center) / dy_CR;
-                        else {
-                            double grad_fw = (up - center) / dy_CR;
-                            double grad_ffw = (up2 - up) / dy_R_RR;
-                            double grad_bw = (center - down) / dy_LC;
-
-                            double r_j = (grad_fw == 0) ? 0.0 : grad_bw / grad_fw;
-                            double r_jp1 = (grad_ffw == 0) ? 0.0 : grad_fw / grad_ffw;
-
-                            double fluxDown = center - 0.5 * minmod(r_j) * (up - center) * (dy_LC / dy_CR);
-                            double fluxUp = up - 0.5 * minmod(r_jp1) * (up2 - up) * (dy_CR / dy_R_RR);
-                            dudy = (fluxUp - fluxDown) * inv_dy_avg;
+                        double fl = carry[cy + w];
+                        if (fl != fl) {
+                            fl = faceRightBiased(lim, my, j, dn, c, up);
                         }
+                        nextR = faceRightBiased(lim, my, j + 1, c, up, up2Row[up2Off + i]);
+                        dudy = (nextR - fl) * my.invAvg[j];
                     }
+                    carry[cy] = nextL;
+                    carry[cy + w] = nextR;
 
-                    LuInt[intIdx] += bx * dudx + by * dudy;
+                    LuInt[intOffset + i] += bx * dudx + by * dudy;
+
+                    l2 = l;
+                    l = c;
+                    c = r;
+                    r = r2;
                 }
             }
         }
     }
 
-    private static final ConvectionUpwindInteriorOp convectionUpwindInteriorOp = new ConvectionUpwindInteriorOp();
+    private static final FaceConvectionOp faceConvectionOp = new FaceConvectionOp();
 
-    public static void applyConvectionUpwindInterior(Grid2D grid, double[] uInt, double[] uFull, double[] bXFull,
-            double[] bYFull, double[] LuInt) {
-        convectionUpwindInteriorOp.set(grid, uInt, uFull, bXFull, bYFull, LuInt);
-        ParallelExecutor.executeContiguous(grid.inY(), convectionUpwindInteriorOp);
+    /**
+     * Стенсилы по blocked-Morton вектору (см. BlockedLayout), операторный путь: нулевой Дирихле,
+     * вход и выход в одной раскладке. Работа раздается по блокам Z-кривой, так что у воркера
+     * компактный патч; сосед сверху/снизу внутри блока в block элементах. На стыке блоков строка
+     * соседа берется из соседнего блока (его смещение - один лукап). Нутро строки блока гонится
+     * теми же строчными ядрами (скаляр/SIMD), что и row-major путь, так что Lu совпадает бит в бит.
+     */
+    private static class BlockedOp implements ParallelExecutor.ArrayOp {
+        BlockedLayout layout;
+        Grid2D grid;
+        GridMetrics metrics;
+        double[] u, kXFull, kYFull, out;
+        boolean implicit;
+        double a;
+        double[] zeroRow = new double[0];
+        final ParallelExecutor.ReduceOp fused = this::blocksDot;
+
+        public void set(BlockedLayout layout, double[] u, double[] kXFull, double[] kYFull, boolean implicit,
+                double a, double[] out) {
+            Grid2D grid = layout.grid();
+            if (u.length != grid.numInterior() || out.length != grid.numInterior()) {
+                throw new IllegalArgumentException("Blocked-вектора обязаны быть размером с нутро: "
+                        + grid.numInterior() + ", а прилетело " + u.length + " / " + out.length);
+            }
+            if (grid != this.grid) {
+                this.metrics = GridMetrics.of(grid);
+            }
+            this.layout = layout;
+            this.grid = grid;
+            this.u = u;
+            this.kXFull = kXFull;
+            this.kYFull = kYFull;
+            this.implicit = implicit;
+            this.a = a;
+            this.out = out;
+            if (zeroRow.length < layout.block()) {
+                zeroRow = new double[layout.block()];
+            }
+        }
+
+        @Override
+        public void compute(int startR, int endR) {
+            blocksDot(startR, endR);
+        }
+
+        double blocksDot(int startR, int endR) {
+            double dot = 0.0;
+            for (int r = startR; r < endR; r++) {
+                dot += block(r);
+            }
+            return dot;
+        }
+
+        private double block(int r) {
+            int b = layout.block();
+            int tx = layout.tileX(r);
+            int ty = layout.tileY(r);
+            int w = layout.width(tx);
+            int h = layout.height(ty);
+            int i0 = tx * b;
+            int i1 = i0 + w;
+            int base = layout.start(r);
+            boolean hasLeft = tx > 0;
+            boolean hasRight = tx + 1 < layout.tilesX();
+            int leftBase = hasLeft ? layout.startOf(tx - 1, ty) : 0;
+            int rightBase = hasRight ? layout.startOf(tx + 1, ty) : 0;
+            int rightW = hasRight ? layout.width(tx + 1) : 0;
+            int belowLast = ty > 0 ? layout.startOf(tx, ty - 1) + (b - 1) * w : -1;
+            int aboveFirst = ty + 1 < layout.tilesY() ? layout.startOf(tx, ty + 1) : -1;
+            boolean simd = SimdBackend.isEnabled();
+            GridMetrics.Axis mx = metrics.x();
+            GridMetrics.Axis my = metrics.y();
+            int nx = grid.Nx();
+
+            double dot = 0.0;
+            for (int jj = 0; jj < h; jj++) {
+                int j = ty * b + jj;
+                // Все смещения сдвинуты на -i0: колонка i нутра живет в arr[off + i], как у row-major ядер
+                int off = base + jj * w - i0;
+                double[] dn = u;
+                int dnOff;
+                if (jj > 0) {
+                    dnOff = off - w;
+                } else if (belowLast >= 0) {
+                    dnOff = belowLast - i0;
+                } else {
+                    dn = zeroRow;
+                    dnOff = -i0;
+                }
+                double[] up = u;
+                int upOff;
+                if (jj + 1 < h) {
+                    upOff = off + w;
+                } else if (aboveFirst >= 0) {
+                    upOff = aboveFirst - i0;
+                } else {
+                    up = zeroRow;
+                    upOff = -i0;
+                }
+                double leftB = hasLeft ? u[leftBase + jj * b + b - 1] : 0.0;
+                double rightB = hasRight ? u[rightBase + jj * rightW] : 0.0;
+                int midStart = Math.min(i0 + 1, i1);
+                int midEnd = Math.max(midStart, i1 - 1);
+
+                if (kXFull == null) {
+                    double[] cL = mx.lapLeft;
+                    double[] cR = mx.lapRight;
+                    double cyL = my.lapLeft[j];
+                    double cyR = my.lapRight[j];
+                    for (int i = i0; i < i1; i = (i + 1 == midStart) ? midEnd : i + 1) {
+                        double center = u[off + i];
+                        double left = i == i0 ? leftB : u[off + i - 1];
+                        double right = i + 1 == i1 ? rightB : u[off + i + 1];
+                        dot += emit(off + i, center,
+                                laplacianPoint(cL, cR, i, center, left, right, dn[dnOff + i], up[upOff + i], cyL, cyR));
+                    }
+                    if (simd) {
+                        dot += VectorKernels.laplacianRow(u, off, dn, dnOff, up, upOff, cL, cR, cyL, cyR, implicit, a,
+                                out, off, midStart, midEnd);
+                    } else {
+                        for (int i = midStart; i < midEnd; i++) {
+                            double center = u[off + i];
+                            dot += emit(off + i, center, laplacianPoint(cL, cR, i, center, u[off + i - 1],
+                                    u[off + i + 1], dn[dnOff + i], up[upOff + i], cyL, cyR));
+                        }
+                    }
+                } else {
+                    int gOff = grid.idx(1, j + 1);
+                    double invAvg = my.invAvg[j];
+                    double invL = my.invLeft[j];
+                    double invR = my.invRight[j];
+                    for (int i = i0; i < i1; i = (i + 1 == midStart) ? midEnd : i + 1) {
+                        double center = u[off + i];
+                        double left = i == i0 ? leftB : u[off + i - 1];
+                        double right = i + 1 == i1 ? rightB : u[off + i + 1];
+                        dot += emit(off + i, center, divKGradPoint(mx, kXFull, kYFull, nx, i, gOff + i, center, left,
+                                right, dn[dnOff + i], up[upOff + i], invAvg, invL, invR));
+                    }
+                    if (simd) {
+                        dot += VectorKernels.divKGradRow(u, off, dn, dnOff, up, upOff, kXFull, kYFull, gOff, nx,
+                                mx.invLeft, mx.invRight, mx.invAvg, invL, invR, invAvg, implicit, a, out, off,
+                                midStart, midEnd);
+                    } else {
+                        for (int i = midStart; i < midEnd; i++) {
+                            double center = u[off + i];
+                            dot += emit(off + i, center, divKGradPoint(mx, kXFull, kYFull, nx, i, gOff + i, center,
+                                    u[off + i - 1], u[off + i + 1], dn[dnOff + i], up[upOff + i], invAvg, invL,
+                                    invR));
+                        }
+                    }
+                }
+            }
+            return dot;
+        }
+
+        private double emit(int idx, double center, double lap) {
+            if (!implicit) {
+                out[idx] = lap;
+                return 0.0;
+            }
+            double v = center + a * lap;
+            out[idx] = v;
+            return center * v;
+        }
+    }
+
+    private static final BlockedOp blockedOp = new BlockedOp();
+
+    /**
+     * LuBlk = L uBlk в blocked-раскладке при нулевом Дирихле.
+     */
+    public static void applyLaplacianInterior(BlockedLayout layout, double[] uBlk, double[] LuBlk) {
+        blockedOp.set(layout, uBlk, null, null, false, 0.0, LuBlk);
+        ParallelExecutor.executeBlocks(layout.blocks(), layout.block() * layout.block(), blockedOp);
+    }
+
+    /**
+     * LuBlk = div(k grad uBlk) в blocked-раскладке при нулевом Дирихле (kX/kY - фулл row-major).
+     */
+    public static void applyDivKGradInterior(BlockedLayout layout, double[] uBlk, double[] kXFull,
+            double[] kYFull, double[] LuBlk) {
+        blockedOp.set(layout, uBlk, kXFull, kYFull, false, 0.0, LuBlk);
+        ParallelExecutor.executeBlocks(layout.blocks(), layout.block() * layout.block(), blockedOp);
+    }
+
+    /**
+     * applyImplicitInterior в blocked-раскладке: y = x - factor * L x, возвращает x · y.
+     */
+    public static double applyImplicitInterior(BlockedLayout layout, double factor, double[] x, double[] kXFull,
+            double[] kYFull, double[] y) {
+        blockedOp.set(layout, x, kXFull, kYFull, true, -factor, y);
+        return ParallelExecutor.reduceBlocks(layout.blocks(), layout.block() * layout.block(), blockedOp.fused);
+    }
+
+    /**
+     * applyImplicitInteriorNoDot в blocked-раскладке.
+     */
+    public static void applyImplicitInteriorNoDot(BlockedLayout layout, double factor, double[] x,
+            double[] kXFull, double[] kYFull, double[] y) {
+        blockedOp.set(layout, x, kXFull, kYFull, true, -factor, y);
+        ParallelExecutor.executeBlocks(layout.blocks(), layout.block() * layout.block(), blockedOp);
+    }
+
+    /**
+     * Лапласиан по офф-хип паддед-полю: нутро Lu = L u, гало u - граница, гало Lu не трогаем.
+     */
+    public static void applyLaplacianInterior(OffHeapField u, OffHeapField Lu) {
+        OffHeapKernels.applyLaplacian(u, Lu);
+    }
+
+    /**
+     * div(k grad u) по офф-хип полям (kX/kY - интерфейсные kappa, как из precomputeDiffusivityArrays).
+     */
+    public static void applyDivKGradInterior(OffHeapField u, OffHeapField kX, OffHeapField kY, OffHeapField Lu) {
+        OffHeapKernels.applyDivKGrad(u, kX, kY, Lu);
     }
 }
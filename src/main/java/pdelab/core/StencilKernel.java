@@ -0,0 +1,26 @@
+package pdelab.core;
+
+/**
+ * Ядро неявного оператора, специализированное под одну конфигурацию прогона (сетка, kappa,
+ * factor). Собирается и кэшируется в KernelFactory. Как и статические опы Stencil - не
+ * реентерабельно: один вызов за раз.
+ */
+public interface StencilKernel {
+
+    /**
+     * y = x - factor * L x по нутру при нулевом Дирихле (factor зашит в ядро).
+     *
+     * @return x · y - тот же pAp, что у Stencil.applyImplicitInterior.
+     */
+    double applyImplicit(double[] x, double[] y);
+
+    /**
+     * Тот же y = x - factor * L x без скалярного произведения (и без редукции по воркерам).
+     */
+    void apply(double[] x, double[] y);
+
+    /**
+     * Под какую конфигурацию собрано (для логов и бенчей).
+     */
+    String describe();
+}
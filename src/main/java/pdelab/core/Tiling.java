@@ -0,0 +1,217 @@
+package pdelab.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Размеры 2D-тайлов для стенсилов и сглаживателя MG. На широких сетках (4096^2 и выше) три строки
+ * double уже не лезут в L1, и при построчном стриминге соседние строки вылетают из кэша до
+ * повторного использования. Режем нутро на колонки-полосы шириной tileX (строки j-1, j, j+1 полосы
+ * живут в L1) и по высоте на tileY строк - это единица раздачи по воркерам ParallelExecutor.
+ * Тайлы нумеруются полоса за полосой, так что чанк воркера - это вертикальная пачка тайлов одной
+ * полосы и граничные строки соседних тайлов переиспользуются из кэша.
+ * Режим: -Dpdelab.tile=auto (autotune на старте прогона) | off (полная ширина) | TXxTY.
+ * До автотюна режем только по строкам: на машинах с жирным L2 построчный стриминг и так
+ * переиспользует соседние строки, а узкие полосы только рвут аппаратный префетчер.
+ */
+public final class Tiling {
+    private static final Logger log = LoggerFactory.getLogger(Tiling.class);
+
+    public static final String PROPERTY = "pdelab.tile";
+
+    private static final int DEFAULT_TILE_X = Integer.MAX_VALUE;
+    private static final int DEFAULT_TILE_Y = 32;
+    // От L1-полос (512 double = 4 КБ на строку: 3 входные строки + выход + kX/kY в 32 КБ L1) до полной ширины
+    private static final int[] CANDIDATE_TILE_X = { 128, 256, 512, 1024, 2048, Integer.MAX_VALUE };
+    // Высота - единица раздачи: мелкая ровнее делится между воркерами, крупная реже рвет стриминг по j
+    private static final int[] CANDIDATE_TILE_Y = { 8, 16, 32, 64 };
+    private static final int TUNE_POINTS = 1 << 18; // ~2 МБ на массив - больше типичного L2
+    private static final int TUNE_MIN_WIDTH = 2 * CANDIDATE_TILE_X[0];
+
+    private static volatile int tileX;
+    private static volatile int tileY;
+    private static final boolean explicit;
+
+    static {
+        String mode = System.getProperty(PROPERTY, "auto").trim().toLowerCase();
+        int[] parsed = parse(mode);
+        explicit = parsed != null;
+        if (parsed != null) {
+            tileX = parsed[0];
+            tileY = parsed[1];
+        } else {
+            tileX = DEFAULT_TILE_X;
+            tileY = DEFAULT_TILE_Y;
+        }
+    }
+
+    private Tiling() {
+    }
+
+    private static int[] parse(String mode) {
+        if ("auto".equals(mode)) {
+            return null;
+        }
+        if ("off".equals(mode) || "false".equals(mode)) {
+            return new int[] { Integer.MAX_VALUE, DEFAULT_TILE_Y };
+        }
+        String[] parts = mode.split("x");
+        try {
+            if (parts.length == 2) {
+                int tx = Integer.parseInt(parts[0]);
+                int ty = Integer.parseInt(parts[1]);
+                if (tx > 0 && ty > 0) {
+                    return new int[] { tx, ty };
+                }
+            }
+        } catch (NumberFormatException e) {
+            // падаем в варнинг ниже
+        }
+        log.warn("Кривой -D{}={} (ждем auto | off | TXxTY). Режем только по строкам до автотюна.", PROPERTY,
+                mode);
+        return null;
+    }
+
+    public static int tileX() {
+        return tileX;
+    }
+
+    public static int tileY() {
+        return tileY;
+    }
+
+    /**
+     * Ручная установка (бенчи, тесты). Integer.MAX_VALUE по x = без тайлинга по ширине.
+     */
+    public static synchronized void set(int tx, int ty) {
+        if (tx < 1 || ty < 1) {
+            throw new IllegalArgumentException("Тайл обязан быть хотя бы 1x1, а прилетело " + tx + "x" + ty);
+        }
+        tileX = tx;
+        tileY = ty;
+    }
+
+    /**
+     * Раскладка нутра сетки на тайлы под текущие размеры. Считается на каждый вызов стенсила -
+     * это пара делений, зато смена tileX/tileY подхватывается сразу.
+     */
+    static final class Layout {
+        int inX, inY, tx, ty, tilesX, tilesY;
+
+        void set(Grid2D grid) {
+            inX = grid.inX();
+            inY = grid.inY();
+            tx = Math.max(1, Math.min(inX, tileX));
+            ty = Math.max(1, Math.min(inY, tileY));
+            tilesX = inX == 0 ? 0 : (inX + tx - 1) / tx;
+            tilesY = inY == 0 ? 0 : (inY + ty - 1) / ty;
+        }
+
+        int count() {
+            return tilesX * tilesY;
+        }
+
+        int work() {
+            return tx * ty;
+        }
+
+        // Тайл t: полоса t / tilesY, блок строк t % tilesY
+        int i0(int t) {
+            return (t / tilesY) * tx;
+        }
+
+        int i1(int t) {
+            return Math.min(inX, i0(t) + tx);
+        }
+
+        int j0(int t) {
+            return (t % tilesY) * ty;
+        }
+
+        int j1(int t) {
+            return Math.min(inY, j0(t) + ty);
+        }
+    }
+
+    /**
+     * Автотюн тайла на старте прогона: гоняем div(k grad) (самый прожорливый по потокам стенсил) на
+     * синтетической сетке ширины боевой и ~TUNE_POINTS точек по всем парам ширина x высота, берем
+     * самую быструю. Явно заданный -Dpdelab.tile не трогаем; узкие сетки не тюним - там тайл во
+     * всю ширину и дефолтная высота.
+     * При воспроизводимых редукциях (TREE/COMPENSATED) тоже не тюним: раскладка тайлов задает порядок
+     * сумм во фьюзнутых x · y (тайл за тайлом, блоки по тайлам), а выбор по таймингу плавает от
+     * прогона к прогону - биты поплыли бы вместе с ним. Там ширина полная, как без тайлинга.
+     *
+     * @return Выбранный tileX (высота - tileY()).
+     */
+    public static synchronized int autotune(Grid2D grid) {
+        if (explicit) {
+            log.info("Тайлы заданы руками через -D{}: {}x{}, автотюн скипаем.", PROPERTY, tileX, tileY);
+            return tileX;
+        }
+        ParallelExecutor.Reduction reduction = ParallelExecutor.getReduction();
+        if (reduction != ParallelExecutor.Reduction.FAST) {
+            tileX = DEFAULT_TILE_X;
+            tileY = DEFAULT_TILE_Y;
+            log.info("Редукции {}: автотюн тайлов скипаем, режем только по строкам (биты не от тайминга).",
+                    reduction);
+            return tileX;
+        }
+        int inX = grid.inX();
+        if (inX < TUNE_MIN_WIDTH) {
+            tileX = DEFAULT_TILE_X;
+            tileY = DEFAULT_TILE_Y;
+            log.debug("Сетка узкая ({} колонок) - тайлим только по строкам.", inX);
+            return tileX;
+        }
+
+        int rows = Math.max(8, Math.min(grid.inY(), TUNE_POINTS / inX));
+        Grid2D probe = new Grid2D(inX + 2, rows + 2, 1.0, 1.0);
+        int n = probe.numInterior();
+        double[] uInt = new double[n];
+        double[] out = new double[n];
+        double[] uFull = new double[probe.size()];
+        double[] kX = new double[probe.size()];
+        double[] kY = new double[probe.size()];
+        java.util.Random rnd = new java.util.Random(1);
+        for (int i = 0; i < n; i++)
+            uInt[i] = rnd.nextDouble();
+        for (int i = 0; i < uFull.length; i++) {
+            uFull[i] = rnd.nextDouble();
+            kX[i] = 1.0 + rnd.nextDouble();
+            kY[i] = 1.0 + rnd.nextDouble();
+        }
+
+        int ny = CANDIDATE_TILE_Y.length;
+        long[] best = new long[CANDIDATE_TILE_X.length * ny];
+        java.util.Arrays.fill(best, Long.MAX_VALUE);
+        // Несколько кругов по всем кандидатам: первый заодно прогревает JIT, берем лучшее время
+        for (int round = 0; round < 5; round++) {
+            for (int c = 0; c < best.length; c++) {
+                tileX = CANDIDATE_TILE_X[c / ny];
+                tileY = CANDIDATE_TILE_Y[c % ny];
+                long t0 = System.nanoTime();
+                for (int rep = 0; rep < 4; rep++) {
+                    Stencil.applyDivKGradInterior(probe, uInt, uFull, kX, kY, out);
+                }
+                long dt = System.nanoTime() - t0;
+                if (round > 0) {
+                    best[c] = Math.min(best[c], dt);
+                }
+            }
+        }
+
+        int pick = 0;
+        for (int c = 1; c < best.length; c++) {
+            if (best[c] < best[pick]) {
+                pick = c;
+            }
+        }
+        tileX = CANDIDATE_TILE_X[pick / ny];
+        tileY = CANDIDATE_TILE_Y[pick % ny];
+        log.info("Автотюн тайлов: ширина {} x {} строк, {} нс/точку на {}x{}.",
+                tileX == Integer.MAX_VALUE ? "полная" : tileX, tileY,
+                String.format("%.3f", best[pick] / (4.0 * n)), inX, rows);
+        return tileX;
+    }
+}
@@ -0,0 +1,180 @@
+package pdelab.core;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD-ядра на jdk.incubator.vector. Грузится ТОЛЬКО через SimdBackend, когда модуль подключен.
+ * Порядок операций в стенсилах и BLAS-1 повторяет скалярные лупы один в один (без FMA), так что
+ * результат битово совпадает. Редукции - исключение: dot (и x · y из фьюзнутых стенсилов) копит по
+ * лейнам через fma (x * y + acc с одним округлением), потом reduceLanes и скалярный хвост. Со скаляром
+ * битово не сходится; повторяемо только при той же ширине вектора.
+ * Хвост короче вектора добивается скалярно.
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    static int laneCount() {
+        return SPECIES.length();
+    }
+
+    static void axpy(double a, double[] x, double[] y, int start, int end) {
+        int i = start;
+        int upper = start + SPECIES.loopBound(end - start);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector xv = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector yv = DoubleVector.fromArray(SPECIES, y, i);
+            yv.add(xv.mul(a)).intoArray(y, i);
+        }
+        for (; i < end; i++)
+            y[i] += a * x[i];
+    }
+
+    static void axpby(double a, double[] x, double b, double[] y, int start, int end) {
+        int i = start;
+        int upper = start + SPECIES.loopBound(end - start);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector xv = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector yv = DoubleVector.fromArray(SPECIES, y, i);
+            xv.mul(a).add(yv.mul(b)).intoArray(y, i);
+        }
+        for (; i < end; i++)
+            y[i] = a * x[i] + b * y[i];
+    }
+
+    static void addScaled(double[] x, double a, double[] y, double[] res, int start, int end) {
+        int i = start;
+        int upper = start + SPECIES.loopBound(end - start);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector xv = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector yv = DoubleVector.fromArray(SPECIES, y, i);
+            xv.add(yv.mul(a)).intoArray(res, i);
+        }
+        for (; i < end; i++)
+            res[i] = x[i] + a * y[i];
+    }
+
+    static double dot(double[] x, double[] y, int start, int end) {
+        int i = start;
+        int upper = start + SPECIES.loopBound(end - start);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector xv = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector yv = DoubleVector.fromArray(SPECIES, y, i);
+            acc = xv.fma(yv, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < end; i++)
+            sum += x[i] * y[i];
+        return sum;
+    }
+
+    /**
+     * Нутро строки Лапласиана: колонки [from, to) строки, что в u начинается с off, а в out - с outOff
+     * (у паддед-поля они разные). Соседи по y - из строк-источников (dn/up), веса по x - из GridMetrics.
+     * implicit: вместо Lu пишем u + a * Lu и возвращаем сумму u * out по строке (иначе 0).
+     */
+    static double laplacianRow(double[] u, int off, double[] dn, int dnOff, double[] up, int upOff, double[] cL,
+            double[] cR, double cyL, double cyR, boolean implicit, double a, double[] out, int outOff, int from,
+            int to) {
+        int i = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        for (; i < upper; i += SPECIES.length()) {
+            int c = off + i;
+            DoubleVector center = DoubleVector.fromArray(SPECIES, u, c);
+            DoubleVector left = DoubleVector.fromArray(SPECIES, u, c - 1);
+            DoubleVector right = DoubleVector.fromArray(SPECIES, u, c + 1);
+            DoubleVector down = DoubleVector.fromArray(SPECIES, dn, dnOff + i);
+            DoubleVector upV = DoubleVector.fromArray(SPECIES, up, upOff + i);
+            DoubleVector wl = DoubleVector.fromArray(SPECIES, cL, i);
+            DoubleVector wr = DoubleVector.fromArray(SPECIES, cR, i);
+
+            DoubleVector d2x = right.sub(center).mul(wr).sub(center.sub(left).mul(wl));
+            DoubleVector d2y = upV.sub(center).mul(cyR).sub(center.sub(down).mul(cyL));
+            acc = store(center, d2x.add(d2y), implicit, a, acc, out, outOff + i);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            int c = off + i;
+            double center = u[c];
+            double d2x = (u[c + 1] - center) * cR[i] - (center - u[c - 1]) * cL[i];
+            double d2y = (up[upOff + i] - center) * cyR - (center - dn[dnOff + i]) * cyL;
+            sum += storeScalar(center, d2x + d2y, implicit, a, out, outOff + i);
+        }
+        return sum;
+    }
+
+    /**
+     * Нутро строки div(k grad u). gOff - глобальный индекс колонки 0 этой строки.
+     */
+    static double divKGradRow(double[] u, int off, double[] dn, int dnOff, double[] up, int upOff, double[] kX,
+            double[] kY, int gOff, int nx, double[] invL, double[] invR, double[] invAvg, double invDyL,
+            double invDyR, double invDyAvg, boolean implicit, double a, double[] out, int outOff, int from,
+            int to) {
+        int i = from;
+        int upper = from + SPECIES.loopBound(to - from);
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        for (; i < upper; i += SPECIES.length()) {
+            int c = off + i;
+            int g = gOff + i;
+            DoubleVector center = DoubleVector.fromArray(SPECIES, u, c);
+            DoubleVector left = DoubleVector.fromArray(SPECIES, u, c - 1);
+            DoubleVector right = DoubleVector.fromArray(SPECIES, u, c + 1);
+            DoubleVector down = DoubleVector.fromArray(SPECIES, dn, dnOff + i);
+            DoubleVector upV = DoubleVector.fromArray(SPECIES, up, upOff + i);
+
+            DoubleVector kE = DoubleVector.fromArray(SPECIES, kX, g);
+            DoubleVector kW = DoubleVector.fromArray(SPECIES, kX, g - 1);
+            DoubleVector kN = DoubleVector.fromArray(SPECIES, kY, g);
+            DoubleVector kS = DoubleVector.fromArray(SPECIES, kY, g - nx);
+
+            DoubleVector d2x = kE.mul(right.sub(center)).mul(DoubleVector.fromArray(SPECIES, invR, i))
+                    .sub(kW.mul(center.sub(left)).mul(DoubleVector.fromArray(SPECIES, invL, i)))
+                    .mul(DoubleVector.fromArray(SPECIES, invAvg, i));
+            DoubleVector d2y = kN.mul(upV.sub(center)).mul(invDyR).sub(kS.mul(center.sub(down)).mul(invDyL))
+                    .mul(invDyAvg);
+            acc = store(center, d2x.add(d2y), implicit, a, acc, out, outOff + i);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            int c = off + i;
+            int g = gOff + i;
+            double center = u[c];
+            double d2x = (kX[g] * (u[c + 1] - center) * invR[i] - kX[g - 1] * (center - u[c - 1]) * invL[i])
+                    * invAvg[i];
+            double d2y = (kY[g] * (up[upOff + i] - center) * invDyR - kY[g - nx] * (center - dn[dnOff + i]) * invDyL)
+                    * invDyAvg;
+            sum += storeScalar(center, d2x + d2y, implicit, a, out, outOff + i);
+        }
+        return sum;
+    }
+
+    /**
+     * Сброс результата стенсила: либо сам Lu, либо фьюз u + a * Lu с накоплением u * out в acc.
+     */
+    private static DoubleVector store(DoubleVector center, DoubleVector lap, boolean implicit, double a,
+            DoubleVector acc, double[] out, int c) {
+        if (!implicit) {
+            lap.intoArray(out, c);
+            return acc;
+        }
+        DoubleVector v = center.add(lap.mul(a));
+        v.intoArray(out, c);
+        return center.fma(v, acc);
+    }
+
+    private static double storeScalar(double center, double lap, boolean implicit, double a, double[] out, int c) {
+        if (!implicit) {
+            out[c] = lap;
+            return 0.0;
+        }
+        double v = center + a * lap;
+        out[c] = v;
+        return center * v;
+    }
+}
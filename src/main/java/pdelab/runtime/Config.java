@@ -15,7 +15,18 @@ public record Config(
                 String outDir,
                 String testCase,
                 String preconditioner,
-                String kappaAveraging) {
+                String kappaAveraging,
+                String executor) {
+
+        /**
+         * Конфиги без executor (старые JSON, тесты) едут на дефолтном движке.
+         */
+        public Config(int Nx, int Ny, double Lx, double Ly, double alpha, double T, double dt, String scheme,
+                        int maxIters, double tol, int threads, String outDir, String testCase, String preconditioner,
+                        String kappaAveraging) {
+                this(Nx, Ny, Lx, Ly, alpha, T, dt, scheme, maxIters, tol, threads, outDir, testCase, preconditioner,
+                                kappaAveraging, null);
+        }
 
         /**
          * Enforces strict validation rules over configuration parameters.
@@ -57,5 +68,10 @@ public record Config(
                         throw new IllegalArgumentException("Unsupported kappaAveraging: " + kappaAveraging
                                         + ". Expected 'ARITHMETIC' or 'HARMONIC'");
                 }
+                if (executor != null && !executor.equals("BARRIER") && !executor.equals("FORKJOIN")
+                                && !executor.equals("FORKJOIN_COMMON")) {
+                        throw new IllegalArgumentException("Unsupported executor: " + executor
+                                        + ". Expected 'BARRIER', 'FORKJOIN', or 'FORKJOIN_COMMON'");
+                }
         }
 }
@@ -0,0 +1,204 @@
+package pdelab.runtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pdelab.core.ExecutorPhaseEvent;
+import pdelab.core.Histogram;
+import pdelab.solver.LinearSolveEvent;
+import pdelab.solver.PreconditionerSetupEvent;
+import pdelab.solver.TimeStepEvent;
+
+/**
+ * run --profile live: свои JFR-события солвера жуются прямо в процессе через RecordingStream, без
+ * .jfr и JMC. Раз в окно в лог летит сводка "где горит" (топ ядер по времени фаз, шаги,
+ * итерации Крылова), на закрытии - агрегированный отчет jfr_live_report.json в артефакты.
+ * Все счетчики трогает только поток стрима; отчет собирается после stop(), который дожидается
+ * разбора последних событий.
+ */
+public final class LiveProfiler implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(LiveProfiler.class);
+
+    private static final int TOP_KERNELS = 5;
+
+    private final RecordingStream stream;
+    private final Duration window;
+    private final long startNanos = System.nanoTime();
+    private long windowStart = startNanos;
+
+    private static final class Stat {
+        final Histogram duration = new Histogram();
+        long chunks;
+        long windowNanos;
+        long windowCount;
+    }
+
+    private final Map<String, Stat> kernels = new HashMap<>();
+    private final Stat steps = new Stat();
+    private final Map<String, Stat> solvers = new LinkedHashMap<>();
+    private final Map<String, Long> solveStatus = new LinkedHashMap<>();
+    private final Map<String, Stat> setups = new LinkedHashMap<>();
+    private long krylovIterations;
+    private long windowIterations;
+    private double maxAbsResidual;
+    private double maxRelResidual;
+
+    private LiveProfiler(Duration window) {
+        this.window = window;
+        this.stream = new RecordingStream();
+        stream.enable(ExecutorPhaseEvent.NAME).withoutStackTrace().withThreshold(Duration.ZERO);
+        stream.enable(TimeStepEvent.NAME).withoutStackTrace().withThreshold(Duration.ZERO);
+        stream.enable(LinearSolveEvent.NAME).withoutStackTrace().withThreshold(Duration.ZERO);
+        stream.enable(PreconditionerSetupEvent.NAME).withThreshold(Duration.ZERO);
+        stream.onEvent(ExecutorPhaseEvent.NAME, this::onPhase);
+        stream.onEvent(TimeStepEvent.NAME, this::onStep);
+        stream.onEvent(LinearSolveEvent.NAME, this::onSolve);
+        stream.onEvent(PreconditionerSetupEvent.NAME,
+                e -> record(setups, e.getString("preconditioner") + "/" + e.getString("reason"), e));
+        stream.onFlush(this::onFlush);
+    }
+
+    /**
+     * Запускает стрим (он же включает события фаз ParallelExecutor). window - как часто печатать сводку.
+     */
+    public static LiveProfiler start(Duration window) {
+        LiveProfiler live = new LiveProfiler(window);
+        live.stream.startAsync();
+        log.info("JFR live-стрим погнал, сводка раз в {} c.", window.toSeconds());
+        return live;
+    }
+
+    private static Stat record(Map<String, Stat> into, String key, RecordedEvent e) {
+        Stat stat = into.computeIfAbsent(key, k -> new Stat());
+        long nanos = e.getDuration().toNanos();
+        stat.duration.record(nanos);
+        stat.windowNanos += nanos;
+        stat.windowCount++;
+        return stat;
+    }
+
+    private void onPhase(RecordedEvent e) {
+        record(kernels, e.getString("kernel"), e).chunks += e.getLong("chunks");
+    }
+
+    private void onStep(RecordedEvent e) {
+        long nanos = e.getDuration().toNanos();
+        steps.duration.record(nanos);
+        steps.windowNanos += nanos;
+        steps.windowCount++;
+    }
+
+    private void onSolve(RecordedEvent e) {
+        record(solvers, e.getString("solver"), e);
+        solveStatus.merge(e.getString("status"), 1L, Long::sum);
+        int iterations = e.getInt("iterations");
+        krylovIterations += iterations;
+        windowIterations += iterations;
+        maxAbsResidual = Math.max(maxAbsResidual, e.getDouble("absResidual"));
+        maxRelResidual = Math.max(maxRelResidual, e.getDouble("relResidual"));
+    }
+
+    // Флаш стрима ~раз в секунду; сводка - когда набралось окно
+    private void onFlush() {
+        long now = System.nanoTime();
+        if (now - windowStart < window.toNanos()) {
+            return;
+        }
+        double seconds = (now - windowStart) / 1e9;
+        List<Map.Entry<String, Stat>> hot = new ArrayList<>(kernels.entrySet());
+        hot.removeIf(en -> en.getValue().windowCount == 0);
+        hot.sort(Comparator.comparingLong((Map.Entry<String, Stat> en) -> en.getValue().windowNanos).reversed());
+        StringBuilder top = new StringBuilder();
+        for (int i = 0; i < Math.min(TOP_KERNELS, hot.size()); i++) {
+            Stat s = hot.get(i).getValue();
+            top.append(String.format(java.util.Locale.ROOT, "%s%s %.1f%% (%d фаз)", i > 0 ? ", " : "",
+                    hot.get(i).getKey(), 100.0 * s.windowNanos / (seconds * 1e9), s.windowCount));
+        }
+        log.info(String.format(java.util.Locale.ROOT,
+                "[live %.0fs] шагов %d (%.2f мс/шаг), итераций Крылова %d | горячие фазы: %s",
+                (now - startNanos) / 1e9, steps.windowCount,
+                steps.windowCount > 0 ? steps.windowNanos / 1e6 / steps.windowCount : 0.0, windowIterations,
+                top.length() > 0 ? top : "-"));
+        for (Stat s : kernels.values()) {
+            s.windowNanos = 0;
+            s.windowCount = 0;
+        }
+        steps.windowNanos = 0;
+        steps.windowCount = 0;
+        windowIterations = 0;
+        windowStart = now;
+    }
+
+    private static Map<String, Object> latency(Histogram h) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("count", h.count());
+        row.put("totalMs", h.sumNanos() / 1e6);
+        row.put("p50Us", h.percentile(0.50) / 1e3);
+        row.put("p99Us", h.percentile(0.99) / 1e3);
+        row.put("maxUs", h.maxNanos() / 1e3);
+        return row;
+    }
+
+    /**
+     * Гасит стрим (дожевав хвост событий) и пишет агрегированный отчет в file. События фаз гаснут
+     * вместе со стримом, если их не держит другая запись.
+     */
+    public void stopAndReport(File file) throws IOException {
+        stream.stop();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        long phaseTotal = 0;
+        for (Stat s : kernels.values()) {
+            phaseTotal += s.duration.sumNanos();
+        }
+        List<Map.Entry<String, Stat>> sorted = new ArrayList<>(kernels.entrySet());
+        sorted.sort(Comparator.comparingLong((Map.Entry<String, Stat> en) -> en.getValue().duration.sumNanos())
+                .reversed());
+        List<Map<String, Object>> phases = new ArrayList<>();
+        for (Map.Entry<String, Stat> en : sorted) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("kernel", en.getKey());
+            row.putAll(latency(en.getValue().duration));
+            row.put("fraction", phaseTotal > 0 ? (double) en.getValue().duration.sumNanos() / phaseTotal : 0.0);
+            row.put("chunks", en.getValue().chunks);
+            phases.add(row);
+        }
+
+        Map<String, Object> solves = new LinkedHashMap<>();
+        Map<String, Object> bySolver = new LinkedHashMap<>();
+        solvers.forEach((k, v) -> bySolver.put(k, latency(v.duration)));
+        solves.put("bySolver", bySolver);
+        solves.put("byStatus", solveStatus);
+        solves.put("iterations", krylovIterations);
+        solves.put("maxAbsResidual", maxAbsResidual);
+        solves.put("maxRelResidual", maxRelResidual);
+
+        Map<String, Object> setupRows = new LinkedHashMap<>();
+        setups.forEach((k, v) -> setupRows.put(k, latency(v.duration)));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("durationSeconds", seconds);
+        report.put("timeSteps", latency(steps.duration));
+        report.put("linearSolves", solves);
+        report.put("preconditionerSetups", setupRows);
+        report.put("executorPhases", phases);
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, report);
+        log.info("JFR live-отчет: {}", file.getAbsolutePath());
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
@@ -4,8 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import pdelab.core.Grid2D;
 import pdelab.core.MMS;
 import pdelab.core.DirichletBoundary;
+import pdelab.core.Histogram;
 import pdelab.core.Metrics;
 import pdelab.core.ParallelExecutor;
+import pdelab.core.PhaseProfiler;
+import pdelab.core.Tiling;
 import pdelab.solver.TimeStepper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,8 +27,8 @@ public class RunCommand implements Callable<Integer> {
     @Option(names = { "--config" }, required = true, description = "Путь до JSON-конфига со спеками симуляции")
     String configPath;
 
-    @Option(names = { "--profile" }, description = "Врубить хардкорный профайлинг (например jfr)")
-    String profile;
+    @Option(names = { "--profile" }, split = ",", description = "Врубить хардкорный профайлинг: jfr (profile.jfr), live (JFR-стрим в процессе, сводка в лог + jfr_live_report.json), phases (фазы воркеров по ядрам), можно через запятую")
+    java.util.List<String> profile = java.util.List.of();
 
     @Option(names = { "--adaptive" }, description = "Врубить адаптивный шаг по времени (Step-Doubling LTE)")
     boolean adaptive;
@@ -35,10 +38,14 @@ public class RunCommand implements Callable<Integer> {
 
     @Override
     public Integer call() throws Exception {
-        boolean useJfr = "jfr".equalsIgnoreCase(profile);
+        boolean useJfr = profile.stream().anyMatch("jfr"::equalsIgnoreCase);
         if (useJfr) {
             log.info("С CLI прилетел запрос на JFR профайлинг (ща запишем все)");
         }
+        if (profile.stream().anyMatch("phases"::equalsIgnoreCase)) {
+            PhaseProfiler.setEnabled(true);
+        }
+        boolean useLive = profile.stream().anyMatch("live"::equalsIgnoreCase);
 
         ObjectMapper mapper = new ObjectMapper();
 
@@ -55,8 +62,19 @@ public class RunCommand implements Callable<Integer> {
                     effectiveThreads,
                     jvmProcs);
         }
-        log.info("Подняли ParallelExecutor на {} потоках (крутим ядра)", effectiveThreads);
-        ParallelExecutor.init(effectiveThreads);
+        ParallelExecutor.Backend backend = config.executor() != null
+                ? ParallelExecutor.Backend.valueOf(config.executor())
+                : null;
+        if (backend != null) {
+            ParallelExecutor.init(effectiveThreads, backend);
+        } else {
+            ParallelExecutor.init(effectiveThreads); // -Dpdelab.backend, дефолт BARRIER
+        }
+        log.info("Подняли ParallelExecutor ({}) на {} потоках (крутим ядра)", ParallelExecutor.backendName(),
+                effectiveThreads);
+        ParallelExecutor.setImbalanceTracking(true); // loadImbalance в metrics.json
+        ParallelExecutor.resetImbalance();
+        PhaseProfiler.reset();
 
         // Реестр артефактов (собираем пруфы)
         ArtifactRegistry registry = new ArtifactRegistry(config.outDir() != null ? config.outDir() : "artifacts");
@@ -69,158 +87,264 @@ public class RunCommand implements Callable<Integer> {
         Config effectiveConfig = new Config(
                 config.Nx(), config.Ny(), config.Lx(), config.Ly(), config.alpha(), config.T(), config.dt(),
                 config.scheme(), config.maxIters(), config.tol(), effectiveThreads, config.outDir(), config.testCase(),
-                config.preconditioner(), config.kappaAveraging() != null ? config.kappaAveraging() : "ARITHMETIC");
+                config.preconditioner(), config.kappaAveraging() != null ? config.kappaAveraging() : "ARITHMETIC",
+                ParallelExecutor.backendName());
         mapper.writerWithDefaultPrettyPrinter().writeValue(registry.getPath("effective_config.json"), effectiveConfig);
 
         log.info("Врубаем матан! Симуляция погнала, трекаем в: {}", registry.getPath("").getAbsolutePath());
 
-        // Сетап окружения (тут собираем моки) через JFR (JDK Flight Recorder, шоб всё как на ладони)
-        // API
-        jdk.jfr.Recording recording = null;
-        if (useJfr) {
-            try {
-                recording = new jdk.jfr.Recording();
-                recording.setToDisk(true);
-                recording.setDestination(registry.getPath("profile.jfr").toPath());
-                recording.start();
-                log.info("JFR запись полетела (пишем логи железа).");
-            } catch (Exception e) {
-                log.error("Словили ошибку при старте JFR (проверьте что у вас JDK > 11 и есть права)", e);
-            }
-        }
+        // Свои JFR-события солвера (шоб всё как на ладони): запись и live-стрим закрываются при
+        // любом исходе прогона, иначе на исключении включенные события и стрим живут до конца JVM
+        try (jdk.jfr.Recording recording = useJfr ? startRecording(registry) : null;
+                LiveProfiler live = useLive ? LiveProfiler.start(java.time.Duration.ofSeconds(2)) : null) {
 
-        Grid2D grid = new Grid2D(config.Nx(), config.Ny(), config.Lx(), config.Ly());
+            Grid2D grid = new Grid2D(config.Nx(), config.Ny(), config.Lx(), config.Ly());
+            Tiling.autotune(grid); // Ширина и высота тайлов стенсилов под боевую сетку и это железо
 
-        TimeStepper.Scheme scheme = config.scheme().equalsIgnoreCase("BE") ? TimeStepper.Scheme.BACKWARD_EULER
-                : TimeStepper.Scheme.CRANK_NICOLSON;
+            TimeStepper.Scheme scheme = config.scheme().equalsIgnoreCase("BE") ? TimeStepper.Scheme.BACKWARD_EULER
+                    : TimeStepper.Scheme.CRANK_NICOLSON;
 
-        MMS.TestCase testCase = MMS.TestCase.HOMOGENEOUS;
-        if (config.testCase() != null) {
-            if (config.testCase().equalsIgnoreCase("NON_TRIVIAL")
-                    || config.testCase().equalsIgnoreCase("NON_ZERO_DIRICHLET")) {
-                testCase = MMS.TestCase.NON_ZERO_DIRICHLET;
-            } else if (config.testCase().equalsIgnoreCase("VARIABLE_KAPPA")) {
-                testCase = MMS.TestCase.VARIABLE_KAPPA;
+            MMS.TestCase testCase = MMS.TestCase.HOMOGENEOUS;
+            if (config.testCase() != null) {
+                if (config.testCase().equalsIgnoreCase("NON_TRIVIAL")
+                        || config.testCase().equalsIgnoreCase("NON_ZERO_DIRICHLET")) {
+                    testCase = MMS.TestCase.NON_ZERO_DIRICHLET;
+                } else if (config.testCase().equalsIgnoreCase("VARIABLE_KAPPA")) {
+                    testCase = MMS.TestCase.VARIABLE_KAPPA;
+                }
             }
-        }
 
-        MMS mms = new MMS(testCase, config.alpha());
+            MMS mms = new MMS(testCase, config.alpha());
 
-        double[] kFull = null;
-        if (testCase == MMS.TestCase.VARIABLE_KAPPA) {
-            kFull = new double[grid.size()];
-            mms.evaluateKappa(grid, kFull);
-        }
+            double[] kFull = null;
+            if (testCase == MMS.TestCase.VARIABLE_KAPPA) {
+                kFull = new double[grid.size()];
+                mms.evaluateKappa(grid, kFull);
+            }
 
-        TimeStepper stepper = new TimeStepper(
-                grid, scheme, config.alpha(), config.dt(), config.maxIters(), config.tol(), kFull,
-                config.preconditioner(), new DirichletBoundary(mms));
+            TimeStepper stepper = new TimeStepper(
+                    grid, scheme, config.alpha(), config.dt(), config.maxIters(), config.tol(), kFull,
+                    config.preconditioner(), new DirichletBoundary(mms));
 
-        stepper.initExact(0.0, mms);
+            stepper.initExact(0.0, mms);
 
-        double t = 0.0;
+            double t = 0.0;
 
-        long wallStart = System.nanoTime();
+            long wallStart = System.nanoTime();
 
-        if (adaptive) {
-            log.info("Подрубаем Адаптивный шаг по времени (Step-Doubling) с толерантностью LTE={}", adaptiveTol);
-            double currentDt = config.dt();
-            double p = scheme == TimeStepper.Scheme.CRANK_NICOLSON ? 2.0 : 1.0;
-            double[] savedU = new double[grid.size()];
-            double[] u1 = new double[grid.size()];
+            if (adaptive) {
+                log.info("Подрубаем Адаптивный шаг по времени (Step-Doubling) с толерантностью LTE={}", adaptiveTol);
+                double currentDt = config.dt();
+                double p = scheme == TimeStepper.Scheme.CRANK_NICOLSON ? 2.0 : 1.0;
+                double[] savedU = new double[grid.size()];
+                double[] u1 = new double[grid.size()];
 
-            int stepCount = 0;
-            try (java.io.PrintWriter logWriter = new java.io.PrintWriter(registry.getPath("adaptive_log.csv"))) {
-                logWriter.println("step,t,currentDt,error,accepted");
-                while (t < config.T() - 1e-12) {
-                    if (t + currentDt > config.T()) {
-                        currentDt = config.T() - t;
-                    }
+                int stepCount = 0;
+                try (java.io.PrintWriter logWriter = new java.io.PrintWriter(registry.getPath("adaptive_log.csv"))) {
+                    logWriter.println("step,t,currentDt,error,accepted");
+                    while (t < config.T() - 1e-12) {
+                        if (t + currentDt > config.T()) {
+                            currentDt = config.T() - t;
+                        }
 
-                    stepper.copyState(savedU);
+                        stepper.copyState(savedU);
 
-                    // Делаем один фулл-степ на currentDt
-                    stepper.setDt(currentDt);
-                    stepper.step(t, mms);
-                    stepper.copyState(u1);
+                        // Делаем один фулл-степ на currentDt
+                        stepper.setDt(currentDt);
+                        stepper.step(t, mms);
+                        stepper.copyState(u1);
 
-                    // Откатываем стейт и делаем два полушага currentDt/2
-                    stepper.restoreState(savedU);
-                    stepper.setDt(currentDt / 2.0);
-                    stepper.step(t, mms);
-                    stepper.step(t + currentDt / 2.0, mms);
-
-                    double[] u2 = stepper.getU();
-                    double error = Metrics.computeL2Error(grid, u1, u2) / (Math.pow(2.0, p) - 1.0);
-
-                    boolean accepted = false;
-                    if (error <= adaptiveTol || currentDt < 1e-7) { // принимаем шаг (посадка мягкая)
-                        t += currentDt;
-                        stepCount++;
-                        accepted = true;
-                        if (stepCount % (Math.max(1, (int) (config.T() / config.dt() / 10))) == 0) {
-                            log.info(String.format("Адаптивный прогресс: t=%.4f/%.4f dt=%.2e err=%.2e", t, config.T(),
-                                    currentDt, error));
-                        }
-                    } else { // откат (сломали математику)
+                        // Откатываем стейт и делаем два полушага currentDt/2
                         stepper.restoreState(savedU);
+                        stepper.setDt(currentDt / 2.0);
+                        stepper.step(t, mms);
+                        stepper.step(t + currentDt / 2.0, mms);
+
+                        double[] u2 = stepper.getU();
+                        double error = Metrics.computeL2Error(grid, u1, u2) / (Math.pow(2.0, p) - 1.0);
+
+                        boolean accepted = false;
+                        if (error <= adaptiveTol || currentDt < 1e-7) { // принимаем шаг (посадка мягкая)
+                            t += currentDt;
+                            stepCount++;
+                            accepted = true;
+                            if (stepCount % (Math.max(1, (int) (config.T() / config.dt() / 10))) == 0) {
+                                log.info(String.format("Адаптивный прогресс: t=%.4f/%.4f dt=%.2e err=%.2e", t,
+                                        config.T(), currentDt, error));
+                            }
+                        } else { // откат (сломали математику)
+                            stepper.restoreState(savedU);
+                        }
+                        logWriter.printf("%d,%f,%e,%e,%b%n", stepCount, t, currentDt, error, accepted);
+
+                        if (error > 0.0) {
+                            currentDt = currentDt * Math.pow(adaptiveTol / error, 1.0 / (p + 1.0));
+                        } else {
+                            currentDt *= 2.0;
+                        }
                     }
-                    logWriter.printf("%d,%f,%e,%e,%b%n", stepCount, t, currentDt, error, accepted);
+                }
+                log.info("Закончили Адаптивный степпинг, сожрали {} шагов", stepCount);
+
+            } else {
+                int steps = (int) Math.round(config.T() / config.dt());
+                for (int i = 0; i < steps; i++) {
+                    stepper.step(t, mms);
+                    t += config.dt();
 
-                    if (error > 0.0) {
-                        currentDt = currentDt * Math.pow(adaptiveTol / error, 1.0 / (p + 1.0));
-                    } else {
-                        currentDt *= 2.0;
+                    if (i % (steps / 10 + 1) == 0) {
+                        log.info(String.format("Прогресс: %.1f%% (t=%.4f)", 100.0 * i / steps, t));
                     }
                 }
             }
-            log.info("Закончили Адаптивный степпинг, сожрали {} шагов", stepCount);
 
-        } else {
-            int steps = (int) Math.round(config.T() / config.dt());
-            for (int i = 0; i < steps; i++) {
-                stepper.step(t, mms);
-                t += config.dt();
+            long wallEnd = System.nanoTime();
+            double wallTimeSec = (wallEnd - wallStart) / 1e9;
 
-                if (i % (steps / 10 + 1) == 0) {
-                    log.info(String.format("Прогресс: %.1f%% (t=%.4f)", 100.0 * i / steps, t));
-                }
+            if (live != null) {
+                live.stopAndReport(registry.getPath("jfr_live_report.json"));
             }
+
+            double[] uExact = new double[grid.size()];
+            mms.evaluateExact(grid, t, uExact);
+
+            double errorL2 = Metrics.computeL2Error(grid, stepper.getU(), uExact);
+            double errorLinf = Metrics.computeLinfError(grid, stepper.getU(), uExact);
+            double errorRel = Metrics.computeRelativeL2Error(grid, stepper.getU(), uExact);
+
+            java.util.Map<String, Object> metrics = new java.util.HashMap<>();
+            metrics.put("threadsRequested", config.threads());
+            metrics.put("threadsEffective", ParallelExecutor.threadCount());
+            metrics.put("executorBackend", ParallelExecutor.backendName());
+            metrics.put("chunkStrategy", ParallelExecutor.getSchedule().name());
+            metrics.put("reductionMode", ParallelExecutor.getReduction().name());
+            metrics.put("wallTimeSeconds", wallTimeSec);
+            metrics.put("totalPcgIters", stepper.getTotalPcgIters());
+            metrics.put("maxAbsResidual", stepper.getMaxAbsResidual());
+            metrics.put("maxRelResidual", stepper.getMaxRelResidual());
+            metrics.put("errorL2", errorL2);
+            metrics.put("errorLinf", errorLinf);
+            metrics.put("errorRelL2", errorRel);
+
+            java.util.Map<String, Object> imbalance = new java.util.LinkedHashMap<>();
+            for (ParallelExecutor.Schedule s : ParallelExecutor.Schedule.values()) {
+                ParallelExecutor.Imbalance im = ParallelExecutor.imbalance(s);
+                imbalance.put(s.name(), java.util.Map.of("phases", im.phases(), "meanRatio", im.meanRatio(),
+                        "worstRatio", im.worstRatio(), "idleFraction", im.idleFraction()));
+            }
+            metrics.put("loadImbalance", imbalance);
+            metrics.put("stepTiming", stepTimingJson(stepper));
+
+            if (PhaseProfiler.isEnabled()) {
+                java.util.List<PhaseProfiler.KernelProfile> kernels = PhaseProfiler.snapshot();
+                metrics.put("phaseProfile", phaseProfileJson(kernels));
+                writePhaseProfileCsv(registry.getPath("phase_profile.csv"), kernels);
+            }
+
+            mapper.writerWithDefaultPrettyPrinter()
+                    .writeValue(new File(registry.getPath("metrics.json").getAbsolutePath()), metrics);
+
+            if (recording != null) {
+                recording.stop();
+                log.info("JFR запись успешно сдамплена сюда: {}", registry.getPath("profile.jfr").getAbsolutePath());
+            }
+
+            log.info(String.format("Готово (Done)! Заняло времени: %.3f s, Ошибка L2: %e", wallTimeSec, errorL2));
         }
 
-        long wallEnd = System.nanoTime();
-        double wallTimeSec = (wallEnd - wallStart) / 1e9;
-
-        double[] uExact = new double[grid.size()];
-        mms.evaluateExact(grid, t, uExact);
-
-        double errorL2 = Metrics.computeL2Error(grid, stepper.getU(), uExact);
-        double errorLinf = Metrics.computeLinfError(grid, stepper.getU(), uExact);
-        double errorRel = Metrics.computeRelativeL2Error(grid, stepper.getU(), uExact);
-
-        java.util.Map<String, Object> metrics = new java.util.HashMap<>();
-        metrics.put("threadsRequested", config.threads());
-        metrics.put("threadsEffective", effectiveThreads);
-        metrics.put("chunkStrategy", "AUTO_DYNAMIC");
-        metrics.put("wallTimeSeconds", wallTimeSec);
-        metrics.put("totalPcgIters", stepper.getTotalPcgIters());
-        metrics.put("maxAbsResidual", stepper.getMaxAbsResidual());
-        metrics.put("maxRelResidual", stepper.getMaxRelResidual());
-        metrics.put("errorL2", errorL2);
-        metrics.put("errorLinf", errorLinf);
-        metrics.put("errorRelL2", errorRel);
-
-        mapper.writerWithDefaultPrettyPrinter().writeValue(new File(registry.getPath("metrics.json").getAbsolutePath()),
-                metrics);
-
-        if (recording != null) {
-            recording.stop();
+        return 0;
+    }
+
+    // null - JFR не поднялся (прогон едет без записи)
+    private static jdk.jfr.Recording startRecording(ArtifactRegistry registry) {
+        jdk.jfr.Recording recording = new jdk.jfr.Recording();
+        try {
+            recording.setToDisk(true);
+            recording.setDestination(registry.getPath("profile.jfr").toPath());
+            // Свои события солвера: шаги, solve, сборка предобуславливателя, фазы воркеров
+            recording.enable(pdelab.solver.TimeStepEvent.NAME);
+            recording.enable(pdelab.solver.LinearSolveEvent.NAME);
+            recording.enable(pdelab.solver.PreconditionerSetupEvent.NAME);
+            recording.enable(pdelab.core.ExecutorPhaseEvent.NAME).withoutStackTrace();
+            recording.start();
+            log.info("JFR запись полетела (пишем логи железа).");
+            return recording;
+        } catch (Exception e) {
+            log.error("Словили ошибку при старте JFR (проверьте что у вас JDK > 11 и есть права)", e);
             recording.close();
-            log.info("JFR запись успешно сдамплена сюда: {}", registry.getPath("profile.jfr").getAbsolutePath());
+            return null;
         }
+    }
 
-        log.info(String.format("Готово (Done)! Заняло времени: %.3f s, Ошибка L2: %e", wallTimeSec, errorL2));
+    // Фазы TimeStepper.step: сумма, доля от всех шагов и распределение по шагам
+    private static java.util.Map<String, Object> stepTimingJson(TimeStepper stepper) {
+        Histogram step = stepper.getStepLatency();
+        java.util.Map<String, Object> phases = new java.util.LinkedHashMap<>();
+        for (TimeStepper.Phase phase : TimeStepper.Phase.values()) {
+            java.util.Map<String, Object> row = latencyJson(stepper.getPhaseLatency(phase));
+            row.put("fraction", step.sumNanos() > 0 ? (double) stepper.getPhaseNanos(phase) / step.sumNanos() : 0.0);
+            phases.put(phase.name(), row);
+        }
+        java.util.Map<String, Object> out = new java.util.LinkedHashMap<>();
+        out.put("steps", step.count());
+        out.put("step", latencyJson(step));
+        out.put("phases", phases);
+        return out;
+    }
 
-        return 0;
+    private static java.util.Map<String, Object> latencyJson(Histogram h) {
+        java.util.Map<String, Object> row = new java.util.LinkedHashMap<>();
+        row.put("totalMs", h.sumNanos() / 1e6);
+        row.put("p50Us", h.percentile(0.50) / 1e3);
+        row.put("p99Us", h.percentile(0.99) / 1e3);
+        row.put("maxUs", h.maxNanos() / 1e3);
+        return row;
+    }
+
+    private static java.util.List<java.util.Map<String, Object>> phaseProfileJson(
+            java.util.List<PhaseProfiler.KernelProfile> kernels) {
+        java.util.List<java.util.Map<String, Object>> out = new java.util.ArrayList<>();
+        for (PhaseProfiler.KernelProfile k : kernels) {
+            java.util.Map<String, Object> row = new java.util.LinkedHashMap<>();
+            row.put("kernel", k.kernel());
+            row.put("phases", k.phases());
+            row.put("chunks", k.chunks());
+            row.put("spanMs", k.spanNanos() / 1e6);
+            row.put("busyMs", k.busyNanos() / 1e6);
+            row.put("derivedWaitMs", k.derivedWaitNanos() / 1e6);
+            row.put("derivedWaitFraction", k.derivedWaitFraction());
+            row.put("meanRatio", k.meanRatio());
+            row.put("p50Us", k.p50Nanos() / 1e3);
+            row.put("p90Us", k.p90Nanos() / 1e3);
+            row.put("p99Us", k.p99Nanos() / 1e3);
+            row.put("maxUs", k.maxNanos() / 1e3);
+            row.put("workerBusyMs", java.util.Arrays.stream(k.workerBusyNanos()).mapToDouble(v -> v / 1e6).toArray());
+            row.put("workerDerivedWaitMs",
+                    java.util.Arrays.stream(k.workerDerivedWaitNanos()).mapToDouble(v -> v / 1e6).toArray());
+            row.put("inlinePhases", k.inlinePhases());
+            row.put("inlineMs", k.inlineNanos() / 1e6);
+            out.add(row);
+        }
+        return out;
+    }
+
+    // Строка на ядро x воркер (worker = -1 - итог по ядру, у ForkJoin других строк нет)
+    private static void writePhaseProfileCsv(File file, java.util.List<PhaseProfiler.KernelProfile> kernels)
+            throws java.io.IOException {
+        try (java.io.PrintWriter w = new java.io.PrintWriter(file)) {
+            w.println("kernel,worker,phases,chunks,spanMs,busyMs,derivedWaitMs,derivedWaitFraction,meanRatio,"
+                    + "p50Us,p90Us,p99Us,maxUs,inlinePhases,inlineMs");
+            for (PhaseProfiler.KernelProfile k : kernels) {
+                w.printf(java.util.Locale.ROOT, "%s,-1,%d,%d,%.6f,%.6f,%.6f,%.6f,%.6f,%.3f,%.3f,%.3f,%.3f,%d,%.6f%n",
+                        k.kernel(), k.phases(), k.chunks(), k.spanNanos() / 1e6, k.busyNanos() / 1e6,
+                        k.derivedWaitNanos() / 1e6, k.derivedWaitFraction(), k.meanRatio(), k.p50Nanos() / 1e3,
+                        k.p90Nanos() / 1e3, k.p99Nanos() / 1e3, k.maxNanos() / 1e3, k.inlinePhases(),
+                        k.inlineNanos() / 1e6);
+                for (int i = 0; i < k.workerBusyNanos().length; i++) {
+                    w.printf(java.util.Locale.ROOT, "%s,%d,%d,,,%.6f,%.6f,,,,,,,,%n", k.kernel(), i, k.phases(),
+                            k.workerBusyNanos()[i] / 1e6, k.workerDerivedWaitNanos()[i] / 1e6);
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,244 @@
+package pdelab.solver;
+
+import pdelab.core.Grid2D;
+import pdelab.core.ParallelVectorOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Anderson-ускоренный Picard (Walker & Ni, 2011): дешевая альтернатива JFNK для слабо нелинейной диффузии.
+ * Фикс-поинт отображение G(u) = u - A^-1 F(u), где A - линейная часть задачи (по дефолту I - L,
+ * крутится через ImplicitMatrix + PCG). На шаг ровно один F.evaluate - никаких FD J*v и line search.
+ * Смешивание глубины m: история разностей dX/dG лежит в предаллоцированном кольце, маленький МНК
+ * min ||g_k - dG gamma|| решается через MGS QR. Safeguards: выкидываем старые колонки, если R
+ * плохо обусловлена, и сбрасываем историю с откатом на чистый Picard, если невязка поехала вверх.
+ * Против JFNK на одном и том же MG (NonlinearSolverBenchmark.*Multigrid): F-evals в 2-5 раз меньше,
+ * но внутренних итераций больше, так что выигрыш по времени есть, только когда дорог сам F.evaluate;
+ * на дешевой невязке JFNK + MG быстрее.
+ */
+public class AndersonSolver {
+    private static final Logger log = LoggerFactory.getLogger(AndersonSolver.class);
+
+    private static final double COND_MAX = 1e8; // Выше - МНК уже мусор, режем старые колонки
+    private static final double GROWTH_LIMIT = 2.0; // Во сколько раз невязка может вырасти за шаг до рестарта
+    private static final int DEFAULT_INNER_ITERS = 500;
+    private static final double DEFAULT_INNER_TOL = 1e-8;
+
+    /**
+     * Стата последнего solve: итерации Андерсона, F-evals, суммарный PCG и число рестартов истории.
+     */
+    public record SolveStats(int iterations, int residualEvaluations, int innerIterations, int restarts,
+            boolean converged, double finalResidualNorm) {
+    }
+
+    private final int depth;
+    private final int maxIters;
+    private final double tol;
+    private final MatrixOperator picardOperator;
+    private final Preconditioner preconditioner;
+    private final LinearSolver innerSolver;
+    private SolveStats lastStats = new SolveStats(0, 0, 0, 0, false, Double.NaN);
+
+    // Рабочие массивы (строго numInterior)
+    private final double[] F_u;
+    private final double[] rhs;
+    private final double[] g; // g_k = G(u_k) - u_k = -A^-1 F(u_k)
+    private final double[] u_prev;
+    private final double[] g_prev;
+
+    // Кольцо истории: слот head - следующий на запись, count валидных колонок
+    private final double[][] dX;
+    private final double[][] dG;
+    private int head;
+    private int count;
+
+    // MGS QR от колонок dG (в порядке от старой к новой)
+    private final double[][] Q;
+    private final double[] R; // depth x depth, по колонкам
+    private final double[] qtg;
+    private final double[] gamma;
+    private final double[] slotCoeffs; // -gamma, разложенные по слотам кольца под fused multiAxpy
+
+    /**
+     * Дефолтная Picard-линеаризация A = I - L с Jacobi-PCG: для невязок вида -Laplacian(u) + N(u).
+     */
+    public AndersonSolver(Grid2D grid, int depth, int maxIters, double tol) {
+        this(grid, depth, maxIters, tol, new ImplicitMatrix(grid, 1.0),
+                new JacobiPreconditioner(grid, 1.0));
+    }
+
+    /**
+     * @param depth          Глубина смешивания m (0 = чистый Picard).
+     * @param picardOperator SPD-аппроксимация Якобиана, которую честно обращаем PCG на каждом шаге.
+     * @param preconditioner Прекондей для внутреннего PCG.
+     */
+    public AndersonSolver(Grid2D grid, int depth, int maxIters, double tol, MatrixOperator picardOperator,
+            Preconditioner preconditioner) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Глубина Андерсона обязана быть >= 0, а прилетело " + depth);
+        }
+        this.depth = depth;
+        this.maxIters = maxIters;
+        this.tol = tol;
+        this.picardOperator = picardOperator;
+        this.preconditioner = preconditioner;
+        this.innerSolver = new PCG(grid, DEFAULT_INNER_ITERS, DEFAULT_INNER_TOL);
+
+        int n = grid.numInterior();
+        this.F_u = new double[n];
+        this.rhs = new double[n];
+        this.g = new double[n];
+        this.u_prev = new double[n];
+        this.g_prev = new double[n];
+
+        this.dX = new double[depth][n];
+        this.dG = new double[depth][n];
+        this.Q = new double[depth][n];
+        this.R = new double[depth * depth];
+        this.qtg = new double[depth + 1];
+        this.gamma = new double[depth];
+        this.slotCoeffs = new double[depth];
+    }
+
+    public SolveStats getLastSolveStats() {
+        return lastStats;
+    }
+
+    /**
+     * Решаем F(u) = 0 ускоренным Picard'ом.
+     *
+     * @param F The non-linear residual function (тот же интерфейс, что и у JFNK).
+     * @param u The solution vector (in/out: initial guess -> final solution).
+     * @return Number of Anderson iterations.
+     */
+    public int solve(NewtonKrylov.NonLinearFunction F, double[] u) {
+        head = 0;
+        count = 0;
+        int residualEvals = 0;
+        int innerIters = 0;
+        int restarts = 0;
+        boolean hasPrev = false;
+        boolean lastAccelerated = false;
+        double prevNorm = Double.NaN;
+        double residualNorm = Double.NaN;
+
+        for (int iter = 0; iter < maxIters; iter++) {
+            F.evaluate(u, F_u);
+            residualEvals++;
+            residualNorm = ParallelVectorOps.normL2(F_u);
+            log.debug("Anderson Iter {}: ||F(u)|| = {} (history {})", iter, residualNorm, count);
+
+            if (Double.isNaN(residualNorm) || Double.isInfinite(residualNorm)) {
+                log.error("Anderson NaN/Inf residual at iteration {}", iter);
+                return finish(iter, residualEvals, innerIters, restarts, false, residualNorm);
+            }
+            if (residualNorm < tol) {
+                return finish(iter, residualEvals, innerIters, restarts, true, residualNorm);
+            }
+
+            if (lastAccelerated && residualNorm > GROWTH_LIMIT * prevNorm) {
+                // Экстраполяция уехала не туда: выкидываем историю и делаем чистый Picard из старой точки
+                log.debug("  Anderson restart: ||F|| вырос {} -> {}", prevNorm, residualNorm);
+                restarts++;
+                head = 0;
+                count = 0;
+                ParallelVectorOps.addScaled(u_prev, 1.0, g_prev, u);
+                lastAccelerated = false;
+                continue;
+            }
+
+            // g_k = -A^-1 F(u_k): один PCG на шаг, стартуем с нуля
+            ParallelVectorOps.scale(-1.0, F_u, rhs);
+            java.util.Arrays.fill(g, 0.0);
+            LinearSolver.SolveResult inner = innerSolver.solve(picardOperator, preconditioner, rhs, g);
+            innerIters += inner.iterations();
+            if (inner.status() == LinearSolver.Status.FAIL_NUMERIC
+                    || inner.status() == LinearSolver.Status.FAIL_NON_SPD) {
+                log.error("Anderson inner PCG failed ({}) at iteration {}", inner.status(), iter);
+                return finish(iter, residualEvals, innerIters, restarts, false, residualNorm);
+            }
+
+            // Докидываем новую пару разностей в кольцо (самая старая затирается)
+            if (hasPrev && depth > 0) {
+                ParallelVectorOps.addScaled(u, -1.0, u_prev, dX[head]);
+                ParallelVectorOps.addScaled(g, -1.0, g_prev, dG[head]);
+                head = (head + 1) % depth;
+                count = Math.min(count + 1, depth);
+            }
+            ParallelVectorOps.copy(u, u_prev);
+            ParallelVectorOps.copy(g, g_prev);
+            hasPrev = true;
+            prevNorm = residualNorm;
+
+            // u_{k+1} = u_k + g_k - (dX + dG) gamma
+            ParallelVectorOps.axpy(1.0, g, u);
+            lastAccelerated = count > 0 && solveLeastSquares();
+            if (lastAccelerated) {
+                ParallelVectorOps.multiAxpy(slotCoeffs, dX, depth, u);
+                ParallelVectorOps.multiAxpy(slotCoeffs, dG, depth, u);
+            }
+        }
+
+        log.warn("Anderson hit max iterations ({}) without full convergence.", maxIters);
+        return finish(maxIters, residualEvals, innerIters, restarts, false, residualNorm);
+    }
+
+    /**
+     * gamma = argmin ||g - dG gamma|| через MGS QR. Пока R плохо обусловлена, выкидываем самую
+     * старую колонку и пересобираем. Результат (-gamma) раскладывается по слотам кольца.
+     *
+     * @return false, если от истории ничего не осталось.
+     */
+    private boolean solveLeastSquares() {
+        while (count > 0) {
+            int oldest = (head - count + depth) % depth;
+            double rMax = 0.0;
+            double rMin = Double.MAX_VALUE;
+            for (int j = 0; j < count; j++) {
+                double[] qj = Q[j];
+                ParallelVectorOps.copy(dG[(oldest + j) % depth], qj);
+                for (int i = 0; i < j; i++) {
+                    double rij = ParallelVectorOps.dot(Q[i], qj);
+                    R[j * depth + i] = rij;
+                    ParallelVectorOps.axpy(-rij, Q[i], qj);
+                }
+                double rjj = ParallelVectorOps.normL2(qj);
+                R[j * depth + j] = rjj;
+                if (rjj > 0.0) {
+                    ParallelVectorOps.scale(1.0 / rjj, qj, qj);
+                }
+                rMax = Math.max(rMax, rjj);
+                rMin = Math.min(rMin, rjj);
+            }
+
+            if (rMin > 0.0 && rMax / rMin <= COND_MAX) {
+                // Q^T g одним барьером, потом обратный ход по R
+                ParallelVectorOps.multiDot(Q, count, g, qtg);
+                for (int i = count - 1; i >= 0; i--) {
+                    double sum = qtg[i];
+                    for (int jj = i + 1; jj < count; jj++) {
+                        sum -= R[jj * depth + i] * gamma[jj];
+                    }
+                    gamma[i] = sum / R[i * depth + i];
+                }
+                java.util.Arrays.fill(slotCoeffs, 0.0);
+                for (int j = 0; j < count; j++) {
+                    slotCoeffs[(oldest + j) % depth] = -gamma[j];
+                }
+                return true;
+            }
+            count--; // Самая старая колонка почти линейно зависима - в утиль
+        }
+        return false;
+    }
+
+    private int finish(int iters, int residualEvals, int innerIters, int restarts, boolean converged,
+            double residualNorm) {
+        lastStats = new SolveStats(iters, residualEvals, innerIters, restarts, converged, residualNorm);
+        if (converged) {
+            log.info("Anderson(m={}) Converged in {} iterations ({} F-evals, {} PCG iters, {} restarts). "
+                    + "Final ||F(u)|| = {}", depth, iters, residualEvals, innerIters, restarts, residualNorm);
+        }
+        return iters;
+    }
+}
@@ -0,0 +1,151 @@
+package pdelab.solver;
+
+import pdelab.core.Grid2D;
+import pdelab.core.ParallelVectorOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * BiCGStab (van der Vorst) с правым прекондеем под НЕсимметричные системы.
+ * В отличие от GMRES память константная (8 векторов), зато невязка не монотонна.
+ * Все кишки аллоцируются на старте, в хот-лупе GC спит.
+ */
+public class BiCGStab implements LinearSolver {
+
+    private static final Logger log = LoggerFactory.getLogger(BiCGStab.class);
+
+    private final int maxIters;
+    private double tol;
+
+    private final double[] r;
+    private final double[] rHat; // Теневая невязка (shadow residual), фиксируется на старте
+    private final double[] p;
+    private final double[] pHat;
+    private final double[] v;
+    private final double[] s;
+    private final double[] sHat;
+    private final double[] t;
+
+    private final double[][] sView; // Обертка под fused multi-dot (t.s и t.t за один барьер)
+    private final double[] dots = new double[2];
+
+    public BiCGStab(Grid2D grid, int maxIters, double tol) {
+        this.maxIters = maxIters;
+        this.tol = tol;
+
+        int n = grid.numInterior();
+        this.r = new double[n];
+        this.rHat = new double[n];
+        this.p = new double[n];
+        this.pHat = new double[n];
+        this.v = new double[n];
+        this.s = new double[n];
+        this.sHat = new double[n];
+        this.t = new double[n];
+        this.sView = new double[][] { s };
+    }
+
+    @Override
+    public void setTolerance(double tol) {
+        this.tol = tol;
+    }
+
+    @Override
+    public SolveResult solve(MatrixOperator A, Preconditioner M, double[] b, double[] x) {
+        double normb = ParallelVectorOps.normL2(b);
+        if (Double.isNaN(normb) || Double.isInfinite(normb)) {
+            log.error("BiCGStab NaN/Inf detected in RHS vector!");
+            return new SolveResult(Status.FAIL_NUMERIC, 0, Double.NaN, Double.NaN);
+        }
+        double divisorB = (normb == 0.0) ? 1.0 : normb;
+
+        // r = b - A x
+        A.multiply(x, v);
+        ParallelVectorOps.addScaled(b, -1.0, v, r);
+
+        double residual = ParallelVectorOps.normL2(r);
+        if (Double.isNaN(residual) || Double.isInfinite(residual)) {
+            log.error("BiCGStab NaN/Inf detected in initial residual! normb={}", normb);
+            return new SolveResult(Status.FAIL_NUMERIC, 0, residual, residual / divisorB);
+        }
+        if (residual / divisorB <= tol)
+            return new SolveResult(Status.CONVERGED, 0, residual, residual / divisorB);
+
+        ParallelVectorOps.copy(r, rHat);
+
+        double rho = 1.0;
+        double alpha = 1.0;
+        double omega = 1.0;
+
+        for (int k = 1; k <= maxIters; k++) {
+            double rhoNew = ParallelVectorOps.dot(rHat, r);
+            if (rhoNew == 0.0 || Double.isNaN(rhoNew)) {
+                log.error("BiCGStab breakdown (rho = {}) at iteration {}", rhoNew, k);
+                return new SolveResult(Status.FAIL_NUMERIC, k, residual, residual / divisorB);
+            }
+
+            if (k == 1) {
+                ParallelVectorOps.copy(r, p);
+            } else {
+                // p = r + beta * (p - omega * v)
+                double beta = (rhoNew / rho) * (alpha / omega);
+                ParallelVectorOps.axpy(-omega, v, p);
+                ParallelVectorOps.axpby(1.0, r, beta, p);
+            }
+
+            M.apply(p, pHat);
+            A.multiply(pHat, v);
+
+            double rHatV = ParallelVectorOps.dot(rHat, v);
+            alpha = rhoNew / rHatV;
+            if (Double.isNaN(alpha) || Double.isInfinite(alpha)) {
+                log.error("BiCGStab step alpha NaN/Inf at iteration {}. rho={}, rHat.v={}", k, rhoNew, rHatV);
+                return new SolveResult(Status.FAIL_NUMERIC, k, residual, residual / divisorB);
+            }
+
+            // s = r - alpha * v
+            ParallelVectorOps.addScaled(r, -alpha, v, s);
+            double sNorm = ParallelVectorOps.normL2(s);
+            if (sNorm / divisorB <= tol) {
+                ParallelVectorOps.axpy(alpha, pHat, x);
+                return new SolveResult(Status.CONVERGED, k, sNorm, sNorm / divisorB);
+            }
+
+            M.apply(s, sHat);
+            A.multiply(sHat, t);
+
+            // omega = (t.s) / (t.t), оба скаляра за один проход
+            ParallelVectorOps.multiDot(sView, 1, t, dots);
+            double tt = dots[1];
+            if (tt == 0.0) {
+                log.error("BiCGStab breakdown (t.t = 0) at iteration {}", k);
+                return new SolveResult(Status.FAIL_NUMERIC, k, sNorm, sNorm / divisorB);
+            }
+            omega = dots[0] / tt;
+
+            // x = x + alpha * pHat + omega * sHat
+            ParallelVectorOps.axpy(alpha, pHat, x);
+            ParallelVectorOps.axpy(omega, sHat, x);
+
+            // r = s - omega * t
+            ParallelVectorOps.addScaled(s, -omega, t, r);
+
+            residual = ParallelVectorOps.normL2(r);
+            if (Double.isNaN(residual) || Double.isInfinite(residual)) {
+                log.error("BiCGStab NaN/Inf residual at iteration {}", k);
+                return new SolveResult(Status.FAIL_NUMERIC, k, residual, residual / divisorB);
+            }
+            if (residual / divisorB <= tol) {
+                return new SolveResult(Status.CONVERGED, k, residual, residual / divisorB);
+            }
+            if (omega == 0.0) {
+                log.error("BiCGStab stagnation (omega = 0) at iteration {}", k);
+                return new SolveResult(Status.FAIL_NUMERIC, k, residual, residual / divisorB);
+            }
+
+            rho = rhoNew;
+        }
+
+        return new SolveResult(Status.MAX_ITERS, maxIters, residual, residual / divisorB);
+    }
+}
@@ -0,0 +1,249 @@
+package pdelab.solver;
+
+import pdelab.core.Grid2D;
+import pdelab.core.GridMetrics;
+import pdelab.core.ParallelExecutor;
+import pdelab.core.Stencil;
+
+/**
+ * Собранный оператор A = I - factor * L в диагональном (DIA) формате: пять диагоналей
+ * 5-точечного L (центр, запад, восток, юг, север) по внутренним узлам. Полусуммы/гармонические
+ * средние kappa и веса растянутой сетки сворачиваются в них один раз в конструкторе - дальше их
+ * никто не пересчитывает. От factor зависят только диагональ A и ее обратная, так что
+ * updateFactor - один проход.
+ * Это общее хранилище коэффициентов: ImplicitMatrix отдает его через coefficients(), Jacobi/SSOR
+ * и уровни MG читают отсюда, а не гоняют kappa-средние в каждом apply.
+ * Связи через границу (нулевой Дирихле по нутру) хранятся нулями.
+ */
+public class DiaMatrixOperator implements MatrixOperator {
+    private final Grid2D grid;
+    private double factor = Double.NaN;
+
+    // Диагонали L (factor-независимые)
+    private final double[] center;
+    private final double[] west;
+    private final double[] east;
+    private final double[] south;
+    private final double[] north;
+
+    // Диагональ A = 1 - factor * center и ее обратная (перестраиваются в updateFactor)
+    private final double[] diag;
+    private final double[] invDiag;
+
+    // Соседний ряд за границей по j: связи туда и так нули, а чтение нулей вместо x убирает ветки из apply
+    private final double[] zeroRow;
+
+    /**
+     * kXFull/kYFull - интерфейсные kappa из Stencil.precomputeDiffusivityArrays (null - чистый Лапласиан).
+     */
+    public DiaMatrixOperator(Grid2D grid, double factor, double[] kXFull, double[] kYFull) {
+        this.grid = grid;
+        int n = grid.numInterior();
+        this.center = new double[n];
+        this.west = new double[n];
+        this.east = new double[n];
+        this.south = new double[n];
+        this.north = new double[n];
+        this.diag = new double[n];
+        this.invDiag = new double[n];
+        this.zeroRow = new double[grid.inX()];
+        assemble(kXFull, kYFull);
+        updateFactor(factor);
+    }
+
+    /**
+     * Оператор с арифметическими полусуммами из узловой kappa (kFull == null - Лапласиан).
+     */
+    public static DiaMatrixOperator fromNodalKappa(Grid2D grid, double factor, double[] kFull) {
+        if (kFull == null) {
+            return new DiaMatrixOperator(grid, factor, null, null);
+        }
+        double[] kX = new double[grid.size()];
+        double[] kY = new double[grid.size()];
+        Stencil.precomputeDiffusivityArrays(grid, kFull, kX, kY, "ARITHMETIC");
+        return new DiaMatrixOperator(grid, factor, kX, kY);
+    }
+
+    private void assemble(double[] kXFull, double[] kYFull) {
+        int inX = grid.inX();
+        int inY = grid.inY();
+        int nx = grid.Nx();
+        GridMetrics metrics = GridMetrics.of(grid);
+        GridMetrics.Axis mx = metrics.x();
+        GridMetrics.Axis my = metrics.y();
+
+        for (int j = 0; j < inY; j++) {
+            for (int i = 0; i < inX; i++) {
+                int k = j * inX + i;
+                int g = grid.idx(i + 1, j + 1);
+                double e = mx.lapRight[i];
+                double w = mx.lapLeft[i];
+                double n = my.lapRight[j];
+                double s = my.lapLeft[j];
+                if (kXFull != null) {
+                    e *= kXFull[g];
+                    w *= kXFull[g - 1];
+                    n *= kYFull[g];
+                    s *= kYFull[g - nx];
+                }
+                center[k] = -(e + w) - (n + s);
+                east[k] = i + 1 < inX ? e : 0.0;
+                west[k] = i > 0 ? w : 0.0;
+                north[k] = j + 1 < inY ? n : 0.0;
+                south[k] = j > 0 ? s : 0.0;
+            }
+        }
+    }
+
+    private static class FactorOp implements ParallelExecutor.ArrayOp {
+        double factor;
+        double[] center, diag, invDiag;
+
+        public void set(double factor, double[] center, double[] diag, double[] invDiag) {
+            this.factor = factor;
+            this.center = center;
+            this.diag = diag;
+            this.invDiag = invDiag;
+        }
+
+        @Override
+        public void compute(int start, int end) {
+            for (int k = start; k < end; k++) {
+                double d = 1.0 - factor * center[k];
+                diag[k] = d;
+                invDiag[k] = 1.0 / d;
+            }
+        }
+    }
+
+    private static final FactorOp factorOp = new FactorOp();
+
+    /**
+     * Один проход по диагонали. Повторный вызов с тем же factor (оператор расшарен между A и M,
+     * и setDt дергает обоих) ничего не делает.
+     */
+    public void updateFactor(double factor) {
+        if (factor == this.factor) {
+            return;
+        }
+        this.factor = factor;
+        factorOp.set(factor, center, diag, invDiag);
+        ParallelExecutor.executeContiguous(diag.length, factorOp);
+    }
+
+    public Grid2D grid() {
+        return grid;
+    }
+
+    public double factor() {
+        return factor;
+    }
+
+    /**
+     * Живая диагональ A (обновляется в updateFactor).
+     */
+    public double[] diagonal() {
+        return diag;
+    }
+
+    /**
+     * Живая 1 / diag(A).
+     */
+    public double[] invDiagonal() {
+        return invDiag;
+    }
+
+    double[] west() {
+        return west;
+    }
+
+    double[] east() {
+        return east;
+    }
+
+    double[] south() {
+        return south;
+    }
+
+    double[] north() {
+        return north;
+    }
+
+    /**
+     * y = diag * x - factor * (W x_w + E x_e + S x_s + N x_n) построчно, x · y в тот же проход.
+     * Ряды j = 0 и inY - 1 берут соседа из zeroRow, колонки 0 и inX - 1 - отдельные точки, так что
+     * луп по 1 <= i < inX - 1 без веток и векторизуется C2. Порядок сумм тот же, что с ветками.
+     */
+    private static class ApplyOp implements ParallelExecutor.ReduceOp {
+        DiaMatrixOperator op;
+        double[] x, y;
+        final ParallelExecutor.ArrayOp plain = this::compute; // Тот же свип, сумма просто выбрасывается
+
+        public void set(DiaMatrixOperator op, double[] x, double[] y) {
+            this.op = op;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public double compute(int startJ, int endJ) {
+            int inX = op.grid.inX();
+            int inY = op.grid.inY();
+            double f = op.factor;
+            double[] d = op.diag;
+            double[] w = op.west;
+            double[] e = op.east;
+            double[] s = op.south;
+            double[] n = op.north;
+            double[] x = this.x;
+            double[] y = this.y;
+            double dot = 0.0;
+            for (int j = startJ; j < endJ; j++) {
+                int off = j * inX;
+                double[] dn = j == 0 ? op.zeroRow : x;
+                int dnOff = j == 0 ? 0 : off - inX;
+                double[] up = j == inY - 1 ? op.zeroRow : x;
+                int upOff = j == inY - 1 ? 0 : off + inX;
+
+                if (inX == 1) {
+                    dot += point(off, 0.0, 0.0, dn[dnOff], up[upOff]);
+                    continue;
+                }
+                dot += point(off, 0.0, x[off + 1], dn[dnOff], up[upOff]);
+                for (int i = 1; i < inX - 1; i++) {
+                    int k = off + i;
+                    double nb = ((w[k] * x[k - 1] + e[k] * x[k + 1]) + s[k] * dn[dnOff + i])
+                            + n[k] * up[upOff + i];
+                    double v = d[k] * x[k] - f * nb;
+                    y[k] = v;
+                    dot += x[k] * v;
+                }
+                int last = inX - 1;
+                dot += point(off + last, x[off + last - 1], 0.0, dn[dnOff + last], up[upOff + last]);
+            }
+            return dot;
+        }
+
+        // Краевая точка: сосед за границей по i приходит нулем (связь туда тоже ноль)
+        private double point(int k, double xw, double xe, double xs, double xn) {
+            double nb = ((op.west[k] * xw + op.east[k] * xe) + op.south[k] * xs) + op.north[k] * xn;
+            double v = op.diag[k] * x[k] - op.factor * nb;
+            y[k] = v;
+            return x[k] * v;
+        }
+    }
+
+    private static final ApplyOp applyOp = new ApplyOp();
+
+    @Override
+    public void multiply(double[] x, double[] y) {
+        applyOp.set(this, x, y);
+        ParallelExecutor.executeBlocks(grid.inY(), grid.inX(), applyOp.plain);
+    }
+
+    @Override
+    public double multiplyDot(double[] x, double[] y) {
+        applyOp.set(this, x, y);
+        return ParallelExecutor.reduceBlocks(grid.inY(), grid.inX(), applyOp);
+    }
+}
@@ -0,0 +1,205 @@
+package pdelab.solver;
+
+import pdelab.core.Grid2D;
+import pdelab.core.ParallelVectorOps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restarted GMRES(m) с правым прекондеем под НЕсимметричные системы (JFNK, конвекция).
+ * Ортогонализация - классический Gram-Schmidt: все скалярные произведения с базисом
+ * собираются fused multi-dot'ом за один барьер, плюс выборочная реортогонализация
+ * (критерий "twice is enough"), если CGS потерял слишком много нормы.
+ * Базис Крылова, Хессенберг и вращения Гивенса аллоцируются один раз на старте.
+ */
+public class GMRES implements LinearSolver {
+
+    private static final Logger log = LoggerFactory.getLogger(GMRES.class);
+
+    // Если после вычитания проекций осталось меньше половины нормы - CGS поплыл, делаем второй проход
+    private static final double REORTH_THRESHOLD = 0.5;
+
+    private final int restart;
+    private final int maxIters;
+    private double tol;
+
+    private final double[][] V; // Ортонормированный базис Крылова (m + 1 векторов)
+    private final double[] w;
+    private final double[] z;
+
+    private final double[] H; // Хессенберг (m + 1) x m, хранится по колонкам
+    private final double[] cs;
+    private final double[] sn;
+    private final double[] g;
+    private final double[] y;
+    private final double[] hCol; // Буфер под multi-dot (проекции + w.w)
+
+    public GMRES(Grid2D grid, int restart, int maxIters, double tol) {
+        if (restart < 1) {
+            throw new IllegalArgumentException("GMRES restart обязан быть >= 1, а прилетело " + restart);
+        }
+        this.restart = restart;
+        this.maxIters = maxIters;
+        this.tol = tol;
+
+        int n = grid.numInterior();
+        this.V = new double[restart + 1][n];
+        this.w = new double[n];
+        this.z = new double[n];
+
+        this.H = new double[(restart + 1) * restart];
+        this.cs = new double[restart];
+        this.sn = new double[restart];
+        this.g = new double[restart + 1];
+        this.y = new double[restart];
+        this.hCol = new double[restart + 2];
+    }
+
+    @Override
+    public void setTolerance(double tol) {
+        this.tol = tol;
+    }
+
+    @Override
+    public SolveResult solve(MatrixOperator A, Preconditioner M, double[] b, double[] x) {
+        double normb = ParallelVectorOps.normL2(b);
+        if (Double.isNaN(normb) || Double.isInfinite(normb)) {
+            log.error("GMRES NaN/Inf detected in RHS vector!");
+            return new SolveResult(Status.FAIL_NUMERIC, 0, Double.NaN, Double.NaN);
+        }
+        double divisorB = (normb == 0.0) ? 1.0 : normb;
+        int m1 = restart + 1;
+
+        int totalIters = 0;
+        double residual = Double.NaN;
+
+        while (true) {
+            // r = b - A x, сразу кладем в V[0]
+            A.multiply(x, w);
+            double[] v0 = V[0];
+            ParallelVectorOps.addScaled(b, -1.0, w, v0);
+
+            double beta = ParallelVectorOps.normL2(v0);
+            residual = beta;
+            if (Double.isNaN(beta) || Double.isInfinite(beta)) {
+                log.error("GMRES NaN/Inf detected in residual after {} iterations", totalIters);
+                return new SolveResult(Status.FAIL_NUMERIC, totalIters, beta, beta / divisorB);
+            }
+            if (beta / divisorB <= tol) {
+                return new SolveResult(Status.CONVERGED, totalIters, beta, beta / divisorB);
+            }
+            if (totalIters >= maxIters) {
+                return new SolveResult(Status.MAX_ITERS, totalIters, beta, beta / divisorB);
+            }
+
+            ParallelVectorOps.scale(1.0 / beta, v0, v0);
+            java.util.Arrays.fill(g, 0.0);
+            g[0] = beta;
+
+            int k = 0; // Сколько колонок Хессенберга набили в этом цикле
+            boolean converged = false;
+            while (k < restart && totalIters < maxIters) {
+                totalIters++;
+
+                // w = A M^-1 v_k (правый прекондей: невязка остается честной)
+                M.apply(V[k], z);
+                A.multiply(z, w);
+
+                // CGS: h = V^T w и w.w одним барьером
+                ParallelVectorOps.multiDot(V, k + 1, w, hCol);
+                double ww = hCol[k + 1];
+                double hh = 0.0;
+                for (int i = 0; i <= k; i++) {
+                    hh += hCol[i] * hCol[i];
+                    hCol[i] = -hCol[i];
+                }
+                ParallelVectorOps.multiAxpy(hCol, V, k + 1, w);
+
+                int col = k * m1;
+                for (int i = 0; i <= k; i++) {
+                    H[col + i] = -hCol[i];
+                }
+
+                double wNorm2 = ww - hh;
+                double wNorm;
+                if (wNorm2 <= REORTH_THRESHOLD * REORTH_THRESHOLD * ww) {
+                    // Пифагор тут врет из-за cancellation, честно перепроецируем и честно меряем норму
+                    ParallelVectorOps.multiDot(V, k + 1, w, hCol);
+                    for (int i = 0; i <= k; i++) {
+                        H[col + i] += hCol[i];
+                        hCol[i] = -hCol[i];
+                    }
+                    ParallelVectorOps.multiAxpy(hCol, V, k + 1, w);
+                    wNorm = ParallelVectorOps.normL2(w);
+                } else {
+                    wNorm = Math.sqrt(wNorm2);
+                }
+                H[col + k + 1] = wNorm;
+
+                if (Double.isNaN(wNorm) || Double.isInfinite(wNorm)) {
+                    log.error("GMRES Arnoldi NaN/Inf at iteration {}", totalIters);
+                    return new SolveResult(Status.FAIL_NUMERIC, totalIters, residual, residual / divisorB);
+                }
+
+                // Прокатываем старые вращения Гивенса по новой колонке
+                for (int i = 0; i < k; i++) {
+                    double hi = H[col + i];
+                    double hi1 = H[col + i + 1];
+                    H[col + i] = cs[i] * hi + sn[i] * hi1;
+                    H[col + i + 1] = -sn[i] * hi + cs[i] * hi1;
+                }
+
+                // Новое вращение гасит поддиагональ
+                double hkk = H[col + k];
+                double hk1 = H[col + k + 1];
+                double denom = Math.hypot(hkk, hk1);
+                if (denom == 0.0) {
+                    log.error("GMRES Hessenberg column collapsed to zero at iteration {}", totalIters);
+                    return new SolveResult(Status.FAIL_NUMERIC, totalIters, residual, residual / divisorB);
+                }
+                cs[k] = hkk / denom;
+                sn[k] = hk1 / denom;
+                H[col + k] = denom;
+                H[col + k + 1] = 0.0;
+
+                g[k + 1] = -sn[k] * g[k];
+                g[k] = cs[k] * g[k];
+                residual = Math.abs(g[k + 1]);
+
+                k++;
+
+                if (residual / divisorB <= tol) {
+                    converged = true;
+                    break;
+                }
+                if (wNorm == 0.0) {
+                    // Happy breakdown: подпространство инвариантно, решение уже внутри
+                    converged = true;
+                    break;
+                }
+
+                ParallelVectorOps.scale(1.0 / wNorm, w, V[k]);
+            }
+
+            // Обратный ход по треугольному R: R y = g
+            for (int i = k - 1; i >= 0; i--) {
+                double sum = g[i];
+                for (int jj = i + 1; jj < k; jj++) {
+                    sum -= H[jj * m1 + i] * y[jj];
+                }
+                y[i] = sum / H[i * m1 + i];
+            }
+
+            // x = x + M^-1 (V y)
+            java.util.Arrays.fill(w, 0.0);
+            ParallelVectorOps.multiAxpy(y, V, k, w);
+            M.apply(w, z);
+            ParallelVectorOps.axpy(1.0, z, x);
+
+            if (converged) {
+                return new SolveResult(Status.CONVERGED, totalIters, residual, residual / divisorB);
+            }
+            log.debug("GMRES restart after {} iterations, ||r|| = {}", totalIters, residual);
+        }
+    }
+}
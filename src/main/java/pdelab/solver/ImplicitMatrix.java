@@ -1,50 +1,128 @@
 package pdelab.solver;
 
+import pdelab.core.BlockedLayout;
 import pdelab.core.Grid2D;
+import pdelab.core.KernelFactory;
 import pdelab.core.Stencil;
+import pdelab.core.StencilKernel;
 
 /**
  * Маппит математический оператор A = I - factor * Laplacian.
  * Работает люто быстро, без единой аллокации (purely allocation-free).
+ * Стенсил и скейлинг фьюзнуты в один проход: временного Lx больше нет.
  */
 public class ImplicitMatrix implements MatrixOperator {
     private final Grid2D grid;
     private double factor; // Множитель: dt * alpha / 2 для Crank-Nicolson, или тупо dt * alpha для
                            // Backward Euler
-    private final double[] tempLx;
     private final double[] kXFull;
     private final double[] kYFull;
+    private final BlockedLayout layout; // != null - вектора в blocked-Morton раскладке
+    private DiaMatrixOperator dia; // Собранные диагонали под прекондеи, поднимаются лениво
+    private StencilKernel kernel; // Спец-ядро под текущий factor (KernelFactory), берется лениво
 
-    public ImplicitMatrix(Grid2D grid, double factor, double[] tempLx) {
-        this(grid, factor, tempLx, null, null);
+    public ImplicitMatrix(Grid2D grid, double factor) {
+        this(grid, factor, null, null);
     }
 
-    public ImplicitMatrix(Grid2D grid, double factor, double[] tempLx, double[] kXFull, double[] kYFull) {
+    public ImplicitMatrix(Grid2D grid, double factor, double[] kXFull, double[] kYFull) {
+        this(grid, factor, kXFull, kYFull, null);
+    }
+
+    /**
+     * Оператор над векторами в blocked-Morton раскладке (layout == null - обычный row-major).
+     */
+    public ImplicitMatrix(Grid2D grid, double factor, double[] kXFull, double[] kYFull, BlockedLayout layout) {
+        if (layout != null && layout.grid() != grid) {
+            throw new IllegalArgumentException("Раскладка построена под другую сетку");
+        }
         this.grid = grid;
         this.factor = factor;
-        this.tempLx = tempLx;
         this.kXFull = kXFull;
         this.kYFull = kYFull;
+        this.layout = layout;
     }
 
     public void updateFactor(double factor) {
         this.factor = factor;
+        this.kernel = null;
+        if (dia != null) {
+            dia.updateFactor(factor);
+        }
+    }
+
+    /**
+     * Диагонали этого же A (те же интерфейсные kappa) в DIA-формате - общее хранилище
+     * коэффициентов для Jacobi/SSOR/MG. Собирается один раз при первом запросе, дальше
+     * updateFactor держит его в синхроне. Сам apply остается matrix-free стенсилом.
+     */
+    public DiaMatrixOperator coefficients() {
+        if (dia == null) {
+            dia = new DiaMatrixOperator(grid, factor, kXFull, kYFull);
+        }
+        return dia;
     }
 
+    /**
+     * y = x - factor * Lx одним свипом. x — вектор чисто по внутренним узлам (размер numInterior),
+     * границы железобетонно считаются нулевыми (strict zero). Без редукции: GMRES, MG и сглаживателям
+     * x · y не нужен.
+     */
     @Override
     public void multiply(double[] x, double[] y) {
-        // 1. Lx = L * x (Считаем Лапласиан)
-        // x — вектор чисто по внутренним узлам (размер numInterior). Пробрасываем null
-        // вместо uFull, так что все границы железобетонно считаются нулевыми (strict
-        // zero).
-        if (this.kXFull != null) {
-            Stencil.applyDivKGradInterior(grid, x, null, kXFull, kYFull, tempLx);
-        } else {
-            Stencil.applyLaplacianInterior(grid, x, null, tempLx);
-        }
-
-        // 2. y = x - factor * Lx (Собираем итоговую правую часть оператора)
-        // Делаем в один заход через saxpy стайл: y[i] = x[i] - factor * tempLx[i]
-        pdelab.core.ParallelVectorOps.addScaled(x, -factor, tempLx, y);
+        if (layout != null) {
+            Stencil.applyImplicitInteriorNoDot(layout, factor, x, kXFull, kYFull, y);
+            return;
+        }
+        if (KernelFactory.isEnabled()) {
+            kernel().apply(x, y);
+            return;
+        }
+        Stencil.applyImplicitInteriorNoDot(grid, factor, x, kXFull, kYFull, y);
+    }
+
+    /**
+     * То же, что multiply, плюс x · y, свернутый в тот же проход (pAp для CG/PCG).
+     */
+    @Override
+    public double multiplyDot(double[] x, double[] y) {
+        if (layout != null) {
+            return Stencil.applyImplicitInterior(layout, factor, x, kXFull, kYFull, y);
+        }
+        if (KernelFactory.isEnabled()) {
+            return kernel().applyImplicit(x, y);
+        }
+        return Stencil.applyImplicitInterior(grid, factor, x, kXFull, kYFull, y);
+    }
+
+    private StencilKernel kernel() {
+        if (kernel == null) {
+            kernel = KernelFactory.implicit(grid, factor, kXFull, kYFull);
+        }
+        return kernel;
+    }
+
+    /**
+     * Шаг взвешенного Якоби по этому оператору: out = z + omega * (rhs - A z) / diag, одним тайловым
+     * проходом без промежуточного A z.
+     */
+    public void jacobiSweep(double[] z, double[] rhs, double[] diag, double omega, double[] out) {
+        requireRowMajor();
+        Stencil.jacobiSweepInterior(grid, factor, kXFull, kYFull, z, rhs, diag, omega, out);
+    }
+
+    /**
+     * sweeps шагов Якоби за один проход по памяти (temporal blocking), результат в out.
+     */
+    public void jacobiSweeps(double[] z, double[] rhs, double[] diag, double omega, int sweeps, double[] out) {
+        requireRowMajor();
+        Stencil.jacobiSweepsInterior(grid, factor, kXFull, kYFull, z, rhs, diag, omega, sweeps, out);
+    }
+
+    // Сглаживатели MG живут на row-major уровнях (рестрикция/продолжение индексные)
+    private void requireRowMajor() {
+        if (layout != null) {
+            throw new IllegalStateException("Свипы Якоби только для row-major оператора");
+        }
     }
 }
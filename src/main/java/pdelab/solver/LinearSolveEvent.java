@@ -0,0 +1,32 @@
+package pdelab.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR-событие на один solve линейного солвера внутри шага (фоллбэк MINRES - отдельным событием).
+ */
+@Name(LinearSolveEvent.NAME)
+@Label("Linear Solve")
+@Category({ "PDE-LAB", "Solver" })
+@StackTrace(false)
+public final class LinearSolveEvent extends jdk.jfr.Event {
+    public static final String NAME = "pdelab.LinearSolve";
+
+    @Label("Solver")
+    String solver;
+
+    @Label("Status")
+    String status;
+
+    @Label("Iterations")
+    int iterations;
+
+    @Label("Absolute Residual")
+    double absResidual;
+
+    @Label("Relative Residual")
+    double relResidual;
+}
@@ -9,4 +9,12 @@ public interface LinearSolver {
     }
 
     SolveResult solve(MatrixOperator A, Preconditioner M, double[] b, double[] x);
+
+    /**
+     * Перенастраивает относительную толерантность ||r|| / ||b|| перед следующим solve.
+     * Нужно inexact Newton'у: forcing term меняется на каждой Newton-итерации.
+     * По умолчанию no-op: солвер с зашитой толерантностью просто решает как решал.
+     */
+    default void setTolerance(double tol) {
+    }
 }
@@ -2,6 +2,7 @@ package pdelab.solver;
 
 import pdelab.core.Grid2D;
 import pdelab.core.ParallelExecutor;
+import pdelab.core.ParallelVectorOps;
 import pdelab.core.Stencil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,43 +38,15 @@ public class MGPreconditioner implements Preconditioner {
             this.res = new double[nInt];
             this.kFull = kFull;
 
-            double[] tempLxInt = new double[nInt];
             if (this.kFull != null) {
                 this.kXFull = new double[grid.size()];
                 this.kYFull = new double[grid.size()];
                 Stencil.precomputeDiffusivityArrays(grid, kFull, kXFull, kYFull, "HARMONIC");
             }
-            this.A = new ImplicitMatrix(grid, factor, tempLxInt, kXFull, kYFull);
+            this.A = new ImplicitMatrix(grid, factor, kXFull, kYFull);
 
-            // Заранее считаем диагональ Якоби, чтоб потом не потеть в хот-лупе
-            this.diagA = new double[nInt];
-            updateDiagonal();
-        }
-
-        public void updateDiagonal() {
-            int inX = grid.inX();
-            int inY = grid.inY();
-            int nx = grid.Nx();
-            double ihx2 = grid.ihx2();
-            double ihy2 = grid.ihy2();
-
-            for (int j = 0; j < inY; j++) {
-                int globalJ = j + 1;
-                for (int i = 0; i < inX; i++) {
-                    int globalI = i + 1;
-                    int globalIdx = grid.idx(globalI, globalJ);
-                    int intIdx = j * inX + i;
-
-                    double lDiag;
-                    if (kXFull != null) {
-                        lDiag = -(kXFull[globalIdx] + kXFull[globalIdx - 1])
-                                - (kYFull[globalIdx] + kYFull[globalIdx - nx]);
-                    } else {
-                        lDiag = -2.0 * (ihx2 + ihy2);
-                    }
-                    diagA[intIdx] = 1.0 - factor * lDiag;
-                }
-            }
+            // Диагональ Якоби - живой массив из собранных коэффициентов A, updateFactor ее и двигает
+            this.diagA = A.coefficients().diagonal();
         }
     }
 
@@ -125,7 +98,6 @@ public class MGPreconditioner implements Preconditioner {
         for (Level l : levels) {
             l.factor = factor;
             l.A.updateFactor(factor);
-            l.updateDiagonal();
         }
     }
 
@@ -189,16 +161,15 @@ public class MGPreconditioner implements Preconditioner {
     }
 
     private void smooth(int l, double[] rhs, double[] z, int iters) {
-        Level lvl = levels.get(l);
-        double[] tempAx = lvl.res; // переиспользуем буфер для A*x (zero-allocation)
-
-        for (int it = 0; it < iters; it++) {
-            Arrays.fill(tempAx, 0.0);
-            lvl.A.multiply(z, tempAx);
-            for (int i = 0; i < z.length; i++) {
-                z[i] += OMEGA * (rhs[i] - tempAx[i]) / lvl.diagA[i];
-            }
+        if (iters <= 0) {
+            return;
         }
+        Level lvl = levels.get(l);
+        // Temporal blocking: все iters свипов Якоби за один проход по уровню (wavefront по строкам),
+        // вместо iters раз гонять весь уровень через память. Якоби не in-place - результат
+        // приземляется в lvl.res (zero-allocation) и одним копированием уезжает в z
+        lvl.A.jacobiSweeps(z, rhs, lvl.diagA, OMEGA, iters, lvl.res);
+        ParallelVectorOps.copy(lvl.res, z);
     }
 
     private void restrict(Grid2D fine, double[] r_h, Grid2D coarse, double[] r_H) {
@@ -17,7 +17,7 @@ public class MINRESFallback implements LinearSolver {
     private static final Logger log = LoggerFactory.getLogger(MINRESFallback.class);
 
     private final int maxIters;
-    private final double tol;
+    private double tol;
 
     private final double[] r;
     private final double[] z;
@@ -35,6 +35,11 @@ public class MINRESFallback implements LinearSolver {
         this.w = new double[n];
     }
 
+    @Override
+    public void setTolerance(double tol) {
+        this.tol = tol;
+    }
+
     @Override
     public SolveResult solve(MatrixOperator A, Preconditioner M, double[] b, double[] x) {
         log.info("Врубаем MINRES/CGNR фоллбэк: матрица indefinite (чуть не улетели).");
@@ -1,9 +1,20 @@
 package pdelab.solver;
 
+import pdelab.core.ParallelVectorOps;
+
 public interface MatrixOperator {
     /**
      * Прогоняем линейный оператор A по вектору x, выплевываем в y.
      * y = A * x
      */
     void multiply(double[] x, double[] y);
+
+    /**
+     * y = A * x плюс x · y. PCG берет отсюда pAp; операторы, умеющие свернуть dot в тот же проход
+     * по памяти (ImplicitMatrix), переопределяют.
+     */
+    default double multiplyDot(double[] x, double[] y) {
+        multiply(x, y);
+        return ParallelVectorOps.dot(x, y);
+    }
 }
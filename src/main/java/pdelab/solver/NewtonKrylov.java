@@ -12,19 +12,87 @@ import org.slf4j.LoggerFactory;
  * без изнурительной сборки матрицы Якобиана J.
  * Вместо этого профит от J*v апроксимируем через finite differences: J*v \approx
  * (F(u + \epsilon v) - F(u)) / \epsilon.
+ * Все рабочие массивы и оператор J*v живут в полях и аллоцируются один раз в конструкторе,
+ * так что Newton-луп (и line search внутри) GC не будит.
+ * Если F умеет в точный J*v (реализует {@link AnalyticJacobian}), FD не трогаем вообще;
+ * плюс есть Jacobian lagging - одна линеаризация живет несколько Newton-шагов.
  */
 public class NewtonKrylov {
     private static final Logger log = LoggerFactory.getLogger(NewtonKrylov.class);
 
+    // Рестарт GMRES по умолчанию: 30 векторов базиса - стандартный компромисс память/сходимость
+    private static final int DEFAULT_GMRES_RESTART = 30;
+
+    private static final double ARMIJO_C = 1e-4; // Armijo constant
+    private static final double BACKTRACK_TAU = 0.5; // Backtrack shrink factor
+    private static final int MAX_LINE_SEARCH = 10;
+
+    // Eisenstat-Walker (1996): константы и safeguards из оригинальной статьи
+    private static final double ETA_MAX = 0.9; // Выше смысла нет - Крылов вообще ничего не решает
+    private static final double ETA_INITIAL = 0.5; // eta_0: первая линеаризация все равно кривая
+    private static final double EW1_ALPHA = 0.5 * (1.0 + Math.sqrt(5.0)); // Золотое сечение для choice 1
+    private static final double EW2_GAMMA = 0.9;
+    private static final double EW2_ALPHA = 2.0;
+    private static final double EW_SAFEGUARD_THRESHOLD = 0.1;
+
+    /**
+     * Какой Крылов крутит внутреннюю задачу J * delta_u = -F(u).
+     * Якобиан JFNK в общем случае несимметричен, так что PCG тут - чисто для SPD-частных случаев.
+     */
+    public enum KrylovMethod {
+        PCG,
+        GMRES,
+        BICGSTAB
+    }
+
+    /**
+     * Как выбирать forcing term eta_k (относительную толерантность внутреннего Крылова).
+     * CONSTANT - старое поведение: всегда krylovTol из конструктора (оверсолвим ранние шаги).
+     * EISENSTAT_WALKER_1/2 - адаптивные choice 1 и choice 2 из Eisenstat & Walker (1996).
+     */
+    public enum ForcingTerm {
+        CONSTANT,
+        EISENSTAT_WALKER_1,
+        EISENSTAT_WALKER_2
+    }
+
+    /**
+     * Стата последнего solve: сколько Ньютона, сколько Крылова и сколько раз дернули F.
+     * residualEvaluations - все F.evaluate (включая FD J*v), jacobianVectorEvaluations - вызовы
+     * аналитического J*v, linearizations - сколько раз реально перепинили точку линеаризации.
+     */
+    public record SolveStats(int newtonIterations, int krylovIterations, int residualEvaluations,
+            int jacobianVectorEvaluations, int linearizations, boolean converged, double finalResidualNorm) {
+    }
+
     private final Grid2D grid;
     private final int maxNewtonIters;
     private final double newtonTol;
+    private final double krylovTol;
+    private ForcingTerm forcingTerm = ForcingTerm.CONSTANT;
+    private int jacobianLag = 1;
+    private SolveStats lastStats = new SolveStats(0, 0, 0, 0, 0, false, Double.NaN);
+
+    // Внутренний солвер чисто для подзадачи Крылова
+    private final LinearSolver innerKrylovSolver;
+
+    // Прекондей на Якобиан (например MG на линеаризованной диффузии). Для GMRES/BiCGStab он правый.
+    private final Preconditioner preconditioner;
+
+    // Рабочие массивы (строго numInterior), живут весь лайфтайм солвера
+    private final double[] F_u; // Base numerical residual F(u)
+    private final double[] delta_u; // The Newton update search direction
+    private final double[] rhs; // Таргет RHS для Крылова: -F(u)
+    private final double[] u_candidate;
+    private final double[] F_candidate;
+    private final double[] u_lin; // Замороженная точка линеаризации (только при jacobianLag > 1)
+    private final double[] F_lin;
 
-    // Внутренний PCG чисто для подзадачи Крылова
-    private final PCG innerKrylovSolver;
+    private final JacobianOperator jacobianOp;
 
     /**
      * Functional interface representing the non-linear residual evaluator F(u).
+     * Точный J*v опционален: его дает {@link AnalyticJacobian}, иначе солвер крутит конечные разности.
      */
     public interface NonLinearFunction {
         /**
@@ -33,143 +101,337 @@ public class NewtonKrylov {
         void evaluate(double[] u, double[] F_u);
     }
 
+    /**
+     * F, который умеет в точный J*v: солвер видит его по instanceof и FD не трогает вообще.
+     */
+    public interface AnalyticJacobian extends NonLinearFunction {
+        /**
+         * Хук на смену точки линеаризации: тут можно один раз закэшить коэффициенты J(u)
+         * (например exp(u) для реакции), чтобы каждый J*v был чисто стенсилом.
+         * Дергается только при честном перепине, с лагом - раз в несколько Newton-шагов.
+         */
+        default void linearize(double[] u) {
+        }
+
+        /**
+         * out = J(u) * v, точная производная по направлению. u - точка последнего {@link #linearize}.
+         */
+        void jacobianVector(double[] u, double[] v, double[] out);
+    }
+
+    /**
+     * Тупой identity-прекондей, когда юзер ничего не подсунул.
+     */
+    private static final Preconditioner IDENTITY = new Preconditioner() {
+        @Override
+        public void apply(double[] r, double[] z) {
+            VectorOps.copy(r, z);
+        }
+
+        @Override
+        public void updateFactor(double factor) {
+        }
+    };
+
+    /**
+     * J*v вокруг запиненной точки линеаризации: аналитически, если F умеет, иначе конечными разностями.
+     * Точка (u, F(u)) и ||u|| пинятся через set() один раз на линеаризацию, а не пересчитываются
+     * на каждом матвеке Крылова.
+     */
+    private static class JacobianOperator implements MatrixOperator {
+        private final double[] u_plus_eps_v;
+        private final double[] F_u_plus_eps_v;
+
+        NonLinearFunction F;
+        AnalyticJacobian analytic; // null - J*v конечными разностями
+        double[] u;
+        double[] F_u;
+        double uNorm;
+        int evaluations; // Сколько F.evaluate ушло на FD J*v (копится за весь solve)
+        int jvEvaluations; // Сколько раз дернули аналитический J*v
+
+        JacobianOperator(int n) {
+            this.u_plus_eps_v = new double[n];
+            this.F_u_plus_eps_v = new double[n];
+        }
+
+        void set(NonLinearFunction F, double[] u, double[] F_u, double uNorm) {
+            this.F = F;
+            this.u = u;
+            this.F_u = F_u;
+            this.uNorm = uNorm;
+            this.analytic = F instanceof AnalyticJacobian a ? a : null;
+        }
+
+        @Override
+        public void multiply(double[] in, double[] out) {
+            if (analytic != null) {
+                analytic.jacobianVector(u, in, out);
+                jvEvaluations++;
+                return;
+            }
+
+            // \epsilon - это микро-возмущение (perturbation) для аппроксимации.
+            // Sophisticated JFNK scales \epsilon by ||u|| to prevent floating point
+            // cancellation.
+            double vNorm = ParallelVectorOps.normL2(in);
+            if (vNorm == 0) {
+                java.util.Arrays.fill(out, 0.0);
+                return;
+            }
+
+            double b = 1e-8; // Machine eps sqrt
+            double eps = b * (1.0 + uNorm) / vNorm;
+
+            // Считаем матан (тут греем проц) F(u + \epsilon v)
+            ParallelVectorOps.addScaled(u, eps, in, u_plus_eps_v);
+            F.evaluate(u_plus_eps_v, F_u_plus_eps_v);
+            evaluations++;
+
+            // J*v \approx (F(u + \epsilon v) - F(u)) / \epsilon, одним проходом
+            double inv_eps = 1.0 / eps;
+            ParallelVectorOps.addScaled(F_u_plus_eps_v, -1.0, F_u, out);
+            ParallelVectorOps.scale(inv_eps, out, out);
+        }
+    }
+
     public NewtonKrylov(Grid2D grid, int maxNewtonIters, double newtonTol, int maxKrylovIters, double krylovTol) {
+        this(grid, maxNewtonIters, newtonTol, maxKrylovIters, krylovTol, KrylovMethod.PCG);
+    }
+
+    public NewtonKrylov(Grid2D grid, int maxNewtonIters, double newtonTol, int maxKrylovIters, double krylovTol,
+            KrylovMethod method) {
+        this(grid, maxNewtonIters, newtonTol, maxKrylovIters, krylovTol, method, null);
+    }
+
+    /**
+     * @param preconditioner Прекондей на Якобиан (null = identity). Для GMRES/BiCGStab применяется справа,
+     *                       так что критерий остановки Крылова меряет честную невязку J*du + F.
+     */
+    public NewtonKrylov(Grid2D grid, int maxNewtonIters, double newtonTol, int maxKrylovIters, double krylovTol,
+            KrylovMethod method, Preconditioner preconditioner) {
         this.grid = grid;
         this.maxNewtonIters = maxNewtonIters;
         this.newtonTol = newtonTol;
-        this.innerKrylovSolver = new PCG(grid, maxKrylovIters, krylovTol);
+        this.krylovTol = krylovTol;
+        this.innerKrylovSolver = switch (method) {
+            case GMRES -> new GMRES(grid, Math.min(DEFAULT_GMRES_RESTART, maxKrylovIters), maxKrylovIters,
+                    krylovTol);
+            case BICGSTAB -> new BiCGStab(grid, maxKrylovIters, krylovTol);
+            case PCG -> new PCG(grid, maxKrylovIters, krylovTol);
+        };
+        this.preconditioner = preconditioner != null ? preconditioner : IDENTITY;
+
+        int nInt = grid.numInterior();
+        this.F_u = new double[nInt];
+        this.delta_u = new double[nInt];
+        this.rhs = new double[nInt];
+        this.u_candidate = new double[nInt];
+        this.F_candidate = new double[nInt];
+        this.u_lin = new double[nInt];
+        this.F_lin = new double[nInt];
+        this.jacobianOp = new JacobianOperator(nInt);
+    }
+
+    /**
+     * Врубает адаптивные forcing terms. krylovTol из конструктора остается нижней планкой eta.
+     */
+    public void setForcingTerm(ForcingTerm forcingTerm) {
+        this.forcingTerm = forcingTerm;
+    }
+
+    /**
+     * Jacobian lagging: одна линеаризация (точка для J*v + F.linearize) живет lag Newton-шагов.
+     * 1 = честный Ньютон на каждом шаге. Больше - дешевле шаг, но сходимость падает до линейной;
+     * если line search на протухшем Якобиане не нашел спуск, перепиниваемся досрочно.
+     */
+    public void setJacobianLag(int lag) {
+        if (lag < 1) {
+            throw new IllegalArgumentException("Jacobian lag обязан быть >= 1, а прилетело " + lag);
+        }
+        this.jacobianLag = lag;
+    }
+
+    public SolveStats getLastSolveStats() {
+        return lastStats;
     }
 
     /**
      * Решаем нелинейку F(u) = 0 через JFNK (плюс Backtracking Line Search для страховки)
      * Search.
-     * 
+     *
      * @param F The non-linear residual function.
      * @param u The solution vector (in/out: provides initial guess, returns final
      *          solution).
      * @return Number of total Newton iterations.
      */
     public int solve(NonLinearFunction F, double[] u) {
-        int nInt = grid.numInterior();
-        double[] F_u = new double[nInt]; // Base numerical residual F(u)
-        double[] delta_u = new double[nInt]; // The Newton update search direction
-
-        // Темповые массивы для JFNK внутри PCG (чтобы памяти не натекло)
-        double[] u_plus_eps_v = new double[nInt];
-        double[] F_u_plus_eps_v = new double[nInt];
+        // Принятый шаг line search уже посчитал F(u_new) - переиспользуем, а не дергаем F заново
+        boolean residualValid = false;
+        int residualEvals = 0;
+        int krylovIters = 0;
+        int linearizations = 0;
+        int lastLinearization = -1;
+        jacobianOp.evaluations = 0;
+        jacobianOp.jvEvaluations = 0;
 
-        // Таргет RHS для PCG (собираем линейную систему J * \Delta u = -F(u))
-        double[] rhs = new double[nInt];
+        // История для Eisenstat-Walker: ||F_{k-1}||, ||F_{k-1} + J_{k-1} s_{k-1}|| и eta_{k-1}
+        double prevResidualNorm = Double.NaN;
+        double prevLinearResidual = Double.NaN;
+        double eta = ETA_INITIAL;
+        double residualNorm = Double.NaN;
 
         for (int iter = 0; iter < maxNewtonIters; iter++) {
             // 1. Считаем текущую невязку (residual): F(u)
-            F.evaluate(u, F_u);
+            if (!residualValid) {
+                F.evaluate(u, F_u);
+                residualEvals++;
+            }
 
             // Чек на сходимость (пробили толерантность или еще мучаемся?)
-            double residualNorm = ParallelVectorOps.normL2(F_u);
+            residualNorm = ParallelVectorOps.normL2(F_u);
             log.debug("Newton Iter {}: ||F(u)|| = {}", iter, residualNorm);
             if (residualNorm < newtonTol) {
-                log.info("JFNK Converged in {} iterations. Final ||F(u)|| = {}", iter, residualNorm);
+                finish(iter, krylovIters, residualEvals, linearizations, true, residualNorm);
                 return iter;
             }
 
-            // Таргет для PCG - это -F(u)
-            VectorOps.copy(F_u, rhs);
-            ParallelVectorOps.axpy(-2.0, F_u, rhs); // rhs = F_u - 2*F_u = -F_u
-
-            // 2. Зануляем начальное приближение (guess) для PCG
-            java.util.Arrays.fill(delta_u, 0.0);
-
-            // 3. Подрубаем Jacobian-Free оператор умножения матрицы на вектор (J*v)
-            MatrixOperator JFNK_Operator = new MatrixOperator() {
-                @Override
-                public void multiply(double[] in, double[] out) {
-                    // \epsilon - это микро-возмущение (perturbation) для аппроксимации.
-                    // Sophisticated JFNK scales \epsilon by ||u|| to prevent floating point
-                    // cancellation.
-                    double vNorm = ParallelVectorOps.normL2(in);
-                    if (vNorm == 0) {
-                        java.util.Arrays.fill(out, 0.0);
-                        return;
-                    }
-
-                    double uNorm = ParallelVectorOps.normL2(u);
-                    double b = 1e-8; // Machine eps sqrt
-                    double eps = b * (1.0 + uNorm) / vNorm;
+            // 1.5 Forcing term: насколько точно решать линеаризацию на этом шаге
+            if (forcingTerm == ForcingTerm.CONSTANT) {
+                eta = krylovTol;
+            } else if (iter > 0) {
+                eta = nextForcingTerm(eta, residualNorm, prevResidualNorm, prevLinearResidual);
+            }
+            innerKrylovSolver.setTolerance(eta);
 
-                    // Считаем матан (тут греем проц) F(u + \epsilon v)
-                    VectorOps.copy(u, u_plus_eps_v);
-                    ParallelVectorOps.axpy(eps, in, u_plus_eps_v);
-                    F.evaluate(u_plus_eps_v, F_u_plus_eps_v);
+            // Таргет для Крылова - это -F(u)
+            ParallelVectorOps.scale(-1.0, F_u, rhs);
 
-                    // J*v \approx (F(u + \epsilon v) - F(u)) / \epsilon
-                    VectorOps.copy(F_u_plus_eps_v, out);
-                    ParallelVectorOps.axpy(-1.0, F_u, out);
+            // 2. Зануляем начальное приближение (guess) для Крылова
+            java.util.Arrays.fill(delta_u, 0.0);
 
-                    // Scale output by 1/eps
-                    double inv_eps = 1.0 / eps;
-                    for (int i = 0; i < nInt; i++) {
-                        out[i] *= inv_eps;
-                    }
+            // 3. Пиним точку линеаризации: ||u|| считаем один раз на линеаризацию, а не на каждый J*v.
+            // С лагом точку копируем - u и F_u дальше уедут, а Якобиан должен остаться старым.
+            if (lastLinearization < 0 || iter - lastLinearization >= jacobianLag) {
+                double[] uPin = u;
+                double[] FPin = F_u;
+                if (jacobianLag > 1) {
+                    ParallelVectorOps.copy(u, u_lin);
+                    ParallelVectorOps.copy(F_u, F_lin);
+                    uPin = u_lin;
+                    FPin = F_lin;
                 }
-            };
-
-            // 4. Решаем J * delta_u = -F(u) (В идеале с прекондеем, но JFNK пока и
-            // applies Right Preconditioning)
-            // так сжует голый Крылов без прекондея)
-            Preconditioner identityM = new Preconditioner() {
-                @Override
-                public void apply(double[] in, double[] out) {
-                    VectorOps.copy(in, out);
-                }
-
-                @Override
-                public void updateFactor(double factor) {
+                if (F instanceof AnalyticJacobian analytic) {
+                    analytic.linearize(uPin);
                 }
-            };
+                jacobianOp.set(F, uPin, FPin, ParallelVectorOps.normL2(uPin));
+                lastLinearization = iter;
+                linearizations++;
+            }
 
-            LinearSolver.SolveResult pcgRes = innerKrylovSolver.solve(JFNK_Operator, identityM, rhs, delta_u);
-            log.debug("  Inner PCG required {} iters. RelRes: {}", pcgRes.iterations(), pcgRes.relResidual());
+            // 4. Решаем J * delta_u = -F(u) с юзерским прекондеем
+            LinearSolver.SolveResult krylovRes = innerKrylovSolver.solve(jacobianOp, preconditioner, rhs, delta_u);
+            krylovIters += krylovRes.iterations();
+            log.debug("  Inner Krylov required {} iters (eta = {}). RelRes: {}", krylovRes.iterations(), eta,
+                    krylovRes.relResidual());
+            prevResidualNorm = residualNorm;
+            prevLinearResidual = krylovRes.absResidual();
 
             // 5. Жмем Backtracking Line Search (По брутальному правилу Армихо)
             // u_{new} = u + \alpha * delta_u
-            double alpha = 1.0;
-            double c = 1e-4; // Armijo constant
-            double tau = 0.5; // Backtrack shrink factor
-            boolean lineSearchConverged = false;
-
-            double[] u_candidate = new double[nInt];
-            double[] F_candidate = new double[nInt];
-
             // Производная по направлению \nabla F \cdot delta_u апроксимируется. Но мы тупо
             // чекаем ||F(u_new)|| < (1 - \alpha * c) ||F(u)||
-            for (int ls = 0; ls < 10; ls++) {
-                VectorOps.copy(u, u_candidate);
-                ParallelVectorOps.axpy(alpha, delta_u, u_candidate);
+            double alpha = 1.0;
+            residualValid = false;
+            for (int ls = 0; ls < MAX_LINE_SEARCH; ls++) {
+                ParallelVectorOps.addScaled(u, alpha, delta_u, u_candidate);
                 F.evaluate(u_candidate, F_candidate);
+                residualEvals++;
 
                 double candidateNorm = ParallelVectorOps.normL2(F_candidate);
 
-                if (candidateNorm <= (1.0 - alpha * c) * residualNorm) {
+                if (candidateNorm <= (1.0 - alpha * ARMIJO_C) * residualNorm) {
                     // Update accepted
-                    VectorOps.copy(u_candidate, u);
-                    lineSearchConverged = true;
+                    if (alpha < 1.0 && forcingTerm == ForcingTerm.EISENSTAT_WALKER_1) {
+                        prevLinearResidual = dampedLinearResidual(alpha);
+                    }
+                    ParallelVectorOps.copy(u_candidate, u);
+                    ParallelVectorOps.copy(F_candidate, F_u);
+                    residualValid = true;
                     log.debug("  Line Search успешно схавал шаг с alpha = {}", alpha);
                     break;
                 }
 
-                alpha *= tau; // Shrink step
+                alpha *= BACKTRACK_TAU; // Shrink step
             }
 
-            if (!lineSearchConverged) {
+            if (!residualValid) {
                 log.warn("  Line Search не нашел нормального спуска. Форсим фулл шаг Ньютона! (пан или пропал).");
-                VectorOps.copy(u, u_candidate);
-                ParallelVectorOps.axpy(1.0, delta_u, u_candidate);
-                VectorOps.copy(u_candidate, u);
+                ParallelVectorOps.axpy(1.0, delta_u, u);
+                lastLinearization = -1; // Протухший Якобиан мог увести не туда - перепиниваемся
             }
         }
 
+        if (residualValid) {
+            residualNorm = ParallelVectorOps.normL2(F_u);
+        }
         log.warn("JFNK hit max iterations ({}) without full convergence.", maxNewtonIters);
+        finish(maxNewtonIters, krylovIters, residualEvals, linearizations, false, residualNorm);
         return maxNewtonIters;
     }
+
+    /**
+     * ||F(u) + alpha * J s|| - невязка линейной модели на принятом (задемпфированном) шаге, ее choice 1
+     * и сравнивает с новой ||F||. Зовется до того, как F_u перезапишут: один J*v на урезанный шаг
+     * (rhs уже не нужен Крылову, он и есть буфер).
+     */
+    private double dampedLinearResidual(double alpha) {
+        jacobianOp.multiply(delta_u, rhs);
+        ParallelVectorOps.addScaled(F_u, alpha, rhs, rhs);
+        return ParallelVectorOps.normL2(rhs);
+    }
+
+    /**
+     * eta_k по Eisenstat-Walker с классическими safeguards:
+     * не даем eta резко упасть (eta_{k-1}^alpha > 0.1), режем сверху ETA_MAX и не решаем точнее,
+     * чем реально надо для финального newtonTol (oversolving на последнем шаге).
+     */
+    private double nextForcingTerm(double etaPrev, double residualNorm, double prevResidualNorm,
+            double prevLinearResidual) {
+        double eta;
+        if (forcingTerm == ForcingTerm.EISENSTAT_WALKER_1) {
+            // Choice 1: насколько линейная модель соврала про новую невязку. prevLinearResidual -
+            // модель на реально принятом шаге (line search мог его урезать), а не на полном
+            eta = Math.abs(residualNorm - prevLinearResidual) / prevResidualNorm;
+            double guard = Math.pow(etaPrev, EW1_ALPHA);
+            if (guard > EW_SAFEGUARD_THRESHOLD) {
+                eta = Math.max(eta, guard);
+            }
+        } else {
+            // Choice 2: по скорости падения нелинейной невязки
+            double ratio = residualNorm / prevResidualNorm;
+            eta = EW2_GAMMA * Math.pow(ratio, EW2_ALPHA);
+            double guard = EW2_GAMMA * Math.pow(etaPrev, EW2_ALPHA);
+            if (guard > EW_SAFEGUARD_THRESHOLD) {
+                eta = Math.max(eta, guard);
+            }
+        }
+        if (Double.isNaN(eta)) {
+            eta = ETA_MAX;
+        }
+        eta = Math.min(eta, ETA_MAX);
+        eta = Math.max(eta, 0.5 * newtonTol / residualNorm);
+        return Math.min(ETA_MAX, Math.max(eta, krylovTol));
+    }
+
+    private void finish(int newtonIters, int krylovIters, int residualEvals, int linearizations,
+            boolean converged, double residualNorm) {
+        int totalEvals = residualEvals + jacobianOp.evaluations;
+        lastStats = new SolveStats(newtonIters, krylovIters, totalEvals, jacobianOp.jvEvaluations, linearizations,
+                converged, residualNorm);
+        if (converged) {
+            log.info("JFNK Converged in {} iterations ({} Krylov iters, {} F-evals, {} Jv-evals). Final ||F(u)|| = {}",
+                    newtonIters, krylovIters, totalEvals, jacobianOp.jvEvaluations, residualNorm);
+        }
+    }
 }
@@ -16,7 +16,7 @@ public class PCG implements LinearSolver {
     private static final Logger log = LoggerFactory.getLogger(PCG.class);
 
     private final int maxIters;
-    private final double tol;
+    private double tol;
 
     private final double[] r;
     private final double[] z;
@@ -35,6 +35,11 @@ public class PCG implements LinearSolver {
         this.Ap = new double[n];
     }
 
+    @Override
+    public void setTolerance(double tol) {
+        this.tol = tol;
+    }
+
     /**
      * Решаем СЛАУ.
      * Итерации мутируют массив 'x' in place (мутабельность тут во благо перфа).
@@ -72,9 +77,8 @@ public class PCG implements LinearSolver {
         double rz = ParallelVectorOps.dot(r, z);
 
         for (int k = 1; k <= maxIters; k++) {
-            A.multiply(p, Ap);
-
-            double pAp = ParallelVectorOps.dot(p, Ap);
+            // pAp сворачивается в тот же проход, что и Ap (у ImplicitMatrix - фьюзнутый стенсил)
+            double pAp = A.multiplyDot(p, Ap);
             if (pAp <= 0.0) {
                 log.error(
                         "Матрица не является симметричной положительно определенной (Not SPD)! Архитектор будет в ярости. pAp = {}",
@@ -0,0 +1,25 @@
+package pdelab.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-событие на сборку предобуславливателя: в конструкторе степпера и на каждом setDt
+ * (updateFactor пересобирает диагонали / уровни MG).
+ */
+@Name(PreconditionerSetupEvent.NAME)
+@Label("Preconditioner Setup")
+@Category({ "PDE-LAB", "Solver" })
+public final class PreconditionerSetupEvent extends jdk.jfr.Event {
+    public static final String NAME = "pdelab.PreconditionerSetup";
+
+    @Label("Preconditioner")
+    String preconditioner;
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Factor")
+    double factor;
+}
@@ -0,0 +1,29 @@
+package pdelab.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR-событие на один TimeStepper.step (длительность - весь шаг).
+ */
+@Name(TimeStepEvent.NAME)
+@Label("Time Step")
+@Category({ "PDE-LAB", "Solver" })
+@StackTrace(false)
+public final class TimeStepEvent extends jdk.jfr.Event {
+    public static final String NAME = "pdelab.TimeStep";
+
+    @Label("Time")
+    double t;
+
+    @Label("Step Size")
+    double dt;
+
+    @Label("Scheme")
+    String scheme;
+
+    @Label("Krylov Iterations")
+    int iterations;
+}
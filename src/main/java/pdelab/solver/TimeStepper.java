@@ -1,11 +1,12 @@
 package pdelab.solver;
 
 import pdelab.core.Grid2D;
-import pdelab.core.VectorOps;
+import pdelab.core.Histogram;
 import pdelab.core.ParallelVectorOps;
 import pdelab.core.Stencil;
 import pdelab.core.MMS;
 import pdelab.core.BoundaryOperator;
+import pdelab.core.PaddedField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,6 +15,10 @@ import pdelab.core.VectorField;
 /**
  * Отдувается за весь основной луп по времени (Time Loop). Вывозит весь движ.
  * Хот-луп без аллокаций (GC спит), всё хардкорно переиспользуется.
+ * Каждая фаза step() меряется System.nanoTime в заранее выделенные счетчики и гистограммы
+ * (см. Phase): пара десятков наносекунд на шаг, зато видно, что пилить на этой конфигурации.
+ * Плюс JFR-события (TimeStepEvent, LinearSolveEvent, PreconditionerSetupEvent): без записи
+ * shouldCommit() == false, а сами объекты C2 разбирает на скаляры.
  */
 public class TimeStepper {
     private static final Logger log = LoggerFactory.getLogger(TimeStepper.class);
@@ -24,22 +29,44 @@ public class TimeStepper {
         IMEX
     }
 
+    /**
+     * Фазы шага. Не пересекаются и в сумме дают весь step(): PRECONDITIONER выкусывается из SOLVE.
+     */
+    public enum Phase {
+        /** mms.evaluateForcing на фулл-сетке. */
+        FORCING,
+        /** Граничные условия на t^n в гало стейта. */
+        BOUNDARY,
+        /** Явная часть: стенсил/axpy в rhs, IMEX-конвекция, начальный guess. */
+        RHS,
+        /** Гало на t^{n+1} и вклад границ factor * L_bnd(u_bnd) в rhs. */
+        LIFTING,
+        /** Крылов (PCG, при FAIL_NON_SPD еще и MINRES) без предобуславливателя. */
+        SOLVE,
+        /** M^-1 r внутри солвера. */
+        PRECONDITIONER,
+        /** Решенное нутро обратно в паддед-стейт. */
+        COPY_BACK
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
     private final Grid2D grid;
     private final Scheme scheme;
     private final double alpha;
     private double dt;
 
-    // Core state (Фулл сетки)
-    private final double[] u;
-    private final double[] uNext;
-    private final double[] fFull; // для замера аналитики MMS
+    // Core state: паддед-поля (гало = граница), нутро читается страйдом прямо из них
+    private final PaddedField u;
+    private final PaddedField f; // форсинг MMS
 
-    // Темповские массивы для сборки RHS (Строго под Внутренние узлы)
-    private final double[] uInt;
+    // Плотные вектора под Крылова (Строго под Внутренние узлы)
     private final double[] uNextInt;
-    private final double[] fCurrentInt;
     private final double[] rhsInt;
     private final double[] tempLxInt;
+    // uNextInt = нутро u (решение прошлого шага) - готовый начальный guess без gather. Сбрасывается,
+    // когда u могли переписать снаружи (initExact, restoreState, getU)
+    private boolean guessStale = true;
     private final double[] kFull;
     private final double[] kXFull;
     private final double[] kYFull;
@@ -56,6 +83,37 @@ public class TimeStepper {
     private double maxAbsResidual = 0.0;
     private double maxRelResidual = 0.0;
 
+    // Тайминги: суммы по фазам, распределения по шагам (все выделено в конструкторе)
+    private final long[] phaseNanos = new long[PHASES.length];
+    private final long[] stepPhaseNanos = new long[PHASES.length];
+    private final Histogram[] phaseLatency = new Histogram[PHASES.length];
+    private final Histogram stepLatency = new Histogram();
+    private final TimedPreconditioner timedM;
+
+    /**
+     * Засекает каждый apply() предобуславливателя: солвер зовет его раз на итерацию.
+     */
+    private static final class TimedPreconditioner implements Preconditioner {
+        private final Preconditioner inner;
+        long nanos;
+
+        TimedPreconditioner(Preconditioner inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public void apply(double[] r, double[] z) {
+            long t0 = System.nanoTime();
+            inner.apply(r, z);
+            nanos += System.nanoTime() - t0;
+        }
+
+        @Override
+        public void updateFactor(double factor) {
+            inner.updateFactor(factor);
+        }
+    }
+
     public TimeStepper(Grid2D grid, Scheme scheme, double alpha, double dt, int maxIters, double tol,
             BoundaryOperator boundaryOperator) {
         this(grid, scheme, alpha, dt, maxIters, tol, null, null, boundaryOperator, null);
@@ -79,15 +137,12 @@ public class TimeStepper {
         this.dt = dt;
 
         int nFull = grid.size();
-        this.u = new double[nFull];
-        this.uNext = new double[nFull];
-        this.fFull = new double[nFull];
+        this.u = new PaddedField(grid);
+        this.f = new PaddedField(grid);
 
         int nInt = grid.numInterior();
-        this.uInt = new double[nInt];
         this.uNextInt = new double[nInt];
         this.rhsInt = new double[nInt];
-        this.fCurrentInt = new double[nInt];
         this.tempLxInt = new double[nInt];
 
         double factor = scheme == Scheme.CRANK_NICOLSON ? (dt * alpha * 0.5) : (dt * alpha);
@@ -153,21 +208,32 @@ public class TimeStepper {
 
         this.linearSolver = new PCG(grid, maxIters, tol);
         this.fallbackSolver = new MINRESFallback(grid, maxIters, tol);
-        this.A = new ImplicitMatrix(grid, factor, tempLxInt, kXFull, kYFull);
+        this.A = new ImplicitMatrix(grid, factor, kXFull, kYFull);
 
+        PreconditionerSetupEvent setup = new PreconditionerSetupEvent();
+        setup.begin();
         if ("SSOR".equalsIgnoreCase(precondType)) {
             // Для SSOR омега=1.5 — это классика жанра (золотое сечение)
-            this.M = new SSORPreconditioner(grid, factor, 1.5, kFull);
+            this.M = new SSORPreconditioner(A.coefficients(), 1.5);
         } else if ("MG".equalsIgnoreCase(precondType)) {
             this.M = new MGPreconditioner(grid, factor, kFull);
         } else {
-            this.M = new JacobiPreconditioner(grid, factor, kFull);
+            this.M = new JacobiPreconditioner(A.coefficients());
         }
+        commitSetup(setup, "init", factor);
         this.boundaryOperator = boundaryOperator;
+        this.timedM = new TimedPreconditioner(M);
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseLatency[p] = new Histogram();
+        }
     }
 
+    /**
+     * Живой фулл-массив стейта (гало + нутро). Писать можно: следующий step() перечитает нутро.
+     */
     public double[] getU() {
-        return u;
+        guessStale = true;
+        return u.data();
     }
 
     public double getDt() {
@@ -178,15 +244,41 @@ public class TimeStepper {
         this.dt = newDt;
         double factor = scheme == Scheme.CRANK_NICOLSON ? (dt * alpha * 0.5) : (dt * alpha);
         A.updateFactor(factor);
+        PreconditionerSetupEvent setup = new PreconditionerSetupEvent();
+        setup.begin();
         M.updateFactor(factor);
+        commitSetup(setup, "updateFactor", factor);
+    }
+
+    private void commitSetup(PreconditionerSetupEvent setup, String reason, double factor) {
+        setup.end();
+        if (setup.shouldCommit()) {
+            setup.preconditioner = M.getClass().getSimpleName();
+            setup.reason = reason;
+            setup.factor = factor;
+            setup.commit();
+        }
+    }
+
+    private static void commitSolve(LinearSolveEvent event, LinearSolver solver, LinearSolver.SolveResult result) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.solver = solver.getClass().getSimpleName();
+            event.status = result.status().name();
+            event.iterations = result.iterations();
+            event.absResidual = result.absResidual();
+            event.relResidual = result.relResidual();
+            event.commit();
+        }
     }
 
     public void copyState(double[] dest) {
-        System.arraycopy(u, 0, dest, 0, grid.size());
+        System.arraycopy(u.data(), 0, dest, 0, grid.size());
     }
 
     public void restoreState(double[] src) {
-        System.arraycopy(src, 0, u, 0, grid.size());
+        System.arraycopy(src, 0, u.data(), 0, grid.size());
+        guessStale = true;
     }
 
     public long getTotalPcgIters() {
@@ -201,70 +293,121 @@ public class TimeStepper {
         return maxRelResidual;
     }
 
+    /**
+     * Суммарное время фазы по всем шагам (включая откаченные адаптивом).
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Распределение времени фазы по шагам. Живой объект - не писать.
+     */
+    public Histogram getPhaseLatency(Phase phase) {
+        return phaseLatency[phase.ordinal()];
+    }
+
+    /**
+     * Распределение длительности целого step(). Живой объект - не писать.
+     */
+    public Histogram getStepLatency() {
+        return stepLatency;
+    }
+
+    private void charge(Phase phase, long from, long to) {
+        stepPhaseNanos[phase.ordinal()] += to - from;
+    }
+
     public void initExact(double t, MMS mms) {
-        mms.evaluateExact(grid, t, u);
+        mms.evaluateExact(grid, t, u.data());
+        guessStale = true;
     }
 
     public void step(double t, MMS mms) {
-        // 1. Считаем форсинг на ФУЛЛ сетке, потом выкусываем во ВНУТРЕННЮЮ
+        java.util.Arrays.fill(stepPhaseNanos, 0L);
+        TimeStepEvent stepEvent = new TimeStepEvent();
+        stepEvent.begin();
+        long start = System.nanoTime();
+
+        // 1. Считаем форсинг на ФУЛЛ сетке; нутро потом читается страйдом прямо при сборке RHS
         if (scheme == Scheme.CRANK_NICOLSON) {
-            mms.evaluateForcing(grid, t + dt * 0.5, fFull);
+            mms.evaluateForcing(grid, t + dt * 0.5, f.data());
         } else {
-            mms.evaluateForcing(grid, t + dt, fFull);
+            mms.evaluateForcing(grid, t + dt, f.data());
         }
-        grid.extractInterior(fFull, fCurrentInt);
+        long mark = System.nanoTime();
+        charge(Phase.FORCING, start, mark);
 
-        // 2. Готовим стейт (убираем мусор с краев)
-        boundaryOperator.apply(grid, u, t);
-        grid.extractInterior(u, uInt);
+        // 2. Готовим стейт: гало = границы на t^n
+        boundaryOperator.apply(grid, u.data(), t);
+        long now = System.nanoTime();
+        charge(Phase.BOUNDARY, mark, now);
+        mark = now;
 
         // 3. Собираем базовую правую часть (RHS) по явной схеме
         if (scheme == Scheme.CRANK_NICOLSON) {
             // rhs = u^n + dt*alpha/2 * L(u^n) + dt f^{n+1/2}
             if (this.kFull != null) {
-                Stencil.applyDivKGradInterior(grid, uInt, u, kXFull, kYFull, tempLxInt);
+                Stencil.applyDivKGradInterior(u, kXFull, kYFull, rhsInt);
             } else {
-                Stencil.applyLaplacianInterior(grid, uInt, u, tempLxInt);
+                Stencil.applyLaplacianInterior(u, rhsInt);
             }
-
-            VectorOps.copy(uInt, rhsInt);
-            ParallelVectorOps.axpy(dt * alpha * 0.5, tempLxInt, rhsInt);
-            ParallelVectorOps.axpy(dt, fCurrentInt, rhsInt);
+            u.xpayInterior(dt * alpha * 0.5, rhsInt);
+            f.axpyInterior(dt, rhsInt);
         } else {
             // BE: rhs = u^n + dt f^{n+1}
-            VectorOps.copy(uInt, rhsInt);
-            ParallelVectorOps.axpy(dt, fCurrentInt, rhsInt);
+            u.gatherInterior(rhsInt);
+            f.axpyInterior(dt, rhsInt);
         }
 
         // 3.5 IMEX Конвекция (считаем явно на шаге t^n)
         if (this.bXFull != null && this.bYFull != null) {
             java.util.Arrays.fill(tempLxInt, 0.0);
-            Stencil.applyConvectionUpwindInterior(grid, uInt, u, bXFull, bYFull, tempLxInt);
+            Stencil.applyConvectionUpwindInterior(u, bXFull, bYFull, tempLxInt);
             ParallelVectorOps.axpy(-dt, tempLxInt, rhsInt); // rhs -= dt * (b \cdot \nabla u)
         }
 
-        // 4. Пробрасываем Граничные Условия будущего шага в RHS
-        // Хитрый финт: вычисляем L(u_future), занулив всё внутри.
-        // Так мы чисто отщипываем влияние границ (factor * L_bnd(u_bnd)). Изящно.
-        double factor = scheme == Scheme.CRANK_NICOLSON ? (dt * alpha * 0.5) : (dt * alpha);
-        boundaryOperator.apply(grid, uNext, t + dt);
-        java.util.Arrays.fill(uNextInt, 0.0);
-        if (this.kFull != null) {
-            Stencil.applyDivKGradInterior(grid, uNextInt, uNext, kXFull, kYFull, tempLxInt);
-        } else {
-            Stencil.applyLaplacianInterior(grid, uNextInt, uNext, tempLxInt);
+        // 4. Начальный guess для СЛАУ - решение прошлого шага, оно и так лежит в uNextInt (чтоб PCG
+        // меньше потел); выкусываем из u, только если стейт подменили снаружи
+        if (guessStale) {
+            u.gatherInterior(uNextInt);
+            guessStale = false;
         }
-        ParallelVectorOps.axpy(factor, tempLxInt, rhsInt);
-
-        // 5. Начальный guess для СЛАУ (берем с предыдущего шага, чтоб PCG меньше потел)
-        VectorOps.copy(uInt, uNextInt);
+        now = System.nanoTime();
+        charge(Phase.RHS, mark, now);
+        mark = now;
+
+        // 5. Пробрасываем Граничные Условия будущего шага в RHS
+        // Гало переписываем сразу на t^{n+1} (нутро u^n уже не нужно явной части, а Нейман/Робин
+        // считают гост-узлы как раз от него). Вклад границ factor * L_bnd(u_bnd) живет только в
+        // приграничной полосе нутра - по ней одной и проходим.
+        double factor = scheme == Scheme.CRANK_NICOLSON ? (dt * alpha * 0.5) : (dt * alpha);
+        boundaryOperator.apply(grid, u.data(), t + dt);
+        Stencil.addBoundaryLift(grid, u.data(), kXFull, kYFull, factor, rhsInt);
+        now = System.nanoTime();
+        charge(Phase.LIFTING, mark, now);
+        mark = now;
 
         // 6. Скармливаем матрицу Решателю (только внутренние узлы!)
-        LinearSolver.SolveResult result = linearSolver.solve(A, M, rhsInt, uNextInt);
+        long precondBefore = timedM.nanos;
+        LinearSolveEvent solveEvent = new LinearSolveEvent();
+        solveEvent.begin();
+        LinearSolver.SolveResult result = linearSolver.solve(A, timedM, rhsInt, uNextInt);
+        commitSolve(solveEvent, linearSolver, result);
+        int iterations = result.iterations();
         if (result.status() == LinearSolver.Status.FAIL_NON_SPD) {
             log.warn("PCG encountered FAIL_NON_SPD (indefinite matrix). Engaging MINRESFallback...");
-            result = fallbackSolver.solve(A, M, rhsInt, uNextInt);
+            LinearSolveEvent fallbackEvent = new LinearSolveEvent();
+            fallbackEvent.begin();
+            result = fallbackSolver.solve(A, timedM, rhsInt, uNextInt);
+            commitSolve(fallbackEvent, fallbackSolver, result);
+            iterations += result.iterations();
         }
+        now = System.nanoTime();
+        long precond = timedM.nanos - precondBefore;
+        stepPhaseNanos[Phase.PRECONDITIONER.ordinal()] += precond;
+        stepPhaseNanos[Phase.SOLVE.ordinal()] += Math.max(0L, now - mark - precond);
+        mark = now;
 
         if (result.status() != LinearSolver.Status.CONVERGED && result.status() != LinearSolver.Status.MAX_ITERS) {
             throw new RuntimeException("Линейный солвер лег с треском, статус: " + result.status() + " at t=" + t);
@@ -273,10 +416,25 @@ public class TimeStepper {
         this.maxAbsResidual = Math.max(this.maxAbsResidual, result.absResidual());
         this.maxRelResidual = Math.max(this.maxRelResidual, result.relResidual());
 
-        // 7. Вливаем решенные внутренности обратно в фулл-стейт (границы не трогаем)
-        grid.injectInterior(uNextInt, uNext);
+        // 7. Вливаем решенное нутро в паддед-стейт: гало уже на t^{n+1}, так что это и есть сдвиг
+        // по времени (никаких uNext и копий фулл-массивов)
+        u.scatterInterior(uNextInt);
+        now = System.nanoTime();
+        charge(Phase.COPY_BACK, mark, now);
 
-        // 8. Двигаем время (свапаем массивы, никаких new double[])
-        VectorOps.copy(uNext, u);
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseNanos[p] += stepPhaseNanos[p];
+            phaseLatency[p].record(stepPhaseNanos[p]);
+        }
+        stepLatency.record(now - start);
+
+        stepEvent.end();
+        if (stepEvent.shouldCommit()) {
+            stepEvent.t = t;
+            stepEvent.dt = dt;
+            stepEvent.scheme = scheme.name();
+            stepEvent.iterations = iterations;
+            stepEvent.commit();
+        }
     }
 }
@@ -0,0 +1,77 @@
+package pdelab.core;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AffinityTest {
+
+    @Test
+    public void testCpuListParsing() {
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 8, 10, 11 }, Affinity.parseCpuList("0-3,8,10-11\n"));
+        assertArrayEquals(new int[] { 5 }, Affinity.parseCpuList("5"));
+        assertArrayEquals(new int[0], Affinity.parseCpuList(" \n"));
+        assertThrows(IllegalArgumentException.class, () -> Affinity.parseCpuList("3-1"));
+        assertThrows(IllegalArgumentException.class, () -> Affinity.parseCpuList("a-b"));
+    }
+
+    @Test
+    public void testPlansOnTwoSocketTopology() {
+        int[][] nodes = { { 0, 1, 2, 3 }, { 4, 5, 6, 7 } };
+        assertNull(Affinity.plan(Affinity.Mode.OFF, 4, nodes), "off - никакого плана");
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5 }, Affinity.plan(Affinity.Mode.COMPACT, 6, nodes),
+                "compact забивает ноду за нодой");
+        assertArrayEquals(new int[] { 0, 4, 1, 5, 2, 6 }, Affinity.plan(Affinity.Mode.SCATTER, 6, nodes),
+                "scatter ходит по нодам по кругу");
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 0, 1 }, Affinity.plan(Affinity.Mode.COMPACT, 10, nodes),
+                "Воркеров больше ядер - второй круг");
+    }
+
+    @Test
+    public void testHostTopologyAndPinnedWorkers() {
+        int[][] nodes = Affinity.nodes();
+        assertTrue(nodes.length >= 1 && nodes[0].length >= 1, "Хоть одна нода с ядром есть всегда");
+
+        String initial = System.getProperty(Affinity.PROPERTY);
+        try {
+            System.setProperty(Affinity.PROPERTY, "scatter");
+            ParallelExecutor.init(3);
+            int n = 100_000;
+            int[] hits = new int[n];
+            ParallelExecutor.executeContiguous(n, (start, end) -> {
+                for (int i = start; i < end; i++)
+                    hits[i]++;
+            });
+            for (int i = 0; i < n; i++) {
+                assertEquals(1, hits[i], "Пиннинг не должен ломать раздачу");
+            }
+        } finally {
+            if (initial == null) {
+                System.clearProperty(Affinity.PROPERTY);
+            } else {
+                System.setProperty(Affinity.PROPERTY, initial);
+            }
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    // minor_version 0xFFFF - класс собран против preview и без --enable-preview не грузится
+    private static boolean isPreviewClass(Class<?> c) throws IOException {
+        try (InputStream in = c.getResourceAsStream("/" + c.getName().replace('.', '/') + ".class")) {
+            DataInputStream data = new DataInputStream(in);
+            data.readInt(); // magic
+            return data.readUnsignedShort() == 0xFFFF;
+        }
+    }
+
+    @Test
+    public void testExecutorPathIsFreeOfPreview() throws IOException {
+        for (Class<?> c : new Class<?>[] { Affinity.class, Affinity.Mode.class, ParallelExecutor.class,
+                BarrierBackend.class, ForkJoinBackend.class, PhaseProfiler.class }) {
+            assertFalse(isPreviewClass(c), c.getName() + " тянет preview: init упадет без --enable-preview");
+        }
+        assertTrue(isPreviewClass(AffinityNative.class), "FFM-даункол и должен быть единственным preview");
+    }
+}
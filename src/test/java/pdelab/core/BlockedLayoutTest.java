@@ -0,0 +1,118 @@
+package pdelab.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockedLayoutTest {
+
+    private final boolean initialSimd = SimdBackend.isEnabled();
+
+    @AfterEach
+    public void restore() {
+        SimdBackend.setEnabled(initialSimd);
+        ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static double[] random(java.util.Random rnd, int n, double shift) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = shift + rnd.nextDouble();
+        return a;
+    }
+
+    @Test
+    public void testIndexIsPermutationAndMatchesExtractInject() {
+        // Нутро 37x22: блоки по краям обрезаны, Z-кривая по прямоугольнику не степени двойки
+        Grid2D grid = new Grid2D(39, 24, 1.0, 1.0);
+        int n = grid.numInterior();
+        double[] full = random(new java.util.Random(1), grid.size(), 0.0);
+        for (int block : new int[] { 1, 4, 8, 64 }) {
+            BlockedLayout layout = grid.blocked(block);
+            boolean[] seen = new boolean[n];
+            for (int j = 1; j <= grid.inY(); j++) {
+                for (int i = 1; i <= grid.inX(); i++) {
+                    int k = grid.idxInterior(i, j, layout);
+                    assertFalse(seen[k], "Индекс " + k + " выдан дважды (блок " + block + ")");
+                    seen[k] = true;
+                }
+            }
+
+            double[] blk = new double[n];
+            grid.extractInterior(full, blk, layout);
+            for (int j = 1; j <= grid.inY(); j++) {
+                for (int i = 1; i <= grid.inX(); i++) {
+                    assertEquals(full[grid.idx(i, j)], blk[grid.idxInterior(i, j, layout)], 0.0,
+                            "extract в blocked-порядок поплыл на (" + i + ", " + j + ")");
+                }
+            }
+
+            double[] back = new double[grid.size()];
+            grid.injectInterior(blk, back, layout);
+            double[] rowMajor = new double[n];
+            grid.extractInterior(full, rowMajor);
+            double[] roundTrip = new double[n];
+            grid.extractInterior(back, roundTrip);
+            assertArrayEquals(rowMajor, roundTrip, 0.0, "inject обязан вернуть нутро на место");
+            assertEquals(0.0, back[0], 0.0, "Границы inject не трогает");
+
+            double[] viaPermute = new double[n];
+            layout.toRowMajor(blk, viaPermute);
+            assertArrayEquals(rowMajor, viaPermute, 0.0, "toRowMajor обязан совпасть с extractInterior");
+        }
+    }
+
+    @Test
+    public void testBlockedStencilsMatchRowMajorBitwise() {
+        Grid2D grid = new Grid2D(161, 121, 1.0, 0.5);
+        java.util.Random rnd = new java.util.Random(5);
+        int n = grid.numInterior();
+        double[] u = random(rnd, n, -0.5);
+        double[] kX = random(rnd, grid.size(), 0.5);
+        double[] kY = random(rnd, grid.size(), 0.5);
+        double factor = 0.02;
+
+        for (boolean simd : new boolean[] { false, true }) {
+            SimdBackend.setEnabled(simd);
+            double[] lap = new double[n];
+            double[] div = new double[n];
+            double[] imp = new double[n];
+            Stencil.applyLaplacianInterior(grid, u, null, lap);
+            Stencil.applyDivKGradInterior(grid, u, null, kX, kY, div);
+            double dot = Stencil.applyImplicitInterior(grid, factor, u, kX, kY, imp);
+
+            for (int threads : new int[] { 1, 3 }) {
+                ParallelExecutor.init(threads);
+                for (int block : new int[] { 1, 2, 8, 32, 256 }) {
+                    BlockedLayout layout = grid.blocked(block);
+                    double[] uBlk = new double[n];
+                    double[] outBlk = new double[n];
+                    double[] out = new double[n];
+                    layout.toBlocked(u, uBlk);
+                    String tag = " (блок " + block + ", " + threads + " потоков, simd=" + simd + ")";
+
+                    Stencil.applyLaplacianInterior(layout, uBlk, outBlk);
+                    layout.toRowMajor(outBlk, out);
+                    assertArrayEquals(lap, out, 0.0, "Лапласиан в blocked-раскладке разъехался" + tag);
+
+                    Stencil.applyDivKGradInterior(layout, uBlk, kX, kY, outBlk);
+                    layout.toRowMajor(outBlk, out);
+                    assertArrayEquals(div, out, 0.0, "div(k grad) в blocked-раскладке разъехался" + tag);
+
+                    double dotBlk = Stencil.applyImplicitInterior(layout, factor, uBlk, kX, kY, outBlk);
+                    layout.toRowMajor(outBlk, out);
+                    assertArrayEquals(imp, out, 0.0, "Оператор в blocked-раскладке разъехался" + tag);
+                    // Порядок суммирования другой - скалярное произведение только с допуском
+                    assertEquals(dot, dotBlk, 1e-12 * Math.abs(dot) * n, "x · Ax" + tag);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsNonPowerOfTwoBlock() {
+        Grid2D grid = new Grid2D(10, 10, 1.0, 1.0);
+        assertThrows(IllegalArgumentException.class, () -> grid.blocked(12));
+        assertThrows(IllegalArgumentException.class, () -> grid.blocked(0));
+    }
+}
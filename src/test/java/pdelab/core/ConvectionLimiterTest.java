@@ -1,11 +1,121 @@
 package pdelab.core;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ConvectionLimiterTest {
 
+    private final int initialX = Tiling.tileX();
+    private final int initialY = Tiling.tileY();
+
+    @AfterEach
+    public void restore() {
+        Tiling.set(initialX, initialY);
+        ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static Grid2D stretchedGrid(int nx, int ny) {
+        double[] x = new double[nx];
+        double[] y = new double[ny];
+        for (int i = 1; i < nx; i++)
+            x[i] = x[i - 1] + 0.05 * Math.pow(1.02, i);
+        for (int j = 1; j < ny; j++)
+            y[j] = y[j - 1] + 0.03 * Math.pow(1.03, j);
+        double hx = x[nx - 1] / (nx - 1);
+        double hy = y[ny - 1] / (ny - 1);
+        return new Grid2D(nx, ny, x[nx - 1], y[ny - 1], hx, hy, 1.0 / (hx * hx), 1.0 / (hy * hy), x, y);
+    }
+
+    private static double[] random(java.util.Random rnd, int n, double shift) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = shift + rnd.nextDouble();
+        return a;
+    }
+
+    @Test
+    public void testFaceKernelMatchesPointwiseBitwise() {
+        // Знакопеременная скорость: грани на смене знака досчитываются, на остальных - переносятся
+        Grid2D grid = stretchedGrid(161, 121);
+        java.util.Random rnd = new java.util.Random(33);
+        int n = grid.numInterior();
+        double[] uInt = random(rnd, n, -0.5);
+        double[] uFull = random(rnd, grid.size(), -0.5);
+        double[] bX = new double[grid.size()];
+        double[] bY = new double[grid.size()];
+        for (int j = 0; j < grid.Ny(); j++) {
+            for (int i = 0; i < grid.Nx(); i++) {
+                bX[grid.idx(i, j)] = Math.sin(0.11 * j + 0.05 * i);
+                bY[grid.idx(i, j)] = Math.cos(0.07 * i) * (rnd.nextDouble() < 0.05 ? -1.0 : 1.0);
+            }
+        }
+        // Плато: нулевые градиенты (ветка r = 0) в лимитере
+        for (int i = 0; i < 40; i++)
+            uInt[3 * grid.inX() + i] = 0.25;
+
+        double[] expected = new double[n];
+        double[] actual = new double[n];
+        for (int[] tile : new int[][] { { Integer.MAX_VALUE, 32 }, { 48, 7 } }) {
+            Tiling.set(tile[0], tile[1]);
+            for (int threads : new int[] { 1, 3 }) {
+                ParallelExecutor.init(threads);
+                for (double[] full : new double[][] { null, uFull }) {
+                    String tag = " (тайл " + tile[0] + "x" + tile[1] + ", " + threads + " потоков, uFull="
+                            + (full != null) + ")";
+                    Arrays.fill(expected, 0.0);
+                    Arrays.fill(actual, 0.0);
+                    Stencil.applyConvectionUpwindInteriorPointwise(grid, uInt, full, bX, bY, expected);
+                    Stencil.applyConvectionMusclInterior(grid, uInt, full, bX, bY, actual, FluxLimiter.MINMOD);
+                    assertArrayEquals(expected, actual, 0.0, "Граневое ядро разъехалось с поточечным" + tag);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLimiterFunctions() {
+        for (FluxLimiter lim : FluxLimiter.values()) {
+            assertEquals(0.0, lim.phi(-1.0), 0.0, lim + ": на экстремуме наклон гасится");
+            assertEquals(0.0, lim.phi(0.0), 0.0, lim + ": r = 0 - апвинд 1-го порядка");
+            assertEquals(1.0, lim.phi(1.0), 1e-15, lim + ": на гладком решении phi(1) = 1");
+        }
+        assertEquals(1.0, FluxLimiter.MINMOD.phi(3.0), 0.0);
+        assertEquals(1.5, FluxLimiter.VAN_LEER.phi(3.0), 1e-15);
+        assertEquals(2.0, FluxLimiter.SUPERBEE.phi(3.0), 0.0);
+        assertEquals(1.0, FluxLimiter.SUPERBEE.phi(0.5), 0.0);
+        assertThrows(IllegalArgumentException.class, () -> Stencil.setConvectionLimiter(null));
+    }
+
+    @Test
+    public void testAllLimitersStayMonotone() {
+        Grid2D grid = new Grid2D(100, 3, 10.0, 1.0);
+        double[] bX = new double[grid.size()];
+        double[] bY = new double[grid.size()];
+        Arrays.fill(bX, -1.0); // Поток влево - гоняем правую реконструкцию
+        for (FluxLimiter lim : FluxLimiter.values()) {
+            double[] u = new double[grid.size()];
+            for (int j = 0; j < grid.Ny(); j++) {
+                for (int i = 41; i < 60; i++)
+                    u[grid.idx(i, j)] = 1.0;
+            }
+            double[] uInt = new double[grid.numInterior()];
+            double[] LuInt = new double[grid.numInterior()];
+            grid.extractInterior(u, uInt);
+            for (int step = 0; step < 50; step++) {
+                Arrays.fill(LuInt, 0.0);
+                Stencil.applyConvectionMusclInterior(grid, uInt, u, bX, bY, LuInt, lim);
+                for (int i = 0; i < uInt.length; i++)
+                    uInt[i] -= 0.01 * LuInt[i];
+                grid.injectInterior(uInt, u);
+            }
+            for (double v : uInt) {
+                assertTrue(v <= 1.000001 && v >= -0.000001, lim + " нарисовал осцилляцию: " + v);
+            }
+        }
+    }
+
     @Test
     public void testMUSCLTVDMonotonicity() {
         ParallelExecutor.init(4);
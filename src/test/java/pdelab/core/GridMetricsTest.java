@@ -0,0 +1,80 @@
+package pdelab.core;
+
+import org.junit.jupiter.api.Test;
+import pdelab.solver.ImplicitMatrix;
+import pdelab.solver.JacobiPreconditioner;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GridMetricsTest {
+
+    /**
+     * Растянутая сетка: шаг растет геометрически к правому/верхнему краю.
+     */
+    private static Grid2D stretchedGrid(int n) {
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double h = 0.05;
+        for (int i = 1; i < n; i++) {
+            x[i] = x[i - 1] + h * Math.pow(1.15, i);
+            y[i] = y[i - 1] + 0.5 * h * Math.pow(1.1, i);
+        }
+        double hx = x[n - 1] / (n - 1);
+        double hy = y[n - 1] / (n - 1);
+        return new Grid2D(n, n, x[n - 1], y[n - 1], hx, hy, 1.0 / (hx * hx), 1.0 / (hy * hy), x, y);
+    }
+
+    @Test
+    public void testMetricsAreCachedPerGrid() {
+        Grid2D grid = new Grid2D(17, 9, 1.0, 2.0);
+        GridMetrics m = GridMetrics.of(grid);
+        assertSame(m, GridMetrics.of(grid), "Повторный запрос обязан вернуть закэшированные метрики");
+        assertEquals(grid.inX(), m.x().lapLeft.length);
+        assertEquals(grid.inY(), m.y().lapLeft.length);
+
+        // На uniform-сетке веса Лапласиана сходятся к 1/h^2
+        for (double c : m.x().lapLeft) {
+            assertEquals(grid.ihx2(), c, 1e-9 * grid.ihx2());
+        }
+    }
+
+    @Test
+    public void testLaplacianWeightsMatchStencilOnStretchedGrid() {
+        Grid2D grid = stretchedGrid(12);
+        GridMetrics m = GridMetrics.of(grid);
+        int n = grid.numInterior();
+        int inX = grid.inX();
+
+        double[] e = new double[n];
+        double[] Le = new double[n];
+        int k = 3 * inX + 4;
+        e[k] = 1.0;
+        Stencil.applyLaplacianInterior(grid, e, null, Le);
+
+        int i = k % inX;
+        int j = k / inX;
+        assertEquals(-(m.x().lapLeft[i] + m.x().lapRight[i] + m.y().lapLeft[j] + m.y().lapRight[j]), Le[k], 1e-9);
+        assertEquals(m.x().lapLeft[i + 1], Le[k + 1], 1e-9, "Западный вес соседа справа");
+        assertEquals(m.y().lapRight[j - 1], Le[k - inX], 1e-9, "Северный вес соседа снизу");
+    }
+
+    @Test
+    public void testJacobiDiagonalMatchesOperatorOnStretchedGrid() {
+        // Раньше Jacobi брал uniform-овые ihx2/ihy2 и на растянутой сетке промахивался по диагонали
+        Grid2D grid = stretchedGrid(12);
+        int n = grid.numInterior();
+        double factor = 0.01;
+        ImplicitMatrix A = new ImplicitMatrix(grid, factor);
+        JacobiPreconditioner M = new JacobiPreconditioner(grid, factor);
+
+        double[] e = new double[n];
+        double[] Ae = new double[n];
+        double[] Me = new double[n];
+        for (int k = 0; k < n; k += 7) {
+            java.util.Arrays.fill(e, 0.0);
+            e[k] = 1.0;
+            A.multiply(e, Ae);
+            M.apply(e, Me);
+            assertEquals(1.0, Ae[k] * Me[k], 1e-12, "M^-1 обязан быть ровно обратной диагональю A в узле " + k);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package pdelab.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KernelFactoryTest {
+
+    private final boolean initial = KernelFactory.isEnabled();
+
+    @AfterEach
+    public void restore() {
+        KernelFactory.setEnabled(initial);
+        ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static Grid2D stretchedGrid(int nx, int ny) {
+        double[] x = new double[nx];
+        double[] y = new double[ny];
+        for (int i = 1; i < nx; i++)
+            x[i] = x[i - 1] + 0.05 * Math.pow(1.02, i);
+        for (int j = 1; j < ny; j++)
+            y[j] = y[j - 1] + 0.03 * Math.pow(1.03, j);
+        double hx = x[nx - 1] / (nx - 1);
+        double hy = y[ny - 1] / (ny - 1);
+        return new Grid2D(nx, ny, x[nx - 1], y[ny - 1], hx, hy, 1.0 / (hx * hx), 1.0 / (hy * hy), x, y);
+    }
+
+    private static double[] random(java.util.Random rnd, int n, double shift) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = shift + rnd.nextDouble();
+        return a;
+    }
+
+    private static double maxWeight(GridMetrics m) {
+        double w = 0.0;
+        for (GridMetrics.Axis a : new GridMetrics.Axis[] { m.x(), m.y() }) {
+            for (int i = 0; i < a.lapLeft.length; i++)
+                w = Math.max(w, Math.max(a.lapLeft[i], a.lapRight[i]));
+        }
+        return w;
+    }
+
+    @Test
+    public void testSpecializedKernelsMatchGenericOperator() {
+        java.util.Random rnd = new java.util.Random(50);
+        for (Grid2D grid : new Grid2D[] { new Grid2D(131, 97, 1.0, 0.6), stretchedGrid(131, 97), new Grid2D(3, 7, 1.0,
+                1.0) }) {
+            int n = grid.numInterior();
+            double[] x = random(rnd, n, -0.5);
+            double[] kConst = new double[grid.size()];
+            java.util.Arrays.fill(kConst, 2.5);
+            double[] kVar = random(rnd, grid.size(), 0.5);
+            double[][] kappas = { null, kConst, kVar };
+            String[] modes = { "laplacian", "const kappa", "variable kappa" };
+
+            for (int m = 0; m < kappas.length; m++) {
+                double[] kX = null;
+                double[] kY = null;
+                if (kappas[m] != null) {
+                    kX = new double[grid.size()];
+                    kY = new double[grid.size()];
+                    Stencil.precomputeDiffusivityArrays(grid, kappas[m], kX, kY, "HARMONIC");
+                }
+                double[] expected = new double[n];
+                double[] actual = new double[n];
+                // Uniform-ядро берет 1/h^2 из сетки, общее - из координат: расхождение ~ ulp * диагональ A
+                double diagScale = 1.0 + 8.0 * 0.004 * 2.5 * maxWeight(GridMetrics.of(grid));
+                for (int threads : new int[] { 1, 3 }) {
+                    ParallelExecutor.init(threads);
+                    StencilKernel kernel = KernelFactory.implicit(grid, 0.004, kX, kY);
+                    assertTrue(kernel.describe().contains(modes[m]), "Режим ядра: " + kernel.describe());
+                    double dotExpected = Stencil.applyImplicitInterior(grid, 0.004, x, kX, kY, expected);
+                    double dot = kernel.applyImplicit(x, actual);
+                    String tag = " (" + kernel.describe() + ", " + threads + " потоков)";
+                    for (int i = 0; i < n; i++) {
+                        assertEquals(expected[i], actual[i], 1e-12 * diagScale,
+                                "Спец-ядро разъехалось с общим" + tag);
+                    }
+                    assertEquals(dotExpected, dot, 1e-12 * diagScale * n, "x · y" + tag);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testKernelsAreCachedPerConfiguration() {
+        Grid2D grid = new Grid2D(33, 17, 1.0, 1.0);
+        StencilKernel a = KernelFactory.implicit(grid, 0.01, null, null);
+        assertSame(a, KernelFactory.implicit(grid, 0.01, null, null), "Та же конфигурация - то же ядро");
+        StencilKernel b = KernelFactory.implicit(grid, 0.02, null, null);
+        assertNotSame(a, b, "Другой factor - другое ядро");
+        assertSame(a.getClass(), b.getClass(), "factor - поле экземпляра: смена dt не плодит hidden classes");
+        assertTrue(b.describe().contains("factor=0.02"), b.describe());
+        assertNotSame(a.getClass(), KernelFactory.implicit(new Grid2D(17, 17, 1.0, 1.0), 0.01, null, null).getClass(),
+                "У каждой конфигурации свой hidden class");
+        assertTrue(a.getClass().isHidden());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> KernelFactory.implicit(grid, 0.01, new double[grid.size()], null));
+        assertThrows(IllegalArgumentException.class, () -> a.applyImplicit(new double[3], new double[3]));
+    }
+}
@@ -0,0 +1,150 @@
+package pdelab.core;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapFieldTest {
+
+    private final boolean initialSimd = SimdBackend.isEnabled();
+
+    @AfterEach
+    public void restore() {
+        SimdBackend.setEnabled(initialSimd);
+        ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static double[] random(java.util.Random rnd, int n, double shift) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = shift + rnd.nextDouble();
+        return a;
+    }
+
+    @Test
+    public void testStencilsMatchHeapPaddedFieldBitwise() {
+        Grid2D grid = new Grid2D(161, 121, 1.0, 0.5);
+        java.util.Random rnd = new java.util.Random(21);
+        double[] uData = random(rnd, grid.size(), -0.5);
+        double[] kX = random(rnd, grid.size(), 0.5);
+        double[] kY = random(rnd, grid.size(), 0.5);
+        PaddedField heapU = new PaddedField(grid, uData);
+
+        try (OffHeapField u = new OffHeapField(grid); OffHeapField kXOff = new OffHeapField(grid);
+                OffHeapField kYOff = new OffHeapField(grid); OffHeapField out = new OffHeapField(grid)) {
+            u.copyFrom(uData);
+            kXOff.copyFrom(kX);
+            kYOff.copyFrom(kY);
+            double[] outFull = new double[grid.size()];
+            double[] outInt = new double[grid.numInterior()];
+            double[] expected = new double[grid.numInterior()];
+
+            for (boolean simd : new boolean[] { false, true }) {
+                SimdBackend.setEnabled(simd);
+                for (int threads : new int[] { 1, 3 }) {
+                    ParallelExecutor.init(threads);
+                    String tag = " (simd=" + simd + ", " + threads + " потоков)";
+
+                    Stencil.applyLaplacianInterior(heapU, expected);
+                    Stencil.applyLaplacianInterior(u, out);
+                    out.copyTo(outFull);
+                    grid.extractInterior(outFull, outInt);
+                    assertArrayEquals(expected, outInt, 0.0, "Лапласиан вне хипа разъехался с хиповым" + tag);
+
+                    Stencil.applyDivKGradInterior(heapU, kX, kY, expected);
+                    Stencil.applyDivKGradInterior(u, kXOff, kYOff, out);
+                    out.copyTo(outFull);
+                    grid.extractInterior(outFull, outInt);
+                    assertArrayEquals(expected, outInt, 0.0, "div(k grad) вне хипа разъехался с хиповым" + tag);
+                }
+            }
+            assertEquals(0.0, out.get(0), 0.0, "Гало выхода стенсил не трогает");
+        }
+    }
+
+    @Test
+    public void testVectorOpsMatchHeap() {
+        Grid2D grid = new Grid2D(130, 70, 1.0, 1.0);
+        java.util.Random rnd = new java.util.Random(22);
+        double[] x = random(rnd, grid.size(), -0.5);
+        double[] y = random(rnd, grid.size(), -0.5);
+
+        try (OffHeapField xOff = new OffHeapField(grid); OffHeapField yOff = new OffHeapField(grid)) {
+            xOff.copyFrom(x);
+            yOff.copyFrom(y);
+            assertEquals(ParallelVectorOps.dot(x, y), ParallelVectorOps.dot(xOff, yOff), 1e-12 * x.length,
+                    "dot вне хипа");
+
+            ParallelVectorOps.axpy(0.75, x, y);
+            ParallelVectorOps.axpy(0.75, xOff, yOff);
+            double[] back = new double[grid.size()];
+            yOff.copyTo(back);
+            assertArrayEquals(y, back, 0.0, "axpy вне хипа обязан совпасть с хиповым бит в бит");
+        }
+    }
+
+    @Test
+    public void testAlignmentAndHugePageAllocation() {
+        Grid2D grid = new Grid2D(33, 17, 1.0, 1.0);
+        try (OffHeapField small = new OffHeapField(grid, OffHeapField.Pages.SMALL);
+                OffHeapField huge = new OffHeapField(grid, OffHeapField.Pages.TRANSPARENT_HUGE)) {
+            assertEquals(0, small.segment().address() % OffHeapField.ALIGNMENT, "Сегмент обязан лежать по кэш-линии");
+            assertEquals(0, huge.segment().address() % OffHeapField.HUGE_PAGE, "THP-сегмент выровнен по 2 МБ");
+            assertEquals((long) grid.size() * Double.BYTES, huge.segment().byteSize(), "Наружу торчит ровно поле");
+
+            huge.set(5, 3.5);
+            assertEquals(3.5, huge.get(5), 0.0);
+            huge.fill(0.0);
+            assertEquals(0.0, huge.get(5), 0.0);
+        }
+    }
+
+    @Test
+    public void testFirstTouchAllocationByWorkers() {
+        ParallelExecutor.init(4);
+        Grid2D grid = new Grid2D(301, 203, 1.0, 1.0); // 203 строки по 301 - точно через воркеров
+        double[] data = random(new java.util.Random(29), grid.size(), -0.5);
+        for (OffHeapField.Pages pages : OffHeapField.Pages.values()) {
+            OffHeapField f = OffHeapField.firstTouch(grid, pages);
+            try (OffHeapField other = OffHeapField.firstTouch(grid, pages)) {
+                assertEquals((long) grid.size() * Double.BYTES, f.segment().byteSize(), "Наружу торчит ровно поле");
+                assertEquals(0, f.segment().address() % 4096, "mmap отдает память по границе страницы");
+                for (int i = 0; i < grid.size(); i++) {
+                    assertEquals(0.0, f.get(i), 0.0, "Воркеры обязаны занулить все поле (" + pages + ")");
+                }
+                f.copyFrom(data);
+                other.copyFrom(data);
+                assertEquals(VectorOps.dot(data, data), ParallelVectorOps.dot(f, other), 1e-9 * grid.size(),
+                        "Ядра по first-touch полю считают как по обычному");
+            } finally {
+                f.close();
+            }
+            assertThrows(IllegalStateException.class, () -> f.get(0), "После close() маппинг снят");
+        }
+    }
+
+    @Test
+    public void testFileBackedMappingAndClose(@TempDir Path dir) throws Exception {
+        // На обычной ФС маппинг тот же, что на hugetlbfs, только страницы мелкие
+        Grid2D grid = new Grid2D(20, 12, 1.0, 1.0);
+        double[] data = random(new java.util.Random(23), grid.size(), 0.0);
+        OffHeapField mapped = OffHeapField.mapHugetlbfs(grid, dir);
+        mapped.copyFrom(data);
+        double[] back = new double[grid.size()];
+        mapped.copyTo(back);
+        assertArrayEquals(data, back, 0.0, "Файловый маппинг обязан хранить данные");
+        try (var files = java.nio.file.Files.list(dir)) {
+            assertEquals(0, files.count(), "Файл под маппинг удаляется сразу");
+        }
+
+        mapped.close();
+        assertThrows(IllegalStateException.class, () -> mapped.get(0), "После close() поле мертво");
+        assertThrows(IllegalArgumentException.class, () -> {
+            try (OffHeapField f = new OffHeapField(grid)) {
+                f.copyFrom(new double[3]);
+            }
+        });
+    }
+}
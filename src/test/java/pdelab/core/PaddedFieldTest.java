@@ -0,0 +1,86 @@
+package pdelab.core;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaddedFieldTest {
+
+    @Test
+    public void testStridedViewRoundTrip() {
+        Grid2D grid = new Grid2D(9, 6, 1.0, 1.0);
+        PaddedField u = new PaddedField(grid);
+        double[] full = u.data();
+        for (int k = 0; k < full.length; k++)
+            full[k] = k;
+
+        double[] interior = new double[grid.numInterior()];
+        double[] expected = new double[grid.numInterior()];
+        u.gatherInterior(interior);
+        grid.extractInterior(full, expected);
+        assertArrayEquals(expected, interior, 0.0, "gather обязан совпасть с extractInterior");
+        assertEquals(full[grid.idx(1, 3)], full[u.rowOffset(2)], 0.0, "rowOffset(j) - это узел (1, j + 1)");
+
+        for (int k = 0; k < interior.length; k++)
+            interior[k] = -k;
+        u.scatterInterior(interior);
+        double[] injected = new double[grid.size()];
+        for (int k = 0; k < injected.length; k++)
+            injected[k] = k;
+        grid.injectInterior(interior, injected);
+        assertArrayEquals(injected, full, 0.0, "scatter обязан писать только нутро, гало не трогать");
+
+        double[] y = new double[interior.length];
+        java.util.Arrays.fill(y, 1.0);
+        u.xpayInterior(2.0, y);
+        u.axpyInterior(-1.0, y);
+        for (double v : y)
+            assertEquals(2.0, v, 0.0);
+    }
+
+    @Test
+    public void testRejectsWrongSize() {
+        Grid2D grid = new Grid2D(5, 5, 1.0, 1.0);
+        assertThrows(IllegalArgumentException.class, () -> new PaddedField(grid, new double[grid.numInterior()]));
+        PaddedField u = new PaddedField(grid);
+        assertThrows(IllegalArgumentException.class, () -> u.gatherInterior(new double[grid.size()]));
+    }
+
+    @Test
+    public void testPaddedStencilsMatchSplitLayout() {
+        // Паддед-путь (нутро + гало в одном массиве) обязан дать бит в бит то же, что uInt + uFull
+        Grid2D grid = new Grid2D(21, 13, 1.0, 0.8);
+        int n = grid.numInterior();
+        java.util.Random rnd = new java.util.Random(5);
+        PaddedField u = new PaddedField(grid);
+        double[] kX = new double[grid.size()];
+        double[] kY = new double[grid.size()];
+        double[] bX = new double[grid.size()];
+        double[] bY = new double[grid.size()];
+        for (int k = 0; k < grid.size(); k++) {
+            u.data()[k] = rnd.nextGaussian();
+            kX[k] = 0.5 + rnd.nextDouble();
+            kY[k] = 0.5 + rnd.nextDouble();
+            bX[k] = rnd.nextDouble() - 0.5;
+            bY[k] = rnd.nextDouble() - 0.5;
+        }
+        double[] uInt = new double[n];
+        grid.extractInterior(u.data(), uInt);
+
+        double[] split = new double[n];
+        double[] padded = new double[n];
+
+        Stencil.applyLaplacianInterior(grid, uInt, u.data(), split);
+        Stencil.applyLaplacianInterior(u, padded);
+        assertArrayEquals(split, padded, 0.0, "Лапласиан");
+
+        Stencil.applyDivKGradInterior(grid, uInt, u.data(), kX, kY, split);
+        Stencil.applyDivKGradInterior(u, kX, kY, padded);
+        assertArrayEquals(split, padded, 0.0, "div(k grad)");
+
+        java.util.Arrays.fill(split, 0.0);
+        java.util.Arrays.fill(padded, 0.0);
+        Stencil.applyConvectionUpwindInterior(grid, uInt, u.data(), bX, bY, split);
+        Stencil.applyConvectionUpwindInterior(u, bX, bY, padded);
+        assertArrayEquals(split, padded, 0.0, "Конвекция");
+    }
+}
@@ -32,4 +32,267 @@ public class ParallelExecutorTest {
         });
         assertEquals(100.0, result, 1e-9);
     }
+
+    @Test
+    public void testMultiReduceMatchesSeparateDots() {
+        ParallelExecutor.init(4);
+        int n = 100_000; // Больше MIN_CHUNK_SIZE, чтобы реально пошли воркеры
+        double[][] basis = new double[3][n];
+        double[] w = new double[n];
+        for (int i = 0; i < n; i++) {
+            basis[0][i] = 1.0;
+            basis[1][i] = (i % 7) - 3.0;
+            basis[2][i] = Math.sin(i * 0.01);
+            w[i] = Math.cos(i * 0.003);
+        }
+
+        double[] out = new double[4];
+        ParallelVectorOps.multiDot(basis, 3, w, out);
+
+        for (int k = 0; k < 3; k++) {
+            assertEquals(VectorOps.dot(basis[k], w), out[k], 1e-8, "Fused multi-dot разъехался с обычным dot");
+        }
+        assertEquals(VectorOps.dot(w, w), out[3], 1e-8, "Последний слот обязан держать w.w");
+    }
+
+    @Test
+    public void testDispatchModesCoverEveryChunkOnce() {
+        boolean initial = ParallelExecutor.isMonomorphicDispatch();
+        try {
+            int n = 200_003;
+            for (boolean mono : new boolean[] { false, true }) {
+                ParallelExecutor.setMonomorphicDispatch(mono);
+                for (int threads : new int[] { 1, 3, 4 }) {
+                    ParallelExecutor.init(threads);
+                    int[] hits = new int[n];
+                    ParallelExecutor.executeContiguous(n, (start, end) -> {
+                        for (int i = start; i < end; i++)
+                            hits[i]++;
+                    });
+                    for (int i = 0; i < n; i++) {
+                        assertEquals(1, hits[i], "Индекс " + i + " обязан отработать ровно раз (mono=" + mono + ")");
+                    }
+                    double sum = ParallelExecutor.reduceContiguous(n, (start, end) -> end - start);
+                    assertEquals(n, sum, 0.0, "Редукция обязана покрыть все чанки (mono=" + mono + ")");
+                }
+            }
+
+            ParallelExecutor.ArrayOp a = (start, end) -> {
+            };
+            ParallelExecutor.ReduceOp b = (start, end) -> 0.0;
+            ParallelExecutor.setMonomorphicDispatch(true);
+            assertSame(ParallelExecutor.loopFor(a), ParallelExecutor.loopFor(a), "Трамплин кэшируется на класс");
+            assertNotSame(ParallelExecutor.loopFor(a).getClass(), ParallelExecutor.loopFor(b).getClass(),
+                    "У каждого класса опа свой hidden-трамплин");
+            assertTrue(ParallelExecutor.loopFor(a).getClass().isHidden());
+            ParallelExecutor.setMonomorphicDispatch(false);
+            assertSame(ParallelExecutor.loopFor(a), ParallelExecutor.loopFor(b), "shared - один луп на всех");
+        } finally {
+            ParallelExecutor.setMonomorphicDispatch(initial);
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    public void testGuidedScheduleCoversEveryIndexOnce() {
+        ParallelExecutor.Schedule initial = ParallelExecutor.getSchedule();
+        boolean initialTracking = ParallelExecutor.isImbalanceTracking();
+        ParallelExecutor.setImbalanceTracking(true);
+        try {
+            int n = 300_007;
+            for (int threads : new int[] { 1, 3, 4 }) {
+                ParallelExecutor.init(threads);
+                ParallelExecutor.resetImbalance();
+                int[] hits = new int[n];
+                ParallelExecutor.executeContiguous(n, (start, end) -> {
+                    for (int i = start; i < end; i++)
+                        hits[i]++;
+                }, ParallelExecutor.Schedule.GUIDED);
+                for (int i = 0; i < n; i++) {
+                    assertEquals(1, hits[i], "Guided обязан раздать индекс " + i + " ровно раз (threads=" + threads + ")");
+                }
+                // Целые суммы точны при любом порядке сложения
+                double sum = ParallelExecutor.reduceContiguous(n, (start, end) -> end - start,
+                        ParallelExecutor.Schedule.GUIDED);
+                assertEquals(n, sum, 0.0, "Guided-редукция обязана покрыть все чанки");
+
+                ParallelExecutor.setSchedule(ParallelExecutor.Schedule.GUIDED);
+                double[] out = new double[1];
+                ParallelExecutor.reduceMulti(n, 1, (start, end, acc, off) -> acc[off] += end - start, out);
+                assertEquals(n, out[0], 0.0, "Guided multi-reduce обязан покрыть все чанки");
+                ParallelExecutor.setSchedule(ParallelExecutor.Schedule.STATIC);
+
+                ParallelExecutor.Imbalance guided = ParallelExecutor.imbalance(ParallelExecutor.Schedule.GUIDED);
+                if (threads > 1) {
+                    assertEquals(3, guided.phases(), "Каждая фаза через воркеров обязана попасть в статистику");
+                    assertTrue(guided.meanRatio() >= 1.0 && guided.worstRatio() >= guided.meanRatio());
+                    assertTrue(guided.idleFraction() >= 0.0 && guided.idleFraction() <= 1.0);
+                } else {
+                    assertEquals(0, guided.phases(), "Один поток - все на мэйн-треде, фаз нет");
+                }
+                assertEquals(0, ParallelExecutor.imbalance(ParallelExecutor.Schedule.STATIC).phases(),
+                        "Явный GUIDED не должен капать в статистику STATIC");
+            }
+
+            ParallelExecutor.init(3);
+            ParallelExecutor.setImbalanceTracking(false);
+            ParallelExecutor.resetImbalance();
+            ParallelExecutor.executeContiguous(n, (start, end) -> {
+            }, ParallelExecutor.Schedule.GUIDED);
+            assertEquals(0, ParallelExecutor.imbalance(ParallelExecutor.Schedule.GUIDED).phases(),
+                    "Трекинг выключен - фазы не копятся и воркеры не меряют busy");
+        } finally {
+            ParallelExecutor.setImbalanceTracking(initialTracking);
+            ParallelExecutor.setSchedule(initial);
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    public void testStaticReductionIsBitwiseReproducible() {
+        ParallelExecutor.init(4);
+        int n = 250_000;
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.sin(i * 0.37) * Math.exp((i % 13) - 6.0);
+        }
+        ParallelExecutor.ReduceOp op = (start, end) -> {
+            double s = 0.0;
+            for (int i = start; i < end; i++)
+                s += x[i];
+            return s;
+        };
+        double ref = ParallelExecutor.reduceContiguous(n, op, ParallelExecutor.Schedule.STATIC);
+        for (int rep = 0; rep < 20; rep++) {
+            ParallelExecutor.reduceContiguous(n, op, ParallelExecutor.Schedule.GUIDED); // Перемешиваем фазы
+            assertEquals(Double.doubleToRawLongBits(ref),
+                    Double.doubleToRawLongBits(ParallelExecutor.reduceContiguous(n, op, ParallelExecutor.Schedule.STATIC)),
+                    "STATIC-редукция обязана повторяться бит в бит");
+        }
+    }
+
+    @Test
+    public void testReproducibleReductionsIgnoreThreadCount() {
+        ParallelExecutor.Reduction initialReduction = ParallelExecutor.getReduction();
+        ParallelExecutor.Schedule initialSchedule = ParallelExecutor.getSchedule();
+        try {
+            int n = 1_000_003;
+            double[] x = new double[n];
+            double[] y = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = Math.sin(i * 0.37) * Math.exp((i % 29) - 14.0);
+                y[i] = Math.cos(i * 0.011) - 0.3;
+            }
+            double[][] basis = { x, y };
+            for (ParallelExecutor.Reduction mode : new ParallelExecutor.Reduction[] {
+                    ParallelExecutor.Reduction.TREE, ParallelExecutor.Reduction.COMPENSATED }) {
+                ParallelExecutor.setReduction(mode);
+                long refDot = 0;
+                long[] refMulti = null;
+                boolean first = true;
+                for (int threads : new int[] { 1, 2, 3, 4, 7 }) {
+                    ParallelExecutor.init(threads);
+                    for (ParallelExecutor.Schedule schedule : ParallelExecutor.Schedule.values()) {
+                        ParallelExecutor.setSchedule(schedule);
+                        long dot = Double.doubleToRawLongBits(ParallelVectorOps.dot(x, y));
+                        double[] out = new double[3];
+                        ParallelVectorOps.multiDot(basis, 2, y, out);
+                        long[] multi = new long[3];
+                        for (int k = 0; k < 3; k++) {
+                            multi[k] = Double.doubleToRawLongBits(out[k]);
+                        }
+                        if (first) {
+                            refDot = dot;
+                            refMulti = multi;
+                            first = false;
+                        }
+                        String where = mode + ", threads=" + threads + ", " + schedule;
+                        assertEquals(refDot, dot, "dot обязан совпасть бит в бит: " + where);
+                        assertArrayEquals(refMulti, multi, "multi-dot обязан совпасть бит в бит: " + where);
+                    }
+                }
+                assertEquals(VectorOps.dot(x, y), Double.longBitsToDouble(refDot), 1e-9 * n,
+                        "Блочная свертка не должна уезжать от обычного dot");
+            }
+        } finally {
+            ParallelExecutor.setReduction(initialReduction);
+            ParallelExecutor.setSchedule(initialSchedule);
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    public void testCompensatedCombineKeepsSmallPartials() {
+        // Большие партиалы гасят друг друга, мелочь посередине: дерево ее теряет, Ноймайер - нет
+        double[] partials = { 1e16, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0, -1e16 };
+        double compensated = ParallelExecutor.combine(partials.clone(), 0, partials.length, 1,
+                ParallelExecutor.Reduction.COMPENSATED);
+        assertEquals(8.0, compensated, 0.0, "Ноймайер обязан вытащить все единички");
+        double tree = ParallelExecutor.combine(partials.clone(), 0, partials.length, 1,
+                ParallelExecutor.Reduction.TREE);
+        assertNotEquals(8.0, tree, "Тест бессмысленен, если дерево и так точное");
+
+        // Страйд: свертка слота k не трогает соседние слоты
+        double[] strided = { 1, 10, 2, 20, 3, 30 };
+        assertEquals(6.0, ParallelExecutor.combine(strided, 0, 3, 2, ParallelExecutor.Reduction.TREE), 0.0);
+        assertEquals(60.0, ParallelExecutor.combine(strided, 1, 3, 2, ParallelExecutor.Reduction.TREE), 0.0);
+    }
+
+    @Test
+    public void testForkJoinBackendsMatchBarrier() {
+        ParallelExecutor.Reduction initialReduction = ParallelExecutor.getReduction();
+        int n = 500_009;
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.sin(i * 0.21) * Math.exp((i % 17) - 8.0);
+        }
+        ParallelExecutor.ReduceOp sumOp = (start, end) -> {
+            double s = 0.0;
+            for (int i = start; i < end; i++)
+                s += x[i];
+            return s;
+        };
+        java.util.concurrent.ForkJoinPool servicePool = new java.util.concurrent.ForkJoinPool(2);
+        try {
+            ParallelExecutor.setReduction(ParallelExecutor.Reduction.TREE);
+            ParallelExecutor.init(4, ParallelExecutor.Backend.BARRIER);
+            long ref = Double.doubleToRawLongBits(ParallelExecutor.reduceContiguous(n, sumOp));
+
+            ExecutorBackend[] backends = { new ForkJoinBackend(3), new ForkJoinBackend(servicePool),
+                    new ForkJoinBackend(java.util.concurrent.ForkJoinPool.commonPool()) };
+            for (ExecutorBackend backend : backends) {
+                ParallelExecutor.init(backend);
+                String name = backend.name() + "/" + backend.threads();
+                assertEquals(backend.threads(), ParallelExecutor.threadCount());
+
+                int[] hits = new int[n];
+                ParallelExecutor.executeContiguous(n, (start, end) -> {
+                    for (int i = start; i < end; i++)
+                        hits[i]++;
+                });
+                for (int i = 0; i < n; i++) {
+                    assertEquals(1, hits[i], "Индекс " + i + " обязан отработать ровно раз (" + name + ")");
+                }
+
+                double[] out = new double[2];
+                ParallelExecutor.setReduction(ParallelExecutor.Reduction.FAST);
+                assertEquals(n, ParallelExecutor.reduceContiguous(n, (start, end) -> end - start), 0.0, name);
+                ParallelExecutor.reduceMulti(n, 2, (start, end, acc, off) -> {
+                    acc[off] += end - start;
+                    acc[off + 1] += 1.0;
+                }, out);
+                assertEquals(n, out[0], 0.0, "Multi обязан покрыть весь диапазон (" + name + ")");
+                assertTrue(out[1] >= 1.0, "Хоть один лист должен отработать");
+
+                ParallelExecutor.setReduction(ParallelExecutor.Reduction.TREE);
+                assertEquals(ref, Double.doubleToRawLongBits(ParallelExecutor.reduceContiguous(n, sumOp)),
+                        "TREE-редукция обязана совпасть с барьерным пулом бит в бит (" + name + ")");
+            }
+            assertFalse(servicePool.isShutdown(), "Чужой пул гасить нельзя");
+        } finally {
+            ParallelExecutor.setReduction(initialReduction);
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+            servicePool.shutdown();
+        }
+    }
 }
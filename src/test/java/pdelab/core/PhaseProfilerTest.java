@@ -0,0 +1,108 @@
+package pdelab.core;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhaseProfilerTest {
+
+    // Считает вызовы compute = реально розданные чанки
+    private static final class CountingOp implements ParallelExecutor.ArrayOp {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void compute(int start, int end) {
+            calls.incrementAndGet();
+        }
+    }
+
+    private static PhaseProfiler.KernelProfile find(List<PhaseProfiler.KernelProfile> all, String kernel) {
+        return all.stream().filter(k -> k.kernel().equals(kernel)).findFirst()
+                .orElseGet(() -> fail("Нет ядра " + kernel + " в " + all));
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram h = new Histogram();
+        assertEquals(0L, h.percentile(0.5), "Пустая гистограмма - нули");
+        for (int i = 0; i < 90; i++) {
+            h.record(1_000); // корзина [512, 1024)
+        }
+        for (int i = 0; i < 10; i++) {
+            h.record(1_000_000);
+        }
+        assertEquals(100, h.count());
+        assertEquals(1023, h.percentile(0.5), "Медиана - верхняя граница корзины 1000 нс");
+        assertEquals(1023, h.percentile(0.9));
+        assertEquals(1_000_000, h.percentile(0.99), "Хвост упирается в максимум, а не в границу корзины");
+        assertEquals(1_000_000, h.maxNanos());
+        assertThrows(IllegalArgumentException.class, () -> h.percentile(1.5));
+        h.reset();
+        assertEquals(0, h.count());
+    }
+
+    @Test
+    public void testBarrierPhasesPerKernel() {
+        boolean initial = PhaseProfiler.isEnabled();
+        ParallelExecutor.Schedule initialSchedule = ParallelExecutor.getSchedule();
+        try {
+            int n = 100_000;
+            double[] x = new double[n];
+            double[] y = new double[n];
+            ParallelExecutor.init(3, ParallelExecutor.Backend.BARRIER);
+            ParallelExecutor.setSchedule(ParallelExecutor.Schedule.STATIC);
+
+            PhaseProfiler.setEnabled(false);
+            PhaseProfiler.reset();
+            ParallelVectorOps.dot(x, y);
+            assertTrue(PhaseProfiler.snapshot().isEmpty(), "Выключенный профайлер ничего не копит");
+
+            PhaseProfiler.setEnabled(true);
+            ParallelVectorOps.dot(x, y);
+            ParallelVectorOps.dot(x, y);
+            ParallelVectorOps.axpy(2.0, x, y);
+            CountingOp guided = new CountingOp();
+            ParallelExecutor.executeContiguous(n, guided, ParallelExecutor.Schedule.GUIDED);
+            ParallelExecutor.executeContiguous(100, guided); // Мелочь на мэйн-треде - отдельно от фаз
+
+            List<PhaseProfiler.KernelProfile> all = PhaseProfiler.snapshot();
+            assertEquals(3, all.size(), "Ядра: dot, axpy, счетчик");
+            PhaseProfiler.KernelProfile dot = find(all, "ParallelVectorOps.Dot");
+            assertEquals(2, dot.phases());
+            int chunk = ParallelExecutor.chunkSize(n, 8192, 3);
+            assertEquals(2L * ((n + chunk - 1) / chunk), dot.chunks(), "STATIC: ceil(n / chunk) на фазу");
+            assertEquals(3, dot.workerBusyNanos().length, "Счетчики на каждого воркера");
+            assertTrue(dot.busyNanos() > 0, "Профайлер сам включает замер busy у воркеров");
+            assertTrue(dot.spanNanos() > 0 && dot.p50Nanos() <= dot.maxNanos());
+            assertTrue(dot.derivedWaitFraction() >= 0.0 && dot.derivedWaitFraction() <= 1.0);
+            assertTrue(dot.meanRatio() >= 1.0);
+            for (int i = 0; i < 3; i++) {
+                assertTrue(dot.workerBusyNanos()[i] >= 0 && dot.workerDerivedWaitNanos()[i] >= 0);
+            }
+            assertEquals(1, find(all, "ParallelVectorOps.Axpy").phases());
+
+            PhaseProfiler.KernelProfile counted = find(all, "PhaseProfilerTest.Counting");
+            assertEquals(1, counted.phases(), "Мелочь без воркеров в фазы не попадает");
+            assertEquals(1, counted.inlinePhases(), "...но копится как вызов на мэйн-треде");
+            assertTrue(counted.inlineNanos() >= 0);
+            assertEquals(0, dot.inlinePhases());
+            assertEquals(guided.calls.get() - 1, counted.chunks(),
+                    "GUIDED: выведенное число чанков обязано совпасть с реально розданными");
+
+            ParallelExecutor.init(3, ParallelExecutor.Backend.FORKJOIN);
+            PhaseProfiler.reset();
+            CountingOp leaves = new CountingOp();
+            ParallelExecutor.executeContiguous(n, leaves);
+            PhaseProfiler.KernelProfile fj = find(PhaseProfiler.snapshot(), "PhaseProfilerTest.Counting");
+            assertEquals(1, fj.phases());
+            assertEquals(leaves.calls.get(), fj.chunks(), "ForkJoin: чанки = листья сплита");
+            assertEquals(0, fj.workerBusyNanos().length, "У ForkJoin busy по воркерам нет");
+        } finally {
+            PhaseProfiler.setEnabled(initial);
+            PhaseProfiler.reset();
+            ParallelExecutor.setSchedule(initialSchedule);
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package pdelab.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class SimdBackendTest {
+
+    private final boolean initial = SimdBackend.isEnabled();
+
+    @AfterEach
+    public void restoreBackend() {
+        SimdBackend.setEnabled(initial);
+    }
+
+    @Test
+    public void testCannotEnableWithoutModule() {
+        assumeTrue(!SimdBackend.isAvailable(), "Модуль подключен - проверять нечего");
+        assertFalse(SimdBackend.setEnabled(true), "Без jdk.incubator.vector включить SIMD нельзя");
+    }
+
+    @Test
+    public void testStencilsBitwiseMatchScalar() {
+        assumeTrue(SimdBackend.isAvailable(), "Нужен --add-modules jdk.incubator.vector");
+
+        // 37 - нечетная ширина строки, чтобы векторный хвост тоже попал под проверку
+        Grid2D grid = new Grid2D(37, 29, 1.0, 0.7);
+        int n = grid.numInterior();
+        java.util.Random rnd = new java.util.Random(7);
+        double[] uInt = new double[n];
+        double[] uFull = new double[grid.size()];
+        double[] kX = new double[grid.size()];
+        double[] kY = new double[grid.size()];
+        for (int i = 0; i < n; i++)
+            uInt[i] = rnd.nextGaussian();
+        for (int i = 0; i < uFull.length; i++) {
+            uFull[i] = rnd.nextGaussian();
+            kX[i] = 0.5 + rnd.nextDouble();
+            kY[i] = 0.5 + rnd.nextDouble();
+        }
+
+        for (double[] boundary : new double[][] { uFull, null }) {
+            double[] scalar = new double[n];
+            double[] simd = new double[n];
+
+            SimdBackend.setEnabled(false);
+            Stencil.applyLaplacianInterior(grid, uInt, boundary, scalar);
+            SimdBackend.setEnabled(true);
+            Stencil.applyLaplacianInterior(grid, uInt, boundary, simd);
+            assertArrayEquals(scalar, simd, 0.0, "SIMD Лапласиан обязан совпасть со скаляром бит в бит");
+
+            SimdBackend.setEnabled(false);
+            Stencil.applyDivKGradInterior(grid, uInt, boundary, kX, kY, scalar);
+            SimdBackend.setEnabled(true);
+            Stencil.applyDivKGradInterior(grid, uInt, boundary, kX, kY, simd);
+            assertArrayEquals(scalar, simd, 0.0, "SIMD div(k grad) обязан совпасть со скаляром бит в бит");
+        }
+
+        for (double[] k : new double[][] { kX, null }) {
+            double[] scalar = new double[n];
+            double[] simd = new double[n];
+
+            SimdBackend.setEnabled(false);
+            double dotScalar = Stencil.applyImplicitInterior(grid, 0.01, uInt, k, kY, scalar);
+            SimdBackend.setEnabled(true);
+            double dotSimd = Stencil.applyImplicitInterior(grid, 0.01, uInt, k, kY, simd);
+            assertArrayEquals(scalar, simd, 0.0, "SIMD фьюз x - f*Lx обязан совпасть со скаляром бит в бит");
+            assertEquals(dotScalar, dotSimd, 1e-12 * n);
+        }
+    }
+
+    @Test
+    public void testBlasOpsMatchScalar() {
+        assumeTrue(SimdBackend.isAvailable(), "Нужен --add-modules jdk.incubator.vector");
+
+        int n = 1003;
+        java.util.Random rnd = new java.util.Random(11);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = rnd.nextGaussian();
+            y[i] = rnd.nextGaussian();
+        }
+
+        double[] yScalar = y.clone();
+        double[] ySimd = y.clone();
+        double[] resScalar = new double[n];
+        double[] resSimd = new double[n];
+
+        SimdBackend.setEnabled(false);
+        ParallelVectorOps.axpy(0.3, x, yScalar);
+        ParallelVectorOps.axpby(1.5, x, -0.25, yScalar);
+        ParallelVectorOps.addScaled(x, -2.0, yScalar, resScalar);
+        double dotScalar = ParallelVectorOps.dot(x, y);
+
+        SimdBackend.setEnabled(true);
+        ParallelVectorOps.axpy(0.3, x, ySimd);
+        ParallelVectorOps.axpby(1.5, x, -0.25, ySimd);
+        ParallelVectorOps.addScaled(x, -2.0, ySimd, resSimd);
+        double dotSimd = ParallelVectorOps.dot(x, y);
+
+        assertArrayEquals(yScalar, ySimd, 0.0, "axpy/axpby обязаны совпасть бит в бит");
+        assertArrayEquals(resScalar, resSimd, 0.0, "addScaled обязан совпасть бит в бит");
+        // Дот суммирует по лейнам в другом порядке - только округление
+        assertEquals(dotScalar, dotSimd, 1e-12 * n);
+    }
+}
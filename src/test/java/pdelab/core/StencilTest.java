@@ -25,4 +25,51 @@ public class StencilTest {
         // be -4.0
         assertEquals(-4.0, yInt[0], 1e-12);
     }
+
+    @Test
+    public void testBoundaryLiftMatchesStencilOverZeroInterior() {
+        // Растянутая сетка, чтобы веса соседей были разные по узлам
+        int n = 19;
+        double[] x = new double[n];
+        double[] y = new double[n + 4];
+        for (int i = 1; i < x.length; i++)
+            x[i] = x[i - 1] + 0.05 * Math.pow(1.15, i);
+        for (int i = 1; i < y.length; i++)
+            y[i] = y[i - 1] + 0.03 * Math.pow(1.1, i);
+        double hx = x[x.length - 1] / (x.length - 1);
+        double hy = y[y.length - 1] / (y.length - 1);
+        java.util.Random rnd = new java.util.Random(5);
+        for (Grid2D grid : new Grid2D[] { new Grid2D(x.length, y.length, x[x.length - 1], y[y.length - 1], hx, hy,
+                1.0 / (hx * hx), 1.0 / (hy * hy), x, y), new Grid2D(3, 9, 1.0, 1.0) }) {
+            int nInt = grid.numInterior();
+            double[] uFull = new double[grid.size()];
+            double[] kX = new double[grid.size()];
+            double[] kY = new double[grid.size()];
+            for (int i = 0; i < uFull.length; i++) {
+                uFull[i] = rnd.nextGaussian(); // Нутро тоже мусорное: лифт обязан читать только гало
+                kX[i] = 0.5 + rnd.nextDouble();
+                kY[i] = 0.5 + rnd.nextDouble();
+            }
+            for (boolean variable : new boolean[] { false, true }) {
+                double[] zero = new double[nInt];
+                double[] lx = new double[nInt];
+                double[] expected = new double[nInt];
+                double[] actual = new double[nInt];
+                for (int i = 0; i < nInt; i++) {
+                    expected[i] = rnd.nextGaussian();
+                    actual[i] = expected[i];
+                }
+                if (variable) {
+                    Stencil.applyDivKGradInterior(grid, zero, uFull, kX, kY, lx);
+                } else {
+                    Stencil.applyLaplacianInterior(grid, zero, uFull, lx);
+                }
+                for (int i = 0; i < nInt; i++)
+                    expected[i] += 0.7 * lx[i];
+
+                Stencil.addBoundaryLift(grid, uFull, variable ? kX : null, variable ? kY : null, 0.7, actual);
+                assertArrayEquals(expected, actual, 0.0, "Лифт полосой обязан совпасть с полным стенсилом бит в бит");
+            }
+        }
+    }
 }
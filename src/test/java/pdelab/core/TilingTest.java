@@ -0,0 +1,179 @@
+package pdelab.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TilingTest {
+
+    private final int initialX = Tiling.tileX();
+    private final int initialY = Tiling.tileY();
+
+    @AfterEach
+    public void restore() {
+        Tiling.set(initialX, initialY);
+        ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static double[] random(java.util.Random rnd, int n, double shift) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = shift + rnd.nextDouble();
+        return a;
+    }
+
+    /**
+     * Все стенсилы на текущих тайлах, результаты подряд в одном массиве.
+     */
+    private static double[] runAll(Grid2D grid, double[] uInt, double[] uFull, double[] kX, double[] kY,
+            double[] bX, double[] bY, double[] rhs, double[] diag) {
+        int n = grid.numInterior();
+        double[] out = new double[6 * n];
+        double[] tmp = new double[n];
+
+        Stencil.applyLaplacianInterior(grid, uInt, uFull, tmp);
+        System.arraycopy(tmp, 0, out, 0, n);
+        Stencil.applyDivKGradInterior(grid, uInt, uFull, kX, kY, tmp);
+        System.arraycopy(tmp, 0, out, n, n);
+        java.util.Arrays.fill(tmp, 0.0);
+        Stencil.applyConvectionUpwindInterior(grid, uInt, uFull, bX, bY, tmp);
+        System.arraycopy(tmp, 0, out, 2 * n, n);
+        Stencil.applyImplicitInterior(grid, 0.02, uInt, kX, kY, tmp);
+        System.arraycopy(tmp, 0, out, 3 * n, n);
+        Stencil.jacobiSweepInterior(grid, 0.02, null, null, uInt, rhs, diag, 0.8, tmp);
+        System.arraycopy(tmp, 0, out, 4 * n, n);
+        Stencil.jacobiSweepInterior(grid, 0.02, kX, kY, uInt, rhs, diag, 0.8, tmp);
+        System.arraycopy(tmp, 0, out, 5 * n, n);
+        return out;
+    }
+
+    @Test
+    public void testTiledSweepsMatchFullWidthBitwise() {
+        // 159x119 нутра: больше MIN_CHUNK_SIZE точек, так что на 3 потоках тайлы реально расползаются по воркерам
+        Grid2D grid = new Grid2D(161, 121, 1.0, 0.5);
+        java.util.Random rnd = new java.util.Random(9);
+        int n = grid.numInterior();
+        double[] uInt = random(rnd, n, -0.5);
+        double[] rhs = random(rnd, n, -0.5);
+        double[] diag = random(rnd, n, 1.0);
+        double[] uFull = random(rnd, grid.size(), -0.5);
+        double[] kX = random(rnd, grid.size(), 0.5);
+        double[] kY = random(rnd, grid.size(), 0.5);
+        double[] bX = random(rnd, grid.size(), -0.5);
+        double[] bY = random(rnd, grid.size(), -0.5);
+
+        Tiling.set(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        double[] reference = runAll(grid, uInt, uFull, kX, kY, bX, bY, rhs, diag);
+
+        // Тайлы уже пилинга, нечетные, поперек краев и на несколько воркеров
+        int[][] shapes = { { 1, 1 }, { 2, 3 }, { 3, 7 }, { 8, 4 }, { 16, 5 }, { 157, 1 }, { 64, 64 } };
+        for (int threads : new int[] { 1, 3 }) {
+            ParallelExecutor.init(threads);
+            for (int[] shape : shapes) {
+                Tiling.set(shape[0], shape[1]);
+                double[] tiled = runAll(grid, uInt, uFull, kX, kY, bX, bY, rhs, diag);
+                assertArrayEquals(reference, tiled, 0.0,
+                        "Тайл " + shape[0] + "x" + shape[1] + " на " + threads + " потоках поменял результат");
+            }
+        }
+    }
+
+    @Test
+    public void testJacobiSweepMatchesUnfusedUpdate() {
+        Grid2D grid = new Grid2D(19, 15, 1.0, 1.0);
+        java.util.Random rnd = new java.util.Random(4);
+        int n = grid.numInterior();
+        double[] z = random(rnd, n, -0.5);
+        double[] rhs = random(rnd, n, -0.5);
+        double[] diag = random(rnd, n, 1.0);
+        double factor = 0.01;
+        double omega = 0.8;
+
+        double[] Az = new double[n];
+        Stencil.applyImplicitInterior(grid, factor, z, null, null, Az);
+        double[] expected = z.clone();
+        for (int i = 0; i < n; i++) {
+            expected[i] += omega * (rhs[i] - Az[i]) / diag[i];
+        }
+
+        double[] out = new double[n];
+        Stencil.jacobiSweepInterior(grid, factor, null, null, z, rhs, diag, omega, out);
+        assertArrayEquals(expected, out, 0.0, "Фьюзнутый Якоби обязан совпасть с A z + отдельным апдейтом");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> Stencil.jacobiSweepInterior(grid, factor, null, null, z, rhs, diag, omega, z));
+    }
+
+    @Test
+    public void testWavefrontSweepsMatchRepeatedSweeps() {
+        // Wavefront обязан дать бит в бит то же, что k одиночных свипов подряд - при любой глубине,
+        // высоте блока (она от tileY) и раскладке блоков по воркерам
+        Grid2D grid = new Grid2D(161, 121, 1.0, 0.5);
+        java.util.Random rnd = new java.util.Random(12);
+        int n = grid.numInterior();
+        double[] z = random(rnd, n, -0.5);
+        double[] rhs = random(rnd, n, -0.5);
+        double[] diag = random(rnd, n, 1.0);
+        double[] kX = random(rnd, grid.size(), 0.5);
+        double[] kY = random(rnd, grid.size(), 0.5);
+        double factor = 0.02;
+        double omega = 0.8;
+
+        for (boolean variable : new boolean[] { false, true }) {
+            double[] kXv = variable ? kX : null;
+            double[] kYv = variable ? kY : null;
+            for (int sweeps : new int[] { 1, 2, 3, 7 }) {
+                double[] expected = z.clone();
+                double[] tmp = new double[n];
+                for (int s = 0; s < sweeps; s++) {
+                    Stencil.jacobiSweepInterior(grid, factor, kXv, kYv, expected, rhs, diag, omega, tmp);
+                    double[] swap = expected;
+                    expected = tmp;
+                    tmp = swap;
+                }
+                for (int threads : new int[] { 1, 3 }) {
+                    ParallelExecutor.init(threads);
+                    for (int ty : new int[] { 1, 5, 32, Integer.MAX_VALUE }) {
+                        Tiling.set(Integer.MAX_VALUE, ty);
+                        double[] out = new double[n];
+                        Stencil.jacobiSweepsInterior(grid, factor, kXv, kYv, z, rhs, diag, omega, sweeps, out);
+                        assertArrayEquals(expected, out, 0.0, sweeps + " свипов (kappa=" + variable + ", tileY=" + ty
+                                + ", " + threads + " потоков) разъехались с одиночными");
+                    }
+                }
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> Stencil.jacobiSweepsInterior(grid, factor, null, null, z, rhs, diag, omega, 0, new double[n]));
+        assertThrows(IllegalArgumentException.class,
+                () -> Stencil.jacobiSweepsInterior(grid, factor, null, null, z, rhs, diag, omega, 2, z));
+    }
+
+    @Test
+    public void testAutotunePicksWidthAndHeightAndResetsNarrowGrids() {
+        ParallelExecutor.Reduction initial = ParallelExecutor.getReduction();
+        try {
+            ParallelExecutor.setReduction(ParallelExecutor.Reduction.FAST);
+            Tiling.set(128, 8);
+            Tiling.autotune(new Grid2D(66, 66, 1.0, 1.0));
+            assertEquals(Integer.MAX_VALUE, Tiling.tileX(), "Узкая сетка - тайл во всю ширину");
+            assertEquals(32, Tiling.tileY(), "...и дефолтная высота, а не хвост прошлого Tiling.set");
+
+            int tx = Tiling.autotune(new Grid2D(514, 34, 1.0, 1.0));
+            assertEquals(tx, Tiling.tileX());
+            assertTrue(java.util.List.of(128, 256, 512, 1024, 2048, Integer.MAX_VALUE).contains(tx),
+                    "Ширина из кандидатов: " + tx);
+            assertTrue(java.util.List.of(8, 16, 32, 64).contains(Tiling.tileY()),
+                    "Высота тюнится вместе с шириной: " + Tiling.tileY());
+        } finally {
+            ParallelExecutor.setReduction(initial);
+        }
+    }
+
+    @Test
+    public void testRejectsEmptyTile() {
+        assertThrows(IllegalArgumentException.class, () -> Tiling.set(0, 8));
+        assertThrows(IllegalArgumentException.class, () -> Tiling.set(64, -1));
+    }
+}
@@ -1,7 +1,11 @@
 package pdelab.runtime;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import pdelab.core.ParallelExecutor;
+import pdelab.core.Tiling;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -61,6 +65,176 @@ public class RegressionTest {
         configFile.delete(); // tempDir сам за собой приберет (артифакты сгорят в огне)
     }
 
+    @Test
+    public void testReproducibleReductionsMakeRunIndependentOfThreads(@TempDir Path tempDir) throws Exception {
+        ParallelExecutor.Reduction initial = ParallelExecutor.getReduction();
+        try {
+            ParallelExecutor.setReduction(ParallelExecutor.Reduction.TREE);
+            // 128^2 нутра: dot уже режется на несколько блоков и идет через воркеров
+            JsonNode one = runAndReadMetrics(tempDir.resolve("t1"), 1, "BARRIER");
+            JsonNode four = runAndReadMetrics(tempDir.resolve("t4"), 4, "BARRIER");
+            // Движок тоже не должен влиять на биты
+            JsonNode forkJoin = runAndReadMetrics(tempDir.resolve("fj3"), 3, "FORKJOIN");
+            assertEquals("FORKJOIN", forkJoin.get("executorBackend").asText());
+            assertEquals(2, one.get("stepTiming").get("steps").asLong(), "T / dt = 2 шага в stepTiming");
+            assertTrue(one.get("stepTiming").get("phases").get("SOLVE").get("totalMs").asDouble() > 0.0);
+            assertEquals(3, forkJoin.get("threadsEffective").asInt());
+            assertEquals(one.get("totalPcgIters").asLong(), forkJoin.get("totalPcgIters").asLong());
+            assertEquals(Double.doubleToRawLongBits(one.get("errorL2").asDouble()),
+                    Double.doubleToRawLongBits(forkJoin.get("errorL2").asDouble()),
+                    "errorL2 обязан совпасть бит в бит на барьерном пуле и ForkJoin");
+            assertEquals(one.get("totalPcgIters").asLong(), four.get("totalPcgIters").asLong(),
+                    "Число итераций PCG не должно зависеть от числа потоков");
+            assertEquals(Double.doubleToRawLongBits(one.get("errorL2").asDouble()),
+                    Double.doubleToRawLongBits(four.get("errorL2").asDouble()),
+                    "errorL2 обязан совпасть бит в бит на 1 и 4 потоках");
+            assertEquals(Double.doubleToRawLongBits(one.get("maxAbsResidual").asDouble()),
+                    Double.doubleToRawLongBits(four.get("maxAbsResidual").asDouble()));
+        } finally {
+            ParallelExecutor.setReduction(initial);
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    public void testReproducibleReductionsSurviveTileAutotune(@TempDir Path tempDir) throws Exception {
+        ParallelExecutor.Reduction initial = ParallelExecutor.getReduction();
+        int tileX = Tiling.tileX();
+        int tileY = Tiling.tileY();
+        try {
+            ParallelExecutor.setReduction(ParallelExecutor.Reduction.TREE);
+            // 256 колонок нутра - ровно порог автотюна: без пина ширина выбиралась бы по таймингу
+            JsonNode first = runAndReadMetrics(tempDir.resolve("a"), 258, 2, "BARRIER");
+            assertEquals(Integer.MAX_VALUE, Tiling.tileX(), "TREE: тайл обязан быть запинен, а не затюнен");
+            Tiling.set(128, 8); // Хвост чужого тюна не должен пережить следующий прогон
+            JsonNode second = runAndReadMetrics(tempDir.resolve("b"), 258, 2, "BARRIER");
+            assertEquals(first.get("totalPcgIters").asLong(), second.get("totalPcgIters").asLong());
+            assertEquals(Double.doubleToRawLongBits(first.get("errorL2").asDouble()),
+                    Double.doubleToRawLongBits(second.get("errorL2").asDouble()),
+                    "errorL2 обязан совпасть бит в бит между прогонами");
+            assertEquals(Double.doubleToRawLongBits(first.get("maxAbsResidual").asDouble()),
+                    Double.doubleToRawLongBits(second.get("maxAbsResidual").asDouble()));
+        } finally {
+            ParallelExecutor.setReduction(initial);
+            Tiling.set(tileX, tileY);
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    public void testPhaseProfileLandsInMetricsAndCsv(@TempDir Path tempDir) throws Exception {
+        try {
+            JsonNode metrics = runAndReadMetrics(tempDir.resolve("prof"), 2, "BARRIER", "--profile", "phases");
+            JsonNode profile = metrics.get("phaseProfile");
+            assertNotNull(profile, "--profile phases обязан положить phaseProfile в metrics.json");
+            assertTrue(profile.size() > 0, "Солвер гоняет ядра через воркеров - профиль не пустой");
+            int rows = 1;
+            for (JsonNode k : profile) {
+                long phases = k.get("phases").asLong();
+                assertTrue(phases + k.get("inlinePhases").asLong() > 0);
+                assertEquals(phases > 0 ? 2 : 0, k.get("workerBusyMs").size(),
+                        "Счетчики по обоим воркерам, если ядро до них доходило");
+                rows += 1 + k.get("workerBusyMs").size();
+            }
+            File run = tempDir.resolve("prof").toFile().listFiles()[0];
+            java.util.List<String> csv = Files.readAllLines(Path.of(run.getAbsolutePath(), "phase_profile.csv"));
+            assertTrue(csv.get(0).startsWith("kernel,worker,phases"));
+            assertEquals(rows, csv.size(), "Итог + строка на воркера по каждому ядру");
+        } finally {
+            pdelab.core.PhaseProfiler.setEnabled(false);
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    public void testLiveJfrReportAndRecordingCarrySolverEvents(@TempDir Path tempDir) throws Exception {
+        try {
+            JsonNode metrics = runAndReadMetrics(tempDir.resolve("jfr"), 2, "BARRIER", "--profile", "live,jfr");
+            File run = tempDir.resolve("jfr").toFile().listFiles()[0];
+
+            JsonNode report = new ObjectMapper().readTree(Path.of(run.getAbsolutePath(), "jfr_live_report.json")
+                    .toFile());
+            assertEquals(2, report.get("timeSteps").get("count").asLong(), "T / dt = 2 события шага");
+            assertEquals(metrics.get("totalPcgIters").asLong(), report.get("linearSolves").get("iterations").asLong(),
+                    "Итерации из LinearSolveEvent обязаны сойтись с metrics.json");
+            assertTrue(report.get("linearSolves").get("byStatus").has("CONVERGED"));
+            assertTrue(report.get("preconditionerSetups").size() > 0, "Сборка Якоби в конструкторе степпера");
+            JsonNode phases = report.get("executorPhases");
+            assertTrue(phases.size() > 0, "Фазы воркеров обязаны долететь до стрима");
+            for (JsonNode k : phases) {
+                assertTrue(k.get("count").asLong() > 0 && !k.get("kernel").asText().isEmpty());
+            }
+
+            long steps = jdk.jfr.consumer.RecordingFile
+                    .readAllEvents(Path.of(run.getAbsolutePath(), "profile.jfr")).stream()
+                    .filter(e -> e.getEventType().getName().equals(pdelab.solver.TimeStepEvent.NAME)).count();
+            assertEquals(2, steps, "--profile jfr пишет события шага в profile.jfr");
+            assertFalse(pdelab.core.PhaseProfiler.isJfrEvents(), "После прогона события фаз выключены");
+        } finally {
+            ParallelExecutor.init(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    public void testLiveProfilerLeavesForeignRecordingEventsOn(@TempDir Path tempDir) throws Exception {
+        assertFalse(pdelab.core.PhaseProfiler.isJfrEvents(), "Без записей событие фаз выключено");
+        try (jdk.jfr.Recording foreign = new jdk.jfr.Recording()) {
+            foreign.enable(pdelab.core.ExecutorPhaseEvent.NAME);
+            foreign.start();
+            try (LiveProfiler live = LiveProfiler.start(java.time.Duration.ofSeconds(2))) {
+                live.stopAndReport(tempDir.resolve("live.json").toFile());
+            }
+            assertTrue(pdelab.core.PhaseProfiler.isJfrEvents(), "Live-стрим не должен гасить чужую запись");
+        }
+        assertFalse(pdelab.core.PhaseProfiler.isJfrEvents(), "Закрылась последняя запись - событие выключено");
+    }
+
+    private static JsonNode runAndReadMetrics(Path outDir, int threads, String executor, String... extraArgs)
+            throws Exception {
+        return runAndReadMetrics(outDir, 130, threads, executor, extraArgs);
+    }
+
+    private static JsonNode runAndReadMetrics(Path outDir, int n, int threads, String executor,
+            String... extraArgs) throws Exception {
+        String outDirStr = outDir.toAbsolutePath().toString().replace("\\", "\\\\");
+        String jsonConfig = """
+                {
+                  "Nx": %d,
+                  "Ny": %d,
+                  "Lx": 1.0,
+                  "Ly": 1.0,
+                  "alpha": 0.1,
+                  "T": 0.02,
+                  "dt": 0.01,
+                  "scheme": "CN",
+                  "maxIters": 1000,
+                  "tol": 1e-8,
+                  "threads": %d,
+                  "outDir": "%s",
+                  "testCase": "NON_TRIVIAL",
+                  "executor": "%s"
+                }
+                """.formatted(n, n, threads, outDirStr, executor);
+        File configFile = File.createTempFile("config", ".json");
+        try {
+            Files.writeString(configFile.toPath(), jsonConfig);
+            String[] args = new String[3 + extraArgs.length];
+            args[0] = "run";
+            args[1] = "--config";
+            args[2] = configFile.getAbsolutePath();
+            System.arraycopy(extraArgs, 0, args, 3, extraArgs.length);
+            int exitCode = new picocli.CommandLine(new PdeLabCLI()).execute(args);
+            assertEquals(0, exitCode, "Exit code should be 0");
+        } finally {
+            configFile.delete();
+        }
+        File[] runs = outDir.toFile().listFiles();
+        assertNotNull(runs, "Base output directory must exist");
+        assertEquals(1, runs.length, "Ждали ровно один прогон в " + outDir);
+        return new ObjectMapper()
+                .readTree(Path.of(runs[0].getAbsolutePath(), "metrics.json").toFile());
+    }
+
     @Test
     public void testConfigValidationRejectsBadInputs() {
         Config config = new Config(
@@ -68,5 +242,11 @@ public class RegressionTest {
                 "ARITHMETIC");
         IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, config::validate);
         assertTrue(ex.getMessage().contains("Nx"));
+
+        Config badExecutor = new Config(
+                64, 64, 1.0, 1.0, 0.1, 0.1, 0.01, "CN", 1000, 1e-10, 0, "test_out", "NON_ZERO_DIRICHLET", "JACOBI",
+                "ARITHMETIC", "VIRTUAL");
+        ex = assertThrows(IllegalArgumentException.class, badExecutor::validate);
+        assertTrue(ex.getMessage().contains("executor"));
     }
 }
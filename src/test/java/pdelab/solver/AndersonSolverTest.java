@@ -0,0 +1,117 @@
+package pdelab.solver;
+
+import org.junit.jupiter.api.Test;
+import pdelab.core.Grid2D;
+import pdelab.core.Stencil;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AndersonSolverTest {
+
+    private static final int N = 32;
+    private static final int N_MG = 33; // 2^5 + 1, чтобы MG построил иерархию
+
+    @Test
+    void testAndersonSolvesDiffusionReaction() {
+        Grid2D grid = new Grid2D(N, N, 1.0, 1.0);
+        double[] uTrue = new double[grid.numInterior()];
+        NewtonKrylov.NonLinearFunction F = diffusionReaction(grid, uTrue);
+
+        AndersonSolver solver = new AndersonSolver(grid, 5, 50, 1e-8);
+        double[] u = new double[grid.numInterior()];
+        solver.solve(F, u);
+
+        AndersonSolver.SolveStats stats = solver.getLastSolveStats();
+        assertTrue(stats.converged(), "Anderson обязан сойтись на гладкой экспоненте: " + stats);
+        assertTrue(maxError(u, uTrue) < 1e-6, "Anderson не сошелся к настоящему решению");
+    }
+
+    @Test
+    void testAndersonBeatsPicardOnIterations() {
+        Grid2D grid = new Grid2D(N, N, 1.0, 1.0);
+        double[] uTrue = new double[grid.numInterior()];
+        NewtonKrylov.NonLinearFunction F = diffusionReaction(grid, uTrue);
+
+        AndersonSolver picard = new AndersonSolver(grid, 0, 200, 1e-8);
+        picard.solve(F, new double[grid.numInterior()]);
+
+        AndersonSolver anderson = new AndersonSolver(grid, 5, 200, 1e-8);
+        anderson.solve(F, new double[grid.numInterior()]);
+
+        AndersonSolver.SolveStats p = picard.getLastSolveStats();
+        AndersonSolver.SolveStats a = anderson.getLastSolveStats();
+        assertTrue(p.converged(), "Чистый Picard тоже обязан сойтись, просто медленнее: " + p);
+        assertTrue(a.iterations() < p.iterations(),
+                "Смешивание обязано ускорять голый Picard: Anderson(5) " + a + " vs Picard " + p);
+    }
+
+    @Test
+    void testAndersonVsPreconditionedJfnkOnSameMultigrid() {
+        // Честное сравнение: оба внутренних солвера крутятся с одним и тем же MG на I - L, JFNK - с
+        // FD J*v и лучшим форсингом (EW1). Anderson жжет F ровно раз на шаг и выигрывает по F-evals,
+        // зато JFNK с MG обходится меньшим числом внутренних итераций - цена Anderson'а в них.
+        Grid2D grid = new Grid2D(N_MG, N_MG, 1.0, 1.0);
+        double[] uTrue = new double[grid.numInterior()];
+        NewtonKrylov.NonLinearFunction F = diffusionReaction(grid, uTrue);
+
+        AndersonSolver anderson = new AndersonSolver(grid, 5, 200, 1e-8, new ImplicitMatrix(grid, 1.0),
+                new MGPreconditioner(grid, 1.0, null));
+        double[] u = new double[grid.numInterior()];
+        anderson.solve(F, u);
+
+        NewtonKrylov jfnk = new NewtonKrylov(grid, 20, 1e-8, 1000, 1e-9, NewtonKrylov.KrylovMethod.GMRES,
+                new MGPreconditioner(grid, 1.0, null));
+        jfnk.setForcingTerm(NewtonKrylov.ForcingTerm.EISENSTAT_WALKER_1);
+        jfnk.solve(F, new double[grid.numInterior()]);
+
+        AndersonSolver.SolveStats a = anderson.getLastSolveStats();
+        NewtonKrylov.SolveStats j = jfnk.getLastSolveStats();
+        assertTrue(a.converged() && j.converged(), "Оба обязаны сойтись: Anderson " + a + ", JFNK " + j);
+        assertTrue(maxError(u, uTrue) < 1e-6, "Anderson с MG не сошелся к настоящему решению: " + a);
+        assertTrue(a.residualEvaluations() < j.residualEvaluations(),
+                "Anderson обязан жечь меньше F-evals, чем JFNK с тем же MG: Anderson " + a + " vs JFNK " + j);
+        assertTrue(j.krylovIterations() < a.innerIterations(),
+                "JFNK с MG обязан обходиться меньшим Крыловым: JFNK " + j + " vs Anderson " + a);
+    }
+
+    @Test
+    void testAndersonRejectsNegativeDepth() {
+        Grid2D grid = new Grid2D(8, 8, 1.0, 1.0);
+        assertThrows(IllegalArgumentException.class, () -> new AndersonSolver(grid, -1, 10, 1e-8));
+    }
+
+    /**
+     * Та же таска, что в JFNKTest: F(u) = -Laplacian(u) - exp(u) - f, f подогнан под u = sin(pi x) sin(pi y).
+     */
+    private static NewtonKrylov.NonLinearFunction diffusionReaction(Grid2D grid, double[] uTrueInt) {
+        int nInt = grid.numInterior();
+        double[] uTrue = new double[grid.size()];
+        for (int j = 0; j < grid.Ny(); j++) {
+            for (int i = 0; i < grid.Nx(); i++) {
+                uTrue[grid.idx(i, j)] = Math.sin(Math.PI * grid.x()[i]) * Math.sin(Math.PI * grid.y()[j]);
+            }
+        }
+        grid.extractInterior(uTrue, uTrueInt);
+
+        double[] f = new double[nInt];
+        Stencil.applyLaplacianInterior(grid, uTrueInt, uTrue, f);
+        for (int i = 0; i < nInt; i++) {
+            f[i] = -f[i] - Math.exp(uTrueInt[i]);
+        }
+
+        return (u, F_out) -> {
+            Stencil.applyLaplacianInterior(grid, u, null, F_out);
+            for (int i = 0; i < nInt; i++) {
+                F_out[i] = -F_out[i] - Math.exp(u[i]) - f[i];
+            }
+        };
+    }
+
+    private static double maxError(double[] u, double[] uTrue) {
+        double maxError = 0.0;
+        for (int i = 0; i < u.length; i++) {
+            maxError = Math.max(maxError, Math.abs(u[i] - uTrue[i]));
+        }
+        return maxError;
+    }
+}
@@ -0,0 +1,97 @@
+package pdelab.solver;
+
+import org.junit.jupiter.api.Test;
+import pdelab.core.Grid2D;
+import pdelab.core.Stencil;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiaMatrixOperatorTest {
+
+    private static Grid2D stretchedGrid(int n) {
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double h = 0.05;
+        for (int i = 1; i < n; i++) {
+            x[i] = x[i - 1] + h * Math.pow(1.15, i);
+            y[i] = y[i - 1] + 0.5 * h * Math.pow(1.1, i);
+        }
+        double hx = x[n - 1] / (n - 1);
+        double hy = y[n - 1] / (n - 1);
+        return new Grid2D(n, n, x[n - 1], y[n - 1], hx, hy, 1.0 / (hx * hx), 1.0 / (hy * hy), x, y);
+    }
+
+    private static double[] random(java.util.Random rnd, int n, double shift) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++)
+            a[i] = shift + rnd.nextDouble();
+        return a;
+    }
+
+    @Test
+    public void testMatchesMatrixFreeOperator() {
+        java.util.Random rnd = new java.util.Random(40);
+        // Плюс вырожденные нутра: одна колонка, одна строка, две колонки - краевые точки без общего лупа
+        for (Grid2D grid : new Grid2D[] { new Grid2D(37, 23, 1.0, 0.7), stretchedGrid(21), new Grid2D(3, 9, 1.0, 1.0),
+                new Grid2D(9, 3, 1.0, 1.0), new Grid2D(4, 6, 1.0, 1.0) }) {
+            double[] kFull = random(rnd, grid.size(), 0.5);
+            double[] kX = new double[grid.size()];
+            double[] kY = new double[grid.size()];
+            Stencil.precomputeDiffusivityArrays(grid, kFull, kX, kY, "HARMONIC");
+
+            for (double[][] k : new double[][][] { { null, null }, { kX, kY } }) {
+                ImplicitMatrix A = new ImplicitMatrix(grid, 0.03, k[0], k[1]);
+                DiaMatrixOperator dia = A.coefficients();
+                double[] x = random(rnd, grid.numInterior(), -0.5);
+                double[] expected = new double[x.length];
+                double[] actual = new double[x.length];
+
+                double dotA = A.multiplyDot(x, expected);
+                double dotDia = dia.multiplyDot(x, actual);
+                assertArrayEquals(expected, actual, 1e-10, "DIA обязан совпасть со стенсилом");
+                assertEquals(dotA, dotDia, 1e-9 * Math.abs(dotA), "x · Ax из DIA разъехался");
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateFactorMatchesFreshAssembly() {
+        Grid2D grid = stretchedGrid(17);
+        double[] kFull = random(new java.util.Random(41), grid.size(), 0.5);
+        ImplicitMatrix A = new ImplicitMatrix(grid, 0.1);
+        DiaMatrixOperator shared = A.coefficients();
+        DiaMatrixOperator withK = DiaMatrixOperator.fromNodalKappa(grid, 0.1, kFull);
+
+        A.updateFactor(0.025);
+        withK.updateFactor(0.025);
+        assertEquals(0.025, shared.factor(), 0.0, "updateFactor у A обязан доехать до коэффициентов");
+        assertArrayEquals(new DiaMatrixOperator(grid, 0.025, null, null).diagonal(), shared.diagonal(), 0.0);
+        assertArrayEquals(DiaMatrixOperator.fromNodalKappa(grid, 0.025, kFull).invDiagonal(), withK.invDiagonal(),
+                0.0, "Пересчет диагонали обязан совпасть со свежей сборкой бит в бит");
+    }
+
+    @Test
+    public void testSharedPreconditionersMatchStandalone() {
+        Grid2D grid = new Grid2D(19, 15, 1.0, 1.0);
+        java.util.Random rnd = new java.util.Random(42);
+        double[] kFull = random(rnd, grid.size(), 0.5);
+        double[] r = random(rnd, grid.numInterior(), -0.5);
+        DiaMatrixOperator dia = DiaMatrixOperator.fromNodalKappa(grid, 0.05, kFull);
+
+        double[] expected = new double[r.length];
+        double[] actual = new double[r.length];
+        new JacobiPreconditioner(grid, 0.05, kFull).apply(r, expected);
+        new JacobiPreconditioner(dia).apply(r, actual);
+        assertArrayEquals(expected, actual, 0.0, "Jacobi поверх общего DIA");
+
+        new SSORPreconditioner(grid, 0.05, 1.5, kFull).apply(r, expected);
+        new SSORPreconditioner(dia, 1.5).apply(r, actual);
+        assertArrayEquals(expected, actual, 0.0, "SSOR поверх общего DIA");
+
+        // Граничные связи в DIA - нули, центр - полная сумма
+        int inX = grid.inX();
+        assertEquals(0.0, dia.west()[0], 0.0);
+        assertEquals(0.0, dia.south()[0], 0.0);
+        assertEquals(0.0, dia.east()[inX - 1], 0.0);
+        assertEquals(0.0, dia.north()[r.length - 1], 0.0);
+    }
+}
@@ -1,7 +1,10 @@
 package pdelab.solver;
 
 import org.junit.jupiter.api.Test;
+import pdelab.core.BlockedLayout;
 import pdelab.core.Grid2D;
+import pdelab.core.ParallelVectorOps;
+import pdelab.core.Stencil;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ImplicitMatrixTest {
@@ -15,9 +18,7 @@ public class ImplicitMatrixTest {
 
         // Тут у нас профит: A = I - 0.5 * dt * alpha * Лапласиан (для Crank-Nicolson)
         double factor = 0.5 * dt * alpha;
-        // The array is strictly sized to the interior
-        double[] tempInt = new double[1];
-        ImplicitMatrix A = new ImplicitMatrix(grid, factor, tempInt);
+        ImplicitMatrix A = new ImplicitMatrix(grid, factor);
 
         double[] xInt = new double[1];
         xInt[0] = 1.0;
@@ -32,8 +33,7 @@ public class ImplicitMatrixTest {
     @Test
     public void testOperatorLinearity() {
         Grid2D grid = new Grid2D(5, 5, 2.0, 2.0);
-        double[] tempInt = new double[grid.numInterior()];
-        ImplicitMatrix A = new ImplicitMatrix(grid, 0.1, tempInt);
+        ImplicitMatrix A = new ImplicitMatrix(grid, 0.1);
 
         double[] x = new double[grid.numInterior()];
         double[] y = new double[grid.numInterior()];
@@ -67,8 +67,7 @@ public class ImplicitMatrixTest {
     @Test
     public void testInvarianceToBoundaryGarbage() {
         Grid2D grid = new Grid2D(5, 5, 2.0, 2.0);
-        double[] tempInt = new double[grid.numInterior()];
-        ImplicitMatrix A = new ImplicitMatrix(grid, 0.1, tempInt);
+        ImplicitMatrix A = new ImplicitMatrix(grid, 0.1);
 
         double[] x = new double[grid.numInterior()];
         for (int i = 0; i < x.length; i++)
@@ -92,4 +91,102 @@ public class ImplicitMatrixTest {
 
         assertArrayEquals(y1, y2, 1e-12, "Operator must perfectly insulate from external boundary noise");
     }
+
+    @Test
+    public void testFusedApplyMatchesStencilPlusScaling() {
+        // Фьюз обязан дать ровно то же, что старый путь: Lx во временный массив, потом x - factor * Lx
+        Grid2D grid = new Grid2D(23, 14, 1.0, 0.6);
+        int n = grid.numInterior();
+        double factor = 0.003;
+        java.util.Random rnd = new java.util.Random(3);
+        double[] x = new double[n];
+        double[] kX = new double[grid.size()];
+        double[] kY = new double[grid.size()];
+        for (int i = 0; i < n; i++)
+            x[i] = rnd.nextGaussian();
+        for (int i = 0; i < kX.length; i++) {
+            kX[i] = 0.5 + rnd.nextDouble();
+            kY[i] = 0.5 + rnd.nextDouble();
+        }
+
+        for (boolean variable : new boolean[] { false, true }) {
+            double[] Lx = new double[n];
+            double[] expected = new double[n];
+            if (variable) {
+                Stencil.applyDivKGradInterior(grid, x, null, kX, kY, Lx);
+            } else {
+                Stencil.applyLaplacianInterior(grid, x, null, Lx);
+            }
+            ParallelVectorOps.addScaled(x, -factor, Lx, expected);
+
+            ImplicitMatrix A = variable ? new ImplicitMatrix(grid, factor, kX, kY) : new ImplicitMatrix(grid, factor);
+            double[] y = new double[n];
+            double xy = A.multiplyDot(x, y);
+
+            assertArrayEquals(expected, y, 0.0, "Фьюзнутый apply обязан совпасть с раздельным бит в бит");
+            assertEquals(ParallelVectorOps.dot(x, expected), xy, 1e-12 * n, "x · Ax из того же прохода");
+
+            double[] plain = new double[n];
+            A.multiply(x, plain);
+            assertArrayEquals(y, plain, 0.0, "multiply без dot обязан писать тот же y, что multiplyDot");
+        }
+    }
+
+    @Test
+    public void testBlockedLayoutSolveMatchesRowMajor() {
+        // PCG + Jacobi целиком в blocked-Morton раскладке: то же решение, что и в row-major
+        Grid2D grid = new Grid2D(45, 37, 1.0, 1.0);
+        int n = grid.numInterior();
+        double factor = 0.01;
+        java.util.Random rnd = new java.util.Random(8);
+        double[] kFull = new double[grid.size()];
+        for (int i = 0; i < kFull.length; i++)
+            kFull[i] = 0.5 + rnd.nextDouble();
+        double[] kX = new double[grid.size()];
+        double[] kY = new double[grid.size()];
+        Stencil.precomputeDiffusivityArrays(grid, kFull, kX, kY, "ARITHMETIC");
+        double[] b = new double[n];
+        for (int i = 0; i < n; i++)
+            b[i] = rnd.nextGaussian();
+
+        double[] x = new double[n];
+        new PCG(grid, 500, 1e-12).solve(new ImplicitMatrix(grid, factor, kX, kY),
+                new JacobiPreconditioner(grid, factor, kFull), b, x);
+
+        BlockedLayout layout = grid.blocked(8);
+        double[] bBlk = new double[n];
+        double[] xBlk = new double[n];
+        layout.toBlocked(b, bBlk);
+        LinearSolver.SolveResult res = new PCG(grid, 500, 1e-12).solve(
+                new ImplicitMatrix(grid, factor, kX, kY, layout),
+                new JacobiPreconditioner(grid, factor, kFull, layout), bBlk, xBlk);
+        assertEquals(LinearSolver.Status.CONVERGED, res.status(), "PCG в blocked-раскладке обязан сойтись");
+
+        double[] xBack = new double[n];
+        layout.toRowMajor(xBlk, xBack);
+        assertArrayEquals(x, xBack, 1e-9, "Раскладка не должна менять решение");
+    }
+
+    @Test
+    public void testSpecializedKernelFollowsFactor() {
+        boolean initial = pdelab.core.KernelFactory.isEnabled();
+        try {
+            Grid2D grid = new Grid2D(41, 29, 1.0, 1.0);
+            double[] x = new double[grid.numInterior()];
+            for (int i = 0; i < x.length; i++)
+                x[i] = Math.sin(0.3 * i);
+            double[] expected = new double[x.length];
+            double[] actual = new double[x.length];
+
+            pdelab.core.KernelFactory.setEnabled(true);
+            ImplicitMatrix A = new ImplicitMatrix(grid, 0.01);
+            A.multiply(x, actual);
+            A.updateFactor(0.05);
+            A.multiply(x, actual);
+            Stencil.applyImplicitInterior(grid, 0.05, x, null, null, expected);
+            assertArrayEquals(expected, actual, 1e-12, "Спец-ядро обязано подхватить новый factor");
+        } finally {
+            pdelab.core.KernelFactory.setEnabled(initial);
+        }
+    }
 }
@@ -5,17 +5,112 @@ import pdelab.core.Grid2D;
 import pdelab.core.Stencil;
 import pdelab.core.VectorOps;
 import pdelab.core.ParallelVectorOps;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class JFNKTest {
 
     @Test
     void testJFNK_NonLinearDiffusionReaction() {
+        assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.PCG);
+    }
+
+    @Test
+    void testJFNK_GMRESInnerSolver() {
+        assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES);
+    }
+
+    @Test
+    void testJFNK_BiCGStabInnerSolver() {
+        assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.BICGSTAB);
+    }
+
+    @Test
+    void testJFNK_MultigridPreconditionedGMRES() {
+        // 33 = 2^5 + 1, чтобы MG реально построил иерархию. Прекондей: I - L (линеаризованная диффузия)
+        assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 33, true);
+    }
+
+    @Test
+    void testJFNK_EisenstatWalkerForcingSavesKrylovIterations() {
+        NewtonKrylov.SolveStats constant = assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 32,
+                false, NewtonKrylov.ForcingTerm.CONSTANT);
+        NewtonKrylov.SolveStats ew1 = assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 32, false,
+                NewtonKrylov.ForcingTerm.EISENSTAT_WALKER_1);
+        NewtonKrylov.SolveStats ew2 = assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 32, false,
+                NewtonKrylov.ForcingTerm.EISENSTAT_WALKER_2);
+
+        // Inexact Newton может сделать пару лишних Newton-шагов, но Крылова обязан сжечь меньше
+        assertTrue(ew1.krylovIterations() < constant.krylovIterations(),
+                "EW1 обязан не оверсолвить ранние шаги: EW1 " + ew1 + " vs CONSTANT " + constant);
+        assertTrue(ew2.krylovIterations() < constant.krylovIterations(),
+                "EW2 обязан не оверсолвить ранние шаги: EW2 " + ew2 + " vs CONSTANT " + constant);
+        assertTrue(ew2.residualEvaluations() < constant.residualEvaluations(),
+                "Меньше Крылова = меньше F-evals на J*v: EW2 " + ew2 + " vs CONSTANT " + constant);
+    }
+
+    @Test
+    void testJFNK_AnalyticJacobianVectorSkipsFiniteDifferences() {
+        NewtonKrylov.SolveStats fd = assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 32, false,
+                NewtonKrylov.ForcingTerm.CONSTANT, false, 1);
+        NewtonKrylov.SolveStats exact = assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 32, false,
+                NewtonKrylov.ForcingTerm.CONSTANT, true, 1);
+
+        assertEquals(0, fd.jacobianVectorEvaluations(), "Без хука аналитический J*v дергаться не должен: " + fd);
+        assertTrue(exact.jacobianVectorEvaluations() > 0, "Хук J*v обязан реально использоваться: " + exact);
+        // F дергается только на невязку и line search, матвеки Крылова его не трогают: F-evals заметно
+        // меньше, чем матвеков, и минимум вдвое меньше, чем у FD (точное число зависит от пути итераций)
+        assertTrue(exact.residualEvaluations() < exact.jacobianVectorEvaluations(),
+                "С точным J*v F.evaluate на матвеки Крылова уходить не должен: " + exact);
+        assertTrue(2 * exact.residualEvaluations() < fd.residualEvaluations(),
+                "Аналитика обязана срезать F-evals: analytic " + exact + " vs FD " + fd);
+    }
+
+    @Test
+    void testJFNK_JacobianLagReusesLinearization() {
+        NewtonKrylov.SolveStats fresh = assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 32, false,
+                NewtonKrylov.ForcingTerm.CONSTANT, true, 1);
+        NewtonKrylov.SolveStats lagged = assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 32, false,
+                NewtonKrylov.ForcingTerm.CONSTANT, true, 3);
+        NewtonKrylov.SolveStats laggedFd = assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod.GMRES, 32,
+                false, NewtonKrylov.ForcingTerm.CONSTANT, false, 3);
+
+        assertEquals(fresh.newtonIterations(), fresh.linearizations(),
+                "Без лага линеаризация на каждом шаге: " + fresh);
+        assertTrue(lagged.linearizations() < lagged.newtonIterations(),
+                "С лагом одна линеаризация обязана пережить несколько Newton-шагов: " + lagged);
+        // FD тоже лагает: J*v дифференцирует F в старой точке, аналитический хук не при делах
+        assertTrue(laggedFd.linearizations() < laggedFd.newtonIterations(),
+                "FD J*v обязан держать старую точку линеаризации: " + laggedFd);
+        assertEquals(0, laggedFd.jacobianVectorEvaluations(), "Без хука J*v только конечные разности: " + laggedFd);
+    }
+
+    @Test
+    void testJFNK_RejectsNonPositiveJacobianLag() {
+        NewtonKrylov solver = new NewtonKrylov(new Grid2D(8, 8, 1.0, 1.0), 5, 1e-8, 10, 1e-6);
+        assertThrows(IllegalArgumentException.class, () -> solver.setJacobianLag(0));
+    }
+
+    private void assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod method) {
+        assertJfnkSolvesDiffusionReaction(method, 32, false);
+    }
+
+    private void assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod method, int n, boolean multigrid) {
+        assertJfnkSolvesDiffusionReaction(method, n, multigrid, NewtonKrylov.ForcingTerm.CONSTANT);
+    }
+
+    private NewtonKrylov.SolveStats assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod method, int n,
+            boolean multigrid, NewtonKrylov.ForcingTerm forcing) {
+        return assertJfnkSolvesDiffusionReaction(method, n, multigrid, forcing, false, 1);
+    }
+
+    private NewtonKrylov.SolveStats assertJfnkSolvesDiffusionReaction(NewtonKrylov.KrylovMethod method, int n,
+            boolean multigrid, NewtonKrylov.ForcingTerm forcing, boolean analyticJv, int jacobianLag) {
         // Разваливаем стационарную нелинейную таску (steady-state):
         // -Laplacian(u) - exp(u) + f(x,y) = 0
-        // на сетке 32x32 под жестким Дирихле.
+        // на сетке n x n под жестким Дирихле.
 
-        int n = 32;
         Grid2D grid = new Grid2D(n, n, 1.0, 1.0);
         int nInt = grid.numInterior();
 
@@ -45,7 +140,25 @@ class JFNKTest {
         }
 
         // Define JFNK Non-Linear Function F(u) = -Laplacian(u) - exp(u) + f
-        NewtonKrylov.NonLinearFunction F = new NewtonKrylov.NonLinearFunction() {
+        // Точный Якобиан: J v = -Laplacian(v) - exp(u) v, exp(u) кэшим в linearize()
+        double[] expU = new double[nInt];
+        NewtonKrylov.AnalyticJacobian exactF = new NewtonKrylov.AnalyticJacobian() {
+            @Override
+            public void linearize(double[] u_lin) {
+                for (int i = 0; i < nInt; i++) {
+                    expU[i] = Math.exp(u_lin[i]);
+                }
+            }
+
+            @Override
+            public void jacobianVector(double[] u_lin, double[] v, double[] out) {
+                // v - возмущение, на Дирихле-границе оно нулевое
+                Stencil.applyLaplacianInterior(grid, v, null, out);
+                for (int i = 0; i < nInt; i++) {
+                    out[i] = -out[i] - expU[i] * v[i];
+                }
+            }
+
             @Override
             public void evaluate(double[] u_guess_int, double[] F_out) {
                 // Чтобы накатить Лапласиан без багов, нужен u_full со стерильными нулями на краях
@@ -64,8 +177,14 @@ class JFNKTest {
             }
         };
 
+        // Без аналитики отдаем голый evaluate - солвер не увидит AnalyticJacobian и уйдет в FD
+        NewtonKrylov.NonLinearFunction F = analyticJv ? exactF : exactF::evaluate;
+
         // Инициализируем (поднимаем базовые структуры, выделяем память) solver
-        NewtonKrylov solver = new NewtonKrylov(grid, 20, 1e-8, 1000, 1e-9);
+        Preconditioner M = multigrid ? new MGPreconditioner(grid, 1.0, null) : null;
+        NewtonKrylov solver = new NewtonKrylov(grid, 20, 1e-8, 1000, 1e-9, method, M);
+        solver.setForcingTerm(forcing);
+        solver.setJacobianLag(jacobianLag);
 
         // Заводимся с полного нуля (zero initial guess)
         double[] u_solve_int = new double[nInt]; // Initial guess is 0.0
@@ -83,7 +202,9 @@ class JFNKTest {
             maxError = Math.max(maxError, Math.abs(e));
         }
 
-        System.out.println("JFNK Max Error converging to True Solution: " + maxError);
+        System.out.println("JFNK (" + method + ") Max Error converging to True Solution: " + maxError);
         assertTrue(maxError < 1e-6, "JFNK тупо не сошелся к настоящему решению");
+        assertTrue(solver.getLastSolveStats().converged(), "Стата обязана отрапортовать сходимость");
+        return solver.getLastSolveStats();
     }
 }
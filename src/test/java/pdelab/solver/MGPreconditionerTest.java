@@ -22,8 +22,7 @@ public class MGPreconditionerTest {
 
                 // Typical Crank-Nicolson factor
                 double factor = 0.01 * 1.0 / 2.0;
-                double[] tempLxInt = new double[grid.numInterior()];
-                ImplicitMatrix A = new ImplicitMatrix(grid, factor, tempLxInt, null, null);
+                ImplicitMatrix A = new ImplicitMatrix(grid, factor);
 
                 // Right hand side (random-ish)
                 double[] rhs = new double[grid.numInterior()];
@@ -0,0 +1,128 @@
+package pdelab.solver;
+
+import org.junit.jupiter.api.Test;
+import pdelab.core.Grid2D;
+import pdelab.core.ParallelExecutor;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NonSymmetricKrylovTest {
+
+    /**
+     * A = I - factor * Laplacian + c * D_x^- (first-order upwind): жестко несимметричная матрица,
+     * на которой PCG формально не имеет права работать.
+     */
+    private static MatrixOperator convectionDiffusion(Grid2D grid, double factor, double c) {
+        int inX = grid.inX();
+        int inY = grid.inY();
+        double ihx2 = grid.ihx2();
+        double ihy2 = grid.ihy2();
+        double ihx = 1.0 / grid.hx();
+        return (x, y) -> {
+            for (int j = 0; j < inY; j++) {
+                for (int i = 0; i < inX; i++) {
+                    int idx = j * inX + i;
+                    double center = x[idx];
+                    double left = (i == 0) ? 0.0 : x[idx - 1];
+                    double right = (i == inX - 1) ? 0.0 : x[idx + 1];
+                    double down = (j == 0) ? 0.0 : x[idx - inX];
+                    double up = (j == inY - 1) ? 0.0 : x[idx + inX];
+                    double lap = (left - 2.0 * center + right) * ihx2 + (down - 2.0 * center + up) * ihy2;
+                    y[idx] = center - factor * lap + c * (center - left) * ihx;
+                }
+            }
+        };
+    }
+
+    private static final Preconditioner IDENTITY = new Preconditioner() {
+        @Override
+        public void apply(double[] r, double[] z) {
+            System.arraycopy(r, 0, z, 0, r.length);
+        }
+
+        @Override
+        public void updateFactor(double factor) {
+        }
+    };
+
+    private static double trueRelResidual(MatrixOperator A, double[] b, double[] x) {
+        double[] Ax = new double[b.length];
+        A.multiply(x, Ax);
+        double rr = 0.0;
+        double bb = 0.0;
+        for (int i = 0; i < b.length; i++) {
+            rr += (b[i] - Ax[i]) * (b[i] - Ax[i]);
+            bb += b[i] * b[i];
+        }
+        return Math.sqrt(rr / bb);
+    }
+
+    private static double[] rhs(Grid2D grid) {
+        double[] b = new double[grid.numInterior()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = Math.sin((i + 1) * 0.37) + 0.5;
+        }
+        return b;
+    }
+
+    @Test
+    public void testGmresConvergesOnNonSymmetricOperator() {
+        ParallelExecutor.init(2);
+        Grid2D grid = new Grid2D(33, 33, 1.0, 1.0);
+        MatrixOperator A = convectionDiffusion(grid, 1e-3, 0.5);
+        double[] b = rhs(grid);
+        double[] x = new double[b.length];
+
+        // Маленький рестарт специально, чтобы прогнать логику перезапуска
+        GMRES gmres = new GMRES(grid, 10, 2000, 1e-10);
+        LinearSolver.SolveResult result = gmres.solve(A, IDENTITY, b, x);
+
+        assertEquals(LinearSolver.Status.CONVERGED, result.status(), "GMRES обязан сойтись на несимметричной матрице");
+        assertTrue(trueRelResidual(A, b, x) < 1e-9, "Оценка невязки GMRES обязана совпасть с честной");
+    }
+
+    @Test
+    public void testGmresWithJacobiRightPreconditioner() {
+        Grid2D grid = new Grid2D(33, 33, 1.0, 1.0);
+        double factor = 1e-3;
+        MatrixOperator A = convectionDiffusion(grid, factor, 0.5);
+        double[] b = rhs(grid);
+
+        double[] xPlain = new double[b.length];
+        LinearSolver.SolveResult plain = new GMRES(grid, 30, 2000, 1e-10).solve(A, IDENTITY, b, xPlain);
+
+        double[] xPrec = new double[b.length];
+        Preconditioner jacobi = new JacobiPreconditioner(grid, factor);
+        LinearSolver.SolveResult prec = new GMRES(grid, 30, 2000, 1e-10).solve(A, jacobi, b, xPrec);
+
+        assertEquals(LinearSolver.Status.CONVERGED, prec.status());
+        assertTrue(prec.iterations() <= plain.iterations(), "Прекондей не должен замедлять GMRES");
+        assertTrue(trueRelResidual(A, b, xPrec) < 1e-9, "Правый прекондей обязан сохранить честную невязку");
+    }
+
+    @Test
+    public void testBiCGStabConvergesOnNonSymmetricOperator() {
+        Grid2D grid = new Grid2D(33, 33, 1.0, 1.0);
+        MatrixOperator A = convectionDiffusion(grid, 1e-3, 0.5);
+        double[] b = rhs(grid);
+        double[] x = new double[b.length];
+
+        BiCGStab bicgstab = new BiCGStab(grid, 2000, 1e-10);
+        LinearSolver.SolveResult result = bicgstab.solve(A, new JacobiPreconditioner(grid, 1e-3), b, x);
+
+        assertEquals(LinearSolver.Status.CONVERGED, result.status(), "BiCGStab обязан сойтись на несимметричной матрице");
+        assertTrue(trueRelResidual(A, b, x) < 1e-9);
+    }
+
+    @Test
+    public void testKrylovSolversRejectNaN() {
+        Grid2D grid = new Grid2D(5, 5, 1.0, 1.0);
+        MatrixOperator A = (x, y) -> System.arraycopy(x, 0, y, 0, x.length);
+        double[] b = new double[9];
+        b[0] = Double.NaN;
+
+        assertEquals(LinearSolver.Status.FAIL_NUMERIC,
+                new GMRES(grid, 5, 50, 1e-8).solve(A, IDENTITY, b, new double[9]).status());
+        assertEquals(LinearSolver.Status.FAIL_NUMERIC,
+                new BiCGStab(grid, 50, 1e-8).solve(A, IDENTITY, b, new double[9]).status());
+    }
+}
@@ -13,6 +13,36 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class TimeStepperTest {
 
+    @Test
+    public void testStepPhaseTimersAddUp() {
+        int N = 32;
+        Grid2D grid = new Grid2D(N, N, 1.0, 1.0);
+        ParallelExecutor.init(2);
+        MMS mms = new MMS(MMS.TestCase.NON_ZERO_DIRICHLET, 0.1);
+        TimeStepper stepper = new TimeStepper(grid, TimeStepper.Scheme.CRANK_NICOLSON, 0.1, 0.01, 100, 1e-8,
+                null, "JACOBI", new DirichletBoundary(mms));
+        stepper.initExact(0.0, mms);
+        for (int i = 0; i < 5; i++) {
+            stepper.step(i * 0.01, mms);
+        }
+
+        assertEquals(5, stepper.getStepLatency().count(), "Гистограмма шага - по замеру на step()");
+        long phases = 0;
+        for (TimeStepper.Phase phase : TimeStepper.Phase.values()) {
+            assertEquals(5, stepper.getPhaseLatency(phase).count(), "Каждая фаза пишется на каждом шаге: " + phase);
+            assertTrue(stepper.getPhaseNanos(phase) >= 0);
+            phases += stepper.getPhaseNanos(phase);
+        }
+        assertTrue(stepper.getPhaseNanos(TimeStepper.Phase.SOLVE) > 0, "PCG не бесплатный");
+        assertTrue(stepper.getPhaseNanos(TimeStepper.Phase.PRECONDITIONER) > 0,
+                "Предобуславливатель зовется на каждой итерации - время обязано накапать");
+        // Фазы не пересекаются и покрывают весь шаг (между замерами только присваивания)
+        long total = stepper.getStepLatency().sumNanos();
+        assertTrue(phases <= total && phases >= total * 0.95,
+                "Сумма фаз " + phases + " нс обязана сойтись с шагом " + total + " нс");
+        assertTrue(stepper.getStepLatency().percentile(0.5) <= stepper.getStepLatency().percentile(0.99));
+    }
+
     @Test
     public void testNeumannIntegration() {
         int N = 16;